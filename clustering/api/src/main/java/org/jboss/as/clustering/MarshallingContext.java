@@ -22,12 +22,17 @@
 
 package org.jboss.as.clustering;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import org.jboss.marshalling.ClassResolver;
 import org.jboss.marshalling.Marshaller;
 import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
 import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.SimpleDataInput;
+import org.jboss.marshalling.SimpleDataOutput;
 import org.jboss.marshalling.Unmarshaller;
 
 /**
@@ -54,6 +59,91 @@ public class MarshallingContext {
         return this.factory.createMarshaller(this.getMarshallingConfiguration(version));
     }
 
+    /**
+     * Marshals the specified object using the current marshalling version.
+     * The returned bytes start with the marshalling version, followed by the marshalled object.
+     * @param object an object
+     * @return the marshalled form of the object
+     * @throws IOException if the object could not be marshalled
+     */
+    public byte[] marshal(Object object) throws IOException {
+        int version = this.getCurrentVersion();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SimpleDataOutput data = new SimpleDataOutput(Marshalling.createByteOutput(output));
+        data.writeInt(version);
+        Marshaller marshaller = this.createMarshaller(version);
+        try {
+            marshaller.start(data);
+            this.writeObject(version, marshaller, object);
+            marshaller.finish();
+            return output.toByteArray();
+        } finally {
+            marshaller.close();
+        }
+    }
+
+    /**
+     * Unmarshals an object previously marshalled via {@link #marshal(Object)}.
+     * @param bytes the marshalled form of an object
+     * @return the unmarshalled object
+     * @throws IOException if the object could not be unmarshalled
+     * @throws ClassNotFoundException if the class of the object could not be resolved
+     */
+    public Object unmarshal(byte[] bytes) throws IOException, ClassNotFoundException {
+        ByteArrayInputStream input = new ByteArrayInputStream(bytes);
+        SimpleDataInput data = new SimpleDataInput(Marshalling.createByteInput(input));
+        int version = data.readInt();
+        Unmarshaller unmarshaller = this.createUnmarshaller(version);
+        try {
+            unmarshaller.start(data);
+            Object object = this.readObject(version, unmarshaller);
+            unmarshaller.finish();
+            return object;
+        } finally {
+            unmarshaller.close();
+        }
+    }
+
+    /**
+     * Writes the specified object to a started marshaller, using the context class loader of the specified version.
+     */
+    protected void writeObject(int version, Marshaller marshaller, Object object) throws IOException {
+        // Workaround for AS7-2496
+        ClassLoader currentLoader = null;
+        ClassLoader contextLoader = this.getContextClassLoader(version);
+        if (contextLoader != null) {
+            currentLoader = SimpleMarshalledValue.getCurrentThreadContextClassLoader();
+            SimpleMarshalledValue.setCurrentThreadContextClassLoader(contextLoader);
+        }
+        try {
+            marshaller.writeObject(object);
+        } finally {
+            if (contextLoader != null) {
+                SimpleMarshalledValue.setCurrentThreadContextClassLoader(currentLoader);
+            }
+        }
+    }
+
+    /**
+     * Reads an object from a started unmarshaller, using the context class loader of the specified version.
+     */
+    protected Object readObject(int version, Unmarshaller unmarshaller) throws IOException, ClassNotFoundException {
+        // Workaround for AS7-2496
+        ClassLoader currentLoader = null;
+        ClassLoader contextLoader = this.getContextClassLoader(version);
+        if (contextLoader != null) {
+            currentLoader = SimpleMarshalledValue.getCurrentThreadContextClassLoader();
+            SimpleMarshalledValue.setCurrentThreadContextClassLoader(contextLoader);
+        }
+        try {
+            return unmarshaller.readObject();
+        } finally {
+            if (contextLoader != null) {
+                SimpleMarshalledValue.setCurrentThreadContextClassLoader(currentLoader);
+            }
+        }
+    }
+
     // AS7-2496 Workaround
     public ClassLoader getContextClassLoader(int version) {
         final ClassResolver resolver = this.getMarshallingConfiguration(version).getClassResolver();
@@ -22,8 +22,6 @@
 
 package org.jboss.as.clustering;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -32,11 +30,6 @@ import java.util.Arrays;
 
 import org.jboss.as.util.security.GetContextClassLoaderAction;
 import org.jboss.as.util.security.SetContextClassLoaderAction;
-import org.jboss.marshalling.Marshaller;
-import org.jboss.marshalling.Marshalling;
-import org.jboss.marshalling.SimpleDataInput;
-import org.jboss.marshalling.SimpleDataOutput;
-import org.jboss.marshalling.Unmarshaller;
 
 import static java.lang.System.getSecurityManager;
 import static java.lang.Thread.currentThread;
@@ -70,33 +63,19 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
         byte[] bytes = this.bytes;
         if (bytes != null) return bytes;
         if (this.object == null) return null;
-        int version = this.context.getCurrentVersion();
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        SimpleDataOutput data = new SimpleDataOutput(Marshalling.createByteOutput(output));
-        data.writeInt(version);
-        Marshaller marshaller = this.context.createMarshaller(version);
-        try {
-            marshaller.start(data);
-
-            // Workaround for AS7-2496
-            ClassLoader currentLoader = null;
-            ClassLoader contextLoader = context.getContextClassLoader(version);
-            if (contextLoader != null) {
-                currentLoader = getCurrentThreadContextClassLoader();
-                setCurrentThreadContextClassLoader(contextLoader);
-            }
-            try {
-                marshaller.writeObject(this.object);
-            } finally {
-                if (contextLoader != null) {
-                    setCurrentThreadContextClassLoader(currentLoader);
-                }
-            }
-            marshaller.finish();
-            return output.toByteArray();
-        } finally {
-            marshaller.close();
-        }
+        return this.context.marshal(this.object);
+    }
+
+    /**
+     * Serializes the object now, rather than when this marshalled value is written, and retains the result.
+     * Subsequent changes to the object are therefore not reflected by the serialized form.
+     * @return the size of the serialized form in bytes
+     * @throws IOException if the object could not be serialized
+     */
+    public synchronized int serialize() throws IOException {
+        byte[] bytes = this.getBytes();
+        this.bytes = bytes;
+        return (bytes != null) ? bytes.length : 0;
     }
 
     /**
@@ -109,31 +88,8 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
         if (this.object == null) {
             this.context = context;
             if (this.bytes != null) {
-                ByteArrayInputStream input = new ByteArrayInputStream(this.bytes);
-                SimpleDataInput data = new SimpleDataInput(Marshalling.createByteInput(input));
-                int version = data.readInt();
-                Unmarshaller unmarshaller = context.createUnmarshaller(version);
-                try {
-                    unmarshaller.start(data);
-                    // Workaround for AS7-2496
-                    ClassLoader currentLoader = null;
-                    ClassLoader contextLoader = context.getContextClassLoader(version);
-                    if (contextLoader != null) {
-                        currentLoader = getCurrentThreadContextClassLoader();
-                        setCurrentThreadContextClassLoader(contextLoader);
-                    }
-                    try {
-                        this.object = (T) unmarshaller.readObject();
-                    } finally {
-                        if (contextLoader != null) {
-                            setCurrentThreadContextClassLoader(currentLoader);
-                        }
-                    }
-                    unmarshaller.finish();
-                    this.bytes = null; // Free up memory
-                } finally {
-                    unmarshaller.close();
-                }
+                this.object = (T) context.unmarshal(this.bytes);
+                this.bytes = null; // Free up memory
             }
         }
         return this.object;
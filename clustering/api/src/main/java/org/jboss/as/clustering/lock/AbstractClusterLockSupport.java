@@ -24,6 +24,7 @@ package org.jboss.as.clustering.lock;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -282,13 +283,11 @@ public abstract class AbstractClusterLockSupport implements GroupMembershipListe
         for (ClusterNode deadMember : toClean) {
             Set<ClusterLockState> deadMemberLocks = lockStatesByOwner.remove(deadMember);
             if (deadMemberLocks != null) {
-                synchronized (deadMemberLocks) {
-                    // We're going to iterate and make a call that removes from set,
-                    // so iterate over a copy to avoid ConcurrentModificationException
-                    Set<ClusterLockState> copy = new HashSet<ClusterLockState>(deadMemberLocks);
-                    for (ClusterLockState lockState : copy) {
-                        releaseRemoteLock(lockState.lockId, deadMember);
-                    }
+                // We're going to iterate and make a call that removes from set,
+                // so iterate over a copy
+                Set<ClusterLockState> copy = new HashSet<ClusterLockState>(deadMemberLocks);
+                for (ClusterLockState lockState : copy) {
+                    releaseRemoteLock(lockState.lockId, deadMember);
                 }
             }
 
@@ -314,18 +313,13 @@ public abstract class AbstractClusterLockSupport implements GroupMembershipListe
             long timeout);
 
     protected void recordLockHolder(ClusterLockState lockState, ClusterNode caller) {
-        if (lockState.holder != null) {
-            Set<ClusterLockState> memberLocks = getLocksHeldByMember(lockState.holder);
-            synchronized (memberLocks) {
-                memberLocks.remove(lockState);
-            }
+        ClusterNode holder = lockState.getHolder();
+        if (holder != null) {
+            getLocksHeldByMember(holder).remove(lockState);
         }
 
         if (me.equals(caller) == false) {
-            Set<ClusterLockState> memberLocks = getLocksHeldByMember(caller);
-            synchronized (memberLocks) {
-                memberLocks.add(lockState);
-            }
+            getLocksHeldByMember(caller).add(lockState);
         }
 
         lockState.lock(caller);
@@ -409,10 +403,7 @@ public abstract class AbstractClusterLockSupport implements GroupMembershipListe
                 // Throw away the category as a cleanup exercise
                 lockState.invalidate();
                 localHandler.unlockFromCluster(categoryName, caller);
-                Set<ClusterLockState> memberLocks = getLocksHeldByMember(caller);
-                synchronized (memberLocks) {
-                    memberLocks.remove(lockState);
-                }
+                getLocksHeldByMember(caller).remove(lockState);
                 removeLockState(lockState);
             }
         }
@@ -457,7 +448,8 @@ public abstract class AbstractClusterLockSupport implements GroupMembershipListe
     private Set<ClusterLockState> getLocksHeldByMember(ClusterNode member) {
         Set<ClusterLockState> memberCategories = lockStatesByOwner.get(member);
         if (memberCategories == null) {
-            memberCategories = new HashSet<ClusterLockState>();
+            // Concurrent, so that locks of different categories held by the same member do not contend on a monitor
+            memberCategories = Collections.newSetFromMap(new ConcurrentHashMap<ClusterLockState, Boolean>());
             Set<ClusterLockState> existing = lockStatesByOwner.putIfAbsent(member, memberCategories);
             if (existing != null) {
                 memberCategories = existing;
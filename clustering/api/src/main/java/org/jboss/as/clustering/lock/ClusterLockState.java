@@ -54,7 +54,7 @@ public class ClusterLockState {
 
     final Serializable lockId;
     final AtomicReference<ClusterLockState.State> state = new AtomicReference<ClusterLockState.State>(State.UNLOCKED);
-    ClusterNode holder;
+    volatile ClusterNode holder;
 
     ClusterLockState(Serializable lockId) {
         if (lockId == null) {
@@ -63,7 +63,7 @@ public class ClusterLockState {
         this.lockId = lockId;
     }
 
-    public synchronized ClusterNode getHolder() {
+    public ClusterNode getHolder() {
         return holder;
     }
 
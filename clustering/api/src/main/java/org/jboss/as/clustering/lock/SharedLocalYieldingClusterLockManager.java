@@ -174,6 +174,29 @@ public class SharedLocalYieldingClusterLockManager {
             }
         }
 
+        /**
+         * Takes the lock for the local node without registering interest in it, if the local node either holds the lock, or
+         * was its last holder. Neither requires asking the cluster, so a single CAS suffices.
+         * @return the LockState after the lock is taken, or <code>null</code> if the lock must be acquired via
+         *         {@link #registerForLocalLock()}
+         */
+        LockState lockIfHeldLocally() {
+            if (removable) {
+                // Let the regular path deal with a concurrent removal
+                return null;
+            }
+            for (;;) {
+                LockState current = lockState.get();
+                LockState newState = current.reenter(SharedLocalYieldingClusterLockManager.this.localNode);
+                if (newState == null) {
+                    return null;
+                }
+                if (lockState.compareAndSet(current, newState)) {
+                    return newState;
+                }
+            }
+        }
+
         LockState registerForLocalLock() {
             LockState current = lockState.get();
             LockState newState = null;
@@ -244,6 +267,25 @@ public class SharedLocalYieldingClusterLockManager {
             return new LockState(newCount, lockHolder, lastHolder, registrant, invalid);
         }
 
+        /**
+         * Increase the local lock count if <code>owner</code> holds the lock, or held it last and it is currently unheld.
+         * @param owner the local node.
+         * @return a LockState with a lock count one higher than this one and with <code>owner</code> as the lock holder, or
+         *         <code>null</code> if <code>owner</code> cannot take the lock without asking the cluster
+         */
+        LockState reenter(ClusterNode owner) {
+            if (invalid) {
+                return null;
+            }
+            if (lockHolder == owner) {
+                return new LockState(localLockCount + 1, owner, lastHolder, latestRegistrant, false);
+            }
+            if (lockHolder == null && lastHolder == owner) {
+                return new LockState(localLockCount + 1, owner, null, latestRegistrant, false);
+            }
+            return null;
+        }
+
         /**
          * Increase the local lock count and assign the lock holder to the given node. This should only be called with the local
          * node as owner.
@@ -411,6 +453,9 @@ public class SharedLocalYieldingClusterLockManager {
                 LockState lockState = localLock.lockForLocalNode();
                 result = (lockState.localLockCount == 1 ? LockResult.NEW_LOCK : LockResult.ALREADY_HELD);
             }
+        } else if (localLock.lockIfHeldLocally() != null) {
+            // Fast path: no need to register interest, wait for, or ask anyone
+            return LockResult.ALREADY_HELD;
         }
 
         if (result == null) { // We have to ask the cluster
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.lock;
+
+import static org.jboss.as.clustering.lock.LockParamsMatcher.eqLockParams;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.clustering.ClusterNode;
+import org.jboss.as.clustering.GroupMembershipNotifier;
+import org.jboss.as.clustering.GroupRpcDispatcher;
+import org.jboss.as.clustering.MockClusterNode;
+import org.jboss.as.clustering.ResponseFilter;
+import org.jboss.as.clustering.lock.AbstractClusterLockSupport.RpcTarget;
+import org.jboss.as.clustering.lock.SharedLocalYieldingClusterLockManager.LockResult;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit tests of the fast path of {@link SharedLocalYieldingClusterLockManager} for locks owned by the local node.
+ * Unlike {@link SharedLocalYieldingClusterLockManagerUnitTestCase} these do not depend on timing.
+ */
+public class SharedLocalYieldingClusterLockManagerFastPathUnitTestCase {
+    private static final ResponseFilter NULL_FILTER = null;
+
+    private final ClusterNode node1 = new MockClusterNode(1);
+    private final ClusterNode node2 = new MockClusterNode(2);
+    private final ClusterNode node3 = new MockClusterNode(3);
+
+    @Test
+    public void testFastPathReentry() throws Exception {
+        TesteeSet ts = getTesteeSet(node1, 0, 3);
+        assertEquals(LockResult.NEW_LOCK, ts.testee.lock("test", 1000, true));
+
+        // Held locally
+        assertEquals(LockResult.ALREADY_HELD, ts.testee.lock("test", 1000, false));
+        ts.testee.unlock("test", false);
+        ts.testee.unlock("test", false);
+
+        // Unheld, but the local node held it last
+        assertEquals(LockResult.ALREADY_HELD, ts.testee.lock("test", 1000, false));
+        assertEquals(LockResult.ALREADY_HELD, ts.testee.lock("test", 1000, false));
+        ts.testee.unlock("test", false);
+
+        verify(ts.rpcDispatcher, never()).callMethodOnCluster(eq("test"), eq("remoteLock"), eqLockParams(node1, 200000),
+                aryEq(AbstractClusterLockSupport.REMOTE_LOCK_TYPES), eq(true), eq(NULL_FILTER), anyInt(), eq(false));
+
+        // Still held once, so a remote caller is refused
+        RemoteLockResponse rsp = ts.target.remoteLock("test", node2, 100);
+        assertEquals(RemoteLockResponse.Flag.FAIL, rsp.flag);
+        assertEquals(node1, rsp.holder);
+
+        ts.testee.unlock("test", false);
+        rsp = ts.target.remoteLock("test", node2, 100);
+        assertEquals(RemoteLockResponse.Flag.OK, rsp.flag);
+    }
+
+    @Test
+    public void testNoFastPathAfterRemoteCallerTakesLock() throws Exception {
+        TesteeSet ts = getTesteeSet(node1, 0, 3);
+        assertEquals(LockResult.NEW_LOCK, ts.testee.lock("test", 1000, true));
+        ts.testee.unlock("test", false);
+        assertEquals(RemoteLockResponse.Flag.OK, ts.target.remoteLock("test", node2, 100).flag);
+
+        List<RemoteLockResponse> rspList = getOKResponses(2);
+        when(ts.rpcDispatcher.getMethodCallTimeout()).thenReturn(60000l);
+        when(ts.rpcDispatcher.<RemoteLockResponse>callMethodOnCluster(eq("test"), eq("remoteLock"), eqLockParams(node1, 200000),
+                        aryEq(AbstractClusterLockSupport.REMOTE_LOCK_TYPES), eq(true), eq(NULL_FILTER), anyInt(), eq(false))).thenReturn(rspList);
+
+        assertEquals(LockResult.ACQUIRED_FROM_CLUSTER, ts.testee.lock("test", 1000, false));
+    }
+
+    @Test
+    public void testConcurrentReentry() throws Exception {
+        final TesteeSet ts = getTesteeSet(node1, 0, 3);
+        assertEquals(LockResult.NEW_LOCK, ts.testee.lock("test", 1000, true));
+
+        final int threads = 8;
+        final int iterations = 10000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        startLatch.await();
+                        for (int j = 0; j < iterations; j++) {
+                            assertEquals(LockResult.ALREADY_HELD, ts.testee.lock("test", 1000, false));
+                            ts.testee.unlock("test", false);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            startLatch.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every reentry was released, leaving only the first lock
+        assertEquals(RemoteLockResponse.Flag.FAIL, ts.target.remoteLock("test", node2, 100).flag);
+        ts.testee.unlock("test", false);
+        assertEquals(RemoteLockResponse.Flag.OK, ts.target.remoteLock("test", node2, 100).flag);
+    }
+
+    private TesteeSet getTesteeSet(ClusterNode node, int viewPos, int viewSize) throws Exception {
+        GroupRpcDispatcher rpcDispatcher = mock(GroupRpcDispatcher.class);
+        GroupMembershipNotifier notifier = mock(GroupMembershipNotifier.class);
+        when(rpcDispatcher.isConsistentWith(notifier)).thenReturn(true);
+        when(rpcDispatcher.getClusterNode()).thenReturn(node);
+
+        List<ClusterNode> view = new ArrayList<ClusterNode>(Arrays.asList(node1, node2, node3));
+        view.remove(node);
+        while (view.size() > viewSize - 1) {
+            view.remove(view.size() - 1);
+        }
+        view.add(viewPos, node);
+        when(rpcDispatcher.getClusterNodes()).thenReturn(view);
+
+        SharedLocalYieldingClusterLockManager testee = new SharedLocalYieldingClusterLockManager("test", rpcDispatcher, notifier);
+
+        testee.start();
+
+        ArgumentCaptor<RpcTarget> c = ArgumentCaptor.forClass(RpcTarget.class);
+        verify(rpcDispatcher).registerRPCHandler(eq("test"), c.capture());
+
+        return new TesteeSet(testee, rpcDispatcher, c.getValue());
+    }
+
+    private static List<RemoteLockResponse> getOKResponses(int numResponses) {
+        List<RemoteLockResponse> rspList = new ArrayList<RemoteLockResponse>();
+        for (int i = 0; i < numResponses + 1; i++) {
+            rspList.add(new RemoteLockResponse(null, RemoteLockResponse.Flag.OK));
+        }
+        return rspList;
+    }
+
+    private static class TesteeSet {
+        private final SharedLocalYieldingClusterLockManager testee;
+        private final RpcTarget target;
+        private final GroupRpcDispatcher rpcDispatcher;
+
+        TesteeSet(SharedLocalYieldingClusterLockManager testee, GroupRpcDispatcher rpcDispatcher, RpcTarget target) {
+            this.testee = testee;
+            this.rpcDispatcher = rpcDispatcher;
+            this.target = target;
+        }
+    }
+}
@@ -197,6 +197,20 @@ public class InfinispanBackingCacheEntryStore<K extends Serializable, V extends
         return this.unmarshalEntry(id, this.invoker.invoke(this.cache, operation));
     }
 
+    @Override
+    public E peek(final K id, boolean activate) {
+        this.trace("peek(%s, %s)", id, activate);
+
+        Operation<MarshalledValue<E, C>> operation = new Operation<MarshalledValue<E, C>>() {
+            @Override
+            public MarshalledValue<E, C> invoke(Cache<K, MarshalledValue<E, C>> cache) {
+                return cache.get(id);
+            }
+        };
+        MarshalledValue<E, C> value = activate ? this.invoker.invoke(this.cache, operation) : this.invoker.invoke(this.cache, operation, Flag.SKIP_CACHE_LOAD);
+        return this.unmarshalEntry(id, value);
+    }
+
     @Override
     public void update(E entry, boolean modified) {
         final K id = entry.getId();
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the chunks written by a {@link ChunkedOutputStream} as a single stream, one chunk at a time, leaving the
+ * underlying stream positioned after the terminating chunk once exhausted or closed.
+ */
+class ChunkedInputStream extends InputStream {
+    private final DataInputStream input;
+    private int remaining = 0;
+    private boolean finished = false;
+
+    ChunkedInputStream(DataInputStream input) {
+        this.input = input;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.nextChunk()) {
+            return -1;
+        }
+        int b = this.input.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        this.remaining -= 1;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.nextChunk()) {
+            return -1;
+        }
+        int read = this.input.read(bytes, offset, Math.min(length, this.remaining));
+        if (read < 0) {
+            throw new EOFException();
+        }
+        this.remaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return Math.min(this.remaining, this.input.available());
+    }
+
+    /**
+     * Skips any unread chunks, including the terminating chunk. Does not close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        while (this.nextChunk()) {
+            int skipped = this.input.skipBytes(this.remaining);
+            if (skipped == 0) {
+                // skipBytes(...) gives up at the end of the stream
+                if (this.input.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            this.remaining -= skipped;
+        }
+    }
+
+    /**
+     * Makes sure the current chunk has unread bytes.
+     * @return false, if the terminating chunk was reached
+     */
+    private boolean nextChunk() throws IOException {
+        while (!this.finished && (this.remaining == 0)) {
+            this.remaining = this.input.readInt();
+            this.finished = (this.remaining == 0);
+        }
+        return !this.finished;
+    }
+}
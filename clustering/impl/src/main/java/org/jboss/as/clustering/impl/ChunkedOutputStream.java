@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Splits the bytes written to it into length-prefixed chunks of at most a fixed size, so that state can be
+ * written to a shared stream as it is marshalled, without first materializing it.
+ * Closing this stream writes the terminating empty chunk, but does not close the underlying stream.
+ * @see ChunkedInputStream
+ */
+class ChunkedOutputStream extends OutputStream {
+    private final DataOutputStream output;
+    private final byte[] buffer;
+    private int count = 0;
+    private boolean closed = false;
+
+    ChunkedOutputStream(DataOutputStream output, int chunkSize) {
+        this.output = output;
+        this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (this.count == this.buffer.length) {
+            this.writeChunk();
+        }
+        this.buffer[this.count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (this.count == this.buffer.length) {
+                this.writeChunk();
+            }
+            int size = Math.min(length, this.buffer.length - this.count);
+            System.arraycopy(bytes, offset, this.buffer, this.count, size);
+            this.count += size;
+            offset += size;
+            length -= size;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.count > 0) {
+            this.writeChunk();
+        }
+        this.output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            if (this.count > 0) {
+                this.writeChunk();
+            }
+            this.output.writeInt(0);
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        this.output.writeInt(this.count);
+        this.output.write(this.buffer, 0, this.count);
+        this.count = 0;
+    }
+}
@@ -247,4 +247,15 @@ public interface ClusteringImplLogger extends BasicLogger {
     @LogMessage(level = INFO)
     @Message(id = 10238, value = "Number of cluster members: %d")
     void numberOfClusterMembers(int size);
+
+    /**
+     * Logs a warning message indicating the management interface of the group communication service could not be
+     * registered with, or unregistered from, the MBean server.
+     *
+     * @param cause     the cause of the error.
+     * @param groupName the group name.
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 10239, value = "Failed to register or unregister the management interface of group communication service %s")
+    void mbeanRegistrationFailed(@Cause Throwable cause, String groupName);
 }
@@ -22,7 +22,9 @@
 
 package org.jboss.as.clustering.impl;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.jboss.as.clustering.ClusterNode;
 import org.jboss.as.clustering.ClusteringApiMessages;
@@ -127,4 +129,26 @@ public interface ClusteringImplMessages extends ClusteringApiMessages {
      */
     @Message(id = 10248, value = "New view: %s with viewId: %d (old view: %s)")
     String viewCreated(Collection<ClusterNode> allMembers, long id, CoreGroupCommunicationService.GroupView oldView);
+
+    /**
+     * Creates an exception indicating an rpc was rejected because the handler partition of the service is saturated.
+     *
+     * @param serviceName the service name.
+     * @param queueLength the length of the queue of the partition.
+     *
+     * @return a {@link RejectedExecutionException} for the error.
+     */
+    @Message(id = 10249, value = "Rejected rpc for service %s, all threads of its partition are busy and its queue of %d requests is full")
+    RejectedExecutionException rpcHandlerSaturated(String serviceName, int queueLength);
+
+    /**
+     * Creates an exception indicating the received state transfer stream was written in a format this member does not read.
+     *
+     * @param version   the version of the stream.
+     * @param supported the version this member reads.
+     *
+     * @return an {@link IOException} for the error.
+     */
+    @Message(id = 10250, value = "State transfer stream version %d is not supported, expected version %d")
+    IOException unsupportedStateTransferVersion(int version, int supported);
 }
@@ -21,7 +21,9 @@
  */
 package org.jboss.as.clustering.impl;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -38,7 +40,10 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -51,6 +56,11 @@ import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
 import org.jboss.as.clustering.ClusterNode;
 import org.jboss.as.clustering.GroupCommunicationService;
 import org.jboss.as.clustering.GroupMembershipListener;
@@ -72,11 +82,13 @@ import org.jboss.marshalling.Unmarshaller;
 import org.jboss.marshalling.reflect.ReflectiveCreator;
 import org.jboss.marshalling.reflect.SunReflectiveCreator;
 import org.jboss.modules.ModuleLoader;
+import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
+import org.jboss.msc.value.InjectedValue;
 import org.jboss.msc.value.Value;
 import org.jgroups.Address;
 import org.jgroups.Channel;
@@ -117,16 +129,42 @@ import static org.jboss.as.clustering.impl.ClusteringImplMessages.MESSAGES;
  * @author <a href="mailto:galder.zamarreno@jboss.com">Galder Zamarreno</a>
  * @author Paul Ferraro
  */
-public class CoreGroupCommunicationService implements Service<CoreGroupCommunicationService>, GroupRpcDispatcher, GroupMembershipNotifier, GroupStateTransferService {
+public class CoreGroupCommunicationService implements Service<CoreGroupCommunicationService>, GroupRpcDispatcher, GroupMembershipNotifier, GroupStateTransferService, CoreGroupCommunicationServiceMBean {
     private static final byte NULL_VALUE = 0;
     private static final byte SERIALIZABLE_VALUE = 1;
 
+    /**
+     * The number of threads dedicated to the RPCs of each registered service name. If 0, the default, RPCs are executed
+     * by the JGroups thread that received them.
+     */
+    public static final String RPC_PARTITION_THREADS = "jboss.as.clustering.rpc.partition-threads";
+    /** The number of RPCs per service name that may wait for a thread of its partition before further RPCs are rejected */
+    public static final String RPC_PARTITION_QUEUE_LENGTH = "jboss.as.clustering.rpc.partition-queue-length";
+    private static final int DEFAULT_RPC_PARTITION_QUEUE_LENGTH = 32;
+    /** The maximum number of bytes of state sent per chunk during state transfer */
+    public static final String STATE_TRANSFER_CHUNK_SIZE = "jboss.as.clustering.state-transfer.chunk-size";
+    private static final int DEFAULT_STATE_TRANSFER_CHUNK_SIZE = 64 * 1024;
+    /**
+     * Starts a chunked state stream. A legacy stream starts with the length of the first service name instead, which can
+     * not reach 0xFFFF for any real service name.
+     */
+    static final int STATE_TRANSFER_MAGIC = 0xFFFF;
+    static final byte STATE_TRANSFER_VERSION = 1;
+    /** The maximum number of idle marshallers, and of idle unmarshallers, kept for reuse */
+    private static final int MARSHALLER_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
     public static ServiceName getServiceName(String name) {
         return ServiceName.JBOSS.append("cluster").append(name);
     }
 
+    static ObjectName getObjectName(String groupName) throws MalformedObjectNameException {
+        return ObjectName.getInstance("jboss.as.clustering:type=GroupCommunicationService,cluster=" + ObjectName.quote(groupName));
+    }
+
     private final Value<Channel> channelRef;
     private final Value<ModuleLoader> loaderRef;
+    private final InjectedValue<MBeanServer> mbeanServerRef = new InjectedValue<MBeanServer>();
+    private volatile ObjectName objectName;
 
     public CoreGroupCommunicationService(short scope, Value<Channel> channel, Value<ModuleLoader> loader) {
         this.scopeId = scope;
@@ -159,6 +197,14 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         } catch (Exception e) {
             throw new StartException(e);
         }
+        MBeanServer server = this.mbeanServerRef.getOptionalValue();
+        if (server != null) {
+            try {
+                this.objectName = this.registerMBean(server, this.getGroupName());
+            } catch (JMException e) {
+                ClusteringImplLogger.ROOT_LOGGER.mbeanRegistrationFailed(e, this.getGroupName());
+            }
+        }
     }
 
     /**
@@ -167,9 +213,31 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
      */
     @Override
     public void stop(StopContext context) {
+        ObjectName name = this.objectName;
+        if (name != null) {
+            this.objectName = null;
+            try {
+                this.mbeanServerRef.getValue().unregisterMBean(name);
+            } catch (JMException e) {
+                ClusteringImplLogger.ROOT_LOGGER.mbeanRegistrationFailed(e, this.getGroupName());
+            }
+        }
         this.stop();
     }
 
+    Injector<MBeanServer> getMBeanServerInjector() {
+        return this.mbeanServerRef;
+    }
+
+    /**
+     * Registers the management interface of this service, named after its group.
+     *
+     * @return the name it was registered with
+     */
+    ObjectName registerMBean(MBeanServer server, String groupName) throws JMException {
+        return server.registerMBean(this, getObjectName(groupName)).getObjectName();
+    }
+
     // Constants -----------------------------------------------------
 
     // Attributes ----------------------------------------------------
@@ -187,6 +255,11 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
     final short scopeId;
     private volatile RpcDispatcher dispatcher = null;
     final Map<String, Object> rpcHandlers = new ConcurrentHashMap<String, Object>();
+    final ConcurrentMap<String, RpcHandlerPartition> rpcPartitions = new ConcurrentHashMap<String, RpcHandlerPartition>();
+    private final int rpcPartitionThreads = Integer.getInteger(RPC_PARTITION_THREADS, 0);
+    private final int rpcPartitionQueueLength = Integer.getInteger(RPC_PARTITION_QUEUE_LENGTH, DEFAULT_RPC_PARTITION_QUEUE_LENGTH);
+    final BlockingQueue<Marshaller> marshallers = new ArrayBlockingQueue<Marshaller>(MARSHALLER_POOL_SIZE);
+    final BlockingQueue<Unmarshaller> unmarshallers = new ArrayBlockingQueue<Unmarshaller>(MARSHALLER_POOL_SIZE);
     private boolean directlyInvokeLocal;
 
     /** Do we send any membership change notifications synchronously? */
@@ -202,6 +275,9 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
     volatile String stateIdPrefix;
     final Map<String, StateTransferProvider> stateProviders = new ConcurrentHashMap<String, StateTransferProvider>();
     final Map<String, StateTransferTask<?, ?>> stateTransferTasks = new ConcurrentHashMap<String, StateTransferTask<?, ?>>();
+    /** Serializes state transfers, so that concurrent requests for independent services can share a single transfer */
+    final Object stateTransferMutex = new Object();
+    final int stateTransferChunkSize = Math.max(Integer.getInteger(STATE_TRANSFER_CHUNK_SIZE, DEFAULT_STATE_TRANSFER_CHUNK_SIZE), 1);
 
     private final List<String> history = new LinkedList<String>();
     private int maxHistoryLength = 100;
@@ -279,6 +355,12 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
     @Override
     public void registerRPCHandler(String objName, Object subscriber) {
         this.rpcHandlers.put(objName, subscriber);
+        if (!this.rpcPartitions.containsKey(objName)) {
+            RpcHandlerPartition partition = new RpcHandlerPartition(objName, this.rpcPartitionThreads, this.rpcPartitionQueueLength);
+            if (this.rpcPartitions.putIfAbsent(objName, partition) != null) {
+                partition.shutdown();
+            }
+        }
     }
 
     /**
@@ -287,6 +369,10 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
     @Override
     public void unregisterRPCHandler(String objName, Object subscriber) {
         this.rpcHandlers.remove(objName);
+        RpcHandlerPartition partition = this.rpcPartitions.remove(objName);
+        if (partition != null) {
+            partition.shutdown();
+        }
     }
 
     /**
@@ -758,6 +844,41 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         this.threadPool = threadPool;
     }
 
+    @Override
+    public int getRpcPartitionThreads() {
+        return this.rpcPartitionThreads;
+    }
+
+    @Override
+    public int getRpcPartitionQueueLength() {
+        return this.rpcPartitionQueueLength;
+    }
+
+    /**
+     * Returns the statistics of the RPCs received for each registered RPC handler, keyed by service name.
+     *
+     * @return a map of service name to statistics
+     */
+    public Map<String, RpcHandlerStatistics> getRpcHandlerStatistics() {
+        return new TreeMap<String, RpcHandlerStatistics>(this.rpcPartitions);
+    }
+
+    @Override
+    public String listRpcHandlerStatistics() {
+        StringBuilder builder = new StringBuilder();
+        for (RpcHandlerStatistics statistics : this.getRpcHandlerStatistics().values()) {
+            builder.append(statistics).append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void resetRpcHandlerStatistics() {
+        for (RpcHandlerStatistics statistics : this.rpcPartitions.values()) {
+            statistics.resetStatistics();
+        }
+    }
+
     public String getJGroupsVersion() {
         return Version.description + "( " + Version.string_version + ")";
     }
@@ -811,6 +932,13 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         if (this.dispatcher != null) {
             this.dispatcher.stop();
         }
+
+        for (RpcHandlerPartition partition : this.rpcPartitions.values()) {
+            partition.shutdown();
+        }
+        this.rpcPartitions.clear();
+        this.closeAll(this.marshallers);
+        this.closeAll(this.unmarshallers);
     }
 
     protected void registerGroupMembershipListener(GroupMembershipListener listener, boolean sync) {
@@ -859,12 +987,16 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
      */
     Object objectFromByteBufferInternal(byte[] buffer, int offset, int length) throws Exception {
         if (buffer == null) return null;
-        Unmarshaller unmarshaller = marshallerFactory.createUnmarshaller(this.marshallingConfig);
-        unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(buffer, offset, length)));
+        Unmarshaller unmarshaller = this.acquireUnmarshaller();
+        boolean reusable = false;
         try {
-            return unmarshaller.readObject();
+            unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(buffer, offset, length)));
+            Object result = unmarshaller.readObject();
+            unmarshaller.finish();
+            reusable = true;
+            return result;
         } finally {
-            unmarshaller.close();
+            this.releaseUnmarshaller(unmarshaller, reusable);
         }
     }
 
@@ -872,12 +1004,18 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
      * Serializes an object into a byte buffer. The object has to implement interface Serializable or Externalizable
      */
     byte[] objectToByteBufferInternal(Object object) throws Exception {
-        Marshaller marshaller = marshallerFactory.createMarshaller(this.marshallingConfig);
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        marshaller.start(Marshalling.createByteOutput(output));
-        marshaller.writeObject(object);
-        marshaller.close();
-        return output.toByteArray();
+        Marshaller marshaller = this.acquireMarshaller();
+        boolean reusable = false;
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            marshaller.start(Marshalling.createByteOutput(output));
+            marshaller.writeObject(object);
+            marshaller.finish();
+            reusable = true;
+            return output.toByteArray();
+        } finally {
+            this.releaseMarshaller(marshaller, reusable);
+        }
     }
 
     /**
@@ -892,14 +1030,18 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
             return null;
         }
 
-        Unmarshaller unmarshaller = marshallerFactory.createUnmarshaller(this.marshallingConfig);
-        unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(buffer, offset, length)));
-        // read past the null/serializable byte
-        unmarshaller.read();
+        Unmarshaller unmarshaller = this.acquireUnmarshaller();
+        boolean reusable = false;
         try {
-            return unmarshaller.readObject();
+            unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(buffer, offset, length)));
+            // read past the null/serializable byte
+            unmarshaller.read();
+            Object result = unmarshaller.readObject();
+            unmarshaller.finish();
+            reusable = true;
+            return result;
         } finally {
-            unmarshaller.close();
+            this.releaseUnmarshaller(unmarshaller, reusable);
         }
     }
 
@@ -912,14 +1054,64 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
             return new byte[] { NULL_VALUE };
         }
 
-        Marshaller marshaller = marshallerFactory.createMarshaller(this.marshallingConfig);
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        marshaller.start(Marshalling.createByteOutput(output));
-        // write a marker to stream to distinguish from null value stream
-        marshaller.write(SERIALIZABLE_VALUE);
-        marshaller.writeObject(obj);
-        marshaller.close();
-        return output.toByteArray();
+        Marshaller marshaller = this.acquireMarshaller();
+        boolean reusable = false;
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            marshaller.start(Marshalling.createByteOutput(output));
+            // write a marker to stream to distinguish from null value stream
+            marshaller.write(SERIALIZABLE_VALUE);
+            marshaller.writeObject(obj);
+            marshaller.finish();
+            reusable = true;
+            return output.toByteArray();
+        } finally {
+            this.releaseMarshaller(marshaller, reusable);
+        }
+    }
+
+    /*
+     * River marshallers are expensive to create, but can be reused once finished. Since the marshalling configuration
+     * is complete before any message is sent or received, idle instances are pooled. An instance that failed mid-stream
+     * is closed instead of being returned to the pool.
+     */
+
+    private Marshaller acquireMarshaller() throws IOException {
+        Marshaller marshaller = this.marshallers.poll();
+        return (marshaller != null) ? marshaller : marshallerFactory.createMarshaller(this.marshallingConfig);
+    }
+
+    private void releaseMarshaller(Marshaller marshaller, boolean reusable) {
+        if (!reusable || !this.marshallers.offer(marshaller)) {
+            close(marshaller);
+        }
+    }
+
+    private Unmarshaller acquireUnmarshaller() throws IOException {
+        Unmarshaller unmarshaller = this.unmarshallers.poll();
+        return (unmarshaller != null) ? unmarshaller : marshallerFactory.createUnmarshaller(this.marshallingConfig);
+    }
+
+    private void releaseUnmarshaller(Unmarshaller unmarshaller, boolean reusable) {
+        if (!reusable || !this.unmarshallers.offer(unmarshaller)) {
+            close(unmarshaller);
+        }
+    }
+
+    private void closeAll(BlockingQueue<? extends Closeable> pool) {
+        Closeable closeable = pool.poll();
+        while (closeable != null) {
+            close(closeable);
+            closeable = pool.poll();
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            ClusteringImplLogger.ROOT_LOGGER.debugf(e, "Failed to close %s", closeable);
+        }
     }
 
     private <T> List<T> processResponseList(RspList<T> rspList, String serviceName, String methodName, Object[] args, boolean trace) {
@@ -1182,7 +1374,6 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         @Override
         public Object handle(Message req) {
             Object body = null;
-            Object retval = null;
             Object handler = null;
             boolean trace = ClusteringImplLogger.ROOT_LOGGER.isTraceEnabled();
             String service = null;
@@ -1256,19 +1447,41 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
              * Invoke it and just return any exception with trace level logging of the exception. The exception semantics of a
              * group rpc call are weak as the return value may be a normal return value or the exception thrown.
              */
+            RpcInvocation invocation = new RpcInvocation(method_call, handler, trace);
+            RpcHandlerPartition partition = CoreGroupCommunicationService.this.rpcPartitions.get(service);
+            // The handler may have just been unregistered
+            return (partition != null) ? partition.invoke(invocation) : new NoHandlerForRPC();
+        }
+    }
+
+    /**
+     * Invokes a received method call against its registered handler.
+     */
+    private class RpcInvocation implements Callable<Object> {
+        private final MethodCall call;
+        private final Object handler;
+        private final boolean trace;
+
+        RpcInvocation(MethodCall call, Object handler, boolean trace) {
+            this.call = call;
+            this.handler = handler;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object call() {
             try {
-                retval = method_call.invoke(handler);
-                if (trace) {
+                Object retval = this.call.invoke(this.handler);
+                if (this.trace) {
                     ClusteringImplLogger.ROOT_LOGGER.tracef("rpc call return value: %s", retval);
                 }
+                return retval;
             } catch (Throwable t) {
-                if (trace) {
+                if (this.trace) {
                     ClusteringImplLogger.ROOT_LOGGER.tracef(t, "Partition %s rpc call threw exception", CoreGroupCommunicationService.this.getGroupName());
                 }
-                retval = t;
+                return t;
             }
-
-            return retval;
         }
     }
 
@@ -1423,19 +1636,27 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         public void getState(OutputStream stream) {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
             try {
-                for (Map.Entry<String, StateTransferProvider> entry: stateProviders.entrySet()) {
-                    String serviceName = entry.getKey();
-                    out.writeUTF(serviceName);
-                    StateTransferProvider provider = entry.getValue();
-
-                    Marshaller marshaller = marshallerFactory.createMarshaller(new MarshallingConfiguration());
-                    ByteArrayOutputStream output = new ByteArrayOutputStream();
-                    marshaller.start(Marshalling.createByteOutput(output));
-                    marshaller.writeObject(provider.getCurrentState());
+                Marshaller marshaller = marshallerFactory.createMarshaller(new MarshallingConfiguration());
+                try {
+                    out.writeShort(STATE_TRANSFER_MAGIC);
+                    out.writeByte(STATE_TRANSFER_VERSION);
+                    for (Map.Entry<String, StateTransferProvider> entry: stateProviders.entrySet()) {
+                        String serviceName = entry.getKey();
+                        out.writeBoolean(true);
+                        out.writeUTF(serviceName);
+                        StateTransferProvider provider = entry.getValue();
+
+                        // Marshal straight into the stream, a chunk at a time, instead of materializing the whole state first
+                        ChunkedOutputStream output = new ChunkedOutputStream(out, CoreGroupCommunicationService.this.stateTransferChunkSize);
+                        marshaller.start(Marshalling.createByteOutput(output));
+                        marshaller.writeObject(provider.getCurrentState());
+                        marshaller.finish();
+                        output.close();
+                    }
+                    out.writeBoolean(false);
+                    out.flush();
+                } finally {
                     marshaller.close();
-                    byte[] bytes = output.toByteArray();
-                    out.writeInt(bytes.length);
-                    out.write(bytes);
                 }
             } catch (IOException e) {
                 ClusteringImplLogger.ROOT_LOGGER.methodFailure(e, "getState");
@@ -1444,24 +1665,55 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
 
         @Override
         public void setState(InputStream stream) {
-            DataInputStream input = new DataInputStream(stream);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
             try {
-                while (input.available() > 0) {
+                input.mark(2);
+                int magic = (input.read() << 8) | input.read();
+                if (magic != STATE_TRANSFER_MAGIC) {
+                    // Sent by a member running a version without chunked state transfer
+                    input.reset();
+                    this.setLegacyState(input);
+                    return;
+                }
+                byte version = input.readByte();
+                if (version != STATE_TRANSFER_VERSION) {
+                    throw MESSAGES.unsupportedStateTransferVersion(version, STATE_TRANSFER_VERSION);
+                }
+                while (input.readBoolean()) {
                     String serviceName = input.readUTF();
                     StateTransferTask<?, ?> task = CoreGroupCommunicationService.this.stateTransferTasks.remove(serviceName);
-                    int length = input.readInt();
-                    if (task != null) {
-                        byte[] bytes = new byte[length];
-                        input.read(bytes);
-                        task.setState(bytes);
-                    } else {
-                        input.skipBytes(length);
+                    InputStream chunks = new ChunkedInputStream(input);
+                    try {
+                        if (task != null) {
+                            task.setState(chunks);
+                        }
+                    } finally {
+                        // Skips the state of services no one asked for, or whatever the task did not consume
+                        chunks.close();
                     }
                 }
             } catch (IOException e) {
                 ClusteringImplLogger.ROOT_LOGGER.methodFailure(e, "setState");
             }
         }
+
+        /**
+         * Reads the unversioned state stream, in which the state of each service is prefixed with its length as a whole.
+         */
+        private void setLegacyState(DataInputStream input) throws IOException {
+            input.mark(1);
+            while (input.read() >= 0) {
+                input.reset();
+                String serviceName = input.readUTF();
+                StateTransferTask<?, ?> task = CoreGroupCommunicationService.this.stateTransferTasks.remove(serviceName);
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                if (task != null) {
+                    task.setState(new ByteArrayInputStream(bytes));
+                }
+                input.mark(1);
+            }
+        }
     }
 
     /**
@@ -1470,8 +1722,8 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
     private abstract class StateTransferTask<T extends StateTransferResult, V> implements Callable<T> {
         private final String serviceName;
         V state;
-        private boolean isStateSet;
-        private Exception setStateException;
+        private volatile boolean isStateSet;
+        private volatile Exception setStateException;
         T result;
         private final Object callMutex = new Object();
 
@@ -1486,10 +1738,15 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
 
                 try {
                     long start, stop;
-                    this.isStateSet = false;
                     start = System.currentTimeMillis();
                     try {
-                        CoreGroupCommunicationService.this.channel.getState(null, CoreGroupCommunicationService.this.getStateTransferTimeout());
+                        // Every transfer carries the state of all services, so a transfer requested on behalf of another
+                        // service may already have delivered ours
+                        synchronized (CoreGroupCommunicationService.this.stateTransferMutex) {
+                            if (!this.isStateSet) {
+                                CoreGroupCommunicationService.this.channel.getState(null, CoreGroupCommunicationService.this.getStateTransferTimeout());
+                            }
+                        }
                         synchronized (this) {
                             while (!this.isStateSet) {
                                 if (this.setStateException != null) {
@@ -1524,15 +1781,13 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
 
         protected abstract T createStateTransferResult(boolean gotState, V state, Exception exception);
 
-        void setState(byte[] state) {
+        /**
+         * Applies the transferred state, as it is received.
+         * @param input the chunks of the marshalled state
+         */
+        void setState(InputStream input) {
             try {
-                if (state == null) {
-                    ClusteringImplLogger.ROOT_LOGGER.debugf("transferred state for service %s is null (may be first member in cluster)", serviceName);
-                } else {
-                    ByteArrayInputStream bais = new ByteArrayInputStream(state);
-                    setState(bais);
-                    bais.close();
-                }
+                this.readState(input);
 
                 this.isStateSet = true;
             } catch (Throwable t) {
@@ -1545,7 +1800,7 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
             }
         }
 
-        protected abstract void setState(InputStream is) throws IOException, ClassNotFoundException;
+        protected abstract void readState(InputStream is) throws IOException, ClassNotFoundException;
 
         private void recordSetStateFailure(Throwable t) {
             ClusteringImplLogger.ROOT_LOGGER.failedSettingServiceProperty(t, "serviceState", serviceName);
@@ -1591,7 +1846,7 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         }
 
         @Override
-        protected void setState(InputStream is) throws IOException, ClassNotFoundException {
+        protected void readState(InputStream is) throws IOException, ClassNotFoundException {
             MarshallingConfiguration config = new MarshallingConfiguration();
             config.setClassResolver(new SimpleClassResolver(getStateTransferClassLoader()));
             Unmarshaller unmarshaller = marshallerFactory.createUnmarshaller(config);
@@ -1632,8 +1887,16 @@ public class CoreGroupCommunicationService implements Service<CoreGroupCommunica
         }
 
         @Override
-        protected void setState(InputStream is) throws IOException, ClassNotFoundException {
-            this.state = is;
+        protected void readState(InputStream is) throws IOException, ClassNotFoundException {
+            // The transferred stream is only valid until the transfer completes
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[CoreGroupCommunicationService.this.stateTransferChunkSize];
+            int read = is.read(buffer);
+            while (read >= 0) {
+                output.write(buffer, 0, read);
+                read = is.read(buffer);
+            }
+            this.state = new ByteArrayInputStream(output.toByteArray());
         }
     }
 
@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+/**
+ * Management interface of a {@link CoreGroupCommunicationService}, registered per cluster.
+ */
+public interface CoreGroupCommunicationServiceMBean {
+
+    /**
+     * @return the name of the group
+     */
+    String getGroupName();
+
+    /**
+     * @return the name of this member of the group
+     */
+    String getNodeName();
+
+    /**
+     * @return the number of threads dedicated to the RPCs of each registered service name, 0 if RPCs are executed by
+     *         the JGroups thread that received them
+     */
+    int getRpcPartitionThreads();
+
+    /**
+     * @return the number of RPCs per service name that may wait for a thread of its partition
+     */
+    int getRpcPartitionQueueLength();
+
+    /**
+     * Lists the statistics of the RPCs received for each registered RPC handler, one service name per line. They are
+     * collected whether or not the RPCs have threads of their own.
+     *
+     * @return the statistics, ordered by service name
+     */
+    String listRpcHandlerStatistics();
+
+    /**
+     * Resets the statistics of all registered RPC handlers.
+     */
+    void resetRpcHandlerStatistics();
+}
@@ -22,12 +22,14 @@
 
 package org.jboss.as.clustering.impl;
 
+import javax.management.MBeanServer;
+
 import org.jboss.as.clustering.infinispan.subsystem.CacheService;
 import org.jboss.as.clustering.infinispan.subsystem.ChannelDependentServiceProvider;
 import org.jboss.as.clustering.jgroups.subsystem.ChannelService;
 import org.jboss.as.server.Services;
 import org.jboss.modules.ModuleLoader;
-import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceBuilder.DependencyType;
 import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceTarget;
@@ -50,12 +52,13 @@ public class CoreGroupCommunicationServiceProvider implements ChannelDependentSe
     public ServiceController<?> install(ServiceTarget target, String cluster) {
         final InjectedValue<Channel> channel = new InjectedValue<Channel>();
         final InjectedValue<ModuleLoader> loader = new InjectedValue<ModuleLoader>();
-        final Service<CoreGroupCommunicationService> service = new CoreGroupCommunicationService(GROUP_COMMUNICATION_SERVICE_SCOPE, channel, loader);
+        final CoreGroupCommunicationService service = new CoreGroupCommunicationService(GROUP_COMMUNICATION_SERVICE_SCOPE, channel, loader);
         return target.addService(this.getServiceName(cluster), service)
                 // Make sure Infinispan starts its channel before we try to use it..
                 .addDependency(CacheService.getServiceName(cluster, null))
                 .addDependency(ChannelService.getServiceName(cluster), Channel.class, channel)
                 .addDependency(Services.JBOSS_SERVICE_MODULE_LOADER, ModuleLoader.class, loader)
+                .addDependency(DependencyType.OPTIONAL, ServiceName.JBOSS.append("mbean", "server"), MBeanServer.class, service.getMBeanServerInjector())
                 .setInitialMode(ServiceController.Mode.ON_DEMAND)
                 .install()
         ;
@@ -0,0 +1,203 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The partition of incoming group RPCs addressed to a single service name.
+ * <p/>
+ * If configured with threads, RPCs are executed by a dedicated pool with a bounded queue, so that a slow handler can
+ * only tie up a bounded number of JGroups threads. Once both are exhausted further RPCs are rejected immediately and
+ * the rejection is returned to the caller as the response, instead of stalling unrelated cluster traffic. Without
+ * threads RPCs are executed by the calling JGroups thread, as before, but statistics are still collected.
+ * <p/>
+ * The JGroups thread that delivered an RPC still waits for its response, since the request handler of JGroups 3.2
+ * must return it: responding asynchronously needs the {@code AsyncRequestHandler} of JGroups 3.3. What the partition
+ * bounds is the number of delivery threads a slow handler can hold, which is its threads plus its queue length.
+ */
+class RpcHandlerPartition implements RpcHandlerStatistics {
+    private final String serviceName;
+    private final int queueLength;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong invocationCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    RpcHandlerPartition(final String serviceName, int threads, int queueLength) {
+        this.serviceName = serviceName;
+        this.queueLength = Math.max(queueLength, 0);
+        if (threads > 0) {
+            BlockingQueue<Runnable> queue = (this.queueLength > 0) ? new ArrayBlockingQueue<Runnable>(this.queueLength) : new SynchronousQueue<Runnable>();
+            ThreadFactory factory = new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "RpcHandler-" + serviceName + "-" + this.count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, queue, factory, new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Executes the specified RPC within this partition, waiting for its completion.
+     *
+     * @param task the invocation of the RPC handler
+     * @return the return value of the task, or the exception thrown by it, or the reason it was not executed: a
+     *         {@link CoreGroupCommunicationService.NoHandlerForRPC} once the handler was unregistered, or a
+     *         {@link RejectedExecutionException} if the partition is saturated
+     */
+    Object invoke(final Callable<Object> task) {
+        long start = System.nanoTime();
+        if (this.executor == null) {
+            try {
+                return this.execute(task);
+            } catch (Exception e) {
+                return e;
+            } finally {
+                this.recordLatency(System.nanoTime() - start);
+            }
+        }
+
+        Future<Object> future;
+        try {
+            future = this.executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return RpcHandlerPartition.this.execute(task);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (this.executor.isShutdown()) {
+                // The handler was unregistered since the RPC was received, as if it had never been registered
+                return new CoreGroupCommunicationService.NoHandlerForRPC();
+            }
+            this.rejectedCount.incrementAndGet();
+            ClusteringImplLogger.ROOT_LOGGER.debugf(e, "Rejected rpc for service %s", this.serviceName);
+            return ClusteringImplMessages.MESSAGES.rpcHandlerSaturated(this.serviceName, this.queueLength);
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return e;
+        } finally {
+            this.recordLatency(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stops accepting new RPCs. RPCs that are already queued are still executed.
+     */
+    void shutdown() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    Object execute(Callable<Object> task) throws Exception {
+        this.activeCount.incrementAndGet();
+        try {
+            return task.call();
+        } finally {
+            this.activeCount.decrementAndGet();
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        this.invocationCount.incrementAndGet();
+        this.totalLatency.addAndGet(nanos);
+        long max = this.maxLatency.get();
+        while ((nanos > max) && !this.maxLatency.compareAndSet(max, nanos)) {
+            max = this.maxLatency.get();
+        }
+    }
+
+    @Override
+    public long getInvocationCount() {
+        return this.invocationCount.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    @Override
+    public long getAverageLatency() {
+        long count = this.invocationCount.get();
+        return (count > 0) ? TimeUnit.NANOSECONDS.toMillis(this.totalLatency.get() / count) : 0;
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxLatency.get());
+    }
+
+    @Override
+    public int getQueueSize() {
+        return (this.executor != null) ? this.executor.getQueue().size() : 0;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return this.activeCount.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        this.invocationCount.set(0);
+        this.rejectedCount.set(0);
+        this.totalLatency.set(0);
+        this.maxLatency.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: invocations=%d, rejected=%d, averageLatency=%dms, maxLatency=%dms, queued=%d, active=%d", this.serviceName,
+                this.getInvocationCount(), this.getRejectedCount(), this.getAverageLatency(), this.getMaxLatency(), this.getQueueSize(), this.getActiveCount());
+    }
+}
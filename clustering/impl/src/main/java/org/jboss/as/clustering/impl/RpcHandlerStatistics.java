@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+/**
+ * Runtime statistics of the group RPCs dispatched to a single registered RPC handler.
+ */
+public interface RpcHandlerStatistics {
+
+    /**
+     * @return the number of RPCs dispatched to the handler, including those that threw an exception
+     */
+    long getInvocationCount();
+
+    /**
+     * @return the number of RPCs rejected because the partition of the handler was saturated
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the average time in milliseconds between the receipt of an RPC and its completion, including any time spent queued
+     */
+    long getAverageLatency();
+
+    /**
+     * @return the maximum time in milliseconds between the receipt of an RPC and its completion, including any time spent queued
+     */
+    long getMaxLatency();
+
+    /**
+     * @return the number of RPCs currently queued, waiting for a thread of the partition
+     */
+    int getQueueSize();
+
+    /**
+     * @return the number of RPCs currently being executed by the handler
+     */
+    int getActiveCount();
+
+    /**
+     * Resets the counters of this handler.
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ChunkedOutputStream} and {@link ChunkedInputStream}.
+ */
+public class ChunkedStreamTestCase {
+    private static final int CHUNK_SIZE = 8;
+    private static final int TRAILER = 0xCAFEBABE;
+
+    @Test
+    public void roundTrip() throws IOException {
+        byte[] bytes = new byte[CHUNK_SIZE * 3 + 5];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) i;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+        ChunkedOutputStream chunked = new ChunkedOutputStream(output, CHUNK_SIZE);
+        chunked.write(bytes[0]);
+        chunked.write(bytes, 1, CHUNK_SIZE * 2);
+        chunked.flush();
+        chunked.write(bytes, CHUNK_SIZE * 2 + 1, bytes.length - CHUNK_SIZE * 2 - 1);
+        chunked.close();
+        // closing twice does not write a second terminating chunk
+        chunked.close();
+        output.writeInt(TRAILER);
+
+        DataInputStream input = input(buffer);
+        ChunkedInputStream result = new ChunkedInputStream(input);
+        byte[] read = new byte[bytes.length];
+        read[0] = (byte) result.read();
+        int offset = 1;
+        while (offset < read.length) {
+            int count = result.read(read, offset, read.length - offset);
+            assertTrue(count > 0);
+            offset += count;
+        }
+        assertTrue(Arrays.equals(bytes, read));
+        assertEquals(-1, result.read());
+        assertEquals(-1, result.read(read, 0, read.length));
+        result.close();
+        assertEquals(TRAILER, input.readInt());
+    }
+
+    @Test
+    public void empty() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+        new ChunkedOutputStream(output, CHUNK_SIZE).close();
+        output.writeInt(TRAILER);
+        assertEquals(8, buffer.size());
+
+        DataInputStream input = input(buffer);
+        ChunkedInputStream result = new ChunkedInputStream(input);
+        assertEquals(-1, result.read());
+        assertEquals(0, result.available());
+        result.close();
+        assertEquals(TRAILER, input.readInt());
+    }
+
+    @Test
+    public void closeSkipsRemainingChunks() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+        ChunkedOutputStream chunked = new ChunkedOutputStream(output, CHUNK_SIZE);
+        chunked.write(new byte[CHUNK_SIZE * 4]);
+        chunked.close();
+        output.writeInt(TRAILER);
+
+        DataInputStream input = input(buffer);
+        ChunkedInputStream result = new ChunkedInputStream(input);
+        assertEquals(3, result.read(new byte[3], 0, 3));
+        result.close();
+        assertEquals(TRAILER, input.readInt());
+        // once closed, the stream stays exhausted
+        assertEquals(-1, result.read());
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+        ChunkedOutputStream chunked = new ChunkedOutputStream(output, CHUNK_SIZE);
+        chunked.write(new byte[CHUNK_SIZE]);
+        chunked.flush();
+        // the chunk header claims more bytes than follow
+        byte[] bytes = Arrays.copyOf(buffer.toByteArray(), 4 + CHUNK_SIZE / 2);
+
+        ChunkedInputStream result = new ChunkedInputStream(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertEquals(CHUNK_SIZE / 2, result.read(new byte[CHUNK_SIZE], 0, CHUNK_SIZE));
+        try {
+            result.read(new byte[CHUNK_SIZE], 0, CHUNK_SIZE);
+            fail("Expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        result = new ChunkedInputStream(new DataInputStream(new ByteArrayInputStream(bytes)));
+        for (int i = 0; i < CHUNK_SIZE / 2; ++i) {
+            assertEquals(0, result.read());
+        }
+        try {
+            result.read();
+            fail("Expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        result = new ChunkedInputStream(new DataInputStream(new ByteArrayInputStream(bytes)));
+        try {
+            result.close();
+            fail("Expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        // truncated within the chunk header
+        result = new ChunkedInputStream(new DataInputStream(new ByteArrayInputStream(bytes, 0, 2)));
+        try {
+            result.read();
+            fail("Expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream buffer) {
+        InputStream input = new ByteArrayInputStream(buffer.toByteArray());
+        return new DataInputStream(input);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.jboss.as.clustering.StateTransferProvider;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+import org.junit.Test;
+
+/**
+ * Unit tests for the RPC handler registration and the marshalling of {@link CoreGroupCommunicationService}.
+ */
+public class CoreGroupCommunicationServiceTestCase {
+    private final CoreGroupCommunicationService service = new CoreGroupCommunicationService((short) 0, null, null);
+
+    @Test
+    public void marshallerReuse() throws Exception {
+        UUID value = UUID.randomUUID();
+        byte[] bytes = this.service.objectToByteBufferInternal(value);
+        assertEquals(value, this.service.objectFromByteBufferInternal(bytes, 0, bytes.length));
+        assertEquals(1, this.service.marshallers.size());
+        assertEquals(1, this.service.unmarshallers.size());
+
+        Marshaller marshaller = this.service.marshallers.peek();
+        Unmarshaller unmarshaller = this.service.unmarshallers.peek();
+
+        value = UUID.randomUUID();
+        bytes = this.service.objectToByteBufferResponseInternal(value);
+        assertEquals(value, this.service.objectFromByteBufferResponseInternal(bytes, 0, bytes.length));
+        // The same instances were used again, instead of creating new ones
+        assertEquals(1, this.service.marshallers.size());
+        assertEquals(1, this.service.unmarshallers.size());
+        assertSame(marshaller, this.service.marshallers.peek());
+        assertSame(unmarshaller, this.service.unmarshallers.peek());
+    }
+
+    @Test
+    public void failedMarshallerDiscarded() throws Exception {
+        byte[] bytes = this.service.objectToByteBufferInternal("value");
+        assertEquals("value", this.service.objectFromByteBufferInternal(bytes, 0, bytes.length));
+        assertEquals(1, this.service.marshallers.size());
+        assertEquals(1, this.service.unmarshallers.size());
+
+        try {
+            this.service.objectToByteBufferInternal(new Object());
+            fail("Object is not serializable");
+        } catch (IOException e) {
+            // The marshaller failed mid-stream, so it is not pooled again
+            assertTrue(this.service.marshallers.isEmpty());
+        }
+
+        try {
+            this.service.objectFromByteBufferInternal(bytes, 0, bytes.length - 1);
+            fail("Buffer is truncated");
+        } catch (IOException e) {
+            assertTrue(this.service.unmarshallers.isEmpty());
+        }
+    }
+
+    @Test
+    public void unregisterRPCHandler() {
+        Object handler = new Object();
+        this.service.registerRPCHandler("service", handler);
+        assertNotNull(this.service.rpcPartitions.get("service"));
+        assertNotNull(this.service.getRpcHandlerStatistics().get("service"));
+
+        this.service.unregisterRPCHandler("service", handler);
+        assertNull(this.service.rpcPartitions.get("service"));
+        assertTrue(this.service.getRpcHandlerStatistics().isEmpty());
+    }
+
+    @Test
+    public void versionedStateStream() throws Exception {
+        this.service.registerStateTransferProvider("service", new StateTransferProvider() {
+            @Override
+            public Serializable getCurrentState() {
+                return "state";
+            }
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.service.new MessageListenerImpl().getState(output);
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+        // Tells the stream apart from the legacy one, which starts with the length of the first service name
+        assertEquals(CoreGroupCommunicationService.STATE_TRANSFER_MAGIC, input.readUnsignedShort());
+        assertEquals(CoreGroupCommunicationService.STATE_TRANSFER_VERSION, input.readByte());
+        assertTrue(input.readBoolean());
+        assertEquals("service", input.readUTF());
+        ChunkedInputStream chunks = new ChunkedInputStream(input);
+        Unmarshaller unmarshaller = CoreGroupCommunicationService.marshallerFactory.createUnmarshaller(new MarshallingConfiguration());
+        unmarshaller.start(Marshalling.createByteInput(chunks));
+        assertEquals("state", unmarshaller.readObject());
+        unmarshaller.close();
+        chunks.close();
+        assertFalse(input.readBoolean());
+    }
+
+    @Test
+    public void rpcHandlerStatisticsMBean() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = this.service.registerMBean(server, "cluster");
+        assertEquals(CoreGroupCommunicationService.getObjectName("cluster"), name);
+        assertEquals(0, server.getAttribute(name, "RpcPartitionThreads"));
+
+        this.service.registerRPCHandler("service", new Object());
+        this.service.rpcPartitions.get("service").invoke(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return null;
+            }
+        });
+        String statistics = (String) server.invoke(name, "listRpcHandlerStatistics", null, null);
+        assertTrue(statistics, statistics.startsWith("service: invocations=1,"));
+
+        server.invoke(name, "resetRpcHandlerStatistics", null, null);
+        assertEquals(0, this.service.getRpcHandlerStatistics().get("service").getInvocationCount());
+        server.unregisterMBean(name);
+    }
+}
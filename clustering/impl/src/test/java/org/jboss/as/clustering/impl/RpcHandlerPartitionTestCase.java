@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RpcHandlerPartition}.
+ */
+public class RpcHandlerPartitionTestCase {
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void destroy() {
+        this.release.countDown();
+        this.callers.shutdownNow();
+    }
+
+    @Test
+    public void invokeWithoutThreads() throws Exception {
+        RpcHandlerPartition partition = new RpcHandlerPartition("service", 0, 0);
+        final Thread caller = Thread.currentThread();
+        Object result = partition.invoke(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return Thread.currentThread() == caller;
+            }
+        });
+        assertEquals(Boolean.TRUE, result);
+
+        final Exception exception = new Exception();
+        assertSame(exception, partition.invoke(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                throw exception;
+            }
+        }));
+        assertEquals(2, partition.getInvocationCount());
+    }
+
+    @Test
+    public void saturation() throws Exception {
+        RpcHandlerPartition partition = new RpcHandlerPartition("service", 1, 1);
+        try {
+            Future<Object> blocked = this.callers.submit(this.invocation(partition, this.blockingTask("blocked")));
+            assertTrue(this.started.await(5, TimeUnit.SECONDS));
+            Future<Object> queued = this.callers.submit(this.invocation(partition, value("queued")));
+            this.awaitQueued(partition, 1);
+
+            Object rejected = partition.invoke(value("rejected"));
+            assertTrue(rejected instanceof RejectedExecutionException);
+            assertEquals(1, partition.getRejectedCount());
+            assertEquals(1, partition.getActiveCount());
+
+            this.release.countDown();
+            assertEquals("blocked", blocked.get(5, TimeUnit.SECONDS));
+            assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+            // Rejected RPCs are only counted as such
+            assertEquals(2, partition.getInvocationCount());
+            assertEquals(0, partition.getActiveCount());
+        } finally {
+            partition.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdown() throws Exception {
+        RpcHandlerPartition partition = new RpcHandlerPartition("service", 1, 1);
+        Future<Object> blocked = this.callers.submit(this.invocation(partition, this.blockingTask("blocked")));
+        assertTrue(this.started.await(5, TimeUnit.SECONDS));
+        Future<Object> queued = this.callers.submit(this.invocation(partition, value("queued")));
+        this.awaitQueued(partition, 1);
+
+        partition.shutdown();
+
+        // Once unregistered, the handler is reported missing rather than saturated
+        Object result = partition.invoke(value("unregistered"));
+        assertTrue(result instanceof CoreGroupCommunicationService.NoHandlerForRPC);
+        assertEquals(0, partition.getRejectedCount());
+
+        // RPCs received before are still executed
+        this.release.countDown();
+        assertEquals("blocked", blocked.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitQueued(RpcHandlerPartition partition, int size) throws InterruptedException {
+        for (int i = 0; (i < 500) && (partition.getQueueSize() < size); ++i) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, partition.getQueueSize());
+    }
+
+    private Callable<Object> blockingTask(final Object result) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                RpcHandlerPartitionTestCase.this.started.countDown();
+                RpcHandlerPartitionTestCase.this.release.await();
+                return result;
+            }
+        };
+    }
+
+    private Callable<Object> invocation(final RpcHandlerPartition partition, final Callable<Object> task) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() {
+                return partition.invoke(task);
+            }
+        };
+    }
+
+    private static Callable<Object> value(final Object result) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() {
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.registry;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates registry changes, merging successive changes of the same key, so that they can be delivered to
+ * {@link Registry.Listener}s as a single, de-duplicated change set.
+ * Not thread-safe.
+ */
+class RegistryChangeSet<K, V> {
+    enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+
+    private final Map<K, Type> types = new LinkedHashMap<K, Type>();
+    private final Map<K, V> values = new HashMap<K, V>();
+
+    void added(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry: entries.entrySet()) {
+            this.merge(entry.getKey(), Type.ADDED, entry.getValue());
+        }
+    }
+
+    void updated(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry: entries.entrySet()) {
+            this.merge(entry.getKey(), Type.UPDATED, entry.getValue());
+        }
+    }
+
+    void removed(Set<K> keys) {
+        for (K key: keys) {
+            this.merge(key, Type.REMOVED, null);
+        }
+    }
+
+    /**
+     * Moves all changes of this change set into the specified, empty, change set.
+     */
+    void transferTo(RegistryChangeSet<K, V> target) {
+        target.types.putAll(this.types);
+        target.values.putAll(this.values);
+        this.types.clear();
+        this.values.clear();
+    }
+
+    boolean isEmpty() {
+        return this.types.isEmpty();
+    }
+
+    /**
+     * Delivers the net changes to the specified listeners, one callback per type of change.
+     */
+    void notify(Iterable<Registry.Listener<K, V>> listeners) {
+        Map<K, V> added = new HashMap<K, V>();
+        Map<K, V> updated = new HashMap<K, V>();
+        Set<K> removed = new HashSet<K>();
+        for (Map.Entry<K, Type> entry: this.types.entrySet()) {
+            K key = entry.getKey();
+            switch (entry.getValue()) {
+                case ADDED: {
+                    added.put(key, this.values.get(key));
+                    break;
+                }
+                case UPDATED: {
+                    updated.put(key, this.values.get(key));
+                    break;
+                }
+                case REMOVED: {
+                    removed.add(key);
+                    break;
+                }
+            }
+        }
+        for (Registry.Listener<K, V> listener: listeners) {
+            if (!added.isEmpty()) {
+                listener.addedEntries(added);
+            }
+            if (!updated.isEmpty()) {
+                listener.updatedEntries(updated);
+            }
+            if (!removed.isEmpty()) {
+                listener.removedEntries(removed);
+            }
+        }
+    }
+
+    private void merge(K key, Type type, V value) {
+        Type previous = this.types.get(key);
+        Type result = type;
+        if (previous == Type.ADDED) {
+            if (type == Type.REMOVED) {
+                // Listeners never saw this entry
+                this.types.remove(key);
+                this.values.remove(key);
+                return;
+            }
+            // Listeners have yet to see the entry at all
+            result = Type.ADDED;
+        } else if ((previous != null) && (type != Type.REMOVED)) {
+            // An entry that was removed and then added again was updated, as far as listeners are concerned
+            result = Type.UPDATED;
+        }
+        this.types.put(key, result);
+        if (result == Type.REMOVED) {
+            this.values.remove(key);
+        } else {
+            this.values.put(key, value);
+        }
+    }
+}
@@ -30,6 +30,10 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.infinispan.Cache;
 import org.infinispan.context.Flag;
@@ -53,6 +57,16 @@ import org.jboss.msc.value.Value;
 @org.infinispan.notifications.Listener(sync = false)
 public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<K, V> {
 
+    /**
+     * The time window, in milliseconds, within which refreshes of the local entry are coalesced into a single cache
+     * write, and changes of remote entries into a single change set delivered to listeners. If 0, the default, every
+     * refresh is written and every change delivered immediately.
+     */
+    public static final String COALESCE_WINDOW = "jboss.as.clustering.registry.coalesce-window";
+
+    /** How long, in seconds, stopping waits for a flush in progress */
+    private static final long SHUTDOWN_TIMEOUT = 10;
+
     static final Address LOCAL_ADDRESS = new Address() {
         @Override
         public int compareTo(Address address) {
@@ -64,6 +78,12 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
     private final Value<Cache<Address, Map.Entry<K, V>>> cache;
     private final Value<RegistryEntryProvider<K, V>> provider;
     private final Set<Listener<K, V>> listeners = new CopyOnWriteArraySet<Listener<K, V>>();
+    private final long coalesceWindow = Long.getLong(COALESCE_WINDOW, 0);
+    private volatile ScheduledExecutorService coalescer;
+    // Guarded by this.changes
+    private final RegistryChangeSet<K, V> changes = new RegistryChangeSet<K, V>();
+    private boolean localEntryChanged = false;
+    private boolean flushScheduled = false;
 
     public RegistryService(Value<Cache<Address, Map.Entry<K, V>>> cache, Value<RegistryEntryProvider<K, V>> provider) {
         this.cache = cache;
@@ -120,7 +140,20 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
 
     @Override
     public void start(StartContext context) {
-        this.refreshLocalEntry();
+        if (this.coalesceWindow > 0) {
+            ScheduledThreadPoolExecutor coalescer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, RegistryService.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // On stop, pending changes are flushed right away rather than when their window elapses
+            coalescer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            this.coalescer = coalescer;
+        }
+        this.writeLocalEntry(this.createLocalCacheEntry());
         Cache<Address, Map.Entry<K, V>> cache = this.cache.getValue();
         cache.getCacheManager().addListener(this);
         cache.addListener(this);
@@ -128,7 +161,20 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
 
     @Override
     public Map.Entry<K, V> refreshLocalEntry() {
-        final Map.Entry<K, V> entry = this.createLocalCacheEntry();
+        Map.Entry<K, V> entry = this.createLocalCacheEntry();
+        if ((entry != null) && (this.coalescer != null)) {
+            // Written on flush, with the value current at that time
+            synchronized (this.changes) {
+                this.localEntryChanged = true;
+                this.scheduleFlush();
+            }
+            return entry;
+        }
+        this.writeLocalEntry(entry);
+        return entry;
+    }
+
+    void writeLocalEntry(final Map.Entry<K, V> entry) {
         if (entry != null) {
             Operation<Void> operation = new Operation<Void>() {
                 @Override
@@ -139,7 +185,79 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
             };
             this.invoker.invoke(this.cache.getValue(), operation);
         }
-        return entry;
+    }
+
+    /**
+     * Schedules a flush of the pending changes, unless one is already scheduled.
+     * Must be called while holding the monitor of {@link #changes}.
+     */
+    private void scheduleFlush() {
+        ScheduledExecutorService coalescer = this.coalescer;
+        if ((coalescer != null) && !this.flushScheduled) {
+            this.flushScheduled = true;
+            coalescer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    RegistryService.this.flush();
+                }
+            }, this.coalesceWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void flush() {
+        RegistryChangeSet<K, V> changes = new RegistryChangeSet<K, V>();
+        boolean localEntryChanged;
+        synchronized (this.changes) {
+            this.flushScheduled = false;
+            localEntryChanged = this.localEntryChanged;
+            this.localEntryChanged = false;
+            this.changes.transferTo(changes);
+        }
+        if (localEntryChanged) {
+            this.writeLocalEntry(this.createLocalCacheEntry());
+        }
+        if (!changes.isEmpty()) {
+            changes.notify(this.listeners);
+        }
+    }
+
+    private void notifyAdded(Map<K, V> entries) {
+        if (this.coalescer != null) {
+            synchronized (this.changes) {
+                this.changes.added(entries);
+                this.scheduleFlush();
+            }
+        } else {
+            for (Listener<K, V> listener: this.listeners) {
+                listener.addedEntries(entries);
+            }
+        }
+    }
+
+    private void notifyUpdated(Map<K, V> entries) {
+        if (this.coalescer != null) {
+            synchronized (this.changes) {
+                this.changes.updated(entries);
+                this.scheduleFlush();
+            }
+        } else {
+            for (Listener<K, V> listener: this.listeners) {
+                listener.updatedEntries(entries);
+            }
+        }
+    }
+
+    private void notifyRemoved(Set<K> keys) {
+        if (this.coalescer != null) {
+            synchronized (this.changes) {
+                this.changes.removed(keys);
+                this.scheduleFlush();
+            }
+        } else {
+            for (Listener<K, V> listener: this.listeners) {
+                listener.removedEntries(keys);
+            }
+        }
     }
 
     void addLocalCacheEntry(Cache<Address, Map.Entry<K, V>> cache, Map.Entry<K, V> entry) {
@@ -159,6 +277,24 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
         Cache<Address, Map.Entry<K, V>> cache = this.cache.getValue();
         cache.removeListener(this);
         cache.getCacheManager().removeListener(this);
+        ScheduledExecutorService coalescer = this.coalescer;
+        if (coalescer != null) {
+            // Deliver whatever changes are still pending, the local entry is about to be removed anyway
+            synchronized (this.changes) {
+                this.coalescer = null;
+                this.localEntryChanged = false;
+            }
+            // Let a flush in progress deliver its changes before the final one, so listeners see them in order
+            coalescer.shutdown();
+            try {
+                if (!coalescer.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    coalescer.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.flush();
+        }
         Operation<Void> operation = new Operation<Void>() {
             @Override
             public Void invoke(Cache<Address, Map.Entry<K, V>> cache) {
@@ -202,9 +338,7 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
 
         Set<K> removed = this.invoker.invoke(this.cache.getValue(), operation);
         if (!removed.isEmpty()) {
-            for (Listener<K, V> listener: this.listeners) {
-                listener.removedEntries(removed);
-            }
+            this.notifyRemoved(removed);
         }
     }
 
@@ -223,12 +357,10 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
                 Map.Entry<K, V> entry = event.getValue();
                 if (entry != null) {
                     Map<K, V> entries = Collections.singletonMap(entry.getKey(), entry.getValue());
-                    for (Listener<K, V> listener: this.listeners) {
-                        if (old == null) {
-                            listener.addedEntries(entries);
-                        } else {
-                            listener.updatedEntries(entries);
-                        }
+                    if (old == null) {
+                        this.notifyAdded(entries);
+                    } else {
+                        this.notifyUpdated(entries);
                     }
                 }
             }
@@ -244,10 +376,7 @@ public class RegistryService<K, V> implements Service<Registry<K, V>>, Registry<
             Map.Entry<K, V> entry = this.entry.get();
             this.entry.remove();
             if (entry != null) {
-                Set<K> keys = Collections.singleton(entry.getKey());
-                for (Listener<K, V> listener: this.listeners) {
-                    listener.removedEntries(keys);
-                }
+                this.notifyRemoved(Collections.singleton(entry.getKey()));
             }
         }
     }
@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.registry;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the rules by which {@link RegistryChangeSet} merges successive changes of the same key.
+ */
+public class RegistryChangeSetTest {
+    @SuppressWarnings("unchecked")
+    private final Registry.Listener<String, String> listener = mock(Registry.Listener.class);
+    private final RegistryChangeSet<String, String> changes = new RegistryChangeSet<String, String>();
+
+    @Test
+    public void addThenRemove() {
+        this.changes.added(entry("a", "1"));
+        this.changes.removed(Collections.singleton("a"));
+
+        // Listeners never learn about an entry that came and went
+        assertTrue(this.changes.isEmpty());
+        this.notifyListener();
+        verifyZeroInteractions(this.listener);
+    }
+
+    @Test
+    public void removeThenAdd() {
+        this.changes.removed(Collections.singleton("a"));
+        this.changes.added(entry("a", "2"));
+
+        this.notifyListener();
+        verify(this.listener).updatedEntries(entry("a", "2"));
+        verify(this.listener, never()).addedEntries(anyMapOf(String.class, String.class));
+        verify(this.listener, never()).removedEntries(anySetOf(String.class));
+    }
+
+    @Test
+    public void updateThenRemove() {
+        this.changes.updated(entry("a", "1"));
+        this.changes.removed(Collections.singleton("a"));
+
+        this.notifyListener();
+        verify(this.listener).removedEntries(Collections.singleton("a"));
+        verify(this.listener, never()).addedEntries(anyMapOf(String.class, String.class));
+        verify(this.listener, never()).updatedEntries(anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void addThenUpdate() {
+        this.changes.added(entry("a", "1"));
+        this.changes.updated(entry("a", "2"));
+
+        // Still new to listeners, with the latest value
+        this.notifyListener();
+        verify(this.listener).addedEntries(entry("a", "2"));
+        verify(this.listener, never()).updatedEntries(anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void updateThenUpdate() {
+        this.changes.updated(entry("a", "1"));
+        this.changes.updated(entry("a", "2"));
+
+        this.notifyListener();
+        verify(this.listener).updatedEntries(entry("a", "2"));
+    }
+
+    @Test
+    public void independentKeys() {
+        this.changes.added(entry("a", "1"));
+        this.changes.updated(entry("b", "2"));
+        this.changes.removed(Collections.singleton("c"));
+
+        this.notifyListener();
+        verify(this.listener).addedEntries(entry("a", "1"));
+        verify(this.listener).updatedEntries(entry("b", "2"));
+        verify(this.listener).removedEntries(Collections.singleton("c"));
+    }
+
+    @Test
+    public void transferTo() {
+        RegistryChangeSet<String, String> target = new RegistryChangeSet<String, String>();
+        this.changes.added(entry("a", "1"));
+        this.changes.transferTo(target);
+
+        assertTrue(this.changes.isEmpty());
+        assertFalse(target.isEmpty());
+        target.notify(Collections.singleton(this.listener));
+        verify(this.listener).addedEntries(entry("a", "1"));
+    }
+
+    private void notifyListener() {
+        Set<Registry.Listener<String, String>> listeners = Collections.singleton(this.listener);
+        this.changes.notify(listeners);
+    }
+
+    private static Map<String, String> entry(String key, String value) {
+        Map<String, String> map = new HashMap<String, String>();
+        map.put(key, value);
+        return map;
+    }
+}
@@ -45,11 +45,12 @@ public class CoarseSessionAttributeStorage implements SessionAttributeStorage<Ou
      * @see org.jboss.as.clustering.web.infinispan.SessionAttributeStorage#store(java.util.Map, org.jboss.as.clustering.web.OutgoingDistributableSessionData)
      */
     @Override
-    public void store(Map<Object, Object> map, OutgoingSessionGranularitySessionData sessionData) throws IOException {
+    public long store(Map<Object, Object> map, OutgoingSessionGranularitySessionData sessionData) throws IOException {
         Map<String, Object> attributes = sessionData.getSessionAttributes();
         if (attributes != null) {
             SessionMapEntry.ATTRIBUTES.put(map, this.marshaller.marshal(attributes));
         }
+        return -1;
     }
 
     /**
@@ -157,29 +157,29 @@ public class DistributedCacheManager<T extends OutgoingDistributableSessionData>
      * @see org.jboss.as.clustering.web.DistributedCacheManager#storeSessionData(org.jboss.as.clustering.web.OutgoingDistributableSessionData)
      */
     @Override
-    public void storeSessionData(final T sessionData) {
+    public long storeSessionData(final T sessionData) {
         final String sessionId = sessionData.getRealId();
 
         this.trace("storeSessionData(%s)", sessionId);
 
-        Operation<Void> operation = new Operation<Void>() {
+        Operation<Long> operation = new Operation<Long>() {
             @Override
-            public Void invoke(Cache<String, Map<Object, Object>> cache) {
+            public Long invoke(Cache<String, Map<Object, Object>> cache) {
                 Map<Object, Object> map = cache.putIfAbsent(sessionId, null);
 
                 SessionMapEntry.VERSION.put(map, Integer.valueOf(sessionData.getVersion()));
                 SessionMapEntry.METADATA.put(map, sessionData.getMetadata());
                 SessionMapEntry.TIMESTAMP.put(map, sessionData.getTimestamp());
                 try {
-                    DistributedCacheManager.this.attributeStorage.store(map, sessionData);
+                    return Long.valueOf(DistributedCacheManager.this.attributeStorage.store(map, sessionData));
                 } catch (IOException e) {
                     throw MESSAGES.failedToStoreSessionAttributes(e, sessionId);
                 }
-                return null;
             }
         };
 
-        this.invoker.invoke(this.cache, operation);
+        Long bytes = this.invoker.invoke(this.cache, operation);
+        return (bytes != null) ? bytes.longValue() : -1;
     }
 
     /**
@@ -52,6 +52,7 @@ import org.jboss.as.clustering.web.DistributedCacheManagerFactoryService;
 import org.jboss.as.clustering.web.LocalDistributableSessionManager;
 import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
 import org.jboss.as.clustering.web.SessionAttributeMarshallerFactory;
+import org.jboss.as.clustering.web.impl.CompactSessionAttributeMarshallerFactory;
 import org.jboss.as.clustering.web.impl.SessionAttributeMarshallerFactoryImpl;
 import org.jboss.as.clustering.web.impl.TransactionBatchingManager;
 import org.jboss.metadata.web.jboss.JBossWebMetaData;
@@ -77,7 +78,7 @@ public class DistributedCacheManagerFactory implements org.jboss.as.clustering.w
 
     private SessionAttributeStorageFactory storageFactory = new SessionAttributeStorageFactoryImpl();
     private CacheInvoker invoker = new RetryingCacheInvoker(new BatchCacheInvoker(), 10, 100);
-    private SessionAttributeMarshallerFactory marshallerFactory = new SessionAttributeMarshallerFactoryImpl();
+    private SessionAttributeMarshallerFactory marshallerFactory = Boolean.getBoolean(CompactSessionAttributeMarshallerFactory.COMPACT_MARSHALLING) ? new CompactSessionAttributeMarshallerFactory() : new SessionAttributeMarshallerFactoryImpl();
     @SuppressWarnings("rawtypes")
     private final InjectedValue<Registry> registry = new InjectedValue<Registry>();
     private final InjectedValue<SharedLocalYieldingClusterLockManager> lockManager = new InjectedValue<SharedLocalYieldingClusterLockManager>();
@@ -22,23 +22,43 @@
 package org.jboss.as.clustering.web.infinispan;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.jboss.as.clustering.SimpleMarshalledValue;
+import org.jboss.as.clustering.web.DeltaSessionAttribute;
 import org.jboss.as.clustering.web.OutgoingAttributeGranularitySessionData;
 import org.jboss.as.clustering.web.SessionAttributeMarshaller;
 
 /**
  * Handles session attribute load/store operations for {@link org.jboss.metadata.web.jboss.ReplicationGranularity#ATTRIBUTE} distributed session managers.
+ * <p/>
+ * If delta replication is enabled, a modified {@link DeltaSessionAttribute} whose full value was stored before is stored
+ * as a delta under a separate key, so that only the delta is replicated. A value replacing the stored instance is stored
+ * in full. Loading an attribute applies its deltas to
+ * the full value. Every {@link #MAX_DELTAS} deltas, or whenever no delta is available, the full value is stored again
+ * and its deltas are removed. In this mode the serialized size of the stored attributes is measured.
  *
  * @author Paul Ferraro
  */
 public class FineSessionAttributeStorage implements SessionAttributeStorage<OutgoingAttributeGranularitySessionData> {
+    /**
+     * The number of deltas stored for an attribute before its full value is stored again.
+     */
+    static final int MAX_DELTAS = 32;
+
     private final SessionAttributeMarshaller marshaller;
+    private final boolean deltaReplication;
 
     public FineSessionAttributeStorage(SessionAttributeMarshaller marshaller) {
+        this(marshaller, false);
+    }
+
+    public FineSessionAttributeStorage(SessionAttributeMarshaller marshaller, boolean deltaReplication) {
         this.marshaller = marshaller;
+        this.deltaReplication = deltaReplication;
     }
 
     /**
@@ -47,7 +67,11 @@ public class FineSessionAttributeStorage implements SessionAttributeStorage<Outg
      * @see org.jboss.as.clustering.web.infinispan.SessionAttributeStorage#store(java.util.Map, org.jboss.as.clustering.web.OutgoingDistributableSessionData)
      */
     @Override
-    public void store(Map<Object, Object> map, OutgoingAttributeGranularitySessionData sessionData) throws IOException {
+    public long store(Map<Object, Object> map, OutgoingAttributeGranularitySessionData sessionData) throws IOException {
+        if (this.deltaReplication) {
+            return this.storeDeltas(map, sessionData);
+        }
+
         Map<String, Object> modified = sessionData.getModifiedSessionAttributes();
 
         if (modified != null) {
@@ -63,6 +87,55 @@ public class FineSessionAttributeStorage implements SessionAttributeStorage<Outg
                 map.remove(attribute);
             }
         }
+        return -1;
+    }
+
+    private long storeDeltas(Map<Object, Object> map, OutgoingAttributeGranularitySessionData sessionData) throws IOException {
+        long bytes = 0;
+        Map<String, Object> modified = sessionData.getModifiedSessionAttributes();
+
+        if (modified != null) {
+            for (Map.Entry<String, Object> entry : modified.entrySet()) {
+                String attribute = entry.getKey();
+                Object value = entry.getValue();
+                if ((value instanceof DeltaSessionAttribute) && map.containsKey(attribute)) {
+                    DeltaSessionAttribute<?> deltaAttribute = (DeltaSessionAttribute<?>) value;
+                    int count = deltaCount(map, attribute);
+                    // Only extend the stored deltas if this value reflects exactly those, a value replacing the stored
+                    // one, e.g. a new instance, is stored in full
+                    if (deltaAttribute.isDeltaAvailable() && (count == deltaAttribute.getDeltaCount())) {
+                        if (!deltaAttribute.hasDelta()) continue;
+                        if (count < MAX_DELTAS) {
+                            Serializable delta = deltaAttribute.takeDelta();
+                            if (delta != null) {
+                                Object marshalledDelta = this.marshaller.marshal(delta);
+                                map.put(SessionAttributeDeltaKey.delta(attribute, count), marshalledDelta);
+                                map.put(SessionAttributeDeltaKey.count(attribute), Integer.valueOf(count + 1));
+                                bytes += serialize(marshalledDelta);
+                                continue;
+                            }
+                        }
+                    }
+                }
+                Object marshalledValue = this.marshaller.marshal(value);
+                map.put(attribute, marshalledValue);
+                bytes += serialize(marshalledValue);
+                removeDeltas(map, attribute);
+                if (value instanceof DeltaSessionAttribute) {
+                    ((DeltaSessionAttribute<?>) value).resetDelta();
+                }
+            }
+        }
+
+        Set<String> removed = sessionData.getRemovedSessionAttributes();
+
+        if (removed != null) {
+            for (String attribute : removed) {
+                map.remove(attribute);
+                removeDeltas(map, attribute);
+            }
+        }
+        return bytes;
     }
 
     /**
@@ -78,10 +151,45 @@ public class FineSessionAttributeStorage implements SessionAttributeStorage<Outg
             Object key = entry.getKey();
             if (key instanceof String) {
                 String attribute = (String) key;
-                result.put(attribute, this.marshaller.unmarshal(entry.getValue()));
+                Object value = this.marshaller.unmarshal(entry.getValue());
+                if (this.deltaReplication && (value instanceof DeltaSessionAttribute)) {
+                    applyDeltas(data, attribute, (DeltaSessionAttribute<?>) value);
+                }
+                result.put(attribute, value);
             }
         }
 
         return result;
     }
+
+    @SuppressWarnings("unchecked")
+    private <D extends Serializable> void applyDeltas(Map<Object, Object> map, String attribute, DeltaSessionAttribute<D> value) throws IOException, ClassNotFoundException {
+        int count = deltaCount(map, attribute);
+        // The value may be a locally cached instance that already reflects some of the deltas
+        for (int i = value.getDeltaCount(); i < count; ++i) {
+            value.applyDelta((D) this.marshaller.unmarshal(map.get(SessionAttributeDeltaKey.delta(attribute, i))));
+        }
+    }
+
+    private static int deltaCount(Map<Object, Object> map, String attribute) {
+        Integer count = (Integer) map.get(SessionAttributeDeltaKey.count(attribute));
+        return (count != null) ? count.intValue() : 0;
+    }
+
+    private static void removeDeltas(Map<Object, Object> map, String attribute) {
+        Integer count = (Integer) map.remove(SessionAttributeDeltaKey.count(attribute));
+        if (count != null) {
+            for (int i = 0; i < count.intValue(); ++i) {
+                map.remove(SessionAttributeDeltaKey.delta(attribute, i));
+            }
+        }
+    }
+
+    private static int serialize(Object marshalledValue) throws IOException {
+        if (marshalledValue instanceof SimpleMarshalledValue) {
+            return ((SimpleMarshalledValue<?>) marshalledValue).serialize();
+        }
+        // Attributes of simple types are not marshalled, account for their value only
+        return (marshalledValue instanceof String) ? ((String) marshalledValue).length() : 8;
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.web.infinispan;
+
+import java.io.Serializable;
+
+/**
+ * Key of the cache entry holding a delta of a session attribute, or the number of deltas stored for it.
+ */
+class SessionAttributeDeltaKey implements Serializable {
+    private static final long serialVersionUID = 5765286414264613546L;
+
+    private static final int COUNT = -1;
+
+    private final String attribute;
+    private final int index;
+
+    /**
+     * Returns the key of the number of deltas stored for the specified attribute.
+     */
+    static SessionAttributeDeltaKey count(String attribute) {
+        return new SessionAttributeDeltaKey(attribute, COUNT);
+    }
+
+    /**
+     * Returns the key of the delta with the specified index of the specified attribute.
+     */
+    static SessionAttributeDeltaKey delta(String attribute, int index) {
+        return new SessionAttributeDeltaKey(attribute, index);
+    }
+
+    private SessionAttributeDeltaKey(String attribute, int index) {
+        this.attribute = attribute;
+        this.index = index;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.attribute.hashCode() * 31 + this.index;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof SessionAttributeDeltaKey)) return false;
+        SessionAttributeDeltaKey key = (SessionAttributeDeltaKey) object;
+        return (this.index == key.index) && this.attribute.equals(key.attribute);
+    }
+
+    @Override
+    public String toString() {
+        return (this.index == COUNT) ? this.attribute + "#count" : this.attribute + "#" + this.index;
+    }
+}
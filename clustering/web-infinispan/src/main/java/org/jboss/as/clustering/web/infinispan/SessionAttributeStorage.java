@@ -32,7 +32,14 @@ import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
  * @author Paul Ferraro
  */
 public interface SessionAttributeStorage<T extends OutgoingDistributableSessionData> {
-    void store(Map<Object, Object> data, T sessionData) throws IOException;
+    /**
+     * Stores the session attributes of the specified session data into the specified cache entry.
+     * @param data a cache entry
+     * @param sessionData the session data
+     * @return the number of serialized attribute bytes stored, or -1 if this storage does not measure them
+     * @throws IOException if an attribute could not be marshalled
+     */
+    long store(Map<Object, Object> data, T sessionData) throws IOException;
 
     Map<String, Object> load(Map<Object, Object> data) throws IOException, ClassNotFoundException;
 }
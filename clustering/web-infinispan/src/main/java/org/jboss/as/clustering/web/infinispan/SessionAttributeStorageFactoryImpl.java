@@ -34,6 +34,21 @@ import static org.jboss.as.clustering.web.infinispan.InfinispanWebMessages.MESSA
  * @author Paul Ferraro
  */
 public class SessionAttributeStorageFactoryImpl implements SessionAttributeStorageFactory {
+    /**
+     * System property enabling delta replication of {@link org.jboss.as.clustering.web.DeltaSessionAttribute}s for
+     * {@link ReplicationGranularity#ATTRIBUTE} granularity.
+     */
+    public static final String DELTA_REPLICATION = "jboss.as.clustering.web.delta-replication";
+
+    private final boolean deltaReplication;
+
+    public SessionAttributeStorageFactoryImpl() {
+        this(Boolean.getBoolean(DELTA_REPLICATION));
+    }
+
+    public SessionAttributeStorageFactoryImpl(boolean deltaReplication) {
+        this.deltaReplication = deltaReplication;
+    }
 
     /**
      * {@inheritDoc}
@@ -48,7 +63,7 @@ public class SessionAttributeStorageFactoryImpl implements SessionAttributeStora
                 return (SessionAttributeStorage<T>) new CoarseSessionAttributeStorage(marshaller);
             }
             case ATTRIBUTE: {
-                return (SessionAttributeStorage<T>) new FineSessionAttributeStorage(marshaller);
+                return (SessionAttributeStorage<T>) new FineSessionAttributeStorage(marshaller, this.deltaReplication);
             }
             case FIELD: {
                 ROOT_LOGGER.deprecatedGranularity(ReplicationGranularity.FIELD.name(), ReplicationGranularity.SESSION.name());
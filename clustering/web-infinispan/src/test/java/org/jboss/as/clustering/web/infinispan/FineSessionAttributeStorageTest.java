@@ -24,15 +24,22 @@ package org.jboss.as.clustering.web.infinispan;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.jboss.as.clustering.web.DeltaList;
+import org.jboss.as.clustering.web.DeltaMap;
 import org.jboss.as.clustering.web.OutgoingAttributeGranularitySessionData;
 import org.jboss.as.clustering.web.SessionAttributeMarshaller;
 import org.junit.After;
@@ -106,4 +113,94 @@ public class FineSessionAttributeStorageTest {
         assertEquals("value", result.get("key"));
     }
 
+    @Test
+    public void storeDelta() throws Exception {
+        SessionAttributeStorage<OutgoingAttributeGranularitySessionData> storage = new FineSessionAttributeStorage(serializingMarshaller(), true);
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        OutgoingAttributeGranularitySessionData data = mock(OutgoingAttributeGranularitySessionData.class);
+        DeltaList<String> list = new DeltaList<String>();
+        list.addAll(Arrays.asList("a", "b", "c"));
+
+        when(data.getModifiedSessionAttributes()).thenReturn(Collections.singletonMap("list", (Object) list));
+
+        assertTrue(storage.store(map, data) > 0);
+        assertEquals(1, map.size());
+
+        Object full = map.get("list");
+        list.add("d");
+
+        assertTrue(storage.store(map, data) > 0);
+        assertSame(full, map.get("list"));
+        assertEquals(Integer.valueOf(1), map.get(SessionAttributeDeltaKey.count("list")));
+        assertTrue(map.containsKey(SessionAttributeDeltaKey.delta("list", 0)));
+
+        Map<String, Object> result = storage.load(map);
+
+        assertEquals(1, result.size());
+        assertEquals(Arrays.asList("a", "b", "c", "d"), result.get("list"));
+
+        list.remove("a");
+
+        storage.store(map, data);
+
+        assertEquals(1, map.size());
+        assertEquals(Arrays.asList("b", "c", "d"), storage.load(map).get("list"));
+    }
+
+    @Test
+    public void storeReplacedDelta() throws Exception {
+        SessionAttributeStorage<OutgoingAttributeGranularitySessionData> storage = new FineSessionAttributeStorage(serializingMarshaller(), true);
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        OutgoingAttributeGranularitySessionData data = mock(OutgoingAttributeGranularitySessionData.class);
+        DeltaMap<String, String> cart = new DeltaMap<String, String>();
+        cart.put("a", "1");
+        cart.put("b", "2");
+        cart.put("c", "3");
+
+        when(data.getModifiedSessionAttributes()).thenReturn(Collections.singletonMap("cart", (Object) cart));
+        storage.store(map, data);
+
+        // a fresh container, without recorded changes, replaces the stored value
+        DeltaMap<String, String> replacement = new DeltaMap<String, String>(new HashMap<String, String>(Collections.singletonMap("x", "9")));
+        assertFalse(replacement.hasDelta());
+        when(data.getModifiedSessionAttributes()).thenReturn(Collections.singletonMap("cart", (Object) replacement));
+        assertTrue(storage.store(map, data) > 0);
+        assertEquals(Collections.singletonMap("x", "9"), storage.load(map).get("cart"));
+
+        // a copy of the stored value replaces it after it was stored with deltas
+        replacement.put("y", "8");
+        storage.store(map, data);
+        assertEquals(Integer.valueOf(1), map.get(SessionAttributeDeltaKey.count("cart")));
+
+        DeltaMap<String, String> copy = new DeltaMap<String, String>(new HashMap<String, String>(replacement));
+        copy.put("z", "7");
+        assertFalse(copy.isDeltaAvailable());
+        when(data.getModifiedSessionAttributes()).thenReturn(Collections.singletonMap("cart", (Object) copy));
+        storage.store(map, data);
+
+        assertEquals(1, map.size());
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("x", "9");
+        expected.put("y", "8");
+        expected.put("z", "7");
+        assertEquals(expected, storage.load(map).get("cart"));
+    }
+
+    private static SessionAttributeMarshaller serializingMarshaller() {
+        return new SessionAttributeMarshaller() {
+            @Override
+            public Object marshal(Object object) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream output = new ObjectOutputStream(bytes);
+                output.writeObject(object);
+                output.close();
+                return bytes.toByteArray();
+            }
+
+            @Override
+            public Object unmarshal(Object object) throws IOException, ClassNotFoundException {
+                return new ObjectInputStream(new ByteArrayInputStream((byte[]) object)).readObject();
+            }
+        };
+    }
 }
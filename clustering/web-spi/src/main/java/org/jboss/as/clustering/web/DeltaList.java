@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.web;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list session attribute that replicates the elements appended since the previous replication, rather than the
+ * whole list. Any other modification, e.g. replacing, inserting or removing elements, causes the whole list to be
+ * replicated. Changes made to mutable elements are not detected.
+ * <p/>
+ * Like the wrapped list, this list is not thread-safe.
+ *
+ * @param <E> the element type
+ */
+public class DeltaList<E> extends AbstractList<E> implements DeltaSessionAttribute<ArrayList<E>> {
+    private static final long serialVersionUID = 2585343839745283743L;
+
+    private final List<E> list;
+
+    // whether this list holds the last replicated state plus the recorded appends
+    private transient boolean deltaAvailable;
+    private transient boolean changed;
+    private transient int deltaCount;
+    private transient ArrayList<E> appended;
+
+    public DeltaList() {
+        this(new ArrayList<E>());
+    }
+
+    /**
+     * Creates a delta list backed by the given list, which must not be modified directly from then on.
+     *
+     * @param list a serializable list
+     */
+    public DeltaList(List<E> list) {
+        this.list = list;
+    }
+
+    @Override
+    public E get(int index) {
+        return this.list.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.list.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        E old = this.list.set(index, element);
+        this.modified();
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        boolean append = (index == this.list.size());
+        this.list.add(index, element);
+        this.modCount += 1;
+        if (append) {
+            this.changed = true;
+            if (this.deltaAvailable) {
+                if (this.appended == null) {
+                    this.appended = new ArrayList<E>();
+                }
+                this.appended.add(element);
+            }
+        } else {
+            this.modified();
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        E old = this.list.remove(index);
+        this.modCount += 1;
+        this.modified();
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        this.list.clear();
+        this.modCount += 1;
+        this.modified();
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        this.list.subList(fromIndex, toIndex).clear();
+        this.modCount += 1;
+        this.modified();
+    }
+
+    @Override
+    public boolean hasDelta() {
+        return this.changed;
+    }
+
+    @Override
+    public boolean isDeltaAvailable() {
+        return this.deltaAvailable;
+    }
+
+    @Override
+    public ArrayList<E> takeDelta() {
+        if (!this.deltaAvailable) return null;
+        ArrayList<E> appended = (this.appended != null) ? this.appended : new ArrayList<E>();
+        // Fall back to full replication if the delta would not be smaller
+        if (appended.size() >= this.list.size()) return null;
+        this.appended = null;
+        this.changed = false;
+        this.deltaCount += 1;
+        return appended;
+    }
+
+    @Override
+    public void applyDelta(ArrayList<E> delta) {
+        this.list.addAll(delta);
+        this.modCount += 1;
+        this.deltaCount += 1;
+    }
+
+    @Override
+    public int getDeltaCount() {
+        return this.deltaCount;
+    }
+
+    @Override
+    public void resetDelta() {
+        this.deltaAvailable = true;
+        this.changed = false;
+        this.deltaCount = 0;
+        this.appended = null;
+    }
+
+    private void modified() {
+        this.changed = true;
+        this.deltaAvailable = false;
+        this.appended = null;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // A deserialized list is a replica of the replicated state
+        this.deltaAvailable = true;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.web;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map session attribute that replicates the entries put or removed since the previous replication, rather than the
+ * whole map. Changes made to mutable values held by the map are not detected, such values have to be put again.
+ * <p/>
+ * Like the wrapped map, this map is not thread-safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class DeltaMap<K, V> extends AbstractMap<K, V> implements DeltaSessionAttribute<DeltaMap.Delta<K, V>> {
+    private static final long serialVersionUID = -2271593046862542513L;
+
+    private final Map<K, V> map;
+
+    // whether this map holds the last replicated state plus the recorded changes
+    private transient boolean deltaAvailable;
+    private transient boolean changed;
+    private transient int deltaCount;
+    private transient Map<K, V> updates;
+    private transient Set<K> removals;
+    private transient Set<Map.Entry<K, V>> entrySet;
+
+    public DeltaMap() {
+        this(new HashMap<K, V>());
+    }
+
+    /**
+     * Creates a delta map backed by the given map, which must not be modified directly from then on.
+     *
+     * @param map a serializable map
+     */
+    public DeltaMap(Map<K, V> map) {
+        this.map = map;
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.map.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return this.map.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V old = this.map.put(key, value);
+        this.updated(key, value);
+        return old;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        if (!this.map.containsKey(key)) return null;
+        V old = this.map.remove(key);
+        this.removed((K) key);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        this.map.clear();
+        // Replicating the now empty map is cheaper than a delta
+        this.changed = true;
+        this.deltaAvailable = false;
+        this.updates = null;
+        this.removals = null;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entrySet = this.entrySet;
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+            this.entrySet = entrySet;
+        }
+        return entrySet;
+    }
+
+    @Override
+    public boolean hasDelta() {
+        return this.changed;
+    }
+
+    @Override
+    public boolean isDeltaAvailable() {
+        return this.deltaAvailable;
+    }
+
+    @Override
+    public Delta<K, V> takeDelta() {
+        if (!this.deltaAvailable) return null;
+        Map<K, V> updates = (this.updates != null) ? this.updates : new HashMap<K, V>();
+        Set<K> removals = (this.removals != null) ? this.removals : new HashSet<K>();
+        // Fall back to full replication if the delta would not be smaller
+        if (updates.size() + removals.size() >= this.map.size()) return null;
+        this.updates = null;
+        this.removals = null;
+        this.changed = false;
+        this.deltaCount += 1;
+        return new Delta<K, V>(updates, removals);
+    }
+
+    @Override
+    public void applyDelta(Delta<K, V> delta) {
+        for (K key : delta.removals) {
+            this.map.remove(key);
+        }
+        this.map.putAll(delta.updates);
+        this.deltaCount += 1;
+    }
+
+    @Override
+    public int getDeltaCount() {
+        return this.deltaCount;
+    }
+
+    @Override
+    public void resetDelta() {
+        this.deltaAvailable = true;
+        this.changed = false;
+        this.deltaCount = 0;
+        this.updates = null;
+        this.removals = null;
+    }
+
+    private void updated(K key, V value) {
+        this.changed = true;
+        if (this.deltaAvailable) {
+            if (this.removals != null) {
+                this.removals.remove(key);
+            }
+            if (this.updates == null) {
+                this.updates = new HashMap<K, V>();
+            }
+            this.updates.put(key, value);
+        }
+    }
+
+    private void removed(K key) {
+        this.changed = true;
+        if (this.deltaAvailable) {
+            if (this.updates != null) {
+                this.updates.remove(key);
+            }
+            if (this.removals == null) {
+                this.removals = new HashSet<K>();
+            }
+            this.removals.add(key);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // A deserialized map is a replica of the replicated state
+        this.deltaAvailable = true;
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            final Iterator<Map.Entry<K, V>> entries = DeltaMap.this.map.entrySet().iterator();
+            return new Iterator<Map.Entry<K, V>>() {
+                private Map.Entry<K, V> current;
+
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    this.current = entries.next();
+                    return new DeltaEntry(this.current);
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                    DeltaMap.this.removed(this.current.getKey());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return DeltaMap.this.map.size();
+        }
+
+        @Override
+        public void clear() {
+            DeltaMap.this.clear();
+        }
+    }
+
+    private class DeltaEntry extends AbstractMap.SimpleEntry<K, V> {
+        private static final long serialVersionUID = 6215823924575457924L;
+
+        private final Map.Entry<K, V> entry;
+
+        DeltaEntry(Map.Entry<K, V> entry) {
+            super(entry);
+            this.entry = entry;
+        }
+
+        @Override
+        public V setValue(V value) {
+            this.entry.setValue(value);
+            DeltaMap.this.updated(this.getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * The entries put into and removed from a {@link DeltaMap}.
+     */
+    public static class Delta<K, V> implements Serializable {
+        private static final long serialVersionUID = 4946434447464434567L;
+
+        final Map<K, V> updates;
+        final Set<K> removals;
+
+        Delta(Map<K, V> updates, Set<K> removals) {
+            this.updates = updates;
+            this.removals = removals;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.web;
+
+import java.io.Serializable;
+
+/**
+ * A session attribute value that is able to describe its changes, such that sessions using
+ * {@link org.jboss.metadata.web.jboss.ReplicationGranularity#ATTRIBUTE} granularity replicate only the changed portion
+ * instead of the whole value, if delta replication is enabled.
+ * <p/>
+ * The full value is replicated whenever no delta is available, e.g. for a new value, and periodically to bound the
+ * number of deltas a node has to apply when it loads the session.
+ *
+ * @param <D> the delta type
+ * @see DeltaMap
+ * @see DeltaList
+ */
+public interface DeltaSessionAttribute<D extends Serializable> extends Serializable {
+
+    /**
+     * Indicates whether this value changed since the last delta was taken or the value was last replicated in full.
+     *
+     * @return true, if this value changed
+     */
+    boolean hasDelta();
+
+    /**
+     * Indicates whether this value holds the last replicated state plus the changes recorded since, so that a delta can
+     * be taken from it. A new value, including a copy of a replicated value, holds no such state until it was replicated
+     * in full.
+     *
+     * @return true, if changes to this value are recorded relative to its last replicated state
+     */
+    boolean isDeltaAvailable();
+
+    /**
+     * Returns the changes to this value since the last delta was taken or the value was last replicated in full, and
+     * starts recording changes afresh. Taking a delta increments the {@link #getDeltaCount() delta count}.
+     *
+     * @return the changes, or null if the changes cannot be expressed as a delta and the full value must be replicated
+     */
+    D takeDelta();
+
+    /**
+     * Applies a delta taken from another instance of this value. Applying a delta increments the
+     * {@link #getDeltaCount() delta count}.
+     *
+     * @param delta a delta
+     */
+    void applyDelta(D delta);
+
+    /**
+     * Returns the number of deltas reflected by this value, i.e. taken from or applied to it, since the last full
+     * replication.
+     *
+     * @return a delta count
+     */
+    int getDeltaCount();
+
+    /**
+     * Indicates that the full value was just replicated. The current state of this value is the base of subsequent
+     * deltas and the delta count is reset to 0.
+     */
+    void resetDelta();
+}
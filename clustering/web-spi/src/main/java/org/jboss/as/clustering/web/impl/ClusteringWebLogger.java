@@ -57,4 +57,16 @@ interface ClusteringWebLogger extends BasicLogger {
     @LogMessage(level = WARN)
     @Message(id = 10300, value = "%s: rolling back transaction with exception")
     void rollingBackTransaction(@Cause Throwable cause, String methodName);
+
+    /**
+     * Logs a warning message indicating that an entry of the session attribute class table of a deployment, or the
+     * resource listing these entries, could not be loaded.
+     *
+     * @param cause  the cause of the error.
+     * @param name   the name of the class or resource that could not be loaded.
+     * @param source the resource or class loader it was loaded from.
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 10301, value = "Failed to load session attribute class table entry %s from %s")
+    void sessionAttributeClassTableEntryNotLoaded(@Cause Throwable cause, String name, Object source);
 }
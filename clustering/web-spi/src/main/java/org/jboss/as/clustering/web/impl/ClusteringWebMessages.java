@@ -22,6 +22,8 @@
 
 package org.jboss.as.clustering.web.impl;
 
+import java.io.IOException;
+
 import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageBundle;
@@ -79,4 +81,7 @@ interface ClusteringWebMessages {
 
     @Message(id = 10314, value = "ClassTable %s cannot find a class for class index %d")
     ClassNotFoundException classIndexNotFoundInClassTable(String className, int index);
+
+    @Message(id = 10315, value = "Unsupported session attribute encoding: %d")
+    IOException unsupportedEncoding(int encoding);
 }
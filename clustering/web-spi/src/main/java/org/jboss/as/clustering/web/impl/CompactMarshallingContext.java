@@ -0,0 +1,288 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.web.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jboss.as.clustering.MarshallingContext;
+import org.jboss.as.clustering.VersionedMarshallingConfiguration;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * Marshalling context that reuses marshallers, unmarshallers and buffers across invocations, and that optionally
+ * deflates marshalled values exceeding a size threshold.
+ * <p/>
+ * Values marshalled using the compact version are laid out as the marshalling version, followed by an encoding byte,
+ * followed by either the marshalled value, or its uncompressed length and the deflated marshalled value.
+ * Values of any other version are delegated to the default format of {@link MarshallingContext}.
+ */
+class CompactMarshallingContext extends MarshallingContext {
+    static final byte UNCOMPRESSED = 0;
+    static final byte DEFLATED = 1;
+
+    private static final int HEADER_LENGTH = 5;
+    private static final int DEFLATED_HEADER_LENGTH = HEADER_LENGTH + 4;
+    // Buffers that grew beyond this size are not retained by the pool
+    private static final int MAX_RETAINED_BUFFER_SIZE = 0x10000;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final int compactVersion;
+    private final int compressionThreshold;
+    private final BlockingQueue<Encoder> encoders = new ArrayBlockingQueue<Encoder>(POOL_SIZE);
+    private final BlockingQueue<Decoder> decoders = new ArrayBlockingQueue<Decoder>(POOL_SIZE);
+
+    /**
+     * @param factory a marshaller factory
+     * @param configuration the versioned marshalling configuration
+     * @param compactVersion the marshalling version using the compact format
+     * @param compressionThreshold the marshalled size, in bytes, above which values are deflated, or a negative value to disable compression
+     */
+    CompactMarshallingContext(MarshallerFactory factory, VersionedMarshallingConfiguration configuration, int compactVersion, int compressionThreshold) {
+        super(factory, configuration);
+        this.compactVersion = compactVersion;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] marshal(Object object) throws IOException {
+        int version = this.getCurrentVersion();
+        if (version != this.compactVersion) {
+            return super.marshal(object);
+        }
+        Encoder encoder = this.encoders.poll();
+        if (encoder == null) {
+            encoder = new Encoder(this.createMarshaller(version));
+        }
+        boolean reusable = false;
+        try {
+            byte[] bytes = encoder.encode(version, object);
+            reusable = true;
+            return bytes;
+        } finally {
+            if (!reusable || !this.encoders.offer(encoder)) {
+                encoder.close();
+            }
+        }
+    }
+
+    @Override
+    public Object unmarshal(byte[] bytes) throws IOException, ClassNotFoundException {
+        int version = readInt(bytes, 0);
+        if (version != this.compactVersion) {
+            return super.unmarshal(bytes);
+        }
+        Decoder decoder = this.decoders.poll();
+        if (decoder == null) {
+            decoder = new Decoder(this.createUnmarshaller(version));
+        }
+        boolean reusable = false;
+        try {
+            Object object = decoder.decode(version, bytes);
+            reusable = true;
+            return object;
+        } finally {
+            if (!reusable || !this.decoders.offer(decoder)) {
+                decoder.close();
+            }
+        }
+    }
+
+    static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * A byte array output stream exposing its buffer.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(512);
+        }
+
+        byte[] getBuffer() {
+            return this.buf;
+        }
+
+        boolean isRetainable() {
+            return this.buf.length <= MAX_RETAINED_BUFFER_SIZE;
+        }
+    }
+
+    private class Encoder {
+        private final Marshaller marshaller;
+        private Buffer buffer = new Buffer();
+        private Deflater deflater;
+
+        Encoder(Marshaller marshaller) {
+            this.marshaller = marshaller;
+        }
+
+        byte[] encode(int version, Object object) throws IOException {
+            if (!this.buffer.isRetainable()) {
+                this.buffer = new Buffer();
+            }
+            Buffer buffer = this.buffer;
+            buffer.reset();
+            this.marshaller.start(Marshalling.createByteOutput(buffer));
+            CompactMarshallingContext.this.writeObject(version, this.marshaller, object);
+            this.marshaller.finish();
+            int length = buffer.size();
+
+            if ((CompactMarshallingContext.this.compressionThreshold >= 0) && (length > CompactMarshallingContext.this.compressionThreshold)) {
+                byte[] bytes = this.deflate(buffer.getBuffer(), length);
+                if (bytes != null) {
+                    writeInt(bytes, 0, version);
+                    bytes[4] = DEFLATED;
+                    writeInt(bytes, HEADER_LENGTH, length);
+                    return bytes;
+                }
+            }
+            byte[] bytes = new byte[HEADER_LENGTH + length];
+            writeInt(bytes, 0, version);
+            bytes[4] = UNCOMPRESSED;
+            System.arraycopy(buffer.getBuffer(), 0, bytes, HEADER_LENGTH, length);
+            return bytes;
+        }
+
+        /**
+         * Deflates the specified bytes, leaving room for the header.
+         * @return the deflated bytes, or null, if deflating did not reduce the size
+         */
+        private byte[] deflate(byte[] input, int length) {
+            if (this.deflater == null) {
+                this.deflater = new Deflater(Deflater.BEST_SPEED);
+            }
+            Deflater deflater = this.deflater;
+            deflater.reset();
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            // Only worth it if the deflated form, including its longer header, is smaller
+            byte[] output = new byte[HEADER_LENGTH + length];
+            int offset = DEFLATED_HEADER_LENGTH;
+            while (!deflater.finished() && (offset < output.length)) {
+                offset += deflater.deflate(output, offset, output.length - offset);
+            }
+            if (!deflater.finished() || (offset >= output.length)) {
+                return null;
+            }
+            byte[] result = new byte[offset];
+            System.arraycopy(output, 0, result, 0, offset);
+            return result;
+        }
+
+        void close() {
+            try {
+                this.marshaller.close();
+            } catch (IOException e) {
+                ClusteringWebLogger.ROOT_LOGGER.debugf(e, "Failed to close marshaller");
+            }
+            if (this.deflater != null) {
+                this.deflater.end();
+            }
+        }
+    }
+
+    private class Decoder {
+        private final Unmarshaller unmarshaller;
+        private Inflater inflater;
+
+        Decoder(Unmarshaller unmarshaller) {
+            this.unmarshaller = unmarshaller;
+        }
+
+        Object decode(int version, byte[] bytes) throws IOException, ClassNotFoundException {
+            ByteArrayInputStream input;
+            byte encoding = bytes[4];
+            switch (encoding) {
+                case UNCOMPRESSED: {
+                    input = new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+                    break;
+                }
+                case DEFLATED: {
+                    input = new ByteArrayInputStream(this.inflate(bytes, readInt(bytes, HEADER_LENGTH)));
+                    break;
+                }
+                default: {
+                    throw ClusteringWebMessages.MESSAGES.unsupportedEncoding(encoding);
+                }
+            }
+            this.unmarshaller.start(Marshalling.createByteInput(input));
+            Object object = CompactMarshallingContext.this.readObject(version, this.unmarshaller);
+            this.unmarshaller.finish();
+            return object;
+        }
+
+        private byte[] inflate(byte[] bytes, int length) throws IOException {
+            if (this.inflater == null) {
+                this.inflater = new Inflater();
+            }
+            Inflater inflater = this.inflater;
+            inflater.reset();
+            inflater.setInput(bytes, DEFLATED_HEADER_LENGTH, bytes.length - DEFLATED_HEADER_LENGTH);
+            byte[] output = new byte[length];
+            try {
+                int offset = 0;
+                while ((offset < length) && !inflater.finished()) {
+                    int inflated = inflater.inflate(output, offset, length - offset);
+                    if ((inflated == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    offset += inflated;
+                }
+                if (offset != length) {
+                    throw ClusteringWebMessages.MESSAGES.unsupportedEncoding(DEFLATED);
+                }
+                return output;
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                this.unmarshaller.close();
+            } catch (IOException e) {
+                ClusteringWebLogger.ROOT_LOGGER.debugf(e, "Failed to close unmarshaller");
+            }
+            if (this.inflater != null) {
+                this.inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.web.impl;
+
+import org.jboss.as.clustering.ClassLoaderProvider;
+import org.jboss.as.clustering.VersionedMarshallingConfiguration;
+import org.jboss.as.clustering.web.LocalDistributableSessionManager;
+import org.jboss.as.clustering.web.SessionAttributeMarshaller;
+import org.jboss.as.clustering.web.SessionAttributeMarshallerFactory;
+import org.jboss.marshalling.ClassResolver;
+import org.jboss.marshalling.ClassTable;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.reflect.ReflectiveCreator;
+import org.jboss.marshalling.reflect.SunReflectiveCreator;
+
+/**
+ * Factory for creating session attribute marshallers that produce a more compact marshalled form than
+ * {@link SessionAttributeMarshallerFactoryImpl}.
+ * <ul>
+ * <li>Common JDK classes, and the classes listed by the {@value SessionAttributeClassTable#RESOURCE} resource of a
+ * deployment, are written as a class table index rather than as a class descriptor.</li>
+ * <li>Marshalled values larger than a configurable threshold are deflated.</li>
+ * <li>Marshallers, unmarshallers and buffers are pooled per deployment.</li>
+ * </ul>
+ * Values marshalled by {@link SessionAttributeMarshallerFactoryImpl} can still be read, but not vice versa,
+ * so all nodes of a cluster must be switched over together.
+ */
+public class CompactSessionAttributeMarshallerFactory implements SessionAttributeMarshallerFactory {
+    /** System property enabling this factory by default */
+    public static final String COMPACT_MARSHALLING = "jboss.as.clustering.web.compact-marshalling";
+    /** System property specifying the marshalled size, in bytes, above which values are deflated; negative to disable */
+    public static final String COMPRESSION_THRESHOLD = "jboss.as.clustering.web.compression-threshold";
+
+    static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    // Version written by SessionAttributeMarshallerFactoryImpl
+    static final int LEGACY_VERSION = 1;
+    static final int CURRENT_VERSION = 2;
+
+    private final MarshallerFactory factory;
+    private final int compressionThreshold;
+
+    public CompactSessionAttributeMarshallerFactory() {
+        this(Marshalling.getMarshallerFactory("river", Marshalling.class.getClassLoader()), Integer.getInteger(COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD));
+    }
+
+    public CompactSessionAttributeMarshallerFactory(MarshallerFactory factory, int compressionThreshold) {
+        this.factory = factory;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.as.clustering.web.SessionAttributeMarshallerFactory#createMarshaller(org.jboss.as.clustering.web.LocalDistributableSessionManager)
+     */
+    @Override
+    public SessionAttributeMarshaller createMarshaller(LocalDistributableSessionManager manager) {
+        ClassResolver resolver = manager.getApplicationClassResolver();
+        ClassLoader loader = (resolver instanceof ClassLoaderProvider) ? ((ClassLoaderProvider) resolver).getClassLoader() : null;
+        final MarshallingConfiguration legacy = createConfiguration(resolver, new SessionAttributeMarshallerFactoryImpl(this.factory));
+        final MarshallingConfiguration current = createConfiguration(resolver, SessionAttributeClassTable.load(loader));
+        VersionedMarshallingConfiguration configuration = new VersionedMarshallingConfiguration() {
+            @Override
+            public int getCurrentMarshallingVersion() {
+                return CURRENT_VERSION;
+            }
+
+            @Override
+            public MarshallingConfiguration getMarshallingConfiguration(int version) {
+                switch (version) {
+                    case LEGACY_VERSION: {
+                        return legacy;
+                    }
+                    case CURRENT_VERSION: {
+                        return current;
+                    }
+                    default: {
+                        throw ClusteringWebMessages.MESSAGES.unsupportedMarshallingVersion(version);
+                    }
+                }
+            }
+        };
+        return new SessionAttributeMarshallerImpl(new CompactMarshallingContext(this.factory, configuration, CURRENT_VERSION, this.compressionThreshold));
+    }
+
+    private static MarshallingConfiguration createConfiguration(ClassResolver resolver, ClassTable table) {
+        MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setClassResolver(resolver);
+        configuration.setSerializedCreator(new SunReflectiveCreator());
+        configuration.setExternalizerCreator(new ReflectiveCreator());
+        configuration.setClassTable(table);
+        return configuration;
+    }
+}
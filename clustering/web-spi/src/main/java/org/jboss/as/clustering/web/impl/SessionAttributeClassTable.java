@@ -0,0 +1,206 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.web.impl;
+
+import java.io.BufferedReader;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Currency;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.marshalling.ClassTable;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * Class table that writes well known session attribute classes as a small index instead of a full class descriptor.
+ * The table consists of a fixed set of common JDK classes, followed by the classes listed in the
+ * {@value #RESOURCE} resource of a deployment, one fully qualified class name per line.
+ * Since class indexes are part of the marshalled form, the resource must be identical on all nodes of a cluster,
+ * and new entries should only ever be appended. An index is written in 7 bit groups, the lowest first, with the high
+ * bit of each byte set if another one follows, so that its width does not depend on the size of the table.
+ */
+class SessionAttributeClassTable implements ClassTable {
+    static final String RESOURCE = "META-INF/jboss-session-attribute-classes";
+
+    // Append only - the index of each class is part of the marshalled form
+    private static final Class<?>[] CLASSES = new Class<?>[] {
+        Serializable.class,
+        Externalizable.class,
+        Number.class,
+        Enum.class,
+        Date.class,
+        java.sql.Date.class,
+        java.sql.Time.class,
+        java.sql.Timestamp.class,
+        Calendar.class,
+        GregorianCalendar.class,
+        BigDecimal.class,
+        BigInteger.class,
+        Locale.class,
+        Currency.class,
+        UUID.class,
+        URI.class,
+        URL.class,
+        StringBuilder.class,
+        StringBuffer.class,
+        AtomicBoolean.class,
+        AtomicInteger.class,
+        AtomicLong.class,
+    };
+
+    private final Class<?>[] classes;
+    private final Map<Class<?>, Writer> writers = new IdentityHashMap<Class<?>, Writer>();
+
+    /**
+     * Creates a class table containing the common JDK classes and the classes listed by the {@value #RESOURCE}
+     * resource of the specified class loader, if any.
+     * @param loader a deployment class loader, may be null
+     * @return a class table
+     */
+    static SessionAttributeClassTable load(ClassLoader loader) {
+        if (loader == null) {
+            return new SessionAttributeClassTable(new ArrayList<Class<?>>());
+        }
+        List<String> names = new ArrayList<String>();
+        InputStream input = loader.getResourceAsStream(RESOURCE);
+        if (input != null) {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+                String line = reader.readLine();
+                while (line != null) {
+                    String name = line.trim();
+                    if (!name.isEmpty() && !name.startsWith("#")) {
+                        names.add(name);
+                    }
+                    line = reader.readLine();
+                }
+            } catch (IOException e) {
+                ClusteringWebLogger.ROOT_LOGGER.sessionAttributeClassTableEntryNotLoaded(e, RESOURCE, loader);
+                names.clear();
+            } finally {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    ClusteringWebLogger.ROOT_LOGGER.debugf(e, "Failed to close %s", RESOURCE);
+                }
+            }
+        }
+        List<Class<?>> classes = new ArrayList<Class<?>>(names.size());
+        for (String name: names) {
+            Class<?> targetClass = null;
+            try {
+                targetClass = loader.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                ClusteringWebLogger.ROOT_LOGGER.sessionAttributeClassTableEntryNotLoaded(e, name, RESOURCE);
+            } catch (LinkageError e) {
+                ClusteringWebLogger.ROOT_LOGGER.sessionAttributeClassTableEntryNotLoaded(e, name, RESOURCE);
+            }
+            // Retain the position of classes that could not be loaded, so that subsequent indexes do not shift
+            classes.add(targetClass);
+        }
+        return new SessionAttributeClassTable(classes);
+    }
+
+    SessionAttributeClassTable(List<Class<?>> deploymentClasses) {
+        this.classes = Arrays.copyOf(CLASSES, CLASSES.length + deploymentClasses.size());
+        for (int i = 0; i < deploymentClasses.size(); i++) {
+            this.classes[CLASSES.length + i] = deploymentClasses.get(i);
+        }
+        for (int i = 0; i < this.classes.length; i++) {
+            Class<?> targetClass = this.classes[i];
+            if ((targetClass != null) && !this.writers.containsKey(targetClass)) {
+                this.writers.put(targetClass, new IndexWriter(i));
+            }
+        }
+    }
+
+    int size() {
+        return this.classes.length;
+    }
+
+    @Override
+    public Writer getClassWriter(Class<?> targetClass) throws IOException {
+        return this.writers.get(targetClass);
+    }
+
+    @Override
+    public Class<?> readClass(Unmarshaller unmarshaller) throws IOException, ClassNotFoundException {
+        int index = 0;
+        int shift = 0;
+        int value = unmarshaller.readUnsignedByte();
+        while ((value & 0x80) != 0) {
+            index |= (value & 0x7F) << shift;
+            shift += 7;
+            if (shift > 28) {
+                throw ClusteringWebMessages.MESSAGES.classIndexNotFoundInClassTable(this.getClass().getName(), index);
+            }
+            value = unmarshaller.readUnsignedByte();
+        }
+        index |= value << shift;
+        Class<?> targetClass = ((index >= 0) && (index < this.classes.length)) ? this.classes[index] : null;
+        if (targetClass == null) {
+            throw ClusteringWebMessages.MESSAGES.classIndexNotFoundInClassTable(this.getClass().getName(), index);
+        }
+        return targetClass;
+    }
+
+    private static final class IndexWriter implements Writer {
+        private final byte[] bytes;
+
+        IndexWriter(int index) {
+            byte[] bytes = new byte[5];
+            int length = 0;
+            int remaining = index;
+            while ((remaining & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            bytes[length++] = (byte) remaining;
+            this.bytes = Arrays.copyOf(bytes, length);
+        }
+
+        @Override
+        public void writeClass(Marshaller marshaller, Class<?> clazz) throws IOException {
+            marshaller.write(this.bytes);
+        }
+    }
+}
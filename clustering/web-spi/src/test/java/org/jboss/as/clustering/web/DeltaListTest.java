@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.web;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class DeltaListTest {
+
+    @Test
+    public void appends() throws Exception {
+        DeltaList<String> list = new DeltaList<String>();
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        assertNull(list.takeDelta());
+        list.resetDelta();
+        DeltaList<String> replica = DeltaMapTest.copy(list);
+
+        list.add("d");
+        assertTrue(list.hasDelta());
+        ArrayList<String> delta = list.takeDelta();
+        assertEquals(1, delta.size());
+        assertFalse(list.hasDelta());
+
+        replica.applyDelta(DeltaMapTest.copy(delta));
+        assertEquals(list, replica);
+        assertEquals(1, replica.getDeltaCount());
+    }
+
+    @Test
+    public void otherModificationsRequireFullReplication() {
+        DeltaList<String> list = new DeltaList<String>();
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        list.resetDelta();
+
+        list.add(0, "z");
+        assertTrue(list.hasDelta());
+        assertNull(list.takeDelta());
+
+        list.resetDelta();
+        list.remove("b");
+        assertNull(list.takeDelta());
+
+        list.resetDelta();
+        list.set(0, "y");
+        assertNull(list.takeDelta());
+    }
+}
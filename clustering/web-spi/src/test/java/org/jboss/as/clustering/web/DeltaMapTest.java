@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.web;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DeltaMapTest {
+
+    @Test
+    public void newMapHasNoDelta() {
+        DeltaMap<String, String> map = new DeltaMap<String, String>();
+        map.put("a", "1");
+        assertTrue(map.hasDelta());
+        assertNull(map.takeDelta());
+    }
+
+    @Test
+    public void delta() throws Exception {
+        DeltaMap<String, String> map = new DeltaMap<String, String>();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        map.put("e", "5");
+        map.put("f", "6");
+        map.resetDelta();
+        DeltaMap<String, String> replica = copy(map);
+        assertFalse(map.hasDelta());
+
+        map.put("d", "4");
+        map.remove("a");
+        assertTrue(map.hasDelta());
+        DeltaMap.Delta<String, String> delta = map.takeDelta();
+        assertNotNull(delta);
+        assertFalse(map.hasDelta());
+        assertEquals(1, map.getDeltaCount());
+
+        Iterator<Map.Entry<String, String>> entries = map.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, String> entry = entries.next();
+            if (entry.getKey().equals("b")) {
+                entry.setValue("two");
+            } else if (entry.getKey().equals("c")) {
+                entries.remove();
+            }
+        }
+        DeltaMap.Delta<String, String> nextDelta = map.takeDelta();
+        assertNotNull(nextDelta);
+        assertEquals(2, map.getDeltaCount());
+
+        replica.applyDelta(copy(delta));
+        replica.applyDelta(copy(nextDelta));
+        assertEquals(map, replica);
+        assertEquals(2, replica.getDeltaCount());
+    }
+
+    @Test
+    public void clearRequiresFullReplication() {
+        DeltaMap<String, String> map = new DeltaMap<String, String>();
+        map.put("a", "1");
+        map.resetDelta();
+        map.clear();
+        assertTrue(map.hasDelta());
+        assertNull(map.takeDelta());
+    }
+
+    @Test
+    public void largeDeltaRequiresFullReplication() {
+        DeltaMap<String, String> map = new DeltaMap<String, String>();
+        map.put("a", "1");
+        map.resetDelta();
+        map.put("a", "one");
+        assertTrue(map.hasDelta());
+        assertNull(map.takeDelta());
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T copy(T object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(object);
+        output.close();
+        return (T) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.web.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jboss.as.clustering.SimpleClassResolver;
+import org.jboss.as.clustering.SimpleMarshalledValue;
+import org.jboss.as.clustering.web.LocalDistributableSessionManager;
+import org.jboss.as.clustering.web.SessionAttributeMarshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.junit.Test;
+
+public class CompactSessionAttributeMarshallerFactoryTest {
+    private final MarshallerFactory marshallerFactory = Marshalling.getMarshallerFactory("river", Marshalling.class.getClassLoader());
+    private final LocalDistributableSessionManager manager = mock(LocalDistributableSessionManager.class);
+
+    public CompactSessionAttributeMarshallerFactoryTest() {
+        // Lists the attribute class in the class table resource
+        ClassLoader loader = new ClassLoader(this.getClass().getClassLoader()) {
+            @Override
+            public InputStream getResourceAsStream(String name) {
+                if (name.equals(SessionAttributeClassTable.RESOURCE)) {
+                    return new ByteArrayInputStream(("# comment\n" + Attribute.class.getName() + "\ncom.acme.Missing\n").getBytes());
+                }
+                return super.getResourceAsStream(name);
+            }
+        };
+        when(this.manager.getApplicationClassResolver()).thenReturn(new SimpleClassResolver(loader));
+    }
+
+    @Test
+    public void roundTrip() throws IOException, ClassNotFoundException {
+        SessionAttributeMarshaller marshaller = new CompactSessionAttributeMarshallerFactory(this.marshallerFactory, 1024).createMarshaller(this.manager);
+
+        this.roundTrip(marshaller, new Date(System.currentTimeMillis()));
+        this.roundTrip(marshaller, new Attribute("test", new Date(0)));
+        this.roundTrip(marshaller, createLargeAttribute());
+        // Pooled marshallers must not leak state between invocations
+        this.roundTrip(marshaller, new Attribute("test", new Date(0)));
+    }
+
+    @Test
+    public void smaller() throws IOException {
+        SessionAttributeMarshaller legacy = new SessionAttributeMarshallerFactoryImpl(this.marshallerFactory).createMarshaller(this.manager);
+        SessionAttributeMarshaller compact = new CompactSessionAttributeMarshallerFactory(this.marshallerFactory, -1).createMarshaller(this.manager);
+
+        Attribute attribute = new Attribute("test", new Date(0));
+        assertTrue(size(compact, attribute) < size(legacy, attribute));
+    }
+
+    @Test
+    public void compression() throws IOException, ClassNotFoundException {
+        SessionAttributeMarshaller uncompressed = new CompactSessionAttributeMarshallerFactory(this.marshallerFactory, -1).createMarshaller(this.manager);
+        SessionAttributeMarshaller compressed = new CompactSessionAttributeMarshallerFactory(this.marshallerFactory, 1024).createMarshaller(this.manager);
+
+        Attribute attribute = createLargeAttribute();
+        assertTrue(size(compressed, attribute) < size(uncompressed, attribute));
+
+        // Small values are not compressed
+        Attribute small = new Attribute("test", new Date(0));
+        assertEquals(size(uncompressed, small), size(compressed, small));
+    }
+
+    @Test
+    public void legacy() throws IOException, ClassNotFoundException {
+        SessionAttributeMarshaller legacy = new SessionAttributeMarshallerFactoryImpl(this.marshallerFactory).createMarshaller(this.manager);
+        SessionAttributeMarshaller compact = new CompactSessionAttributeMarshallerFactory(this.marshallerFactory, 1024).createMarshaller(this.manager);
+
+        Attribute attribute = new Attribute("test", new Date(0));
+        SimpleMarshalledValue<?> value = (SimpleMarshalledValue<?>) legacy.marshal(attribute);
+
+        assertEquals(attribute, compact.unmarshal(replicate(value)));
+    }
+
+    private void roundTrip(SessionAttributeMarshaller marshaller, Object object) throws IOException, ClassNotFoundException {
+        SimpleMarshalledValue<?> value = (SimpleMarshalledValue<?>) marshaller.marshal(object);
+        assertEquals(object, marshaller.unmarshal(replicate(value)));
+    }
+
+    private static int size(SessionAttributeMarshaller marshaller, Object object) throws IOException {
+        return ((SimpleMarshalledValue<?>) marshaller.marshal(object)).serialize();
+    }
+
+    // Simulates replication of a marshalled value to another node
+    private static SimpleMarshalledValue<?> replicate(SimpleMarshalledValue<?> value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        value.writeExternal(output);
+        output.close();
+        SimpleMarshalledValue<?> copy = new SimpleMarshalledValue<Object>();
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        copy.readExternal(input);
+        input.close();
+        return copy;
+    }
+
+    private static Attribute createLargeAttribute() {
+        List<Attribute> children = new ArrayList<Attribute>();
+        for (int i = 0; i < 100; i++) {
+            children.add(new Attribute("child-" + i, new Date(i)));
+        }
+        Attribute attribute = new Attribute("parent", new Date(0));
+        attribute.children = children;
+        return attribute;
+    }
+
+    static class Attribute implements Serializable {
+        private static final long serialVersionUID = -3287616224758543364L;
+
+        final String name;
+        final Date date;
+        List<Attribute> children = new ArrayList<Attribute>();
+
+        Attribute(String name, Date date) {
+            this.name = name;
+            this.date = date;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Attribute)) return false;
+            Attribute attribute = (Attribute) object;
+            return this.name.equals(attribute.name) && this.date.equals(attribute.date) && this.children.equals(attribute.children);
+        }
+    }
+}
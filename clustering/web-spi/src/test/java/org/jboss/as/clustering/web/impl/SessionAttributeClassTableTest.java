@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.web.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+import org.junit.Test;
+
+public class SessionAttributeClassTableTest {
+    private final MarshallerFactory marshallerFactory = Marshalling.getMarshallerFactory("river", Marshalling.class.getClassLoader());
+
+    @Test
+    public void appendedClassesKeepIndexWidth() throws IOException, ClassNotFoundException {
+        SessionAttributeClassTable small = new SessionAttributeClassTable(new ArrayList<Class<?>>());
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        for (int i = 0; i < 0x200; i++) {
+            classes.add(null);
+        }
+        classes.add(Attribute.class);
+        SessionAttributeClassTable large = new SessionAttributeClassTable(classes);
+
+        // A table that grew past 256 entries still reads what the smaller table wrote
+        Date date = new Date(0);
+        byte[] bytes = this.marshal(small, date);
+        assertArrayEquals(bytes, this.marshal(large, date));
+        assertEquals(date, this.unmarshal(large, bytes));
+
+        Attribute attribute = new Attribute("test");
+        assertEquals(attribute, this.unmarshal(large, this.marshal(large, attribute)));
+    }
+
+    private byte[] marshal(SessionAttributeClassTable table, Object object) throws IOException {
+        MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setClassTable(table);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Marshaller marshaller = this.marshallerFactory.createMarshaller(configuration);
+        marshaller.start(Marshalling.createByteOutput(output));
+        marshaller.writeObject(object);
+        marshaller.finish();
+        return output.toByteArray();
+    }
+
+    private Object unmarshal(SessionAttributeClassTable table, byte[] bytes) throws IOException, ClassNotFoundException {
+        MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setClassTable(table);
+        Unmarshaller unmarshaller = this.marshallerFactory.createUnmarshaller(configuration);
+        unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(bytes)));
+        Object object = unmarshaller.readObject();
+        unmarshaller.finish();
+        return object;
+    }
+
+    static class Attribute implements Serializable {
+        private static final long serialVersionUID = 6515433451356215094L;
+
+        final String name;
+
+        Attribute(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return (object instanceof Attribute) && this.name.equals(((Attribute) object).name);
+        }
+    }
+}
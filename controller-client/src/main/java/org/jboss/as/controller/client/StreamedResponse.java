@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * The response to an operation executed by {@link StreamingModelControllerClient#executeStreaming}, read as it
+ * arrives.
+ * <p>
+ * For a recursive {@code read-resource}, iterating yields one entry per resource, each resource before its children.
+ * An entry holds the {@code address} of the resource and, as {@code result}, its attributes and the names of its
+ * children, as returned by a non-recursive {@code read-resource}. Each resource is read separately, so the entries
+ * are not a consistent snapshot of the model. Only a few entries are buffered, and the server waits while the caller
+ * processes them. A server which does not support streaming executes the operation as usual, and its result is then
+ * split into the same entries by the client.
+ * <p>
+ * If the thread iterating over the entries is interrupted while waiting for one, {@link #hasNext()} returns
+ * {@code false} and leaves the interrupt status set; {@link #getResponse()} then throws an
+ * {@link java.io.InterruptedIOException}, and {@link #close()} cancels the operation.
+ */
+public interface StreamedResponse extends Iterator<ModelNode>, Closeable {
+
+    /**
+     * Gets the final response to the operation, discarding any entries not read yet. For a streamed
+     * {@code read-resource} it has no result, but tells whether all the entries were read successfully.
+     *
+     * @return the response
+     * @throws IOException if an I/O error occurs while reading the response
+     */
+    ModelNode getResponse() throws IOException;
+
+    /**
+     * Stops reading the entries, cancelling the operation if it is still running.
+     */
+    @Override
+    void close();
+}
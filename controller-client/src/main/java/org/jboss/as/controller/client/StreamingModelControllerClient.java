@@ -0,0 +1,47 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.client;
+
+import java.io.IOException;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A {@link ModelControllerClient} that can read the result of an operation as it arrives, rather than in one piece.
+ * The clients created by {@link ModelControllerClient.Factory} implement it.
+ */
+public interface StreamingModelControllerClient extends ModelControllerClient {
+
+    /**
+     * Execute an operation, streaming its result. A recursive {@code read-resource} is streamed one resource at a
+     * time, see {@link StreamedResponse}; the result of any other operation is part of the
+     * {@link StreamedResponse#getResponse() final response}. Operations with attached input streams are not
+     * supported.
+     *
+     * @param operation the operation to execute
+     * @param messageHandler the message handler to use for operation progress reporting, or {@code null} for none
+     * @return the streamed response, which must be closed if not read to the end
+     * @throws IOException if an I/O error occurs while sending the operation
+     */
+    StreamedResponse executeStreaming(ModelNode operation, OperationMessageHandler messageHandler) throws IOException;
+}
@@ -21,15 +21,18 @@ package org.jboss.as.controller.client.impl;
 import java.io.DataInput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import org.jboss.as.controller.client.MessageSeverity;
-import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.Operation;
 import org.jboss.as.controller.client.OperationBuilder;
 import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.StreamedResponse;
+import org.jboss.as.controller.client.StreamingModelControllerClient;
 import org.jboss.as.protocol.StreamUtils;
 import org.jboss.as.protocol.mgmt.AbstractManagementRequest;
 import org.jboss.as.protocol.mgmt.ActiveOperation;
@@ -51,13 +54,17 @@ import org.jboss.threads.AsyncFuture;
  *
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  */
-public abstract class AbstractModelControllerClient implements ModelControllerClient, ManagementRequestHandlerFactory {
+public abstract class AbstractModelControllerClient implements StreamingModelControllerClient, ManagementRequestHandlerFactory {
 
     private static ManagementRequestHandler<ModelNode, OperationExecutionContext> MESSAGE_HANDLER = new HandleReportRequestHandler();
     private static ManagementRequestHandler<ModelNode, OperationExecutionContext> GET_INPUT_STREAM = new ReadAttachmentInputStreamRequestHandler();
+    private static ManagementRequestHandler<ModelNode, OperationExecutionContext> STREAM_ENTRY = new StreamEntryRequestHandler();
 
     private static final OperationMessageHandler NO_OP_HANDLER = OperationMessageHandler.DISCARD;
 
+    // Set once a server has turned out not to support streaming, to execute the operations as usual right away
+    private volatile boolean streamingUnsupported;
+
     /**
      * Get the mgmt channel association.
      *
@@ -104,6 +111,56 @@ public abstract class AbstractModelControllerClient implements ModelControllerCl
         }
     }
 
+    @Override
+    public StreamedResponse executeStreaming(final ModelNode operation, final OperationMessageHandler messageHandler) throws IOException {
+        final StreamingSource source = new StreamingSource(operation, messageHandler);
+        final StreamedResponseImpl response = new StreamedResponseImpl(operation, source);
+        if (streamingUnsupported || !ResourceEntries.isSplittable(operation)) {
+            // Nothing to stream, or a server which can not
+            response.setNotStreamed();
+            return response;
+        }
+        final StreamingExecutionContext executionContext = new StreamingExecutionContext(operation, messageHandler, response);
+        final ActiveOperation<ModelNode, OperationExecutionContext> support = getChannelAssociation().executeRequest(new AbstractManagementRequest<ModelNode, OperationExecutionContext>() {
+
+            @Override
+            public byte getOperationType() {
+                return ModelControllerProtocol.EXECUTE_STREAMING_CLIENT_REQUEST;
+            }
+
+            @Override
+            protected void sendRequest(final ActiveOperation.ResultHandler<ModelNode> resultHandler,
+                                       final ManagementRequestContext<OperationExecutionContext> context,
+                                       final FlushableDataOutput output) throws IOException {
+                output.write(ModelControllerProtocol.PARAM_OPERATION);
+                operation.writeExternal(output);
+            }
+
+            @Override
+            public void handleRequest(final DataInput input, final ActiveOperation.ResultHandler<ModelNode> resultHandler, final ManagementRequestContext<OperationExecutionContext> context) throws IOException {
+                expectHeader(input, ModelControllerProtocol.PARAM_RESPONSE);
+                final ModelNode node = new ModelNode();
+                node.readExternal(input);
+                resultHandler.done(node);
+                expectHeader(input, ManagementProtocol.RESPONSE_END);
+            }
+
+            @Override
+            public void handleFailed(final ManagementResponseHeader header, final ActiveOperation.ResultHandler<ModelNode> resultHandler) {
+                if (!response.isEntryReceived()) {
+                    // A server without streaming support rejects the request without executing it. The read can
+                    // be repeated safely in any case, and is then executed as usual.
+                    streamingUnsupported = true;
+                    response.setNotStreamed();
+                }
+                super.handleFailed(header, resultHandler);
+            }
+        }, executionContext);
+        source.batchId = support.getOperationId();
+        response.setFuture(new DelegatingCancellableAsyncFuture(support.getResult(), support.getOperationId()));
+        return response;
+    }
+
     @Override
     public ManagementRequestHandler<?, ?> resolveHandler(RequestHandlerChain handlers, ManagementRequestHeader header) {
         final byte operationType = header.getOperationId();
@@ -111,6 +168,8 @@ public abstract class AbstractModelControllerClient implements ModelControllerCl
             return MESSAGE_HANDLER;
         } else if (operationType == ModelControllerProtocol.GET_INPUTSTREAM_REQUEST) {
             return GET_INPUT_STREAM;
+        } else if (operationType == ModelControllerProtocol.STREAM_ENTRY_REQUEST) {
+            return STREAM_ENTRY;
         }
         return handlers.resolveNext();
     }
@@ -232,6 +291,20 @@ public abstract class AbstractModelControllerClient implements ModelControllerCl
 
     }
 
+    private static class StreamEntryRequestHandler implements ManagementRequestHandler<ModelNode, OperationExecutionContext> {
+
+        @Override
+        public void handleRequest(final DataInput input, final ActiveOperation.ResultHandler<ModelNode> resultHandler, final ManagementRequestContext<OperationExecutionContext> context) throws IOException {
+            expectHeader(input, ModelControllerProtocol.PARAM_RESPONSE_ENTRY);
+            final ModelNode entry = new ModelNode();
+            entry.readExternal(input);
+            expectHeader(input, ManagementProtocol.REQUEST_END);
+            // Only queued, as the server does not send more entries than the caller granted credits for
+            context.getAttachment().entryReceived(entry);
+        }
+
+    }
+
     protected AsyncFuture<ModelNode> executeRequest(final ManagementRequest<ModelNode, OperationExecutionContext> request, final OperationExecutionContext attachment) throws IOException {
         final ActiveOperation<ModelNode, OperationExecutionContext> support = getChannelAssociation().executeRequest(request, attachment);
         return new DelegatingCancellableAsyncFuture(support.getResult(), support.getOperationId());
@@ -253,6 +326,10 @@ public abstract class AbstractModelControllerClient implements ModelControllerCl
             return handler;
         }
 
+        void entryReceived(final ModelNode entry) {
+            // only streaming requests receive entries
+        }
+
         InputStreamEntry getStream(int index) {
             final InputStreamEntry entry = streams.get(index);
             if(entry == null) {
@@ -304,6 +381,83 @@ public abstract class AbstractModelControllerClient implements ModelControllerCl
 
     }
 
+    private static class StreamingExecutionContext extends OperationExecutionContext {
+
+        private final StreamedResponseImpl response;
+
+        StreamingExecutionContext(final ModelNode operation, final OperationMessageHandler handler, final StreamedResponseImpl response) {
+            super(new OperationBuilder(operation).build(), handler);
+            this.response = response;
+        }
+
+        @Override
+        void entryReceived(final ModelNode entry) {
+            response.entryReceived(entry);
+        }
+    }
+
+    private class StreamingSource implements StreamedResponseImpl.Source {
+
+        private final ModelNode operation;
+        private final OperationMessageHandler messageHandler;
+        private volatile Integer batchId;
+
+        private StreamingSource(final ModelNode operation, final OperationMessageHandler messageHandler) {
+            this.operation = operation;
+            this.messageHandler = messageHandler;
+        }
+
+        @Override
+        public void grantCredits(final int count) throws IOException {
+            getChannelAssociation().executeRequest(batchId, new StreamCreditRequest(count));
+        }
+
+        @Override
+        public ModelNode executeWithoutStreaming() throws IOException {
+            try {
+                return execute(OperationExecutionContext.create(operation, messageHandler)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Request letting the remote side send more entries of a streamed response.
+     */
+    private static class StreamCreditRequest extends AbstractManagementRequest<ModelNode, OperationExecutionContext> {
+
+        private final int count;
+
+        private StreamCreditRequest(final int count) {
+            this.count = count;
+        }
+
+        @Override
+        public byte getOperationType() {
+            return ModelControllerProtocol.STREAM_CREDIT_REQUEST;
+        }
+
+        @Override
+        protected void sendRequest(ActiveOperation.ResultHandler<ModelNode> resultHandler, ManagementRequestContext<OperationExecutionContext> context, FlushableDataOutput output) throws IOException {
+            output.write(ModelControllerProtocol.PARAM_STREAM_CREDITS);
+            output.writeInt(count);
+        }
+
+        @Override
+        public void handleRequest(DataInput input, ActiveOperation.ResultHandler<ModelNode> resultHandler, ManagementRequestContext<OperationExecutionContext> context) throws IOException {
+            // nothing to do, the entries arrive as separate requests
+        }
+
+        @Override
+        public void handleFailed(ManagementResponseHeader header, ActiveOperation.ResultHandler<ModelNode> resultHandler) {
+            // The remote operation completed before the credits arrived
+        }
+    }
+
     /**
      * Wraps the request execution AsyncFuture in an AsyncFuture impl that handles cancellation by sending a cancellation
      * request to the remote side.
@@ -35,6 +35,12 @@ public interface ModelControllerProtocol {
     byte GET_INPUTSTREAM_REQUEST = 0x4C;
     byte CANCEL_ASYNC_REQUEST = 0x4D;
     byte COMPLETE_TX_REQUEST = 0x4E;
+    byte EXECUTE_STREAMING_CLIENT_REQUEST = 0x4F;
+    // Sent on the batch of a streaming request, the entries to the client and the credits for more to the server
+    byte STREAM_ENTRY_REQUEST = 0x43;
+    byte STREAM_CREDIT_REQUEST = 0x44;
+    // The number of entries of a streamed response sent before the client grants credits for more
+    int STREAM_WINDOW = 16;
 
 
     byte PARAM_END = 0x60;
@@ -49,6 +55,8 @@ public interface ModelControllerProtocol {
     //byte PARAM_PREPARED = 0x69;
     byte PARAM_COMMIT = 0x70;
     byte PARAM_ROLLBACK = 0x71;
+    byte PARAM_RESPONSE_ENTRY = 0x72;
+    byte PARAM_STREAM_CREDITS = 0x73;
     // The tx response params
     byte PARAM_OPERATION_FAILED = 0x49;
     byte PARAM_OPERATION_COMPLETED = 0x4A;
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.client.impl;
+
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP_ADDR;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OUTCOME;
+import static org.jboss.as.controller.client.helpers.ClientConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RECURSIVE;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
+import static org.jboss.as.controller.client.helpers.ClientConstants.SUCCESS;
+
+import java.util.Collection;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.dmr.Property;
+
+/**
+ * Splits {@code read-resource} results into the per-resource entries of a
+ * {@link org.jboss.as.controller.client.StreamedResponse}.
+ * <p>
+ * The children in a result are told apart from the attributes by their shape alone: a value holding an object of
+ * resources, or of undefined values, is taken to be a child type. An attribute holding an object of objects can not
+ * be told apart from children, and is handled as if it were one.
+ */
+public final class ResourceEntries {
+
+    private static final String ATTRIBUTES_ONLY = "attributes-only";
+    private static final String RECURSIVE_DEPTH = "recursive-depth";
+
+    private ResourceEntries() {
+    }
+
+    /**
+     * Gets whether an operation is a {@code read-resource} whose result can be split into entries, which does not
+     * take into account whether its address matches several resources.
+     *
+     * @param operation the operation
+     * @return {@code true} for a recursive {@code read-resource} that reads more than the attributes
+     */
+    public static boolean isSplittable(final ModelNode operation) {
+        return READ_RESOURCE_OPERATION.equals(operation.get(OP).asString())
+                && (operation.get(RECURSIVE).asBoolean(false) || operation.get(RECURSIVE_DEPTH).asInt(0) > 0)
+                && !operation.get(ATTRIBUTES_ONLY).asBoolean(false);
+    }
+
+    /**
+     * Removes the children from a resource read with {@code read-resource}, leaving just their names as a
+     * non-recursive read would.
+     *
+     * @param resource the result of the read
+     * @return the removed children that were read, by type and then by name
+     */
+    public static ModelNode detachChildren(final ModelNode resource) {
+        final ModelNode children = new ModelNode().setEmptyObject();
+        if (resource.getType() != ModelType.OBJECT) {
+            return children;
+        }
+        for (String key : resource.keys()) {
+            final ModelNode value = resource.get(key);
+            if (!isChildType(value)) {
+                continue;
+            }
+            for (Property child : value.asPropertyList()) {
+                if (child.getValue().isDefined()) {
+                    children.get(key, child.getName()).set(child.getValue());
+                }
+                // Leave just the name; the child gets its own entry
+                value.get(child.getName()).set(new ModelNode());
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Lists the children of a resource read with {@code read-resource}, whether they were read or not.
+     *
+     * @param resource the result of the read
+     * @return the names of the children, by type, each with an undefined value
+     */
+    public static ModelNode listChildren(final ModelNode resource) {
+        final ModelNode children = new ModelNode().setEmptyObject();
+        if (resource.getType() != ModelType.OBJECT) {
+            return children;
+        }
+        for (String key : resource.keys()) {
+            final ModelNode value = resource.get(key);
+            if (isChildType(value)) {
+                for (String name : value.keys()) {
+                    children.get(key, name);
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Splits the response to a recursive {@code read-resource} into one entry per resource, each before its children.
+     *
+     * @param address the address the resource was read at
+     * @param response the response, from which the result is removed if it was split
+     * @param entries the collection to add the entries to
+     */
+    public static void split(final ModelNode address, final ModelNode response, final Collection<ModelNode> entries) {
+        if (!SUCCESS.equals(response.get(OUTCOME).asString()) || response.get(RESULT).getType() != ModelType.OBJECT) {
+            return;
+        }
+        split(address, response.remove(RESULT), entries);
+    }
+
+    private static void split(final ModelNode address, final ModelNode resource, final Collection<ModelNode> entries) {
+        final ModelNode children = detachChildren(resource);
+        final ModelNode entry = new ModelNode();
+        entry.get(OP_ADDR).set(address);
+        entry.get(RESULT).set(resource);
+        entries.add(entry);
+        for (Property type : children.asPropertyList()) {
+            for (Property child : type.getValue().asPropertyList()) {
+                final ModelNode childAddress = address.clone();
+                childAddress.add(type.getName(), child.getName());
+                split(childAddress, child.getValue(), entries);
+            }
+        }
+    }
+
+    private static boolean isChildType(final ModelNode value) {
+        if (value.getType() != ModelType.OBJECT || value.keys().isEmpty()) {
+            return false;
+        }
+        for (String name : value.keys()) {
+            final ModelType type = value.get(name).getType();
+            if (type != ModelType.OBJECT && type != ModelType.UNDEFINED) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
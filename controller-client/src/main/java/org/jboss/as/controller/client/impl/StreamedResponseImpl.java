@@ -0,0 +1,238 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.client.impl;
+
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP_ADDR;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.StreamedResponse;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * {@link StreamedResponse} handing the entries over from the thread reading the response through a queue. The thread
+ * reading the response never waits for the caller; instead the server sends at most
+ * {@link ModelControllerProtocol#STREAM_WINDOW} entries ahead of it, and more as the caller grants credits for the
+ * ones it has taken.
+ */
+class StreamedResponseImpl implements StreamedResponse {
+
+    private static final int WINDOW = ModelControllerProtocol.STREAM_WINDOW;
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * The client side of the request.
+     */
+    interface Source {
+
+        /**
+         * Lets the server send the given number of further entries.
+         *
+         * @param count the number of entries
+         * @throws IOException if the credits could not be sent
+         */
+        void grantCredits(int count) throws IOException;
+
+        /**
+         * Executes the operation as usual, when it is not streamed.
+         *
+         * @return the response
+         * @throws IOException if the operation could not be executed
+         */
+        ModelNode executeWithoutStreaming() throws IOException;
+    }
+
+    private final BlockingQueue<ModelNode> entries = new LinkedBlockingQueue<ModelNode>();
+    private final ModelNode operation;
+    private final Source source;
+    private volatile AsyncFuture<ModelNode> future;
+    private volatile boolean notStreamed;
+    private volatile boolean closed;
+    private volatile boolean entryReceived;
+    private ModelNode next;
+    private int taken;
+    private ModelNode fallbackResponse;
+    private IOException failure;
+
+    StreamedResponseImpl(final ModelNode operation, final Source source) {
+        this.operation = operation;
+        this.source = source;
+    }
+
+    void setFuture(final AsyncFuture<ModelNode> future) {
+        this.future = future;
+    }
+
+    /**
+     * Called by the thread reading the response for each entry.
+     */
+    void entryReceived(final ModelNode entry) {
+        entryReceived = true;
+        if (!closed) {
+            entries.add(entry);
+        }
+    }
+
+    boolean isEntryReceived() {
+        return entryReceived;
+    }
+
+    /**
+     * Called when the operation is not streamed by the server, because it does not support streaming or because
+     * there is nothing to stream. The operation is then executed as usual once the caller asks for the first entry,
+     * and the result split into entries locally.
+     */
+    void setNotStreamed() {
+        notStreamed = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the calling thread is interrupted while waiting for an entry, this returns {@code false} with the
+     * interrupt status set.
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            while (!closed) {
+                if (notStreamed && fallbackResponse == null && failure == null) {
+                    executeWithoutStreaming();
+                }
+                next = entries.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    return true;
+                }
+                // Check the status first, as a request which was not streamed is noticed before it fails
+                final AsyncFuture<ModelNode> future = this.future;
+                final boolean completed = future != null && future.getStatus() != AsyncFuture.Status.WAITING;
+                if (failure != null || (notStreamed ? fallbackResponse != null : completed)) {
+                    // All entries were queued before the response completed
+                    next = entries.poll();
+                    return next != null;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            // Leave it to the caller to close the response or to get the final one
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public ModelNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final ModelNode entry = next;
+        next = null;
+        if (!notStreamed && ++taken >= WINDOW / 2) {
+            grantCredits();
+        }
+        return entry;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ModelNode getResponse() throws IOException {
+        while (hasNext()) {
+            next();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException();
+        }
+        if (notStreamed) {
+            if (fallbackResponse == null) {
+                throw new CancellationException();
+            }
+            return fallbackResponse;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        entries.clear();
+        next = null;
+        final AsyncFuture<ModelNode> future = this.future;
+        if (!notStreamed && future != null && future.getStatus() == AsyncFuture.Status.WAITING) {
+            future.cancel(true);
+        }
+    }
+
+    private void grantCredits() {
+        final int count = taken;
+        taken = 0;
+        final AsyncFuture<ModelNode> future = this.future;
+        if (future == null || future.getStatus() != AsyncFuture.Status.WAITING) {
+            return;
+        }
+        try {
+            source.grantCredits(count);
+        } catch (IOException e) {
+            // The server would wait for the credits forever
+            failure = e;
+            close();
+        }
+    }
+
+    private void executeWithoutStreaming() {
+        try {
+            final ModelNode response = source.executeWithoutStreaming();
+            if (ResourceEntries.isSplittable(operation)) {
+                final ModelNode address = operation.hasDefined(OP_ADDR) ? operation.get(OP_ADDR).clone() : new ModelNode().setEmptyList();
+                ResourceEntries.split(address, response, entries);
+            }
+            fallbackResponse = response;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
@@ -25,9 +25,14 @@ package org.jboss.as.controller;
 import static org.jboss.as.controller.ControllerLogger.ROOT_LOGGER;
 import static org.jboss.as.controller.ControllerMessages.MESSAGES;
 
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.jboss.as.controller.client.OperationAttachments;
 import org.jboss.as.controller.client.OperationMessageHandler;
 import org.jboss.as.controller.descriptions.DescriptionProvider;
@@ -68,6 +73,21 @@ public abstract class AbstractControllerService implements Service<ModelControll
      */
     public static final int DEFAULT_BOOT_STACK_SIZE = 2 * 1024 * 1024;
 
+    /**
+     * Name of the system property setting the number of leading address elements that make up the subtree an operation
+     * locks when it modifies a resource. Operations modifying disjoint subtrees run concurrently.
+     *
+     * @see #DEFAULT_MANAGEMENT_LOCK_DEPTH
+     */
+    public static final String MANAGEMENT_LOCK_DEPTH_PROPERTY = "jboss.as.controller.lock-depth";
+
+    /**
+     * The default management lock depth, any modification locks the whole model.
+     *
+     * @see #MANAGEMENT_LOCK_DEPTH_PROPERTY
+     */
+    public static final int DEFAULT_MANAGEMENT_LOCK_DEPTH = 0;
+
     private static int getBootStackSize() {
         String prop = SecurityActions.getSystemProperty(BOOT_STACK_SIZE_PROPERTY);
         if (prop == null) {
@@ -105,6 +125,7 @@ public abstract class AbstractControllerService implements Service<ModelControll
     private final ExpressionResolver expressionResolver;
     private volatile ModelControllerImpl controller;
     private ConfigurationPersister configurationPersister;
+    private volatile ObjectName lockStatisticsName;
 
     /**
      * Construct a new instance.
@@ -176,9 +197,10 @@ public abstract class AbstractControllerService implements Service<ModelControll
                 rootResourceRegistration,
                 new ContainerStateMonitor(container, serviceController),
                 configurationPersister, processType, runningModeControl, prepareStep,
-                processState, executorService, expressionResolver);
+                processState, executorService, expressionResolver, getManagementLockDepth());
         initModel(controller.getRootResource(), controller.getRootRegistration());
         this.controller = controller;
+        registerLockStatistics(controller);
 
         final long bootStackSize = getBootStackSize();
         final Thread bootThread = new Thread(null, new Runnable() {
@@ -240,6 +262,51 @@ public abstract class AbstractControllerService implements Service<ModelControll
 
     public void stop(final StopContext context) {
         controller = null;
+        if (lockStatisticsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(lockStatisticsName);
+            } catch (JMException e) {
+                ROOT_LOGGER.debugf(e, "Failed to unregister %s", lockStatisticsName);
+            }
+            lockStatisticsName = null;
+        }
+    }
+
+    /**
+     * Gets the number of leading address elements that make up the subtree an operation locks when it modifies a
+     * resource. Called during service start.
+     *
+     * @return the lock depth, {@code 0} to lock the whole model on any modification
+     * @see #MANAGEMENT_LOCK_DEPTH_PROPERTY
+     */
+    protected int getManagementLockDepth() {
+        final String prop = SecurityActions.getSystemProperty(MANAGEMENT_LOCK_DEPTH_PROPERTY);
+        if (prop == null) {
+            return DEFAULT_MANAGEMENT_LOCK_DEPTH;
+        }
+        try {
+            final int depth = Integer.parseInt(prop);
+            if (depth >= 0) {
+                return depth;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        ROOT_LOGGER.invalidSystemPropertyValue(prop, MANAGEMENT_LOCK_DEPTH_PROPERTY, DEFAULT_MANAGEMENT_LOCK_DEPTH);
+        return DEFAULT_MANAGEMENT_LOCK_DEPTH;
+    }
+
+    private void registerLockStatistics(final ModelControllerImpl controller) {
+        try {
+            final ObjectName name = new ObjectName(ManagementLockStatisticsMXBean.OBJECT_NAME);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(controller.getLockStatistics(), name);
+                lockStatisticsName = name;
+            }
+        } catch (JMException e) {
+            ROOT_LOGGER.debugf(e, "Failed to register %s", ManagementLockStatisticsMXBean.OBJECT_NAME);
+        }
     }
 
     /**
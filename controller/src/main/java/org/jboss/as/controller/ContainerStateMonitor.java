@@ -52,18 +52,30 @@ public final class ContainerStateMonitor extends AbstractServiceListener<Object>
     final Set<ServiceController<?>> problems = new HashSet<ServiceController<?>>();
 
     private Set<ServiceName> previousMissingDepSet = new HashSet<ServiceName>();
+    /**
+     * The number of operations which have acquired the monitor, more than one if subtree locking lets operations run
+     * concurrently.
+     */
+    private int sections;
 
     ContainerStateMonitor(final ServiceRegistry registry, final ServiceController<?> controller) {
         serviceRegistry = registry;
         controllerController = controller;
     }
 
-    void acquire() {
-        // does nothing
+    synchronized void acquire() {
+        sections++;
     }
 
     void release() {
-        ContainerStateChangeReport changeReport = createContainerStateChangeReport(true);
+        final ContainerStateChangeReport changeReport;
+        synchronized (this) {
+            if (--sections > 0) {
+                // the history is still needed by the other operations, the last one to release reports all changes
+                return;
+            }
+            changeReport = createContainerStateChangeReport(true);
+        }
 
         if (changeReport != null) {
             final String msg = createChangeReportLogMessage(changeReport);
@@ -82,7 +94,7 @@ public final class ContainerStateMonitor extends AbstractServiceListener<Object>
         try {
             while (true) {
                 try {
-                    monitor.awaitStability(failed, problems);
+                    await();
                     break;
                 } catch (InterruptedException e) {
                     interruped = true;
@@ -96,11 +108,18 @@ public final class ContainerStateMonitor extends AbstractServiceListener<Object>
     }
 
     void await() throws InterruptedException {
+        // concurrent operations may wait at the same time, so the results are only added to the history under the lock
+        final Set<ServiceController<?>> failed = new HashSet<ServiceController<?>>();
+        final Set<ServiceController<?>> problems = new HashSet<ServiceController<?>>();
         monitor.awaitStability(failed, problems);
+        synchronized (this) {
+            this.failed.addAll(failed);
+            this.problems.addAll(problems);
+        }
     }
 
     ContainerStateChangeReport awaitContainerStateChangeReport() throws InterruptedException {
-        monitor.awaitStability(failed, problems);
+        await();
         return createContainerStateChangeReport(false);
     }
 
@@ -443,4 +443,24 @@ public interface ControllerLogger extends BasicLogger {
     @Message(id = 13404, value = "Extension '%s' is deprecated and may not be supported in future versions")
     @LogMessage(level = WARN)
     void extensionDeprecated(String extensionName);
+
+    @Message(id = 13406, value = "Replaying %d configuration changes from the journal of %s")
+    @LogMessage(level = Logger.Level.INFO)
+    void replayingConfigurationJournal(int count, String fileName);
+
+    @Message(id = 13407, value = "Failed to append to the configuration journal of %s; writing the configuration file instead")
+    @LogMessage(level = WARN)
+    void failedToAppendToConfigurationJournal(@Cause Throwable cause, String fileName);
+
+    @Message(id = 13408, value = "Ignoring an incomplete entry at the end of configuration journal %s")
+    @LogMessage(level = WARN)
+    void incompleteConfigurationJournalEntry(String fileName);
+
+    @Message(id = 13409, value = "Failed to replay the configuration changes in the journal: %s. The configuration was booted without them")
+    @LogMessage(level = ERROR)
+    void failedToReplayConfigurationJournal(ModelNode failureDescription);
+
+    @Message(id = 13410, value = "Configuration journal %s will not be replayed again and was renamed to %s")
+    @LogMessage(level = WARN)
+    void configurationJournalSetAside(String fileName, String newFileName);
 }
@@ -2635,4 +2635,14 @@ public interface ControllerMessages {
      */
     @Message(id = 14898, value = "%s must be declared or the %s and the %s need to be provided.")
     XMLStreamException discoveryOptionsMustBeDeclared(String discoveryOptionsName, String hostName, String portName, @Param Location location);
+
+    /**
+     * Creates an exception indicating that waiting for the management lock on {@code address} would deadlock.
+     *
+     * @param address the address to lock.
+     *
+     * @return an {@link OperationFailedRuntimeException} for the error.
+     */
+    @Message(id = 13405, value = "Waiting for the management lock on %s would deadlock with a concurrent operation; the operation may be retried")
+    OperationFailedRuntimeException managementLockDeadlock(PathAddress address);
 }
@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller;
+
+/**
+ * Statistics of the locks model-modifying operations take on the management model, registered with the platform MBean
+ * server under {@value #OBJECT_NAME} while the controller runs.
+ */
+public interface ManagementLockStatisticsMXBean {
+
+    /** The object name the statistics are registered under */
+    String OBJECT_NAME = "jboss.as.controller:type=management-locks";
+
+    /**
+     * @return the number of locks granted
+     */
+    long getAcquisitionCount();
+
+    /**
+     * @return the number of lock requests which had to wait for other operations
+     */
+    long getContendedCount();
+
+    /**
+     * @return the number of lock requests refused because waiting would have deadlocked
+     */
+    long getDeadlockCount();
+
+    /**
+     * @return the total time operations waited for locks, in milliseconds
+     */
+    long getTotalWaitTime();
+
+    /**
+     * @return the longest time an operation waited for a lock, in milliseconds
+     */
+    long getMaxWaitTime();
+}
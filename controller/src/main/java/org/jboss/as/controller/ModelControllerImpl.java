@@ -27,6 +27,7 @@ import static org.jboss.as.controller.ControllerLogger.ROOT_LOGGER;
 import static org.jboss.as.controller.ControllerMessages.MESSAGES;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ALLOW_RESOURCE_SERVICE_RESTART;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CANCELLED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_HEADERS;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
@@ -42,10 +43,10 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.Operation;
@@ -56,6 +57,7 @@ import org.jboss.as.controller.extension.ParallelExtensionAddHandler;
 import org.jboss.as.controller.operations.common.Util;
 import org.jboss.as.controller.persistence.ConfigurationPersistenceException;
 import org.jboss.as.controller.persistence.ConfigurationPersister;
+import org.jboss.as.controller.persistence.JournalingConfigurationPersister;
 import org.jboss.as.controller.registry.ImmutableManagementResourceRegistration;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.controller.registry.Resource;
@@ -75,7 +77,9 @@ class ModelControllerImpl implements ModelController {
     private final ServiceRegistry serviceRegistry;
     private final ServiceTarget serviceTarget;
     private final ManagementResourceRegistration rootRegistration;
-    private final Lock writeLock = new ReentrantLock();
+    private final PathLockManager lockManager = new PathLockManager();
+    /** Serializes persisting and publishing the model, which may span threads in a coordinated operation */
+    private final Semaphore persistenceLock = new Semaphore(1);
     private final ContainerStateMonitor stateMonitor;
     private final RootResource model = new RootResource();
     private final ConfigurationPersister persister;
@@ -86,12 +90,17 @@ class ModelControllerImpl implements ModelController {
     private final ControlledProcessState processState;
     private final ExecutorService executorService;
     private final ExpressionResolver expressionResolver;
+    /**
+     * The number of leading address elements that make up the subtree an operation locks when modifying a resource.
+     * Operations modifying disjoint subtrees run concurrently. If {@code 0}, any modification locks the whole model.
+     */
+    private final int lockDepth;
 
     ModelControllerImpl(final ServiceRegistry serviceRegistry, final ServiceTarget serviceTarget, final ManagementResourceRegistration rootRegistration,
                         final ContainerStateMonitor stateMonitor, final ConfigurationPersister persister,
                         final ProcessType processType, final RunningModeControl runningModeControl,
                         final OperationStepHandler prepareStep, final ControlledProcessState processState, final ExecutorService executorService,
-                        final ExpressionResolver expressionResolver) {
+                        final ExpressionResolver expressionResolver, final int lockDepth) {
         this.serviceRegistry = serviceRegistry;
         this.serviceTarget = serviceTarget;
         this.rootRegistration = rootRegistration;
@@ -104,6 +113,7 @@ class ModelControllerImpl implements ModelController {
         this.serviceTarget.addListener(stateMonitor);
         this.executorService = executorService;
         this.expressionResolver = expressionResolver;
+        this.lockDepth = lockDepth;
     }
 
 
@@ -137,6 +147,7 @@ class ModelControllerImpl implements ModelController {
         };
 
         OperationContextImpl context = new OperationContextImpl(this, processType, runningModeControl.getRunningMode(), contextFlags, handler, attachments, model, originalResultTxControl, processState, bootingFlag.get());
+        context.setInitialOperation(operation);
         context.addStep(response, operation, prepareStep, OperationContext.Stage.MODEL);
         context.executeOperation();
 
@@ -190,9 +201,57 @@ class ModelControllerImpl implements ModelController {
             resultAction = postExtContext.executeOperation();
         }
 
+        if (resultAction == OperationContext.ResultAction.KEEP && persister instanceof JournalingConfigurationPersister) {
+            replayJournal((JournalingConfigurationPersister) persister, handler, control);
+        }
+
         return  resultAction == OperationContext.ResultAction.KEEP;
     }
 
+    /**
+     * Replays the operations journaled since the configuration was last written, in a context of their own that runs
+     * once all boot operations have executed. Unlike the boot operations they are not reorganized, but run in the
+     * order they were committed in, and a failure of any of them rolls them all back, so the process boots with the
+     * configuration as written and the journal is set aside.
+     *
+     * @param persister the persister that loaded the boot operations
+     * @param handler the message handler
+     * @param control the transaction control
+     */
+    private void replayJournal(final JournalingConfigurationPersister persister, final OperationMessageHandler handler,
+                               final OperationTransactionControl control) {
+        final List<ModelNode> journaled = persister.getJournaledOperations();
+        if (journaled.isEmpty()) {
+            return;
+        }
+        final OperationContextImpl context = new OperationContextImpl(this, processType, runningModeControl.getRunningMode(),
+                EnumSet.of(OperationContextImpl.ContextFlag.ROLLBACK_ON_FAIL), handler, null, model, control, processState, bootingFlag.get());
+        final ModelNode responses = new ModelNode().setEmptyList();
+        ModelNode failure = null;
+        for (ModelNode operation : journaled) {
+            final ParsedBootOp parsedOp = new ParsedBootOp(operation, responses.add());
+            final OperationStepHandler stepHandler = rootRegistration.getOperationHandler(parsedOp.address, parsedOp.operationName);
+            if (stepHandler == null) {
+                failure = new ModelNode(MESSAGES.noHandlerForOperation(parsedOp.operationName, parsedOp.address));
+                break;
+            }
+            context.addStep(parsedOp.response, parsedOp.operation, stepHandler, OperationContext.Stage.MODEL);
+        }
+        if (failure == null && context.executeOperation() != OperationContext.ResultAction.KEEP) {
+            failure = new ModelNode();
+            for (ModelNode response : responses.asList()) {
+                if (response.hasDefined(FAILURE_DESCRIPTION)) {
+                    failure = response.get(FAILURE_DESCRIPTION);
+                    break;
+                }
+            }
+        }
+        if (failure != null) {
+            ROOT_LOGGER.failedToReplayConfigurationJournal(failure);
+            persister.journalReplayFailed();
+        }
+    }
+
     /**
      * Organizes the list of boot operations such that all extension add operations are executed in the given context,
      * while all non-extension add operations found after the first extension add are stored for subsequent invocation
@@ -411,36 +470,108 @@ class ModelControllerImpl implements ModelController {
         };
     }
 
-    ConfigurationPersister.PersistenceResource writeModel(final Resource resource, Set<PathAddress> affectedAddresses) throws ConfigurationPersistenceException {
-        final ModelNode newModel = Resource.Tools.readModel(resource);  // Get the model representation
-        final ConfigurationPersister.PersistenceResource delegate = persister.store(newModel, affectedAddresses);
-        return new ConfigurationPersister.PersistenceResource() {
+    ConfigurationPersister.PersistenceResource writeModel(final OperationContextImpl context, final Set<PathAddress> affectedAddresses) throws ConfigurationPersistenceException {
+        persistenceLock.acquireUninterruptibly();
+        boolean prepared = false;
+        try {
+            // Other operations may have published their changes since this one copied the model
+            final Resource resource = context.rebaseModel(model.getDelegate());
+            final ModelNode newModel = Resource.Tools.readModel(resource);  // Get the model representation
+            final ConfigurationPersister.PersistenceResource delegate = persister instanceof JournalingConfigurationPersister
+                    ? ((JournalingConfigurationPersister) persister).store(newModel, affectedAddresses, context.getReplayableOperation())
+                    : persister.store(newModel, affectedAddresses);
+            prepared = true;
+            return new ConfigurationPersister.PersistenceResource() {
+
+                private final AtomicBoolean completed = new AtomicBoolean();
+
+                @Override
+                public void commit() {
+                    if (completed.compareAndSet(false, true)) {
+                        try {
+                            model.set(resource);
+                            delegate.commit();
+                        } finally {
+                            persistenceLock.release();
+                        }
+                    }
+                }
 
-            @Override
-            public void commit() {
-                model.set(resource);
-                delegate.commit();
+                @Override
+                public void rollback() {
+                    if (completed.compareAndSet(false, true)) {
+                        try {
+                            delegate.rollback();
+                        } finally {
+                            persistenceLock.release();
+                        }
+                    }
+                }
+            };
+        } finally {
+            if (!prepared) {
+                persistenceLock.release();
             }
+        }
+    }
 
-            @Override
-            public void rollback() {
-                delegate.rollback();
-            }
-        };
+    /**
+     * Locks a subtree of the model, as returned by {@link #getLockScope(PathAddress)}, on behalf of an operation.
+     *
+     * @return the time spent waiting for the lock, in nanoseconds
+     */
+    long acquireLock(final Object owner, final PathAddress scope, final boolean interruptibly) throws InterruptedException {
+        return lockManager.lock(owner, scope, interruptibly);
     }
 
-    void acquireLock(final boolean interruptibly) throws InterruptedException {
-        if (interruptibly) {
-            //noinspection LockAcquiredButNotSafelyReleased
-            writeLock.lockInterruptibly();
-        } else {
-            //noinspection LockAcquiredButNotSafelyReleased
-            writeLock.lock();
+    void releaseLocks(final Object owner) {
+        lockManager.unlockAll(owner);
+    }
+
+    /**
+     * Returns the address of the subtree locked when modifying the given address, that is its first
+     * {@link #lockDepth} elements, excluding any wildcards.
+     */
+    PathAddress getLockScope(final PathAddress address) {
+        int depth = Math.min(lockDepth, address.size());
+        for (int i = 0; i < depth; i++) {
+            if (address.getElement(i).isMultiTarget()) {
+                depth = i;
+            }
         }
+        return depth == 0 ? PathAddress.EMPTY_ADDRESS : address.subAddress(0, depth);
     }
 
-    void releaseLock() {
-        writeLock.unlock();
+    /**
+     * @return the statistics of the locks operations have taken on the model
+     */
+    ManagementLockStatisticsMXBean getLockStatistics() {
+        return new ManagementLockStatisticsMXBean() {
+            @Override
+            public long getAcquisitionCount() {
+                return lockManager.getAcquisitionCount();
+            }
+
+            @Override
+            public long getContendedCount() {
+                return lockManager.getContendedCount();
+            }
+
+            @Override
+            public long getDeadlockCount() {
+                return lockManager.getDeadlockCount();
+            }
+
+            @Override
+            public long getTotalWaitTime() {
+                return lockManager.getTotalWaitTime(TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public long getMaxWaitTime() {
+                return lockManager.getMaxWaitTime(TimeUnit.MILLISECONDS);
+            }
+        };
     }
 
     void acquireContainerMonitor() {
@@ -514,7 +645,7 @@ class ModelControllerImpl implements ModelController {
      * The root resource, maintains a read-only reference to the current model. All write operations have to performed
      * after acquiring the write lock on a clone of the underlying model.
      */
-    private final class RootResource implements Resource {
+    final class RootResource implements Resource {
 
         private final AtomicReference<Resource> modelReference = new AtomicReference<Resource>(Resource.Factory.create());
 
@@ -588,7 +719,7 @@ class ModelControllerImpl implements ModelController {
             getDelegate().writeModel(newModel);
         }
 
-        private Resource getDelegate() {
+        Resource getDelegate() {
             return this.modelReference.get();
         }
 
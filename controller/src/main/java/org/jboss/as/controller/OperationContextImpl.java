@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +51,7 @@ import org.jboss.as.controller.client.OperationMessageHandler;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.controller.persistence.ConfigurationPersistenceException;
 import org.jboss.as.controller.persistence.ConfigurationPersister;
+import org.jboss.as.controller.registry.CopyOnWriteResourceTree;
 import org.jboss.as.controller.registry.DelegatingImmutableManagementResourceRegistration;
 import org.jboss.as.controller.registry.ImmutableManagementResourceRegistration;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
@@ -84,6 +86,11 @@ import org.jboss.msc.value.Value;
 final class OperationContextImpl extends AbstractOperationContext {
 
     private static final Object NULL = new Object();
+    /**
+     * Whether the model is copied lazily, along the paths of the modified resources, on the first write of an operation.
+     * If {@code false}, the whole model is cloned instead.
+     */
+    private static final boolean COPY_ON_WRITE = Boolean.parseBoolean(SecurityActions.getSystemProperty("jboss.as.controller.copy-on-write-model", "true"));
 
     private final ModelControllerImpl modelController;
     private final EnumSet<ContextFlag> contextFlags;
@@ -105,11 +112,23 @@ final class OperationContextImpl extends AbstractOperationContext {
     private volatile Resource model;
 
     private volatile Resource originalModel;
+    /** The working copy of the model, if it is being copied lazily */
+    private CopyOnWriteResourceTree modelCopy;
 
     /** Tracks whether any steps have gotten write access to the runtime */
     private volatile boolean affectsRuntime;
-    /** The step that acquired the write lock */
+    /** The step that acquired the first write lock; all write locks are released with it */
     private Step lockStep;
+    /** The subtrees of the model locked by this operation */
+    private final Set<PathAddress> lockedScopes = new HashSet<PathAddress>();
+    /** Whether this operation locked the whole model */
+    private volatile boolean rootLocked;
+    /** The time spent waiting for write locks, in nanoseconds */
+    private long lockWaitTime;
+    /** The pending persistence of the model changes */
+    private ConfigurationPersister.PersistenceResource persistenceResource;
+    /** The operation submitted to the controller, if this context was created to execute one */
+    private ModelNode initialOperation;
     /** The step that acquired the container monitor  */
     private Step containerMonitorStep;
     private volatile Boolean requiresModelUpdateAuthorization;
@@ -171,7 +190,37 @@ final class OperationContextImpl extends AbstractOperationContext {
 
     @Override
     ConfigurationPersister.PersistenceResource createPersistenceResource() throws ConfigurationPersistenceException {
-        return modelController.writeModel(model, affectsModel.keySet());
+        persistenceResource = modelController.writeModel(this, affectsModel.keySet());
+        return persistenceResource;
+    }
+
+    void setInitialOperation(final ModelNode operation) {
+        this.initialOperation = operation;
+    }
+
+    /**
+     * Gets the operation submitted to the controller, if it can be replayed on its own to reproduce its changes.
+     *
+     * @return the operation, or {@code null} if this context executes boot operations or the operation has attached
+     *         input streams
+     */
+    ModelNode getReplayableOperation() {
+        return getAttachmentStreamCount() == 0 ? initialOperation : null;
+    }
+
+    /**
+     * Moves the changes of this operation onto the current model, unless it locked the whole model. Called while no other
+     * operation can publish its changes.
+     *
+     * @param current the current model
+     * @return the model to publish
+     */
+    Resource rebaseModel(final Resource current) {
+        if (modelCopy != null && !rootLocked) {
+            modelCopy.rebase(current, lockedScopes);
+            model = modelCopy.getRoot();
+        }
+        return model;
     }
 
     @Override
@@ -196,7 +245,7 @@ final class OperationContextImpl extends AbstractOperationContext {
         //    throw MESSAGES.stageAlreadyComplete(Stage.MODEL);
         //}
         if (!affectsResourceRegistration) {
-            takeWriteLock();
+            takeWriteLock(PathAddress.EMPTY_ADDRESS);
             affectsResourceRegistration = true;
         }
         return modelController.getRootRegistration().getSubModel(address);
@@ -230,8 +279,10 @@ final class OperationContextImpl extends AbstractOperationContext {
         if (! (!modify || currentStage == Stage.RUNTIME || currentStage == Stage.MODEL || currentStage == Stage.VERIFY || isRollingBack())) {
             throw MESSAGES.serviceRegistryRuntimeOperationsOnly();
         }
+        if (modify) {
+            takeWriteLock(activeStep.address);
+        }
         if (modify && !affectsRuntime) {
-            takeWriteLock();
             affectsRuntime = true;
             acquireContainerMonitor();
             awaitContainerMonitor();
@@ -248,8 +299,8 @@ final class OperationContextImpl extends AbstractOperationContext {
         if (currentStage != Stage.RUNTIME && currentStage != Stage.VERIFY && !isRollingBack()) {
             throw MESSAGES.serviceRemovalRuntimeOperationsOnly();
         }
+        takeWriteLock(activeStep.address);
         if (!affectsRuntime) {
-            takeWriteLock();
             affectsRuntime = true;
             acquireContainerMonitor();
             awaitContainerMonitor();
@@ -295,8 +346,8 @@ final class OperationContextImpl extends AbstractOperationContext {
         if (currentStage != Stage.RUNTIME && currentStage != Stage.VERIFY && !isRollingBack()) {
             throw MESSAGES.serviceRemovalRuntimeOperationsOnly();
         }
+        takeWriteLock(activeStep.address);
         if (!affectsRuntime) {
-            takeWriteLock();
             affectsRuntime = true;
             acquireContainerMonitor();
             awaitContainerMonitor();
@@ -346,8 +397,8 @@ final class OperationContextImpl extends AbstractOperationContext {
         if (currentStage != Stage.RUNTIME && currentStage != Stage.VERIFY && !isRollingBack()) {
             throw MESSAGES.serviceTargetRuntimeOperationsOnly();
         }
+        takeWriteLock(activeStep.address);
         if (!affectsRuntime) {
-            takeWriteLock();
             affectsRuntime = true;
             acquireContainerMonitor();
             awaitContainerMonitor();
@@ -355,20 +406,41 @@ final class OperationContextImpl extends AbstractOperationContext {
         return serviceTarget;
     }
 
-    private void takeWriteLock() {
+    private void takeWriteLock(final PathAddress address) {
+        if (rootLocked) {
+            return;
+        }
+        final PathAddress scope = isBooting() || !COPY_ON_WRITE ? PathAddress.EMPTY_ADDRESS : modelController.getLockScope(address);
+        for (int i = 0; i <= scope.size(); i++) {
+            if (lockedScopes.contains(scope.subAddress(0, i))) {
+                return;
+            }
+        }
         if (lockStep == null) {
             if (currentStage == Stage.DONE) {
                 throw MESSAGES.invalidModificationAfterCompletedStep();
             }
-            try {
-                modelController.acquireLock(respectInterruption);
-                lockStep = activeStep;
-            } catch (InterruptedException e) {
-                cancelled = true;
-                Thread.currentThread().interrupt();
-                throw MESSAGES.operationCancelledAsynchronously();
-            }
+        } else if (currentStage == Stage.DONE) {
+            // Rolling back; the changes being reverted are covered by the locks already held
+            return;
         }
+        try {
+            lockWaitTime += modelController.acquireLock(this, scope, respectInterruption);
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+            throw MESSAGES.operationCancelledAsynchronously();
+        }
+        if (lockStep == null) {
+            lockStep = activeStep;
+        }
+        if (modelCopy != null) {
+            // The newly locked subtree may have been modified since the model was copied
+            modelCopy.rebase(getCurrentModel(), lockedScopes);
+            model = modelCopy.getRoot();
+        }
+        lockedScopes.add(scope);
+        rootLocked = scope.size() == 0;
     }
 
     private void acquireContainerMonitor() {
@@ -420,10 +492,7 @@ final class OperationContextImpl extends AbstractOperationContext {
             throw MESSAGES.stageAlreadyComplete(Stage.MODEL);
         }
         authorizeModelUpdate();
-        if (!isModelAffected()) {
-            takeWriteLock();
-            model = model.clone();
-        }
+        copyModelForUpdate(address);
         affectsModel.put(address, NULL);
         Resource model = this.model;
         final Iterator<PathElement> i = address.iterator();
@@ -441,13 +510,13 @@ final class OperationContextImpl extends AbstractOperationContext {
                         throw MESSAGES.noChildType(key);
                     }
                     final Resource newModel = Resource.Factory.create();
-                    model.registerChild(element, newModel);
+                    registerChild(model, element, newModel);
                     model = newModel;
                 } else {
-                    model = requireChild(model, element, address);
+                    model = requireChildForUpdate(model, element, address, false);
                 }
             } else {
-                model = requireChild(model, element, address);
+                model = requireChildForUpdate(model, element, address, false);
             }
         }
         if(model == null) {
@@ -524,17 +593,20 @@ final class OperationContextImpl extends AbstractOperationContext {
             throw MESSAGES.stageAlreadyComplete(Stage.MODEL);
         }
         authorizeModelUpdate();
-        if (!isModelAffected()) {
-            takeWriteLock();
-            model = model.clone();
-        }
+        copyModelForUpdate(address);
         affectsModel.put(address, NULL);
         Resource resource = this.model;
-        for (PathElement element : address) {
+        final Iterator<PathElement> i = address.iterator();
+        while (i.hasNext()) {
+            final PathElement element = i.next();
             if (element.isMultiTarget()) {
                 throw MESSAGES.cannotWriteTo("*");
             }
-            resource = requireChild(resource, element, address);
+            // The caller may modify the descendants of the resource as well
+            resource = requireChildForUpdate(resource, element, address, !i.hasNext());
+        }
+        if (address.size() == 0 && modelCopy != null) {
+            modelCopy.copyDescendants(resource);
         }
         return resource;
     }
@@ -564,10 +636,7 @@ final class OperationContextImpl extends AbstractOperationContext {
             throw MESSAGES.duplicateResourceAddress(absoluteAddress);
         }
         authorizeModelUpdate();
-        if (!isModelAffected()) {
-            takeWriteLock();
-            model = model.clone();
-        }
+        copyModelForUpdate(absoluteAddress);
         affectsModel.put(absoluteAddress, NULL);
         Resource model = this.model;
         final Iterator<PathElement> i = absoluteAddress.iterator();
@@ -586,11 +655,11 @@ final class OperationContextImpl extends AbstractOperationContext {
                     if(!childrenNames.contains(key)) {
                         throw MESSAGES.noChildType(key);
                     }
-                    model.registerChild(element, toAdd);
+                    registerChild(model, element, toAdd);
                     model = toAdd;
                 }
             } else {
-                model = model.getChild(element);
+                model = modelCopy != null ? modelCopy.getChildForUpdate(model, element, false) : model.getChild(element);
                 if (model == null) {
                     PathAddress ancestor = PathAddress.EMPTY_ADDRESS;
                     for (PathElement pe : absoluteAddress) {
@@ -616,10 +685,7 @@ final class OperationContextImpl extends AbstractOperationContext {
             throw MESSAGES.stageAlreadyComplete(Stage.MODEL);
         }
         authorizeModelUpdate();
-        if (!isModelAffected()) {
-            takeWriteLock();
-            model = model.clone();
-        }
+        copyModelForUpdate(address);
         affectsModel.put(address, NULL);
         Resource model = this.model;
         final Iterator<PathElement> i = address.iterator();
@@ -629,16 +695,16 @@ final class OperationContextImpl extends AbstractOperationContext {
                 throw MESSAGES.cannotRemove("*");
             }
             if (! i.hasNext()) {
-                model = model.removeChild(element);
+                model = modelCopy != null ? modelCopy.removeChild(model, element) : model.removeChild(element);
             } else {
-                model = requireChild(model, element, address);
+                model = requireChildForUpdate(model, element, address, false);
             }
         }
         return model;
     }
 
     public void acquireControllerLock() {
-        takeWriteLock();
+        takeWriteLock(PathAddress.EMPTY_ADDRESS);
     }
 
     public Resource getRootResource() {
@@ -676,8 +742,19 @@ final class OperationContextImpl extends AbstractOperationContext {
     void releaseStepLocks(AbstractOperationContext.Step step) {
         try {
             if (this.lockStep == step) {
-                modelController.releaseLock();
+                if (persistenceResource != null) {
+                    // Only if the operation was not completed normally
+                    persistenceResource.rollback();
+                    persistenceResource = null;
+                }
+                modelController.releaseLocks(this);
+                lockedScopes.clear();
+                rootLocked = false;
                 lockStep = null;
+                if (lockWaitTime > 0 && MGMT_OP_LOGGER.isDebugEnabled()) {
+                    MGMT_OP_LOGGER.debugf("Operation %s at %s waited %d ms for management locks", step.operation.get(OP), step.address, TimeUnit.NANOSECONDS.toMillis(lockWaitTime));
+                }
+                lockWaitTime = 0;
             }
             if (this.containerMonitorStep == step) {
                 // Note: If we allow this thread to be interrupted, an op that has been cancelled
@@ -702,6 +779,50 @@ final class OperationContextImpl extends AbstractOperationContext {
         }
     }
 
+    /**
+     * Takes the write lock covering the given address, and prepares the model for modification if this is the first write
+     * of the operation.
+     */
+    private void copyModelForUpdate(final PathAddress address) {
+        takeWriteLock(address);
+        if (!isModelAffected()) {
+            // Parallel boot modifies the model from several threads, which the lazy copy does not support
+            if (COPY_ON_WRITE && !isBooting()) {
+                modelCopy = new CopyOnWriteResourceTree(getCurrentModel());
+                model = modelCopy.getRoot();
+            } else {
+                model = model.clone();
+            }
+        }
+    }
+
+    /**
+     * Returns the latest published model, which is not modified.
+     */
+    private Resource getCurrentModel() {
+        return originalModel instanceof ModelControllerImpl.RootResource ? ((ModelControllerImpl.RootResource) originalModel).getDelegate() : originalModel;
+    }
+
+    /**
+     * Like {@link #requireChild(Resource, PathElement, PathAddress)}, but returns a child that may be modified, copying it first
+     * if it is still shared with the original model.
+     */
+    private Resource requireChildForUpdate(final Resource resource, final PathElement childPath, final PathAddress fullAddress, final boolean recursive) {
+        if (modelCopy == null) {
+            return requireChild(resource, childPath, fullAddress);
+        }
+        final Resource child = modelCopy.getChildForUpdate(resource, childPath, recursive);
+        return child != null ? child : requireChild(resource, childPath, fullAddress);
+    }
+
+    private void registerChild(final Resource parent, final PathElement childPath, final Resource child) {
+        if (modelCopy != null) {
+            modelCopy.registerChild(parent, childPath, child);
+        } else {
+            parent.registerChild(childPath, child);
+        }
+    }
+
     private static Resource requireChild(final Resource resource, final PathElement childPath, final PathAddress fullAddress) {
         if (resource.hasChild(childPath)) {
             return resource.requireChild(childPath);
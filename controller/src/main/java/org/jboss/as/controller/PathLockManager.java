@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller;
+
+import static org.jboss.as.controller.ControllerMessages.MESSAGES;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical locks on the management model, keyed by {@link PathAddress}.
+ * <p/>
+ * An owner locking an address holds an exclusive lock on it and an intention lock on each of its ancestors. An exclusive
+ * lock conflicts with any lock another owner holds on the same address, an intention lock only with an exclusive one.
+ * Locking the empty address therefore excludes every other owner, while owners of disjoint subtrees proceed concurrently.
+ * Locks are held until {@link #unlockAll(Object) released} all at once.
+ * <p/>
+ * Owners waiting for an exclusive lock take precedence over owners which do not hold any lock on that address yet, so a
+ * steady stream of operations on subtrees cannot starve an operation which has to lock the whole model.
+ * <p/>
+ * Operations discover what they modify as they execute, so no global acquisition order can be imposed. Instead, an owner
+ * that would have to wait for an owner which (transitively) waits for it is refused, and is expected to roll back.
+ *
+ * @see ModelControllerImpl
+ */
+final class PathLockManager {
+
+    private final Map<PathAddress, Node> nodes = new HashMap<PathAddress, Node>();
+    /** The addresses each owner holds an exclusive lock on */
+    private final Map<Object, Set<PathAddress>> locked = new IdentityHashMap<Object, Set<PathAddress>>();
+    /** The owners each waiting owner is blocked by */
+    private final Map<Object, Set<Object>> waiting = new IdentityHashMap<Object, Set<Object>>();
+
+    private long acquisitionCount;
+    private long contendedCount;
+    private long deadlockCount;
+    private long totalWaitTime;
+    private long maxWaitTime;
+
+    /**
+     * Acquires an exclusive lock on an address, and intention locks on its ancestors, blocking as long as other owners
+     * hold conflicting locks. Does nothing if the owner already holds an exclusive lock on the address or on an ancestor.
+     *
+     * @param owner the owner of the lock
+     * @param address the address to lock
+     * @param interruptibly {@code true} if waiting may be interrupted
+     * @return the time spent waiting for the lock, in nanoseconds
+     * @throws InterruptedException if interrupted while waiting
+     * @throws OperationFailedRuntimeException if waiting would deadlock
+     */
+    synchronized long lock(final Object owner, final PathAddress address, final boolean interruptibly) throws InterruptedException {
+        if (isLocked(owner, address)) {
+            return 0;
+        }
+        long waitTime = 0;
+        Set<Object> blockers = getBlockers(owner, address);
+        if (!blockers.isEmpty()) {
+            final long start = System.nanoTime();
+            boolean interrupted = false;
+            contendedCount++;
+            final Node node = getNode(address);
+            node.queued.add(owner);
+            try {
+                do {
+                    if (isWaitingFor(blockers, owner)) {
+                        deadlockCount++;
+                        throw MESSAGES.managementLockDeadlock(address);
+                    }
+                    waiting.put(owner, blockers);
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        if (interruptibly) {
+                            throw e;
+                        }
+                        interrupted = true;
+                    }
+                    blockers = getBlockers(owner, address);
+                } while (!blockers.isEmpty());
+            } finally {
+                waiting.remove(owner);
+                node.queued.remove(owner);
+                if (node.isUnused()) {
+                    nodes.remove(address);
+                }
+                // owners queued behind this one may proceed if it gave up
+                notifyAll();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            waitTime = System.nanoTime() - start;
+            totalWaitTime += waitTime;
+            maxWaitTime = Math.max(maxWaitTime, waitTime);
+        }
+        for (int i = 0; i < address.size(); i++) {
+            getNode(address.subAddress(0, i)).intentions.add(owner);
+        }
+        getNode(address).exclusive = owner;
+        Set<PathAddress> addresses = locked.get(owner);
+        if (addresses == null) {
+            addresses = new HashSet<PathAddress>();
+            locked.put(owner, addresses);
+        }
+        addresses.add(address);
+        acquisitionCount++;
+        return waitTime;
+    }
+
+    /**
+     * Releases all locks held by an owner.
+     *
+     * @param owner the owner of the locks
+     */
+    synchronized void unlockAll(final Object owner) {
+        final Set<PathAddress> addresses = locked.remove(owner);
+        if (addresses == null) {
+            return;
+        }
+        for (PathAddress address : addresses) {
+            for (int i = 0; i <= address.size(); i++) {
+                final PathAddress current = address.subAddress(0, i);
+                final Node node = nodes.get(current);
+                if (node == null) {
+                    continue;
+                }
+                node.intentions.remove(owner);
+                if (node.exclusive == owner) {
+                    node.exclusive = null;
+                }
+                if (node.isUnused()) {
+                    nodes.remove(current);
+                }
+            }
+        }
+        notifyAll();
+    }
+
+    synchronized long getAcquisitionCount() {
+        return acquisitionCount;
+    }
+
+    synchronized long getContendedCount() {
+        return contendedCount;
+    }
+
+    synchronized long getDeadlockCount() {
+        return deadlockCount;
+    }
+
+    synchronized long getTotalWaitTime(final TimeUnit unit) {
+        return unit.convert(totalWaitTime, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized long getMaxWaitTime(final TimeUnit unit) {
+        return unit.convert(maxWaitTime, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean isLocked(final Object owner, final PathAddress address) {
+        for (int i = 0; i <= address.size(); i++) {
+            final Node node = nodes.get(address.subAddress(0, i));
+            if (node == null) {
+                return false;
+            }
+            if (node.exclusive == owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<Object> getBlockers(final Object owner, final PathAddress address) {
+        final Set<Object> blockers = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for (int i = 0; i <= address.size(); i++) {
+            final Node node = nodes.get(address.subAddress(0, i));
+            if (node == null) {
+                break;
+            }
+            if (node.exclusive != null && node.exclusive != owner) {
+                blockers.add(node.exclusive);
+            }
+            if (i == address.size()) {
+                blockers.addAll(node.intentions);
+                blockers.remove(owner);
+            } else if (!node.intentions.contains(owner)) {
+                // give way to those waiting to lock the ancestor; owners already holding locks below it are not held up,
+                // as the waiting owners wait for them to finish
+                blockers.addAll(node.queued);
+            }
+        }
+        return blockers;
+    }
+
+    /**
+     * Whether any of the given owners waits, directly or transitively, for the specified owner.
+     */
+    private boolean isWaitingFor(final Set<Object> blockers, final Object owner) {
+        final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        final Deque<Object> pending = new ArrayDeque<Object>(blockers);
+        while (!pending.isEmpty()) {
+            final Object current = pending.poll();
+            if (current == owner) {
+                return true;
+            }
+            if (visited.add(current)) {
+                final Set<Object> next = waiting.get(current);
+                if (next != null) {
+                    pending.addAll(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    private Node getNode(final PathAddress address) {
+        Node node = nodes.get(address);
+        if (node == null) {
+            node = new Node();
+            nodes.put(address, node);
+        }
+        return node;
+    }
+
+    private static final class Node {
+        /** The owner of the exclusive lock, if any */
+        private Object exclusive;
+        /** The owners of intention locks */
+        private final Set<Object> intentions = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        /** The owners waiting for the exclusive lock */
+        private final Set<Object> queued = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+        boolean isUnused() {
+            return exclusive == null && intentions.isEmpty() && queued.isEmpty();
+        }
+    }
+}
@@ -44,7 +44,7 @@ class SecurityActions {
     }
 
     static String getSystemProperty(final String key, final String defaultValue) {
-        return getSecurityManager() == null ? getSystemProperty(key, defaultValue) : doPrivileged(new ReadPropertyAction(key, defaultValue));
+        return getSecurityManager() == null ? getProperty(key, defaultValue) : doPrivileged(new ReadPropertyAction(key, defaultValue));
     }
 
     static ClassLoader setThreadContextClassLoader(Class cl) {
@@ -63,10 +63,12 @@ import org.jboss.as.controller.operations.validation.ModelTypeValidator;
 import org.jboss.as.controller.operations.validation.ParametersValidator;
 import org.jboss.as.controller.registry.AliasEntry;
 import org.jboss.as.controller.registry.AttributeAccess;
+import org.jboss.as.controller.registry.DescriptionCache;
 import org.jboss.as.controller.registry.ImmutableManagementResourceRegistration;
 import org.jboss.as.controller.registry.OperationEntry;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
+import org.jboss.dmr.Property;
 
 /**
  * {@link org.jboss.as.controller.OperationStepHandler} querying the complete type description of a given model node.
@@ -76,6 +78,9 @@ import org.jboss.dmr.ModelType;
  */
 public class ReadResourceDescriptionHandler implements OperationStepHandler {
 
+    /** Key of the resource description in a cache entry, next to the operation descriptions */
+    private static final String DESCRIPTION = "description";
+
     private static final SimpleAttributeDefinition INHERITED = new SimpleAttributeDefinitionBuilder(ModelDescriptionConstants.INHERITED, ModelType.BOOLEAN)
             .setAllowNull(true)
             .setDefaultValue(new ModelNode(true))
@@ -136,11 +141,33 @@ public class ReadResourceDescriptionHandler implements OperationStepHandler {
         AliasEntry aliasEntry = registry.getAliasEntry();
         final ImmutableManagementResourceRegistration realRegistry = aliasEntry == null ? registry : context.getRootResourceRegistration().getSubModel(aliasEntry.convertToTargetAddress(PathAddress.pathAddress(opAddr)));
 
-        final DescriptionProvider descriptionProvider = realRegistry.getModelDescription(PathAddress.EMPTY_ADDRESS);
         final Locale locale = GlobalOperationHandlers.getLocale(context, operation);
 
-        final ModelNode nodeDescription = descriptionProvider.getModelDescription(locale);
+        final ModelNode nodeDescription;
         final Map<String, ModelNode> operations = new HashMap<String, ModelNode>();
+        // The descriptions of resources and of their operations are cached per registration, until the registration tree changes
+        final DescriptionCache cache = DescriptionCache.of(realRegistry);
+        final String cacheKey = cache == null ? null : getCacheKey(context, locale, ops, inheritedOps);
+        final ModelNode cached = cache == null ? null : cache.get(cacheKey);
+        if (cached != null) {
+            nodeDescription = cached.get(DESCRIPTION);
+            if (cached.hasDefined(OPERATIONS.getName())) {
+                for (final Property property : cached.get(OPERATIONS.getName()).asPropertyList()) {
+                    operations.put(property.getName(), property.getValue());
+                }
+            }
+        } else {
+            final long stamp = cache == null ? 0 : cache.getStamp();
+            nodeDescription = describe(context, realRegistry, locale, ops, inheritedOps, operations);
+            if (cache != null) {
+                final ModelNode toCache = new ModelNode();
+                toCache.get(DESCRIPTION).set(nodeDescription);
+                for (final Map.Entry<String, ModelNode> entry : operations.entrySet()) {
+                    toCache.get(OPERATIONS.getName(), entry.getKey()).set(entry.getValue());
+                }
+                cache.put(cacheKey, toCache, stamp);
+            }
+        }
         final Map<PathElement, ModelNode> childResources = recursive ? new HashMap<PathElement, ModelNode>() : Collections.<PathElement, ModelNode>emptyMap();
 
         // We're going to add a bunch of steps that should immediately follow this one. We are going to add them
@@ -150,49 +177,6 @@ public class ReadResourceDescriptionHandler implements OperationStepHandler {
         final ReadResourceDescriptionAssemblyHandler assemblyHandler = new ReadResourceDescriptionAssemblyHandler(nodeDescription, operations, childResources);
         context.addStep(assemblyHandler, OperationContext.Stage.MODEL, true);
 
-        if (ops) {
-            for (final Map.Entry<String, OperationEntry> entry : realRegistry.getOperationDescriptions(PathAddress.EMPTY_ADDRESS, inheritedOps).entrySet()) {
-                if (entry.getValue().getType() == OperationEntry.EntryType.PUBLIC) {
-                    if (context.getProcessType() != ProcessType.DOMAIN_SERVER || entry.getValue().getFlags().contains(OperationEntry.Flag.RUNTIME_ONLY)) {
-                        final DescriptionProvider provider = entry.getValue().getDescriptionProvider();
-                        operations.put(entry.getKey(), provider.getModelDescription(locale));
-                    }
-                }
-            }
-        }
-        if (nodeDescription.hasDefined(ATTRIBUTES)) {
-            for (final String attr : nodeDescription.require(ATTRIBUTES).keys()) {
-                final AttributeAccess access = realRegistry.getAttributeAccess(PathAddress.EMPTY_ADDRESS, attr);
-                // If there is metadata for an attribute but no AttributeAccess, assume RO. Can't
-                // be writable without a registered handler. This opens the possibility that out-of-date metadata
-                // for attribute "foo" can lead to a read of non-existent-in-model "foo" with
-                // an unexpected undefined value returned. But it removes the possibility of a
-                // dev forgetting to call registry.registerReadOnlyAttribute("foo", null) resulting
-                // in the valid attribute "foo" not being readable
-                final AttributeAccess.AccessType accessType = access == null ? AttributeAccess.AccessType.READ_ONLY : access.getAccessType();
-                final AttributeAccess.Storage storage = access == null ? AttributeAccess.Storage.CONFIGURATION : access.getStorageType();
-                final ModelNode attrNode = nodeDescription.get(ATTRIBUTES, attr);
-                //AS7-3085 - For a domain mode server show writable attributes as read-only
-                String displayedAccessType =
-                        context.getProcessType() == ProcessType.DOMAIN_SERVER && storage == AttributeAccess.Storage.CONFIGURATION ?
-                                AttributeAccess.AccessType.READ_ONLY.toString() : accessType.toString();
-                attrNode.get(ACCESS_TYPE).set(displayedAccessType);
-                attrNode.get(STORAGE).set(storage.toString());
-                if (accessType == AttributeAccess.AccessType.READ_WRITE) {
-                    Set<AttributeAccess.Flag> flags = access.getFlags();
-                    if (flags.contains(AttributeAccess.Flag.RESTART_ALL_SERVICES)) {
-                        attrNode.get(RESTART_REQUIRED).set("all-services");
-                    } else if (flags.contains(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)) {
-                        attrNode.get(RESTART_REQUIRED).set("resource-services");
-                    } else if (flags.contains(AttributeAccess.Flag.RESTART_JVM)) {
-                        attrNode.get(RESTART_REQUIRED).set("jvm");
-                    } else {
-                        attrNode.get(RESTART_REQUIRED).set("no-services");
-                    }
-                }
-            }
-        }
-
         if (recursive) {
             for (final PathElement element : realRegistry.getChildAddresses(PathAddress.EMPTY_ADDRESS)) {
                 PathAddress relativeAddr = PathAddress.pathAddress(element);
@@ -255,6 +239,66 @@ public class ReadResourceDescriptionHandler implements OperationStepHandler {
         });
     }
 
+    /**
+     * Builds the description of a resource and of its operations, which does not depend on the address of the resource
+     * and is therefore cacheable for its registration.
+     */
+    private static ModelNode describe(final OperationContext context, final ImmutableManagementResourceRegistration realRegistry,
+                                      final Locale locale, final boolean ops, final boolean inheritedOps, final Map<String, ModelNode> operations) {
+        final DescriptionProvider descriptionProvider = realRegistry.getModelDescription(PathAddress.EMPTY_ADDRESS);
+        final ModelNode nodeDescription = descriptionProvider.getModelDescription(locale);
+
+        if (ops) {
+            for (final Map.Entry<String, OperationEntry> entry : realRegistry.getOperationDescriptions(PathAddress.EMPTY_ADDRESS, inheritedOps).entrySet()) {
+                if (entry.getValue().getType() == OperationEntry.EntryType.PUBLIC) {
+                    if (context.getProcessType() != ProcessType.DOMAIN_SERVER || entry.getValue().getFlags().contains(OperationEntry.Flag.RUNTIME_ONLY)) {
+                        final DescriptionProvider provider = entry.getValue().getDescriptionProvider();
+                        operations.put(entry.getKey(), provider.getModelDescription(locale));
+                    }
+                }
+            }
+        }
+        if (nodeDescription.hasDefined(ATTRIBUTES)) {
+            for (final String attr : nodeDescription.require(ATTRIBUTES).keys()) {
+                final AttributeAccess access = realRegistry.getAttributeAccess(PathAddress.EMPTY_ADDRESS, attr);
+                // If there is metadata for an attribute but no AttributeAccess, assume RO. Can't
+                // be writable without a registered handler. This opens the possibility that out-of-date metadata
+                // for attribute "foo" can lead to a read of non-existent-in-model "foo" with
+                // an unexpected undefined value returned. But it removes the possibility of a
+                // dev forgetting to call registry.registerReadOnlyAttribute("foo", null) resulting
+                // in the valid attribute "foo" not being readable
+                final AttributeAccess.AccessType accessType = access == null ? AttributeAccess.AccessType.READ_ONLY : access.getAccessType();
+                final AttributeAccess.Storage storage = access == null ? AttributeAccess.Storage.CONFIGURATION : access.getStorageType();
+                final ModelNode attrNode = nodeDescription.get(ATTRIBUTES, attr);
+                //AS7-3085 - For a domain mode server show writable attributes as read-only
+                String displayedAccessType =
+                        context.getProcessType() == ProcessType.DOMAIN_SERVER && storage == AttributeAccess.Storage.CONFIGURATION ?
+                                AttributeAccess.AccessType.READ_ONLY.toString() : accessType.toString();
+                attrNode.get(ACCESS_TYPE).set(displayedAccessType);
+                attrNode.get(STORAGE).set(storage.toString());
+                if (accessType == AttributeAccess.AccessType.READ_WRITE) {
+                    Set<AttributeAccess.Flag> flags = access.getFlags();
+                    if (flags.contains(AttributeAccess.Flag.RESTART_ALL_SERVICES)) {
+                        attrNode.get(RESTART_REQUIRED).set("all-services");
+                    } else if (flags.contains(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)) {
+                        attrNode.get(RESTART_REQUIRED).set("resource-services");
+                    } else if (flags.contains(AttributeAccess.Flag.RESTART_JVM)) {
+                        attrNode.get(RESTART_REQUIRED).set("jvm");
+                    } else {
+                        attrNode.get(RESTART_REQUIRED).set("no-services");
+                    }
+                }
+            }
+        }
+
+        return nodeDescription;
+    }
+
+    private static String getCacheKey(final OperationContext context, final Locale locale, final boolean ops, final boolean inheritedOps) {
+        // A null locale stands for the default one, which may change
+        return (locale == null ? Locale.getDefault() : locale) + ";" + context.getProcessType() + ";" + ops + ";" + inheritedOps;
+    }
+
     private void executeMultiTarget(final OperationContext context, final ModelNode operation) {
         // Format wildcard queries as list
         final ModelNode result = context.getResult().setEmptyList();
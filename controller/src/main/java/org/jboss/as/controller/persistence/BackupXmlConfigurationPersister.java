@@ -22,6 +22,7 @@
 
 package org.jboss.as.controller.persistence;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -38,10 +39,14 @@ import org.jboss.staxmapper.XMLElementWriter;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public class BackupXmlConfigurationPersister extends XmlConfigurationPersister {
+public class BackupXmlConfigurationPersister extends XmlConfigurationPersister implements JournalingConfigurationPersister {
 
     ConfigurationFile configurationFile;
     private final AtomicBoolean successfulBoot = new AtomicBoolean();
+    /** The journal of the main file, if enabled and the configuration was booted from that file */
+    private volatile ConfigurationJournal journal;
+    /** The operations read from the journal by the last load, still to be replayed */
+    private volatile List<ModelNode> journaledOperations = Collections.emptyList();
     /**
      * Construct a new instance.
      *
@@ -66,8 +71,46 @@ public class BackupXmlConfigurationPersister extends XmlConfigurationPersister {
         }
     }
 
+    @Override
+    public List<ModelNode> load() throws ConfigurationPersistenceException {
+        final ConfigurationJournal journal = configurationFile.getJournal();
+        if (journal == null) {
+            return super.load();
+        }
+        if (!configurationFile.getBootFile().equals(configurationFile.getMainFile())) {
+            // The journal records changes to the main file, not to the one booted; the first write will replace it
+            journal.flush();
+            return super.load();
+        }
+        // Recovery may complete an interrupted write of the main file, so do it before parsing
+        journaledOperations = journal.recover();
+        final List<ModelNode> operations = super.load();
+        this.journal = journal;
+        return operations;
+    }
+
+    @Override
+    public List<ModelNode> getJournaledOperations() {
+        final List<ModelNode> operations = journaledOperations;
+        journaledOperations = Collections.emptyList();
+        return operations;
+    }
+
+    @Override
+    public void journalReplayFailed() {
+        final ConfigurationJournal journal = this.journal;
+        if (journal != null) {
+            journal.setAside();
+        }
+    }
+
     @Override
     public PersistenceResource store(final ModelNode model, Set<PathAddress> affectedAddresses) throws ConfigurationPersistenceException {
+        return store(model, affectedAddresses, null);
+    }
+
+    @Override
+    public PersistenceResource store(final ModelNode model, final Set<PathAddress> affectedAddresses, final ModelNode operation) throws ConfigurationPersistenceException {
         if(!successfulBoot.get()) {
             return new PersistenceResource() {
                 public void commit() {
@@ -77,11 +120,38 @@ public class BackupXmlConfigurationPersister extends XmlConfigurationPersister {
                 }
             };
         }
-        return new ConfigurationFilePersistenceResource(model, configurationFile, this);
+        final ConfigurationJournal journal = configurationFile.getJournal();
+        if (journal == null) {
+            return new ConfigurationFilePersistenceResource(model, configurationFile, this);
+        }
+        if (this.journal != null && operation != null) {
+            return new PersistenceResource() {
+                public void commit() {
+                    journal.committed(BackupXmlConfigurationPersister.this, model, operation);
+                }
+
+                public void rollback() {
+                }
+            };
+        }
+        // Changes that cannot be replayed are written right away, which also clears the journal
+        final ExposedByteArrayOutputStream marshalled = FilePersistenceUtils.marshalXml(this, model);
+        return new PersistenceResource() {
+            public void commit() {
+                journal.write(marshalled);
+            }
+
+            public void rollback() {
+            }
+        };
     }
 
     @Override
     public String snapshot() throws ConfigurationPersistenceException {
+        final ConfigurationJournal journal = configurationFile.getJournal();
+        if (journal != null) {
+            journal.flush();
+        }
         return configurationFile.snapshot();
     }
 
@@ -59,6 +59,11 @@ public class ConfigurationFile {
     private static final int HISTORY_DAYS = 30;
     private static final String CURRENT_HISTORY_LENGTH_PROPERTY = "jboss.config.current-history-length";
     private static final String HISTORY_DAYS_PROPERTY = "jboss.config.history-days";
+    private static final int JOURNAL_FLUSH_DELAY = 1000;
+    private static final int JOURNAL_FLUSH_OPERATIONS = 100;
+    private static final String JOURNAL_PROPERTY = "jboss.config.journal";
+    private static final String JOURNAL_FLUSH_DELAY_PROPERTY = "jboss.config.journal.flush-delay";
+    private static final String JOURNAL_FLUSH_OPERATIONS_PROPERTY = "jboss.config.journal.flush-operations";
     private static final String TIMESTAMP_STRING = "\\d\\d\\d\\d\\d\\d\\d\\d-\\d\\d\\d\\d\\d\\d\\d\\d\\d";
     private static final Pattern TIMESTAMP_PATTERN = Pattern.compile(TIMESTAMP_STRING);
     private static final String TIMESTAMP_FORMAT = "yyyyMMdd-HHmmssSSS";
@@ -81,6 +86,7 @@ public class ConfigurationFile {
     private final File snapshotsDirectory;
     private final boolean persistOriginal;
     private volatile File lastFile;
+    private ConfigurationJournal journal;
 
 
     public ConfigurationFile(final File configurationDir, final String rawName, final String name, final boolean persistOriginal) {
@@ -286,6 +292,21 @@ public class ConfigurationFile {
         return mainFile;
     }
 
+    /**
+     * Gets the journal that lets changes to the main file be written in the background, if enabled. The journal is
+     * shared by every persister of this file, so a reload finds the changes still pending from before it.
+     *
+     * @return the journal, or {@code null} if changes must be written to the main file as they are committed
+     */
+    synchronized ConfigurationJournal getJournal() {
+        if (journal == null && persistOriginal && Boolean.parseBoolean(getStringProperty(JOURNAL_PROPERTY))) {
+            journal = new ConfigurationJournal(this, mainFile,
+                    getInteger(JOURNAL_FLUSH_DELAY_PROPERTY, JOURNAL_FLUSH_DELAY, 0),
+                    getInteger(JOURNAL_FLUSH_OPERATIONS_PROPERTY, JOURNAL_FLUSH_OPERATIONS, 1));
+        }
+        return journal;
+    }
+
     void successfulBoot() throws ConfigurationPersistenceException {
         synchronized (this) {
             if (doneBootup.get()) {
@@ -374,6 +395,35 @@ public class ConfigurationFile {
         }
     }
 
+    /**
+     * Commits a write of the main file that was complete, but not yet committed, when the process stopped. The main
+     * file is backed up as for any other write; before boot, that is into the history of the process that wrote it.
+     *
+     * @param temp the completely written file
+     */
+    synchronized void commitRecoveredFile(final File temp) throws ConfigurationPersistenceException {
+        if (doneBootup.get()) {
+            backup();
+            commitTempFile(temp);
+            fileWritten();
+            return;
+        }
+        try {
+            if (mainFile.exists()) {
+                mkdir(historyRoot);
+                mkdir(currentHistory);
+                int i = 1;
+                while (getVersionedFile(mainFile, i).exists()) {
+                    i++;
+                }
+                moveFile(mainFile, getVersionedFile(mainFile, i));
+            }
+        } catch (IOException e) {
+            throw MESSAGES.failedToBackup(e, mainFile);
+        }
+        FilePersistenceUtils.moveTempFileToMain(temp, mainFile);
+    }
+
     void fileWritten() throws ConfigurationPersistenceException {
         if (!doneBootup.get() || !persistOriginal) {
             return;
@@ -0,0 +1,434 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import static org.jboss.as.controller.ControllerLogger.MGMT_OP_LOGGER;
+import static org.jboss.as.controller.ControllerLogger.ROOT_LOGGER;
+import static org.jboss.as.controller.ControllerMessages.MESSAGES;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_HEADERS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.JBossThreadFactory;
+import org.xnio.IoUtils;
+
+/**
+ * Append-only journal of the operations committed since a configuration file was last written, which lets the
+ * rewrites of the file be coalesced and done in the background.
+ * <p>
+ * Each committed operation is appended to the current journal segment, and synced, before the commit returns. A
+ * rewrite of the configuration file is scheduled once {@code flushDelay} milliseconds have passed since the first
+ * pending commit, or right away once {@code flushOperations} commits are pending, and writes the latest committed
+ * model only. A rewrite rotates the journal to a new segment and moves the fully written file to a snapshot file next
+ * to the main file, named after the last segment it covers, before deleting the segments it covers; a rewrite
+ * interrupted by a crash is completed by {@link #recover()}, which then returns the operations to replay on top of the
+ * configuration file.
+ */
+class ConfigurationJournal {
+
+    private static final String SEGMENT_INFIX = ".journal.";
+    private static final String SNAPSHOT_INFIX = ".journal-snapshot.";
+    private static final String SET_ASIDE_INFIX = ".journal-failed.";
+
+    private final ConfigurationFile configurationFile;
+    private final File mainFile;
+    private final long flushDelay;
+    private final int flushOperations;
+
+    /** Guards the journal segments and the pending rewrite; held while appending so a rotation never splits a commit */
+    private final Object journalLock = new Object();
+    /** Serializes the rewrites of the configuration file */
+    private final Object writeLock = new Object();
+
+    private int segment;
+    private FileOutputStream segmentStream;
+    private DataOutputStream segmentOutput;
+
+    private ModelNode pendingModel;
+    private AbstractConfigurationPersister pendingPersister;
+    private int pendingOperations;
+    private ScheduledFuture<?> scheduledFlush;
+    private ScheduledExecutorService executor;
+
+    ConfigurationJournal(final ConfigurationFile configurationFile, final File mainFile, final long flushDelay, final int flushOperations) {
+        this.configurationFile = configurationFile;
+        this.mainFile = mainFile;
+        this.flushDelay = flushDelay;
+        this.flushOperations = flushOperations;
+    }
+
+    /**
+     * Completes any interrupted rewrite of the configuration file and reads the journal.
+     *
+     * @return the operations committed since the configuration file was last written, in commit order
+     */
+    List<ModelNode> recover() throws ConfigurationPersistenceException {
+        // A reload may still have a rewrite pending
+        flush();
+        synchronized (writeLock) {
+            synchronized (journalLock) {
+                closeSegment();
+                final List<Integer> segments = listFiles(SEGMENT_INFIX);
+                final List<Integer> snapshots = listFiles(SNAPSHOT_INFIX);
+                int next = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+                if (!snapshots.isEmpty()) {
+                    // The new file was complete; it covers the segments up to the one it is named after
+                    final int covered = snapshots.remove(snapshots.size() - 1);
+                    for (Integer i : snapshots) {
+                        FilePersistenceUtils.deleteFile(getSnapshotFile(i));
+                    }
+                    for (Iterator<Integer> it = segments.iterator(); it.hasNext(); ) {
+                        final int i = it.next();
+                        if (i <= covered) {
+                            FilePersistenceUtils.deleteFile(getSegmentFile(i));
+                            it.remove();
+                        }
+                    }
+                    configurationFile.commitRecoveredFile(getSnapshotFile(covered));
+                    next = Math.max(next, covered + 1);
+                }
+                final List<ModelNode> operations = new ArrayList<ModelNode>();
+                for (Integer i : segments) {
+                    readSegment(getSegmentFile(i), operations);
+                }
+                // Never append after a possibly incomplete entry
+                segment = next;
+                if (!operations.isEmpty()) {
+                    ROOT_LOGGER.replayingConfigurationJournal(operations.size(), mainFile.getName());
+                }
+                return operations;
+            }
+        }
+    }
+
+    /**
+     * Renames the segments of the journal, so the operations they hold are not replayed again, e.g. because replaying
+     * them failed.
+     */
+    void setAside() {
+        synchronized (writeLock) {
+            synchronized (journalLock) {
+                clearPending();
+                closeSegment();
+                for (Integer i : listFiles(SEGMENT_INFIX)) {
+                    final File file = getSegmentFile(i);
+                    final File setAside = new File(mainFile.getParentFile(), mainFile.getName() + SET_ASIDE_INFIX + i);
+                    try {
+                        FilePersistenceUtils.rename(file, setAside);
+                        ROOT_LOGGER.configurationJournalSetAside(file.getName(), setAside.getName());
+                    } catch (IOException e) {
+                        MGMT_OP_LOGGER.errorf(e, e.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a committed change to the configuration.
+     *
+     * @param persister the persister to marshal the model with
+     * @param model the committed model
+     * @param operation the operation that produced the model
+     */
+    void committed(final AbstractConfigurationPersister persister, final ModelNode model, final ModelNode operation) {
+        synchronized (journalLock) {
+            try {
+                append(operation);
+                pendingModel = model;
+                pendingPersister = persister;
+                if (++pendingOperations >= flushOperations) {
+                    cancelScheduledFlush();
+                    scheduledFlush = getExecutor().schedule(new FlushTask(), 0, TimeUnit.MILLISECONDS);
+                } else if (scheduledFlush == null) {
+                    scheduledFlush = getExecutor().schedule(new FlushTask(), flushDelay, TimeUnit.MILLISECONDS);
+                }
+                return;
+            } catch (IOException e) {
+                ROOT_LOGGER.failedToAppendToConfigurationJournal(e, mainFile.getName());
+            }
+        }
+        try {
+            write(FilePersistenceUtils.marshalXml(persister, model));
+        } catch (ConfigurationPersistenceException e) {
+            MGMT_OP_LOGGER.failedToStoreConfiguration(e, mainFile.getName());
+        }
+    }
+
+    /**
+     * Writes a committed configuration to the configuration file right away, superseding any pending changes.
+     *
+     * @param marshalled the marshalled configuration
+     */
+    void write(final ExposedByteArrayOutputStream marshalled) {
+        synchronized (writeLock) {
+            final int covered;
+            synchronized (journalLock) {
+                clearPending();
+                covered = rotate();
+            }
+            write(marshalled, covered);
+        }
+    }
+
+    /**
+     * Writes the pending changes, if any, to the configuration file.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            final ModelNode model;
+            final AbstractConfigurationPersister persister;
+            final int covered;
+            synchronized (journalLock) {
+                model = pendingModel;
+                persister = pendingPersister;
+                clearPending();
+                if (model == null) {
+                    return;
+                }
+                covered = rotate();
+            }
+            try {
+                write(FilePersistenceUtils.marshalXml(persister, model), covered);
+            } catch (ConfigurationPersistenceException e) {
+                // The journal still holds the changes; the next write will include them
+                MGMT_OP_LOGGER.failedToStoreConfiguration(e, mainFile.getName());
+            }
+        }
+    }
+
+    private void write(final ExposedByteArrayOutputStream marshalled, final int covered) {
+        final File tempFileName = FilePersistenceUtils.createTempFile(mainFile);
+        try {
+            try {
+                FilePersistenceUtils.writeToTempFile(marshalled, tempFileName);
+            } catch (Exception e) {
+                // The journal still holds the changes; the next write will include them
+                MGMT_OP_LOGGER.failedToStoreConfiguration(e, mainFile.getName());
+                return;
+            }
+            final File snapshotFile = getSnapshotFile(covered);
+            FilePersistenceUtils.moveTempFileToMain(tempFileName, snapshotFile);
+            synchronized (journalLock) {
+                for (Integer i : listFiles(SEGMENT_INFIX)) {
+                    if (i <= covered) {
+                        FilePersistenceUtils.deleteFile(getSegmentFile(i));
+                    }
+                }
+            }
+            try {
+                configurationFile.backup();
+            } finally {
+                configurationFile.commitTempFile(snapshotFile);
+            }
+            configurationFile.fileWritten();
+        } catch (ConfigurationPersistenceException e) {
+            MGMT_OP_LOGGER.errorf(e, e.toString());
+        } finally {
+            if (tempFileName.exists() && !tempFileName.delete()) {
+                MGMT_OP_LOGGER.cannotDeleteTempFile(tempFileName.getName());
+                tempFileName.deleteOnExit();
+            }
+        }
+    }
+
+    private void append(final ModelNode operation) throws IOException {
+        final ModelNode entry = operation.clone();
+        entry.remove(OPERATION_HEADERS);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream data = new DataOutputStream(bytes);
+        entry.writeExternal(data);
+        data.close();
+        boolean appended = false;
+        try {
+            if (segmentOutput == null) {
+                openSegment();
+            }
+            segmentOutput.writeInt(bytes.size());
+            bytes.writeTo(segmentOutput);
+            segmentOutput.flush();
+            segmentStream.getFD().sync();
+            appended = true;
+        } finally {
+            if (!appended) {
+                // Leave a possibly incomplete entry at the end of its segment
+                closeSegment();
+                segment++;
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment for the commits that follow.
+     *
+     * @return the last segment covered by the model of the commits so far
+     */
+    private int rotate() {
+        closeSegment();
+        final int covered = segment++;
+        try {
+            // Create the segment now, so a completed snapshot never covers the newest segment
+            openSegment();
+        } catch (IOException e) {
+            closeSegment();
+        }
+        return covered;
+    }
+
+    private void openSegment() throws IOException {
+        segmentStream = new FileOutputStream(getSegmentFile(segment), true);
+        segmentOutput = new DataOutputStream(new BufferedOutputStream(segmentStream));
+    }
+
+    private void closeSegment() {
+        if (segmentOutput != null) {
+            IoUtils.safeClose(segmentOutput);
+            IoUtils.safeClose(segmentStream);
+            segmentOutput = null;
+            segmentStream = null;
+        }
+    }
+
+    private void clearPending() {
+        pendingModel = null;
+        pendingPersister = null;
+        pendingOperations = 0;
+        cancelScheduledFlush();
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            final JBossThreadFactory threadFactory = new JBossThreadFactory(new ThreadGroup("ConfigurationJournal-threads"), Boolean.TRUE, null, "%G - %t", null, null, AccessController.getContext());
+            final ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(1, threadFactory);
+            scheduled.setRemoveOnCancelPolicy(true);
+            executor = scheduled;
+        }
+        return executor;
+    }
+
+    private void readSegment(final File file, final List<ModelNode> operations) throws ConfigurationPersistenceException {
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                for (;;) {
+                    final int length;
+                    try {
+                        length = input.readInt();
+                    } catch (EOFException done) {
+                        break;
+                    }
+                    final byte[] bytes = new byte[length];
+                    try {
+                        input.readFully(bytes);
+                    } catch (EOFException incomplete) {
+                        // The commit of this entry never returned
+                        ROOT_LOGGER.incompleteConfigurationJournalEntry(file.getName());
+                        break;
+                    }
+                    final ModelNode operation = new ModelNode();
+                    operation.readExternal(new DataInputStream(new ByteArrayInputStream(bytes)));
+                    operations.add(operation);
+                }
+            } finally {
+                IoUtils.safeClose(input);
+            }
+        } catch (IOException e) {
+            throw MESSAGES.failedToParseConfiguration(e);
+        }
+    }
+
+    /**
+     * Lists the numbers of the files next to the main file that are named after it with the given infix.
+     */
+    private List<Integer> listFiles(final String infix) {
+        final String prefix = mainFile.getName() + infix;
+        final String[] names = mainFile.getParentFile().list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && name.length() > prefix.length();
+            }
+        });
+        final List<Integer> numbers = new ArrayList<Integer>();
+        if (names != null) {
+            for (String name : names) {
+                try {
+                    numbers.add(Integer.valueOf(name.substring(prefix.length())));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private File getSegmentFile(final int i) {
+        return new File(mainFile.getParentFile(), mainFile.getName() + SEGMENT_INFIX + i);
+    }
+
+    private File getSnapshotFile(final int covered) {
+        return new File(mainFile.getParentFile(), mainFile.getName() + SNAPSHOT_INFIX + covered);
+    }
+
+    private class FlushTask implements Runnable {
+        @Override
+        public void run() {
+            flush();
+            synchronized (journalLock) {
+                if (scheduledFlush == null && executor != null) {
+                    // Nothing is pending, so don't keep the thread around; the next commit starts a new one
+                    executor.shutdown();
+                    executor = null;
+                }
+            }
+        }
+    }
+}
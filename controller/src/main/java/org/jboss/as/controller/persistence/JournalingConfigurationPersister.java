@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A {@link ConfigurationPersister} that can record the operations that change the configuration, and replay them
+ * when the configuration is next loaded, instead of writing the whole configuration each time it changes.
+ */
+public interface JournalingConfigurationPersister extends ConfigurationPersister {
+
+    /**
+     * Persist the given configuration model, produced by the given operation.
+     *
+     * @param model the model to persist
+     * @param affectedAddresses the addresses of the resources changed by the operation
+     * @param operation the operation that produced the model, or {@code null} if it could not be replayed on its own,
+     *                  e.g. because it has attached input streams
+     *
+     * @return callback to use to control whether the stored model should be flushed to persistent storage
+     */
+    PersistenceResource store(ModelNode model, Set<PathAddress> affectedAddresses, ModelNode operation) throws ConfigurationPersistenceException;
+
+    /**
+     * Gets the operations recorded since the configuration was last written. They must be replayed once the operations
+     * returned by {@link #load()} have been executed, one after the other and in the order given.
+     *
+     * @return the operations to replay, or an empty list if there are none
+     */
+    List<ModelNode> getJournaledOperations();
+
+    /**
+     * Notifies the persister that the operations returned by {@link #getJournaledOperations()} could not be replayed,
+     * and that the configuration was booted without them, so they are not replayed again on the next load.
+     */
+    void journalReplayFailed();
+}
@@ -233,6 +233,15 @@ public abstract class AbstractModelResource implements Resource {
                 return children.remove(name);
             }
         }
+
+        void replace(String name, Resource resource) {
+            synchronized (children) {
+                if (!children.containsKey(name)) {
+                    throw new IllegalStateException(name);
+                }
+                children.put(name, resource);
+            }
+        }
     }
 
     abstract static class DelegateResource implements ResourceEntry {
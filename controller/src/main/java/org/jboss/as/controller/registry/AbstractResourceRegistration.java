@@ -31,6 +31,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.as.controller.ControllerMessages;
 import org.jboss.as.controller.OperationDefinition;
@@ -58,11 +59,16 @@ abstract class AbstractResourceRegistration implements ManagementResourceRegistr
     private final String valueString;
     private final NodeSubregistry parent;
     private RootInvocation rootInvocation;
+    /** Counts the changes to the registration tree, shared by all its registrations */
+    private final AtomicLong modificationCount;
+    private final DescriptionCache descriptionCache;
 
     AbstractResourceRegistration(final String valueString, final NodeSubregistry parent) {
         checkPermission();
         this.valueString = valueString;
         this.parent = parent;
+        this.modificationCount = parent == null ? new AtomicLong() : parent.getParent().modificationCount;
+        this.descriptionCache = new DescriptionCache(modificationCount);
     }
 
     static void checkPermission() {
@@ -76,6 +82,23 @@ abstract class AbstractResourceRegistration implements ManagementResourceRegistr
         return parent;
     }
 
+    /**
+     * Invalidates the descriptions cached for any registration of this tree. To be called after each change to a
+     * registration.
+     */
+    final void registrationChanged() {
+        modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Gets the cache for descriptions derived from this registration.
+     *
+     * @return the cache, or {@code null} if descriptions of this registration must not be cached
+     */
+    DescriptionCache getDescriptionCache() {
+        return descriptionCache;
+    }
+
     /** {@inheritDoc} */
     @Override
     @SuppressWarnings("deprecation")
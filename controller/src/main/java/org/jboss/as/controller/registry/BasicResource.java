@@ -22,6 +22,7 @@
 
 package org.jboss.as.controller.registry;
 
+import org.jboss.as.controller.PathElement;
 import org.jboss.dmr.ModelNode;
 
 import java.util.ConcurrentModificationException;
@@ -76,4 +77,26 @@ class BasicResource extends AbstractModelResource implements Resource {
         return clone;
     }
 
+    /**
+     * Creates a copy of this resource with its own model, but sharing the children of this resource.
+     * The copy has to be treated as read-only until all shared children it is about to modify are replaced by copies.
+     */
+    BasicResource shallowCopy() {
+        final BasicResource copy = new BasicResource();
+        copy.writeModel(model);
+        for(final String childType : getChildTypes()) {
+            for(final String childName : getChildrenNames(childType)) {
+                final PathElement element = PathElement.pathElement(childType, childName);
+                copy.registerChild(element, getChild(element));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Replaces an existing child of this resource, preserving the order of the children.
+     */
+    void replaceChild(final PathElement element, final Resource resource) {
+        ((DefaultResourceProvider) getProvider(element.getKey())).replace(element.getValue(), resource);
+    }
 }
@@ -202,6 +202,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (operationsUpdater.putIfAbsent(this, operationName, new OperationEntry(handler, descriptionProvider, inherited, entryType)) != null) {
             throw alreadyRegistered("operation handler", operationName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -210,6 +211,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (operationsUpdater.putIfAbsent(this, operationName, new OperationEntry(handler, descriptionProvider, inherited, entryType, flags)) != null) {
             throw alreadyRegistered("operation handler", operationName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -218,6 +220,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (operationsUpdater.remove(this, operationName) == null) {
             throw operationNotRegisteredException(operationName, resourceDefinition.getPathElement());
         }
+        registrationChanged();
     }
 
     @Override
@@ -227,6 +230,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -237,6 +241,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -249,6 +254,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -258,6 +264,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -268,6 +275,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -280,6 +288,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
@@ -294,12 +303,15 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, attributeName, aa) != null) {
             throw alreadyRegistered("attribute", attributeName);
         }
+        registrationChanged();
     }
 
     @Override
     public void unregisterAttribute(String attributeName) {
         checkPermission();
-        attributesUpdater.remove(this, attributeName);
+        if (attributesUpdater.remove(this, attributeName) != null) {
+            registrationChanged();
+        }
     }
 
     @Override
@@ -309,6 +321,7 @@ final class ConcreteResourceRegistration extends AbstractResourceRegistration {
         if (attributesUpdater.putIfAbsent(this, definition.getName(), aa) != null) {
             throw alreadyRegistered("attribute", definition.getName());
         }
+        registrationChanged();
     }
 
     @Override
@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller.registry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+
+/**
+ * A working copy of a resource tree that copies resources lazily, as they are about to be modified, instead of cloning
+ * the whole tree up front. Modifying a resource copies the resources on its path from the root (path copying); all other
+ * resources stay shared with the original tree, which is never modified. The cost of preparing a write is therefore
+ * proportional to the depth of the modified resource, rather than to the size of the model.
+ * <p/>
+ * Resources handed out by {@link #getChildForUpdate(Resource, PathElement, boolean)} may be modified freely, within
+ * the scope requested. Only {@link Resource.Factory#create() standard} resources are copied shallowly; any other
+ * resource is copied via {@link Resource#clone()}, together with its descendants.
+ *
+ * <p>Concurrency note: this class is *not* thread safe. The original tree may be read concurrently.</p>
+ */
+public final class CopyOnWriteResourceTree {
+
+    /** Copies whose model and set of children are private, but whose children may still be shared */
+    private final Set<Resource> copied = Collections.newSetFromMap(new IdentityHashMap<Resource, Boolean>());
+    /** Copies whose descendants are private as well */
+    private final Set<Resource> copiedRecursively = Collections.newSetFromMap(new IdentityHashMap<Resource, Boolean>());
+    private Resource root;
+
+    public CopyOnWriteResourceTree(final Resource original) {
+        this.root = this.copy(original, false);
+    }
+
+    /**
+     * Returns the root of the working copy, which may be modified, but whose children may still be shared.
+     *
+     * @return the root resource
+     */
+    public Resource getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Returns the specified child of a resource of this tree, copying it first if it is still shared with the original tree.
+     *
+     * @param parent a resource of this tree, that is the root or a resource returned by this method
+     * @param element the path of the child
+     * @param recursive {@code true} if the descendants of the child may be modified as well
+     * @return the child, or {@code null} if {@code parent} has no such child
+     */
+    public Resource getChildForUpdate(final Resource parent, final PathElement element, final boolean recursive) {
+        Resource child = parent.getChild(element);
+        if ((child == null) || this.copiedRecursively.contains(parent) || this.copiedRecursively.contains(child)) {
+            return child;
+        }
+        if (this.copied.contains(child)) {
+            if (recursive) {
+                this.copyDescendants(child);
+            }
+            return child;
+        }
+        final Resource copy = this.copy(child, recursive);
+        ((BasicResource) parent).replaceChild(element, copy);
+        return copy;
+    }
+
+    /**
+     * Makes the descendants of a resource of this tree private to this tree, so that they may be modified as well.
+     *
+     * @param resource a resource of this tree
+     */
+    public void copyDescendants(final Resource resource) {
+        if (this.copiedRecursively.contains(resource)) {
+            return;
+        }
+        for (final String childType : resource.getChildTypes()) {
+            for (final String childName : resource.getChildrenNames(childType)) {
+                this.getChildForUpdate(resource, PathElement.pathElement(childType, childName), true);
+            }
+        }
+        this.copied.remove(resource);
+        this.copiedRecursively.add(resource);
+    }
+
+    /**
+     * Registers a new child with a resource of this tree. The child is assumed to be private to the caller.
+     *
+     * @param parent a resource of this tree
+     * @param element the path of the child
+     * @param child the new child
+     */
+    public void registerChild(final Resource parent, final PathElement element, final Resource child) {
+        parent.registerChild(element, child);
+        this.copiedRecursively.add(child);
+    }
+
+    /**
+     * Removes a child from a resource of this tree. The removed child is a private copy, so it may be modified or
+     * registered again without affecting the original tree.
+     *
+     * @param parent a resource of this tree
+     * @param element the path of the child
+     * @return the removed child, or {@code null} if {@code parent} has no such child
+     */
+    public Resource removeChild(final Resource parent, final PathElement element) {
+        if (this.getChildForUpdate(parent, element, true) == null) {
+            return null;
+        }
+        return parent.removeChild(element);
+    }
+
+    /**
+     * Moves the changes made to this tree onto another version of the original tree. The subtrees at the given addresses
+     * are taken from this tree, including their absence, and everything else from {@code original}. This assumes that this
+     * tree was only modified within these subtrees, and {@code original} only outside of them.
+     * <p/>
+     * Resources previously returned by {@link #getChildForUpdate(Resource, PathElement, boolean)} remain valid if they
+     * are part of one of these subtrees; the {@link #getRoot() root} and their other ancestors are replaced.
+     *
+     * @param original the tree to rebase onto, which is not modified
+     * @param addresses the addresses of the subtrees modified in this tree
+     */
+    public void rebase(final Resource original, final Collection<PathAddress> addresses) {
+        if (addresses.contains(PathAddress.EMPTY_ADDRESS)) {
+            return;
+        }
+        final Resource previous = this.root;
+        this.root = this.copy(original, false);
+        for (final PathAddress address : addresses) {
+            if (this.hasAncestor(address, addresses)) {
+                continue;
+            }
+            Resource source = previous;
+            Resource target = this.root;
+            for (int i = 0; i < address.size() - 1; i++) {
+                final PathElement element = address.getElement(i);
+                source = source.getChild(element);
+                target = this.getChildForUpdate(target, element, false);
+                if ((source == null) || (target == null)) {
+                    throw new IllegalStateException(address.toString());
+                }
+            }
+            final PathElement element = address.getLastElement();
+            final Resource child = source.getChild(element);
+            if (child == null) {
+                target.removeChild(element);
+            } else if ((target instanceof BasicResource) && target.hasChild(element)) {
+                ((BasicResource) target).replaceChild(element, child);
+            } else {
+                target.removeChild(element);
+                target.registerChild(element, child);
+            }
+        }
+    }
+
+    private boolean hasAncestor(final PathAddress address, final Collection<PathAddress> addresses) {
+        for (int i = 1; i < address.size(); i++) {
+            if (addresses.contains(address.subAddress(0, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Resource copy(final Resource resource, final boolean recursive) {
+        if (!recursive && (resource.getClass() == BasicResource.class)) {
+            final Resource copy = ((BasicResource) resource).shallowCopy();
+            this.copied.add(copy);
+            return copy;
+        }
+        final Resource copy = resource.clone();
+        this.copiedRecursively.add(copy);
+        return copy;
+    }
+}
@@ -136,4 +136,8 @@ public class DelegatingImmutableManagementResourceRegistration implements Immuta
     public AliasEntry getAliasEntry() {
         return delegate.getAliasEntry();
     }
+
+    ImmutableManagementResourceRegistration getDelegate() {
+        return delegate;
+    }
 }
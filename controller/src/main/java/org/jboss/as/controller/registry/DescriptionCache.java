@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller.registry;
+
+import static java.lang.System.getProperty;
+import static java.lang.System.getSecurityManager;
+import static java.security.AccessController.doPrivileged;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.as.util.security.ReadPropertyAction;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Descriptions derived from a {@link ImmutableManagementResourceRegistration}, cached until the registration tree it
+ * belongs to changes. Any change to the tree, such as registering or unregistering a child, an operation or an
+ * attribute, invalidates the caches of all its registrations, since descriptions also reflect inherited operations and
+ * child types.
+ * <p/>
+ * Descriptions are copied on the way in and out, so callers may modify them. If the system property
+ * {@code jboss.as.controller.description-cache.compact} is {@code true}, descriptions are held in their DMR binary form,
+ * which takes considerably less memory than a {@link ModelNode} tree. Setting the system property
+ * {@code jboss.as.controller.description-cache} to {@code false} disables caching altogether.
+ */
+public final class DescriptionCache {
+
+    private static final String ENABLED_PROPERTY = "jboss.as.controller.description-cache";
+    private static final String COMPACT_PROPERTY = "jboss.as.controller.description-cache.compact";
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(getSystemProperty(ENABLED_PROPERTY));
+    private static final boolean COMPACT = Boolean.parseBoolean(getSystemProperty(COMPACT_PROPERTY));
+
+    private final AtomicLong modificationCount;
+    private volatile Snapshot snapshot = new Snapshot(-1, Collections.<Object, Object>emptyMap());
+
+    DescriptionCache(final AtomicLong modificationCount) {
+        this.modificationCount = modificationCount;
+    }
+
+    /**
+     * Gets the cache for descriptions derived from a registration.
+     *
+     * @param registration the registration
+     * @return the cache, or {@code null} if caching is disabled or descriptions of the registration must not be cached
+     * @throws SecurityException if the caller does not have {@link ImmutableManagementResourceRegistration#ACCESS_PERMISSION}
+     */
+    public static DescriptionCache of(final ImmutableManagementResourceRegistration registration) {
+        if (!ENABLED) {
+            return null;
+        }
+        ImmutableManagementResourceRegistration current = registration;
+        while (current instanceof DelegatingImmutableManagementResourceRegistration) {
+            current = ((DelegatingImmutableManagementResourceRegistration) current).getDelegate();
+        }
+        if (current instanceof AbstractResourceRegistration) {
+            AbstractResourceRegistration.checkPermission();
+            return ((AbstractResourceRegistration) current).getDescriptionCache();
+        }
+        // other implementations cannot tell when they change
+        return null;
+    }
+
+    /**
+     * Returns the current version of the registration tree, to be passed to {@link #put(Object, ModelNode, long)}.
+     * It must be obtained before reading the registration to compute a description.
+     *
+     * @return the current version
+     */
+    public long getStamp() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Returns a copy of a cached description.
+     *
+     * @param key the key of the description
+     * @return the description, or {@code null} if not cached or out of date
+     */
+    public ModelNode get(final Object key) {
+        final Snapshot snapshot = this.snapshot;
+        if (snapshot.stamp != modificationCount.get()) {
+            return null;
+        }
+        final Object value = snapshot.entries.get(key);
+        return value == null ? null : COMPACT ? fromBytes((byte[]) value) : ((ModelNode) value).clone();
+    }
+
+    /**
+     * Caches a copy of a description, unless the registration tree changed since the description was computed.
+     *
+     * @param key the key of the description
+     * @param description the description
+     * @param stamp the value of {@link #getStamp()} before the description was computed
+     */
+    public synchronized void put(final Object key, final ModelNode description, final long stamp) {
+        if (stamp != modificationCount.get()) {
+            return;
+        }
+        final Snapshot snapshot = this.snapshot;
+        final Map<Object, Object> entries = snapshot.stamp == stamp ? new HashMap<Object, Object>(snapshot.entries) : new HashMap<Object, Object>();
+        entries.put(key, COMPACT ? toBytes(description) : description.clone());
+        this.snapshot = new Snapshot(stamp, entries);
+    }
+
+    private static String getSystemProperty(final String key) {
+        return getSecurityManager() == null ? getProperty(key) : doPrivileged(new ReadPropertyAction(key));
+    }
+
+    private static byte[] toBytes(final ModelNode description) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final DataOutputStream output = new DataOutputStream(bytes);
+            description.writeExternal(output);
+            output.flush();
+        } catch (IOException e) {
+            // not possible with an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ModelNode fromBytes(final byte[] bytes) {
+        final ModelNode description = new ModelNode();
+        try {
+            description.readExternal(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            // not possible with an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return description;
+    }
+
+    private static final class Snapshot {
+        private final long stamp;
+        private final Map<Object, Object> entries;
+
+        private Snapshot(final long stamp, final Map<Object, Object> entries) {
+            this.stamp = stamp;
+            this.entries = entries;
+        }
+    }
+}
@@ -81,6 +81,7 @@ final class NodeSubregistry {
         if (existingRegistry != null) {
             throw MESSAGES.nodeAlreadyRegistered(getLocationString(), elementValue);
         }
+        parent.registrationChanged();
         return newRegistry;
     }
 
@@ -91,12 +92,15 @@ final class NodeSubregistry {
             throw MESSAGES.nodeAlreadyRegistered(getLocationString(), elementValue);
         }
         //register(elementValue, newRegistry);
+        parent.registrationChanged();
         return newRegistry;
     }
 
     void unregisterProxyController(final String elementValue) {
         checkPermission();
-        childRegistriesUpdater.remove(this, elementValue);
+        if (childRegistriesUpdater.remove(this, elementValue) != null) {
+            parent.registrationChanged();
+        }
     }
 
     public AliasResourceRegistration registerAlias(final String elementValue, AliasEntry aliasEntry, AbstractResourceRegistration target) {
@@ -105,18 +109,23 @@ final class NodeSubregistry {
         if (existingRegistry != null) {
             throw MESSAGES.nodeAlreadyRegistered(getLocationString(), elementValue);
         }
+        parent.registrationChanged();
         return newRegistry;
     }
 
     public void unregisterAlias(final String elementValue) {
         checkPermission();
-        childRegistriesUpdater.remove(this, elementValue);
+        if (childRegistriesUpdater.remove(this, elementValue) != null) {
+            parent.registrationChanged();
+        }
     }
 
 
     void unregisterSubModel(final String elementValue) {
         checkPermission();
-        childRegistriesUpdater.remove(this, elementValue);
+        if (childRegistriesUpdater.remove(this, elementValue) != null) {
+            parent.registrationChanged();
+        }
     }
 
     OperationEntry getOperationEntry(final ListIterator<PathElement> iterator, final String child, final String operationName, OperationEntry inherited) {
@@ -270,6 +270,12 @@ final class ProxyControllerRegistration extends AbstractResourceRegistration imp
         return new ModelNode();
     }
 
+    @Override
+    DescriptionCache getDescriptionCache() {
+        // The description is maintained by the remote process
+        return null;
+    }
+
     private IllegalArgumentException alreadyRegistered() {
         return MESSAGES.proxyHandlerAlreadyRegistered(getLocationString());
     }
@@ -23,19 +23,33 @@ package org.jboss.as.controller.remote;
 
 import static org.jboss.as.controller.ControllerLogger.ROOT_LOGGER;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CALLER_TYPE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CANCELLED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.INCLUDE_ALIASES;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.INCLUDE_DEFAULTS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.INCLUDE_RUNTIME;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_HEADERS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.PROXIES;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE_DEPTH;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.USER;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.concurrent.Semaphore;
 
 import javax.security.auth.Subject;
 
 import org.jboss.as.controller.ModelController;
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.client.impl.ModelControllerProtocol;
+import org.jboss.as.controller.client.impl.ResourceEntries;
 import org.jboss.as.protocol.StreamUtils;
 import org.jboss.as.protocol.mgmt.ActiveOperation;
 import org.jboss.as.protocol.mgmt.FlushableDataOutput;
@@ -48,6 +62,8 @@ import org.jboss.as.protocol.mgmt.ManagementRequestHeader;
 import org.jboss.as.protocol.mgmt.ManagementResponseHeader;
 import org.jboss.as.protocol.mgmt.ProtocolUtils;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.remoting3.MessageOutputStream;
 
 /**
  * Operation handlers for the remote implementation of {@link org.jboss.as.controller.client.ModelControllerClient}
@@ -82,6 +98,12 @@ public class ModelControllerClientOperationHandler implements ManagementRequestH
                 // initialize the operation ctx before executing the request handler
                 handlers.registerActiveOperation(header.getBatchId(), null);
                 return new ExecuteRequestHandler();
+            case ModelControllerProtocol.EXECUTE_STREAMING_CLIENT_REQUEST:
+                // the credits for the entries the client is ready to receive
+                handlers.registerActiveOperation(header.getBatchId(), new Semaphore(ModelControllerProtocol.STREAM_WINDOW));
+                return new StreamingExecuteRequestHandler();
+            case ModelControllerProtocol.STREAM_CREDIT_REQUEST:
+                return new StreamCreditRequestHandler();
             case ModelControllerProtocol.CANCEL_ASYNC_REQUEST:
                 return new CancelAsyncRequestHandler();
         }
@@ -124,35 +146,241 @@ public class ModelControllerClientOperationHandler implements ManagementRequestH
             });
         }
 
-        protected ModelNode doExecute(final ModelNode operation, final int attachmentsLength, final ManagementRequestContext<Void> context) {
-            //Add a header to show that this operation comes from a user. If this is a host controller and the operation needs propagating to the
-            //servers it will be removed by the domain ops responsible for propagation to the servers.
-            operation.get(OPERATION_HEADERS, CALLER_TYPE).set(USER);
+    }
+
+    private ModelNode doExecute(final ModelNode operation, final int attachmentsLength, final ManagementRequestContext<?> context) {
+        //Add a header to show that this operation comes from a user. If this is a host controller and the operation needs propagating to the
+        //servers it will be removed by the domain ops responsible for propagation to the servers.
+        operation.get(OPERATION_HEADERS, CALLER_TYPE).set(USER);
+
+        final ManagementRequestHeader header = ManagementRequestHeader.class.cast(context.getRequestHeader());
+        final int batchId = header.getBatchId();
+        final ModelNode result = new ModelNode();
+        final OperationMessageHandlerProxy messageHandlerProxy = new OperationMessageHandlerProxy(channelAssociation, batchId);
+        final OperationAttachmentsProxy attachmentsProxy = OperationAttachmentsProxy.create(channelAssociation, batchId, attachmentsLength);
+        try {
+            ROOT_LOGGER.tracef("Executing client request %d(%d)", batchId, header.getRequestId());
+            result.set(controller.execute(
+                    operation,
+                    messageHandlerProxy,
+                    ModelController.OperationTransactionControl.COMMIT,
+                    attachmentsProxy));
+        } catch (Exception e) {
+            final ModelNode failure = new ModelNode();
+            failure.get(OUTCOME).set(FAILED);
+            failure.get(FAILURE_DESCRIPTION).set(e.getClass().getName() + ":" + e.getMessage());
+            result.set(failure);
+            attachmentsProxy.shutdown(e);
+        } finally {
+            ROOT_LOGGER.tracef("Executed client request %d", batchId);
+        }
+        return result;
+    }
+
+    /**
+     * Executes a request whose result is written back as it is read, in one entry per resource for a recursive
+     * {@code read-resource}, so that neither side needs to hold the whole tree in memory. Each resource is read with
+     * a separate operation, so unlike a single recursive read the entries are not a consistent snapshot of the model.
+     * Other operations are executed as usual, and their result is part of the final response.
+     * <p>
+     * The entries are sent as separate requests, and only as many as the client granted credits for, so that it
+     * never has to hold back the thread reading from the channel.
+     */
+    class StreamingExecuteRequestHandler implements ManagementRequestHandler<ModelNode, Semaphore> {
+
+        @Override
+        public void handleRequest(final DataInput input, final ActiveOperation.ResultHandler<ModelNode> resultHandler, final ManagementRequestContext<Semaphore> context) throws IOException {
+            final ModelNode operation = new ModelNode();
+            ProtocolUtils.expectHeader(input, ModelControllerProtocol.PARAM_OPERATION);
+            operation.readExternal(input);
+
+            context.executeAsync(new ManagementRequestContext.AsyncTask<Semaphore>() {
+                @Override
+                public void execute(final ManagementRequestContext<Semaphore> context) throws Exception {
+                    final ManagementResponseHeader response = ManagementResponseHeader.create(context.getRequestHeader());
+                    final ModelNode result;
+                    SecurityActions.setSecurityContextSubject(subject);
+                    try {
+                        result = isStreamable(operation) ? stream(operation, context) : doExecute(operation, 0, context);
+                    } finally {
+                        SecurityActions.clearSubjectSecurityContext();
+                    }
 
-            final ManagementRequestHeader header = ManagementRequestHeader.class.cast(context.getRequestHeader());
-            final int batchId = header.getBatchId();
-            final ModelNode result = new ModelNode();
-            final OperationMessageHandlerProxy messageHandlerProxy = new OperationMessageHandlerProxy(channelAssociation, batchId);
-            final OperationAttachmentsProxy attachmentsProxy = OperationAttachmentsProxy.create(channelAssociation, batchId, attachmentsLength);
+                    final FlushableDataOutput output = context.writeMessage(response);
+                    try {
+                        output.write(ModelControllerProtocol.PARAM_RESPONSE);
+                        result.writeExternal(output);
+                        output.writeByte(ManagementProtocol.RESPONSE_END);
+                        output.close();
+                    } finally {
+                        StreamUtils.safeClose(output);
+                    }
+                    resultHandler.done(result);
+                }
+            });
+        }
+
+        private boolean isStreamable(final ModelNode operation) {
+            return ResourceEntries.isSplittable(operation)
+                    && !PathAddress.pathAddress(operation.get(OP_ADDR)).isMultiTarget();
+        }
+
+        private ModelNode stream(final ModelNode operation, final ManagementRequestContext<Semaphore> context) throws IOException {
+            final int recursiveDepth = operation.get(RECURSIVE_DEPTH).asInt(0);
+            final ModelNode template = operation.clone();
+            template.get(RECURSIVE).set(false);
+            template.remove(RECURSIVE_DEPTH);
             try {
-                ROOT_LOGGER.tracef("Executing client request %d(%d)", batchId, header.getRequestId());
-                result.set(controller.execute(
-                        operation,
-                        messageHandlerProxy,
-                        ModelController.OperationTransactionControl.COMMIT,
-                        attachmentsProxy));
-            } catch (Exception e) {
-                final ModelNode failure = new ModelNode();
-                failure.get(OUTCOME).set(FAILED);
-                failure.get(FAILURE_DESCRIPTION).set(e.getClass().getName() + ":" + e.getMessage());
-                result.set(failure);
-                attachmentsProxy.shutdown(e);
+                return streamResource(template, PathAddress.pathAddress(operation.get(OP_ADDR)), recursiveDepth > 0 ? recursiveDepth : -1, context);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                final ModelNode cancelled = new ModelNode();
+                cancelled.get(OUTCOME).set(CANCELLED);
+                return cancelled;
+            }
+        }
+
+        /**
+         * Writes an entry for the resource at the given address, followed by the entries of its children.
+         *
+         * @param depth the number of levels of children still to read, or -1 for all of them
+         * @return the response to the request, without a result, or the first failed response
+         * @throws InterruptedException if the request was cancelled
+         */
+        private ModelNode streamResource(final ModelNode template, final PathAddress address, final int depth,
+                                         final ManagementRequestContext<Semaphore> context) throws IOException, InterruptedException {
+            // Read the resource on its own, so that its runtime attributes are computed just once
+            final ModelNode read = template.clone();
+            read.get(OP_ADDR).set(address.toModelNode());
+            final ModelNode response = doExecute(read, 0, context);
+            if (!SUCCESS.equals(response.get(OUTCOME).asString())) {
+                return response;
+            }
+            final ModelNode resource = response.remove(RESULT);
+            final ModelNode listed = ResourceEntries.listChildren(resource);
+            ModelNode children = new ModelNode().setEmptyObject();
+            if (depth != 0 && !listed.keys().isEmpty()) {
+                final ModelNode recursed = readRecursedChildren(template, address, listed, context);
+                if (!SUCCESS.equals(recursed.get(OUTCOME).asString())) {
+                    return recursed;
+                }
+                children = recursed.get(RESULT);
+                // Like a recursive read, list just the children that are read
+                for (Property type : listed.asPropertyList()) {
+                    for (String name : type.getValue().keys()) {
+                        if (!isListed(children, type.getName(), name)) {
+                            resource.get(type.getName()).remove(name);
+                        }
+                    }
+                    if (resource.get(type.getName()).keys().isEmpty()) {
+                        resource.remove(type.getName());
+                    }
+                }
+            }
+            final ModelNode entry = new ModelNode();
+            entry.get(OP_ADDR).set(address.toModelNode());
+            entry.get(RESULT).set(resource);
+            writeEntry(entry, context);
+
+            for (Property type : children.asPropertyList()) {
+                for (Property child : type.getValue().asPropertyList()) {
+                    final PathAddress childAddress = address.append(PathElement.pathElement(type.getName(), child.getName()));
+                    final ModelNode childResponse = streamResource(template, childAddress, depth > 0 ? depth - 1 : depth, context);
+                    if (!SUCCESS.equals(childResponse.get(OUTCOME).asString())) {
+                        return childResponse;
+                    }
+                }
+            }
+            return response;
+        }
+
+        /**
+         * Determines which of the listed children a recursive read descends into. It leaves out runtime-only resources
+         * unless runtime attributes are included, and proxies and aliases unless they are requested. The children are
+         * read without runtime attributes and defaults for that, which leaves their computation to their own read.
+         *
+         * @param listed the children of the resource, by type
+         * @return a response whose result holds the names of the children to read, by type, or the failed response
+         */
+        private ModelNode readRecursedChildren(final ModelNode template, final PathAddress address, final ModelNode listed,
+                                               final ManagementRequestContext<Semaphore> context) {
+            final ModelNode read = template.clone();
+            read.get(OP_ADDR).set(address.toModelNode());
+            read.get(RECURSIVE_DEPTH).set(1);
+            read.get(INCLUDE_RUNTIME).set(false);
+            read.get(INCLUDE_DEFAULTS).set(false);
+            final ModelNode response = doExecute(read.clone(), 0, context);
+            if (!SUCCESS.equals(response.get(OUTCOME).asString())) {
+                return response;
+            }
+            final ModelNode recursed = ResourceEntries.detachChildren(response.get(RESULT));
+            ModelNode configured = null;
+            if (template.get(INCLUDE_RUNTIME).asBoolean(false)) {
+                // The runtime-only children are missing from the read above; those that are not proxies are read too
+                final ModelNode all = read.clone();
+                all.get(PROXIES).set(true);
+                all.get(INCLUDE_ALIASES).set(true);
+                final ModelNode allResponse = doExecute(all, 0, context);
+                if (!SUCCESS.equals(allResponse.get(OUTCOME).asString())) {
+                    return allResponse;
+                }
+                configured = ResourceEntries.detachChildren(allResponse.get(RESULT));
+            }
+            final ModelNode children = new ModelNode().setEmptyObject();
+            for (Property type : listed.asPropertyList()) {
+                for (String name : type.getValue().keys()) {
+                    if (isListed(recursed, type.getName(), name) || (configured != null && !isListed(configured, type.getName(), name))) {
+                        children.get(type.getName(), name);
+                    }
+                }
+            }
+            response.get(RESULT).set(children);
+            return response;
+        }
+
+        private boolean isListed(final ModelNode children, final String type, final String name) {
+            return children.has(type) && children.get(type).has(name);
+        }
+
+        private void writeEntry(final ModelNode entry, final ManagementRequestContext<Semaphore> context) throws IOException, InterruptedException {
+            // Wait until the client is ready for another entry
+            context.getAttachment().acquire();
+            final ManagementRequestHeader header = new ManagementRequestHeader(ManagementProtocol.VERSION, -1, context.getOperationId(), ModelControllerProtocol.STREAM_ENTRY_REQUEST);
+            final MessageOutputStream os = context.getChannel().writeMessage();
+            try {
+                final FlushableDataOutput output = ProtocolUtils.wrapAsDataOutput(os);
+                header.write(output);
+                output.write(ModelControllerProtocol.PARAM_RESPONSE_ENTRY);
+                entry.writeExternal(output);
+                output.writeByte(ManagementProtocol.REQUEST_END);
+                output.close();
             } finally {
-                ROOT_LOGGER.tracef("Executed client request %d", batchId);
+                StreamUtils.safeClose(os);
             }
-            return result;
         }
+    }
 
+    private static class StreamCreditRequestHandler implements ManagementRequestHandler<ModelNode, Semaphore> {
+
+        @Override
+        public void handleRequest(final DataInput input, final ActiveOperation.ResultHandler<ModelNode> resultHandler, final ManagementRequestContext<Semaphore> context) throws IOException {
+            ProtocolUtils.expectHeader(input, ModelControllerProtocol.PARAM_STREAM_CREDITS);
+            final int count = input.readInt();
+            context.getAttachment().release(count);
+            context.executeAsync(new ManagementRequestContext.AsyncTask<Semaphore>() {
+                @Override
+                public void execute(ManagementRequestContext<Semaphore> context) throws Exception {
+                    final ManagementResponseHeader response = ManagementResponseHeader.create(context.getRequestHeader());
+                    final FlushableDataOutput output = context.writeMessage(response);
+                    try {
+                        output.writeByte(ManagementProtocol.RESPONSE_END);
+                        output.close();
+                    } finally {
+                        StreamUtils.safeClose(output);
+                    }
+                }
+            });
+        }
     }
 
     private static class CancelAsyncRequestHandler implements ManagementRequestHandler<ModelNode, Void> {
@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.jboss.as.controller.operations.common.Util;
+import org.jboss.as.controller.operations.global.GlobalOperationHandlers;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.controller.registry.Resource;
+import org.jboss.dmr.ModelNode;
+import org.jboss.msc.service.ServiceBuilder;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.ServiceTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that operations modifying disjoint subtrees of the model run concurrently, while those modifying the same subtree
+ * are serialized, when operations lock the subtrees below the first address element.
+ */
+public class ConcurrentModelUpdateTestCase {
+
+    private static final String SUBSYSTEM = "subsystem";
+    private static final String INCREMENT = "increment";
+    private static final String VALUE = "value";
+    /** Set to hold the next {@link #INCREMENT} operation while it has the model locked */
+    private static volatile Barrier barrier;
+
+    private ServiceContainer container;
+    private ModelController controller;
+    private ExecutorService executor;
+
+    @Before
+    public void setupController() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        container = ServiceContainer.Factory.create("test");
+        ServiceTarget target = container.subTarget();
+        ConcurrentModelControllerService svc = new ConcurrentModelControllerService();
+        ServiceBuilder<ModelController> builder = target.addService(ServiceName.of("ModelController"), svc);
+        builder.install();
+        svc.awaitStartup(30, TimeUnit.SECONDS);
+        controller = svc.getValue();
+    }
+
+    @After
+    public void shutdownServiceContainer() {
+        barrier = null;
+        executor.shutdownNow();
+        if (container != null) {
+            container.shutdown();
+            try {
+                container.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            finally {
+                container = null;
+            }
+        }
+    }
+
+    @Test
+    public void testDisjointSubtrees() throws Exception {
+        final long contended = getLockStatistics().getContendedCount();
+        final Barrier held = new Barrier();
+        barrier = held;
+        final Future<ModelNode> first = executeAsync(increment("a"));
+        assertTrue(held.entered.await(10, TimeUnit.SECONDS));
+
+        // Runs while the first operation holds its lock, and publishes its change first
+        assertEquals(SUCCESS, controller.execute(increment("b"), null, null, null).get(OUTCOME).asString());
+
+        held.release.countDown();
+        assertEquals(SUCCESS, first.get(10, TimeUnit.SECONDS).get(OUTCOME).asString());
+
+        // Neither change is lost, although the first operation copied the model before the second one published
+        final ModelNode model = readModel();
+        assertEquals(1, model.get(SUBSYSTEM, "a", VALUE).asInt());
+        assertEquals(1, model.get(SUBSYSTEM, "b", VALUE).asInt());
+        assertEquals(contended, getLockStatistics().getContendedCount());
+    }
+
+    @Test
+    public void testSameSubtree() throws Exception {
+        final long contended = getLockStatistics().getContendedCount();
+        final Barrier held = new Barrier();
+        barrier = held;
+        final Future<ModelNode> first = executeAsync(increment("a"));
+        assertTrue(held.entered.await(10, TimeUnit.SECONDS));
+
+        final Future<ModelNode> second = executeAsync(increment("a"));
+        try {
+            second.get(200, TimeUnit.MILLISECONDS);
+            fail("Second operation on the same subtree should wait for the first");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertFalse(second.isDone());
+
+        held.release.countDown();
+        assertEquals(SUCCESS, first.get(10, TimeUnit.SECONDS).get(OUTCOME).asString());
+        assertEquals(SUCCESS, second.get(10, TimeUnit.SECONDS).get(OUTCOME).asString());
+
+        // The second operation saw the first one's change
+        assertEquals(2, readModel().get(SUBSYSTEM, "a", VALUE).asInt());
+        assertEquals(contended + 1, getLockStatistics().getContendedCount());
+    }
+
+    private Future<ModelNode> executeAsync(final ModelNode operation) {
+        return executor.submit(new Callable<ModelNode>() {
+            @Override
+            public ModelNode call() throws Exception {
+                return controller.execute(operation, null, null, null);
+            }
+        });
+    }
+
+    private ModelNode readModel() {
+        final ModelNode op = Util.getEmptyOperation(READ_RESOURCE_OPERATION, new ModelNode());
+        op.get(RECURSIVE).set(true);
+        final ModelNode result = controller.execute(op, null, null, null);
+        assertEquals(SUCCESS, result.get(OUTCOME).asString());
+        return result.get(RESULT);
+    }
+
+    private static ModelNode increment(final String name) {
+        return Util.getEmptyOperation(INCREMENT, new ModelNode().add(SUBSYSTEM, name));
+    }
+
+    private static ManagementLockStatisticsMXBean getLockStatistics() throws Exception {
+        return JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), new ObjectName(ManagementLockStatisticsMXBean.OBJECT_NAME),
+                ManagementLockStatisticsMXBean.class);
+    }
+
+    private static class Barrier {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+    }
+
+    private static class ConcurrentModelControllerService extends TestModelControllerService {
+
+        @Override
+        protected int getManagementLockDepth() {
+            return 1;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        protected void initModel(Resource rootResource, ManagementResourceRegistration rootRegistration) {
+            GlobalOperationHandlers.registerGlobalOperations(rootRegistration, processType);
+            ManagementResourceRegistration subsystem = rootRegistration.registerSubModel(PathElement.pathElement(SUBSYSTEM), DESC_PROVIDER);
+            subsystem.registerOperationHandler(INCREMENT, new IncrementHandler(), DESC_PROVIDER);
+            for (String name : new String[] { "a", "b" }) {
+                Resource resource = Resource.Factory.create();
+                resource.getModel().get(VALUE).set(0);
+                rootResource.registerChild(PathElement.pathElement(SUBSYSTEM, name), resource);
+            }
+        }
+    }
+
+    private static class IncrementHandler implements OperationStepHandler {
+
+        @Override
+        public void execute(OperationContext context, ModelNode operation) throws OperationFailedException {
+            // Locks the resource's subtree, and rebases the operation's copy of the model
+            final ModelNode model = context.readResourceForUpdate(PathAddress.EMPTY_ADDRESS).getModel();
+            model.get(VALUE).set(model.get(VALUE).asInt() + 1);
+            final Barrier held = barrier;
+            if (held != null) {
+                barrier = null;
+                held.entered.countDown();
+                try {
+                    held.release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperationFailedException(new ModelNode("Interrupted"));
+                }
+            }
+            context.stepCompleted();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ContainerStateMonitor}.
+ */
+public class ContainerStateMonitorUnitTestCase {
+
+    private ServiceContainer container;
+    private ContainerStateMonitor monitor;
+
+    @Before
+    public void setup() {
+        container = ServiceContainer.Factory.create("test");
+        monitor = new ContainerStateMonitor(container, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        container.shutdown();
+        container.awaitTermination();
+    }
+
+    @Test
+    public void testReleaseKeepsHistoryOfConcurrentOperation() throws Exception {
+        // two operations on disjoint subtrees
+        monitor.acquire();
+        monitor.acquire();
+        container.addService(ServiceName.of("failing"), new FailingService()).addListener(monitor).install();
+        monitor.await();
+
+        // the first operation to finish must not reset what the other one has yet to verify
+        monitor.release();
+        ContainerStateMonitor.ContainerStateChangeReport report = monitor.awaitContainerStateChangeReport();
+        assertNotNull(report);
+        assertEquals(1, report.getFailedControllers().size());
+        monitor.release();
+    }
+
+    @Test
+    public void testReleaseKeepsMissingDependenciesOfConcurrentOperation() throws Exception {
+        monitor.acquire();
+        monitor.acquire();
+        container.addService(ServiceName.of("dependent"), Service.NULL).addDependency(ServiceName.of("missing"))
+                .addListener(monitor).install();
+        monitor.await();
+
+        monitor.release();
+        ContainerStateMonitor.ContainerStateChangeReport report = monitor.awaitContainerStateChangeReport();
+        assertNotNull(report);
+        assertTrue(report.getMissingServices().containsKey(ServiceName.of("missing")));
+        monitor.release();
+    }
+
+    private static class FailingService implements Service<Void> {
+        @Override
+        public void start(StartContext context) throws StartException {
+            throw new StartException("expected");
+        }
+
+        @Override
+        public void stop(StopContext context) {
+        }
+
+        @Override
+        public Void getValue() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.WRITE_ATTRIBUTE_OPERATION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.descriptions.NonResolvingResourceDescriptionResolver;
+import org.jboss.as.controller.operations.common.Util;
+import org.jboss.as.controller.operations.global.GlobalOperationHandlers;
+import org.jboss.as.controller.persistence.AbstractConfigurationPersister;
+import org.jboss.as.controller.persistence.JournalingConfigurationPersister;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.controller.registry.Resource;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.msc.service.ServiceBuilder;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.ServiceTarget;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that the operations of a {@link JournalingConfigurationPersister} are replayed after the boot operations, in
+ * the order they were committed in, and that a failed replay leaves the configuration as booted.
+ */
+public class JournalReplayTestCase {
+
+    private static final String PATH = "path";
+    private static final String SUBSYSTEM = "subsystem";
+    private static final String RELATIVE_TO = "relative-to";
+    private static final String VALUE = "value";
+    private static final SimpleAttributeDefinition VALUE_ATTRIBUTE = new SimpleAttributeDefinition(VALUE, ModelType.INT, true);
+    private static final SimpleAttributeDefinition RELATIVE_TO_ATTRIBUTE = new SimpleAttributeDefinition(RELATIVE_TO, ModelType.STRING, false);
+
+    private ServiceContainer container;
+
+    @After
+    public void shutdownServiceContainer() {
+        if (container != null) {
+            container.shutdown();
+            try {
+                container.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            finally {
+                container = null;
+            }
+        }
+    }
+
+    @Test
+    public void testReplayInCommitOrder() throws Exception {
+        TestJournalingPersister persister = new TestJournalingPersister(
+                add(PATH, "p", null),
+                add(SUBSYSTEM, "s", "p"),
+                writeValue(SUBSYSTEM, "s", 1),
+                writeValue(SUBSYSTEM, "s", 2),
+                // Refers to a path added by the boot operations
+                add(SUBSYSTEM, "t", "a"));
+        ModelNode model = boot(persister);
+
+        assertTrue(model.get(PATH).hasDefined("a"));
+        assertTrue(model.get(PATH).hasDefined("p"));
+        assertEquals("p", model.get(SUBSYSTEM, "s", RELATIVE_TO).asString());
+        assertEquals(2, model.get(SUBSYSTEM, "s", VALUE).asInt());
+        assertEquals("a", model.get(SUBSYSTEM, "t", RELATIVE_TO).asString());
+        assertFalse(persister.replayFailed);
+    }
+
+    @Test
+    public void testFailedReplayIsRolledBack() throws Exception {
+        TestJournalingPersister persister = new TestJournalingPersister(
+                add(PATH, "p", null),
+                // The subsystem needs the path to be added first
+                add(SUBSYSTEM, "s", "q"),
+                add(PATH, "q", null));
+        ModelNode model = boot(persister);
+
+        // Booted with the configuration as loaded
+        assertTrue(model.get(PATH).hasDefined("a"));
+        assertFalse(model.get(PATH).hasDefined("p"));
+        assertFalse(model.get(PATH).hasDefined("q"));
+        assertFalse(model.hasDefined(SUBSYSTEM));
+        assertTrue(persister.replayFailed);
+    }
+
+    @Test
+    public void testUnknownOperationFailsReplay() throws Exception {
+        TestJournalingPersister persister = new TestJournalingPersister(
+                add(PATH, "p", null),
+                Util.getEmptyOperation("unknown", new ModelNode().setEmptyList()));
+        ModelNode model = boot(persister);
+
+        assertFalse(model.get(PATH).hasDefined("p"));
+        assertTrue(persister.replayFailed);
+    }
+
+    private ModelNode boot(TestJournalingPersister persister) throws Exception {
+        container = ServiceContainer.Factory.create("test");
+        ServiceTarget target = container.subTarget();
+        TestModelControllerService svc = new JournalReplayModelControllerService(persister);
+        ServiceBuilder<ModelController> builder = target.addService(ServiceName.of("ModelController"), svc);
+        builder.install();
+        svc.awaitStartup(30, TimeUnit.SECONDS);
+        ModelController controller = svc.getValue();
+
+        final ModelNode op = Util.getEmptyOperation(READ_RESOURCE_OPERATION, new ModelNode());
+        op.get(RECURSIVE).set(true);
+        ModelNode result = controller.execute(op, null, null, null);
+        assertEquals(SUCCESS, result.get(OUTCOME).asString());
+        return result.get(RESULT);
+    }
+
+    private static ModelNode add(String type, String name, String relativeTo) {
+        ModelNode op = Util.getEmptyOperation(ADD, new ModelNode().add(type, name));
+        if (relativeTo != null) {
+            op.get(RELATIVE_TO).set(relativeTo);
+        }
+        return op;
+    }
+
+    private static ModelNode writeValue(String type, String name, int value) {
+        ModelNode op = Util.getEmptyOperation(WRITE_ATTRIBUTE_OPERATION, new ModelNode().add(type, name));
+        op.get("name").set(VALUE);
+        op.get("value").set(value);
+        return op;
+    }
+
+    private static class JournalReplayModelControllerService extends TestModelControllerService {
+
+        JournalReplayModelControllerService(TestJournalingPersister persister) {
+            super(persister, new ControlledProcessState(true));
+        }
+
+        @Override
+        protected void initModel(Resource rootResource, ManagementResourceRegistration rootRegistration) {
+            GlobalOperationHandlers.registerGlobalOperations(rootRegistration, processType);
+            ManagementResourceRegistration path = rootRegistration.registerSubModel(new SimpleResourceDefinition(PathElement.pathElement(PATH),
+                    new NonResolvingResourceDescriptionResolver(), new PathAddHandler(), ReloadRequiredRemoveStepHandler.INSTANCE));
+            path.registerReadWriteAttribute(VALUE_ATTRIBUTE, null, new ModelOnlyWriteAttributeHandler(VALUE_ATTRIBUTE));
+            ManagementResourceRegistration subsystem = rootRegistration.registerSubModel(new SimpleResourceDefinition(PathElement.pathElement(SUBSYSTEM),
+                    new NonResolvingResourceDescriptionResolver(), new SubsystemAddHandler(), ReloadRequiredRemoveStepHandler.INSTANCE));
+            subsystem.registerReadOnlyAttribute(RELATIVE_TO_ATTRIBUTE, null);
+            subsystem.registerReadWriteAttribute(VALUE_ATTRIBUTE, null, new ModelOnlyWriteAttributeHandler(VALUE_ATTRIBUTE));
+        }
+    }
+
+    private static class PathAddHandler extends AbstractAddStepHandler {
+
+        @Override
+        protected void populateModel(ModelNode operation, ModelNode model) throws OperationFailedException {
+            model.get(VALUE).set(0);
+        }
+    }
+
+    private static class SubsystemAddHandler extends AbstractAddStepHandler {
+
+        @Override
+        protected void populateModel(OperationContext context, ModelNode operation, Resource resource) throws OperationFailedException {
+            String relativeTo = operation.require(RELATIVE_TO).asString();
+            if (!context.readResourceFromRoot(PathAddress.EMPTY_ADDRESS, false).hasChild(PathElement.pathElement(PATH, relativeTo))) {
+                throw new OperationFailedException(new ModelNode("No path named " + relativeTo));
+            }
+            populateModel(operation, resource.getModel());
+        }
+
+        @Override
+        protected void populateModel(ModelNode operation, ModelNode model) throws OperationFailedException {
+            model.get(RELATIVE_TO).set(operation.get(RELATIVE_TO));
+            model.get(VALUE).set(0);
+        }
+    }
+
+    private static class TestJournalingPersister extends AbstractConfigurationPersister implements JournalingConfigurationPersister {
+
+        private final List<ModelNode> journaled;
+        private volatile boolean replayFailed;
+
+        TestJournalingPersister(ModelNode... journaled) {
+            super(null);
+            this.journaled = new ArrayList<ModelNode>();
+            Collections.addAll(this.journaled, journaled);
+        }
+
+        @Override
+        public List<ModelNode> load() {
+            final List<ModelNode> bootOps = new ArrayList<ModelNode>();
+            bootOps.add(add(PATH, "a", null));
+            return bootOps;
+        }
+
+        @Override
+        public List<ModelNode> getJournaledOperations() {
+            return journaled;
+        }
+
+        @Override
+        public void journalReplayFailed() {
+            replayFailed = true;
+        }
+
+        @Override
+        public PersistenceResource store(ModelNode model, Set<PathAddress> affectedAddresses) {
+            return store(model, affectedAddresses, null);
+        }
+
+        @Override
+        public PersistenceResource store(ModelNode model, Set<PathAddress> affectedAddresses, ModelNode operation) {
+            return new PersistenceResource() {
+                @Override
+                public void commit() {
+                }
+
+                @Override
+                public void rollback() {
+                }
+            };
+        }
+    }
+}
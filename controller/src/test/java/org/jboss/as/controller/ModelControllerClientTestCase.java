@@ -22,6 +22,8 @@
 package org.jboss.as.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -39,12 +41,18 @@ import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.OperationAttachments;
 import org.jboss.as.controller.client.OperationBuilder;
 import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.StreamedResponse;
+import org.jboss.as.controller.client.StreamingModelControllerClient;
 import org.jboss.as.controller.client.impl.ExistingChannelModelControllerClient;
+import org.jboss.as.controller.client.impl.ModelControllerProtocol;
 import org.jboss.as.controller.remote.ModelControllerClientOperationHandler;
 import org.jboss.as.controller.support.RemoteChannelPairSetup;
 import org.jboss.as.protocol.mgmt.ManagementChannelHandler;
+import org.jboss.as.protocol.mgmt.ManagementRequestHandler;
+import org.jboss.as.protocol.mgmt.ManagementRequestHeader;
 import org.jboss.as.protocol.mgmt.support.ManagementChannelInitialization;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
 import org.jboss.logging.Logger;
 import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.HandleableCloseable;
@@ -77,12 +85,32 @@ public class ModelControllerClientTestCase {
     }
 
     private ModelControllerClient setupTestClient(final ModelController controller) throws IOException {
+        return setupTestClient(controller, null);
+    }
+
+    /**
+     * @param streamingRequests if not {@code null}, counts the streaming requests, which the server then does not support
+     */
+    private ModelControllerClient setupTestClient(final ModelController controller, final AtomicInteger streamingRequests) throws IOException {
         try {
             channels.setupRemoting(new ManagementChannelInitialization() {
                 @Override
                 public HandleableCloseable.Key startReceiving(Channel channel) {
                     final ManagementChannelHandler support = new ManagementChannelHandler(channel, channels.getExecutorService());
-                    support.addHandlerFactory(new ModelControllerClientOperationHandler(controller, support));
+                    if (streamingRequests == null) {
+                        support.addHandlerFactory(new ModelControllerClientOperationHandler(controller, support));
+                    } else {
+                        support.addHandlerFactory(new ModelControllerClientOperationHandler(controller, support) {
+                            @Override
+                            public ManagementRequestHandler<?, ?> resolveHandler(RequestHandlerChain handlers, ManagementRequestHeader header) {
+                                if (header.getOperationId() == ModelControllerProtocol.EXECUTE_STREAMING_CLIENT_REQUEST) {
+                                    streamingRequests.incrementAndGet();
+                                    return handlers.resolveNext();
+                                }
+                                return super.resolveHandler(handlers, header);
+                            }
+                        });
+                    }
                     channel.receiveMessage(support.getReceiver());
                     return null;
                 }
@@ -304,6 +332,228 @@ public class ModelControllerClientTestCase {
 
     }
 
+    @Test
+    public void testStreamingReadResource() throws Exception {
+        final ReadResourceController controller = new ReadResourceController(createStreamedModel());
+        final StreamingModelControllerClient client = (StreamingModelControllerClient) setupTestClient(controller);
+        try {
+            ModelNode operation = new ModelNode();
+            operation.get("operation").set("read-resource");
+            operation.get("address").setEmptyList();
+            operation.get("recursive").set(true);
+
+            StreamedResponse response = client.executeStreaming(operation, null);
+            try {
+                assertTrue(response.hasNext());
+                ModelNode entry = response.next();
+                assertEquals(0, entry.get("address").asList().size());
+                assertEquals("root", entry.get("result", "name").asString());
+                assertEquals(2, entry.get("result", "child").keys().size());
+                assertFalse(entry.get("result", "child").hasDefined("a"));
+                // Left out, as by a recursive read without runtime attributes
+                assertFalse(entry.get("result").has("runtime"));
+
+                entry = response.next();
+                assertEquals("child", entry.get("address").asPropertyList().get(0).getName());
+                assertEquals("a", entry.get("address").asPropertyList().get(0).getValue().asString());
+                assertEquals(1, entry.get("result", "value").asInt());
+                assertTrue(entry.get("result", "grandchild").has("x"));
+
+                entry = response.next();
+                assertEquals(2, entry.get("address").asList().size());
+                assertEquals(2, entry.get("result", "value").asInt());
+
+                entry = response.next();
+                assertEquals("b", entry.get("address").asPropertyList().get(0).getValue().asString());
+                assertEquals(3, entry.get("result", "value").asInt());
+
+                assertFalse(response.hasNext());
+                ModelNode result = response.getResponse();
+                assertEquals("success", result.get("outcome").asString());
+                assertFalse(result.hasDefined("result"));
+                // One read per resource, and one more for each resource with children to find those to read
+                assertEquals(6, controller.reads.get());
+                assertEquals(0, controller.recursiveReads.get());
+            } finally {
+                response.close();
+            }
+
+            // Other operations are not streamed
+            operation = new ModelNode();
+            operation.get("operation").set("read-attribute");
+            operation.get("address").setEmptyList();
+            operation.get("name").set("name");
+            response = client.executeStreaming(operation, null);
+            try {
+                assertFalse(response.hasNext());
+                assertEquals("root", response.getResponse().get("result").asString());
+            } finally {
+                response.close();
+            }
+        } finally {
+            IoUtils.safeClose(client);
+        }
+    }
+
+    @Test
+    public void testStreamingReadResourceWithRuntime() throws Exception {
+        final ReadResourceController controller = new ReadResourceController(createStreamedModel());
+        final StreamingModelControllerClient client = (StreamingModelControllerClient) setupTestClient(controller);
+        try {
+            ModelNode operation = new ModelNode();
+            operation.get("operation").set("read-resource");
+            operation.get("address").setEmptyList();
+            operation.get("recursive").set(true);
+            operation.get("include-runtime").set(true);
+
+            StreamedResponse response = client.executeStreaming(operation, null);
+            try {
+                ModelNode entry = response.next();
+                assertEquals(0, entry.get("address").asList().size());
+                assertTrue(entry.get("result", "runtime").has("r"));
+                assertEquals("a", response.next().get("address").asPropertyList().get(0).getValue().asString());
+                assertEquals(2, response.next().get("address").asList().size());
+                assertEquals("b", response.next().get("address").asPropertyList().get(0).getValue().asString());
+
+                entry = response.next();
+                assertEquals("runtime", entry.get("address").asPropertyList().get(0).getName());
+                assertEquals(4, entry.get("result", "value").asInt());
+
+                assertFalse(response.hasNext());
+                assertEquals("success", response.getResponse().get("outcome").asString());
+                // The runtime attributes of each resource are read just once
+                assertEquals(5, controller.runtimeReads.get());
+            } finally {
+                response.close();
+            }
+        } finally {
+            IoUtils.safeClose(client);
+        }
+    }
+
+    @Test
+    public void testStreamingReadResourceFlowControl() throws Exception {
+        final int window = ModelControllerProtocol.STREAM_WINDOW;
+        final ModelNode model = new ModelNode();
+        model.get("name").set("root");
+        for (int i = 0; i < window * 3; i++) {
+            model.get("child", "c" + i, "value").set(i);
+        }
+        final ReadResourceController controller = new ReadResourceController(model);
+        final StreamingModelControllerClient client = (StreamingModelControllerClient) setupTestClient(controller);
+        try {
+            ModelNode operation = new ModelNode();
+            operation.get("operation").set("read-resource");
+            operation.get("address").setEmptyList();
+            operation.get("recursive").set(true);
+
+            StreamedResponse response = client.executeStreaming(operation, null);
+            try {
+                assertEquals(0, response.next().get("address").asList().size());
+                // Without more credits the server stops before writing more entries than the window
+                Thread.sleep(500);
+                assertTrue(controller.reads.get() <= window + 2);
+
+                int entries = 1;
+                while (response.hasNext()) {
+                    assertEquals(entries - 1, response.next().get("result", "value").asInt());
+                    entries++;
+                }
+                assertEquals(window * 3 + 1, entries);
+                assertEquals("success", response.getResponse().get("outcome").asString());
+            } finally {
+                response.close();
+            }
+        } finally {
+            IoUtils.safeClose(client);
+        }
+    }
+
+    @Test
+    public void testStreamingReadResourceWithoutServerSupport() throws Exception {
+        final ReadResourceController controller = new ReadResourceController(createStreamedModel());
+        final AtomicInteger streamingRequests = new AtomicInteger();
+        final StreamingModelControllerClient client = (StreamingModelControllerClient) setupTestClient(controller, streamingRequests);
+        try {
+            ModelNode operation = new ModelNode();
+            operation.get("operation").set("read-resource");
+            operation.get("address").setEmptyList();
+            operation.get("recursive").set(true);
+
+            for (int i = 0; i < 2; i++) {
+                StreamedResponse response = client.executeStreaming(operation, null);
+                try {
+                    ModelNode entry = response.next();
+                    assertEquals(0, entry.get("address").asList().size());
+                    assertEquals("root", entry.get("result", "name").asString());
+                    assertEquals(2, entry.get("result", "child").keys().size());
+                    assertFalse(entry.get("result", "child").hasDefined("a"));
+
+                    entry = response.next();
+                    assertEquals("a", entry.get("address").asPropertyList().get(0).getValue().asString());
+                    assertEquals(1, entry.get("result", "value").asInt());
+                    assertTrue(entry.get("result", "grandchild").has("x"));
+                    assertFalse(entry.get("result", "grandchild").hasDefined("x"));
+
+                    entry = response.next();
+                    assertEquals(2, entry.get("address").asList().size());
+                    assertEquals(2, entry.get("result", "value").asInt());
+
+                    entry = response.next();
+                    assertEquals("b", entry.get("address").asPropertyList().get(0).getValue().asString());
+
+                    assertFalse(response.hasNext());
+                    ModelNode result = response.getResponse();
+                    assertEquals("success", result.get("outcome").asString());
+                    assertFalse(result.hasDefined("result"));
+                } finally {
+                    response.close();
+                }
+            }
+            // Read as usual, and only tried to stream once
+            assertEquals(2, controller.recursiveReads.get());
+            assertEquals(1, streamingRequests.get());
+        } finally {
+            IoUtils.safeClose(client);
+        }
+    }
+
+    private static ModelNode createStreamedModel() {
+        final ModelNode model = new ModelNode();
+        model.get("name").set("root");
+        model.get("child", "a", "value").set(1);
+        model.get("child", "a", "grandchild", "x", "value").set(2);
+        model.get("child", "b", "value").set(3);
+        model.get("runtime", "r", "value").set(4);
+        return model;
+    }
+
+    private static boolean isChildType(String key) {
+        return "child".equals(key) || "grandchild".equals(key) || "runtime".equals(key);
+    }
+
+    private static ModelNode read(ModelNode resource, int depth, boolean runtime) {
+        ModelNode result = new ModelNode();
+        for (String key : resource.keys()) {
+            if (isChildType(key)) {
+                if (depth > 0 && "runtime".equals(key) && !runtime) {
+                    // A recursive read skips runtime-only resources, unless it includes runtime attributes
+                    continue;
+                }
+                for (String name : resource.get(key).keys()) {
+                    if (depth > 0) {
+                        result.get(key, name).set(read(resource.get(key, name), depth - 1, runtime));
+                    } else {
+                        result.get(key, name);
+                    }
+                }
+            } else {
+                result.get(key).set(resource.get(key));
+            }
+        }
+        return result;
+    }
+
     private void assertArrays(byte[] expected, byte[] actual) {
         assertEquals(expected.length, actual.length);
         for (int i = 0 ; i < expected.length ; i++) {
@@ -311,6 +561,43 @@ public class ModelControllerClientTestCase {
         }
     }
 
+    private static class ReadResourceController extends MockModelController {
+        private final ModelNode model;
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger recursiveReads = new AtomicInteger();
+        final AtomicInteger runtimeReads = new AtomicInteger();
+
+        ReadResourceController(ModelNode model) {
+            this.model = model;
+        }
+
+        @Override
+        public ModelNode execute(ModelNode operation, OperationMessageHandler handler, OperationTransactionControl control, OperationAttachments attachments) {
+            ModelNode resource = model;
+            for (Property element : operation.get("address").asPropertyList()) {
+                resource = resource.get(element.getName(), element.getValue().asString());
+            }
+            ModelNode response = new ModelNode();
+            response.get("outcome").set("success");
+            if ("read-resource".equals(operation.get("operation").asString())) {
+                reads.incrementAndGet();
+                int depth = operation.get("recursive-depth").asInt(0);
+                if (operation.get("recursive").asBoolean(false)) {
+                    recursiveReads.incrementAndGet();
+                    depth = Integer.MAX_VALUE;
+                }
+                boolean runtime = operation.get("include-runtime").asBoolean(false);
+                if (runtime) {
+                    runtimeReads.incrementAndGet();
+                }
+                response.get("result").set(read(resource, depth, runtime));
+            } else {
+                response.get("result").set(resource.get(operation.get("name").asString()));
+            }
+            return response;
+        }
+    }
+
     private static abstract class MockModelController implements ModelController {
         protected volatile ModelNode operation;
 
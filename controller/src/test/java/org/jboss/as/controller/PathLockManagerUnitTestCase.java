@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link PathLockManager}.
+ */
+public class PathLockManagerUnitTestCase {
+
+    private static final PathAddress A = PathAddress.pathAddress(PathElement.pathElement("subsystem", "a"));
+    private static final PathAddress A_X = A.append(PathElement.pathElement("child", "x"));
+    private static final PathAddress B = PathAddress.pathAddress(PathElement.pathElement("subsystem", "b"));
+
+    private final PathLockManager manager = new PathLockManager();
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDisjointSubtrees() throws Exception {
+        final Object first = new Object();
+        final Object second = new Object();
+        assertEquals(0, manager.lock(first, A, true));
+        assertEquals(0, manager.lock(second, B, true));
+        assertEquals(2, manager.getAcquisitionCount());
+        assertEquals(0, manager.getContendedCount());
+    }
+
+    @Test
+    public void testLockedAncestor() throws Exception {
+        final Object owner = new Object();
+        manager.lock(owner, PathAddress.EMPTY_ADDRESS, true);
+        manager.lock(owner, A_X, true);
+        assertEquals(1, manager.getAcquisitionCount());
+    }
+
+    @Test
+    public void testRootWaitsForSubtree() throws Exception {
+        final Object first = new Object();
+        manager.lock(first, A_X, true);
+        final Future<Long> root = lockAsync(new Object(), PathAddress.EMPTY_ADDRESS);
+        assertBlocked(root);
+        manager.unlockAll(first);
+        assertTrue(root.get(10, TimeUnit.SECONDS) > 0);
+        assertEquals(1, manager.getContendedCount());
+    }
+
+    @Test
+    public void testSubtreeWaitsForAncestor() throws Exception {
+        final Object first = new Object();
+        manager.lock(first, A, true);
+        final Future<Long> descendant = lockAsync(new Object(), A_X);
+        final Future<Long> sibling = lockAsync(new Object(), B);
+        sibling.get(10, TimeUnit.SECONDS);
+        assertBlocked(descendant);
+        manager.unlockAll(first);
+        descendant.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDeadlock() throws Exception {
+        final Object first = new Object();
+        final Object second = new Object();
+        manager.lock(first, A, true);
+        manager.lock(second, B, true);
+        final Future<Long> waiting = lockAsync(second, A);
+        assertBlocked(waiting);
+        try {
+            manager.lock(first, B, true);
+            fail("Deadlock not detected");
+        } catch (OperationFailedRuntimeException e) {
+            // expected
+        }
+        assertEquals(1, manager.getDeadlockCount());
+        assertFalse(waiting.isDone());
+        manager.unlockAll(first);
+        waiting.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRootIsNotStarved() throws Exception {
+        final Object first = new Object();
+        manager.lock(first, A, true);
+        final Object rootOwner = new Object();
+        final Future<Long> root = lockAsync(rootOwner, PathAddress.EMPTY_ADDRESS);
+        assertBlocked(root);
+
+        // A newcomer queues up behind the waiting root lock, even though its subtree is free
+        final Object newcomer = new Object();
+        final Future<Long> sibling = lockAsync(newcomer, B);
+        assertBlocked(sibling);
+
+        // An owner already holding locks below the root is not held up, the root waits for it anyway
+        manager.lock(first, A_X, true);
+        manager.lock(first, PathAddress.pathAddress(PathElement.pathElement("subsystem", "c")), true);
+
+        manager.unlockAll(first);
+        root.get(10, TimeUnit.SECONDS);
+        assertBlocked(sibling);
+        manager.unlockAll(rootOwner);
+        sibling.get(10, TimeUnit.SECONDS);
+        assertEquals(0, manager.getDeadlockCount());
+    }
+
+    @Test
+    public void testQueueClearedWhenWaiterGivesUp() throws Exception {
+        final Object first = new Object();
+        final Object second = new Object();
+        manager.lock(first, A, true);
+        manager.lock(second, B, true);
+        // The root lock waits for both, and is refused once the first owner waits for the second
+        final Future<Long> waiting = lockAsync(second, A);
+        assertBlocked(waiting);
+        try {
+            manager.lock(first, PathAddress.EMPTY_ADDRESS, true);
+            fail("Deadlock not detected");
+        } catch (OperationFailedRuntimeException e) {
+            // expected
+        }
+        manager.unlockAll(first);
+        waiting.get(10, TimeUnit.SECONDS);
+        manager.unlockAll(second);
+
+        // Nobody is left waiting for the root, so a newcomer is not held up
+        assertEquals(0, manager.lock(new Object(), B, true));
+    }
+
+    private Future<Long> lockAsync(final Object owner, final PathAddress address) {
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return manager.lock(owner, address, true);
+            }
+        });
+    }
+
+    private static void assertBlocked(final Future<Long> future) throws Exception {
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("Lock should not have been granted");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+}
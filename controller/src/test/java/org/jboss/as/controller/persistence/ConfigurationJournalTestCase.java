@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xnio.IoUtils;
+
+/**
+ * Tests of {@link ConfigurationJournal}.
+ */
+public class ConfigurationJournalTestCase {
+
+    private static final long NEVER = 60 * 60 * 1000;
+
+    private File configsDir;
+    private File standardFile;
+    private ConfigurationFile configurationFile;
+    private TestConfigurationPersister persister;
+
+    @Before
+    public void createFiles() throws Exception {
+        File tgt = new File("target");
+        if (!tgt.exists()) {
+            Assert.fail("target/ does not exist");
+        }
+        configsDir = new File(tgt, "journal-test-configs");
+        configsDir.mkdir();
+        standardFile = new File(configsDir, "standard.xml");
+        write(standardFile, "std");
+        configurationFile = boot();
+        persister = new TestConfigurationPersister() {
+            @Override
+            PersistenceResource create(ModelNode model) throws ConfigurationPersistenceException {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @After
+    public void deleteFiles() throws Exception {
+        delete(configsDir);
+    }
+
+    @Test
+    public void testCoalescedWrites() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+        journal.committed(persister, new ModelNode("Two"), operation(2));
+        assertFileContents(standardFile, "std");
+        Assert.assertEquals(1, countSegments());
+
+        journal.flush();
+        assertFileContents(standardFile, "Two");
+        assertFileContents(new File(configsDir, "standard_xml_history/current/standard.v1.xml"), "std");
+        // Only the new, empty segment is left
+        Assert.assertEquals(1, countSegments());
+        Assert.assertTrue(new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover().isEmpty());
+    }
+
+    @Test
+    public void testWriteAfterOperationCount() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 2);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+        journal.committed(persister, new ModelNode("Two"), operation(2));
+        long end = System.currentTimeMillis() + 10000;
+        while (!"Two".equals(read(standardFile)) && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertFileContents(standardFile, "Two");
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+        journal.committed(persister, new ModelNode("Two"), operation(2));
+
+        // An entry whose commit never returned
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(configsDir, "standard.xml.journal.0"), true));
+        try {
+            out.writeInt(100);
+            out.write(new byte[3]);
+        } finally {
+            IoUtils.safeClose(out);
+        }
+
+        // "Crash"
+        List<ModelNode> operations = new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover();
+        Assert.assertEquals(2, operations.size());
+        Assert.assertEquals(operation(1), operations.get(0));
+        Assert.assertEquals(operation(2), operations.get(1));
+        assertFileContents(standardFile, "std");
+    }
+
+    @Test
+    public void testOperationHeadersNotJournaled() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        ModelNode op = operation(1);
+        op.get("operation-headers", "rollback-on-runtime-failure").set(false);
+        journal.committed(persister, new ModelNode("One"), op);
+
+        List<ModelNode> operations = new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover();
+        Assert.assertEquals(1, operations.size());
+        Assert.assertEquals(operation(1), operations.get(0));
+    }
+
+    @Test
+    public void testInterruptedWrite() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+
+        // "Crash" after the new file was complete, but before the journal was cleared and the file moved into place
+        write(new File(configsDir, "standard.xml.journal-snapshot.0"), "One");
+        write(new File(configsDir, "standard.xml.journal.1"), null);
+
+        List<ModelNode> operations = new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover();
+        Assert.assertTrue(operations.isEmpty());
+        assertFileContents(standardFile, "One");
+        // The replaced file is backed up like for any other write
+        assertFileContents(new File(configsDir, "standard_xml_history/current/standard.v1.xml"), "std");
+        Assert.assertFalse(new File(configsDir, "standard.xml.journal-snapshot.0").exists());
+        Assert.assertFalse(new File(configsDir, "standard.xml.journal.0").exists());
+    }
+
+    @Test
+    public void testInterruptedWriteKeepsSegmentsNotCovered() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+        // Segments after a failed append
+        appendTo(new File(configsDir, "standard.xml.journal.1"), operation(2));
+        appendTo(new File(configsDir, "standard.xml.journal.2"), operation(3));
+
+        // "Crash" while writing the file with the first segment's change only
+        write(new File(configsDir, "standard.xml.journal-snapshot.0"), "One");
+
+        List<ModelNode> operations = new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover();
+        Assert.assertEquals(2, operations.size());
+        Assert.assertEquals(operation(2), operations.get(0));
+        Assert.assertEquals(operation(3), operations.get(1));
+        assertFileContents(standardFile, "One");
+        Assert.assertFalse(new File(configsDir, "standard.xml.journal.0").exists());
+    }
+
+    @Test
+    public void testSetAside() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+
+        journal = new ConfigurationJournal(boot(), standardFile, NEVER, 100);
+        Assert.assertEquals(1, journal.recover().size());
+        journal.setAside();
+
+        Assert.assertTrue(new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover().isEmpty());
+        Assert.assertTrue(new File(configsDir, "standard.xml.journal-failed.0").exists());
+        assertFileContents(standardFile, "std");
+    }
+
+    @Test
+    public void testImmediateWriteClearsJournal() throws Exception {
+        ConfigurationJournal journal = new ConfigurationJournal(configurationFile, configurationFile.getMainFile(), NEVER, 100);
+        journal.committed(persister, new ModelNode("One"), operation(1));
+        journal.write(FilePersistenceUtils.marshalXml(persister, new ModelNode("Two")));
+        assertFileContents(standardFile, "Two");
+
+        // The pending write is superseded
+        journal.flush();
+        assertFileContents(standardFile, "Two");
+        Assert.assertTrue(new ConfigurationJournal(boot(), standardFile, NEVER, 100).recover().isEmpty());
+    }
+
+    private ConfigurationFile boot() throws Exception {
+        ConfigurationFile file = new ConfigurationFile(configsDir, "standard.xml", null, true);
+        file.getBootFile();
+        file.successfulBoot();
+        return file;
+    }
+
+    private static ModelNode operation(int i) {
+        ModelNode op = new ModelNode();
+        op.get("operation").set("write-attribute");
+        op.get("address").setEmptyList();
+        op.get("name").set("value");
+        op.get("value").set(i);
+        return op;
+    }
+
+    private static void appendTo(File file, ModelNode operation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        operation.writeExternal(data);
+        data.close();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true));
+        try {
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        } finally {
+            IoUtils.safeClose(out);
+        }
+    }
+
+    private int countSegments() {
+        int count = 0;
+        for (String name : configsDir.list()) {
+            if (name.startsWith("standard.xml.journal.")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        Writer out = new FileWriter(file);
+        try {
+            if (contents != null) {
+                out.write(contents);
+            }
+        } finally {
+            IoUtils.safeClose(out);
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String s = in.readLine();
+            while (s != null) {
+                sb.append(s);
+                s = in.readLine();
+            }
+        } finally {
+            in.close();
+        }
+        return sb.toString();
+    }
+
+    private static void assertFileContents(File file, String expectedContents) throws Exception {
+        Assert.assertTrue(file + " does not exist", file.exists());
+        Assert.assertEquals(expectedContents, read(file));
+    }
+
+    private static void delete(File file) {
+        if (file.isDirectory()) {
+            for (String name : file.list()) {
+                delete(new File(file, name));
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            Assert.fail("Could not delete " + file);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link CopyOnWriteResourceTree}.
+ */
+public class CopyOnWriteResourceTreeTestCase {
+
+    private static final PathElement A = PathElement.pathElement("child", "a");
+    private static final PathElement B = PathElement.pathElement("child", "b");
+    private static final PathElement C = PathElement.pathElement("child", "c");
+    private static final PathElement X = PathElement.pathElement("grandchild", "x");
+
+    private Resource original;
+
+    @Before
+    public void setup() {
+        original = Resource.Factory.create();
+        original.getModel().get("name").set("root");
+        for (PathElement element : Arrays.asList(A, B, C)) {
+            Resource child = Resource.Factory.create();
+            child.getModel().get("name").set(element.getValue());
+            Resource grandchild = Resource.Factory.create();
+            grandchild.getModel().get("name").set(element.getValue() + "x");
+            child.registerChild(X, grandchild);
+            original.registerChild(element, child);
+        }
+    }
+
+    @Test
+    public void testUpdateCopiesOnlyPath() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource root = tree.getRoot();
+        assertNotSame(original, root);
+
+        Resource a = tree.getChildForUpdate(root, A, false);
+        assertNotSame(original.getChild(A), a);
+        a.getModel().get("name").set("changed");
+        assertEquals("a", original.getChild(A).getModel().get("name").asString());
+        assertEquals("changed", root.getChild(A).getModel().get("name").asString());
+
+        // Everything off the path is shared
+        assertSame(original.getChild(B), root.getChild(B));
+        assertSame(original.getChild(C), root.getChild(C));
+        assertSame(original.getChild(A).getChild(X), a.getChild(X));
+
+        // Copies are only made once
+        assertSame(a, tree.getChildForUpdate(root, A, false));
+    }
+
+    @Test
+    public void testRecursiveUpdate() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource root = tree.getRoot();
+
+        Resource a = tree.getChildForUpdate(root, A, false);
+        Resource recursive = tree.getChildForUpdate(root, A, true);
+        assertSame(a, recursive);
+        Resource x = a.getChild(X);
+        assertNotSame(original.getChild(A).getChild(X), x);
+        x.getModel().get("name").set("changed");
+        assertEquals("ax", original.getChild(A).getChild(X).getModel().get("name").asString());
+
+        // Descendants of a recursive copy are not copied again
+        assertSame(x, tree.getChildForUpdate(a, X, false));
+    }
+
+    @Test
+    public void testCopyDescendants() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource root = tree.getRoot();
+        Resource a = tree.getChildForUpdate(root, A, false);
+
+        tree.copyDescendants(root);
+        assertSame(a, root.getChild(A));
+        for (PathElement element : Arrays.asList(A, B, C)) {
+            assertNotSame(original.getChild(element), root.getChild(element));
+            assertNotSame(original.getChild(element).getChild(X), root.getChild(element).getChild(X));
+        }
+    }
+
+    @Test
+    public void testChildOrderIsPreserved() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource root = tree.getRoot();
+        tree.getChildForUpdate(root, A, false);
+        tree.getChildForUpdate(root, B, true);
+        assertEquals(new ArrayList<String>(original.getChildrenNames("child")), new ArrayList<String>(root.getChildrenNames("child")));
+    }
+
+    @Test
+    public void testRemoveChild() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource root = tree.getRoot();
+
+        Resource removed = tree.removeChild(root, B);
+        assertNotSame(original.getChild(B), removed);
+        assertEquals("b", removed.getModel().get("name").asString());
+        assertFalse(root.hasChild(B));
+        assertTrue(original.hasChild(B));
+
+        removed.getChild(X).getModel().get("name").set("changed");
+        assertEquals("bx", original.getChild(B).getChild(X).getModel().get("name").asString());
+
+        assertNull(tree.removeChild(root, B));
+    }
+
+    @Test
+    public void testRegisterChild() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource root = tree.getRoot();
+        Resource a = tree.getChildForUpdate(root, A, false);
+
+        Resource added = Resource.Factory.create();
+        PathElement y = PathElement.pathElement("grandchild", "y");
+        tree.registerChild(a, y, added);
+        assertSame(added, tree.getChildForUpdate(a, y, true));
+        assertFalse(original.getChild(A).hasChild(y));
+    }
+
+    @Test
+    public void testRebase() {
+        CopyOnWriteResourceTree tree = new CopyOnWriteResourceTree(original);
+        Resource a = tree.getChildForUpdate(tree.getRoot(), A, false);
+        a.getModel().get("name").set("changed");
+        tree.removeChild(tree.getRoot(), C);
+
+        // Concurrent changes to other subtrees
+        Resource current = original.clone();
+        current.getChild(B).getModel().get("name").set("changed");
+        PathElement d = PathElement.pathElement("child", "d");
+        current.registerChild(d, Resource.Factory.create());
+
+        tree.rebase(current, Arrays.asList(PathAddress.pathAddress(A), PathAddress.pathAddress(C)));
+        Resource root = tree.getRoot();
+        assertNotSame(current, root);
+        assertSame(a, root.getChild(A));
+        assertSame(current.getChild(B), root.getChild(B));
+        assertFalse(root.hasChild(C));
+        assertTrue(root.hasChild(d));
+        assertEquals(Arrays.asList("a", "b", "d"), new ArrayList<String>(root.getChildrenNames("child")));
+
+        assertEquals("a", current.getChild(A).getModel().get("name").asString());
+        assertTrue(current.hasChild(C));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.controller.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Locale;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.descriptions.DescriptionProvider;
+import org.jboss.dmr.ModelNode;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DescriptionCache}.
+ */
+public class DescriptionCacheTestCase {
+
+    private static final DescriptionProvider PROVIDER = new DescriptionProvider() {
+        @Override
+        public ModelNode getModelDescription(Locale locale) {
+            return new ModelNode();
+        }
+    };
+
+    private ManagementResourceRegistration root;
+    private ManagementResourceRegistration child;
+
+    @Before
+    public void setup() {
+        root = ManagementResourceRegistration.Factory.create(PROVIDER);
+        child = root.registerSubModel(PathElement.pathElement("child", "one"), PROVIDER);
+    }
+
+    @Test
+    public void testCopies() {
+        DescriptionCache cache = DescriptionCache.of(child);
+        ModelNode description = new ModelNode();
+        description.get("description").set("original");
+        cache.put("key", description, cache.getStamp());
+
+        description.get("description").set("modified");
+        ModelNode cached = cache.get("key");
+        assertEquals("original", cached.get("description").asString());
+
+        cached.get("description").set("modified");
+        assertNotSame(cached, cache.get("key"));
+        assertEquals("original", cache.get("key").get("description").asString());
+        assertNull(cache.get("other"));
+    }
+
+    @Test
+    public void testInvalidatedByRegistrationChanges() {
+        DescriptionCache cache = DescriptionCache.of(child);
+        cache.put("key", new ModelNode("a"), cache.getStamp());
+        assertNotNull(cache.get("key"));
+
+        // Inherited operations are part of the child's description
+        root.registerOperationHandler("op", null, PROVIDER, true);
+        assertNull(cache.get("key"));
+
+        cache.put("key", new ModelNode("a"), cache.getStamp());
+        ManagementResourceRegistration grandchild = child.registerSubModel(PathElement.pathElement("grandchild", "*"), PROVIDER);
+        assertNull(cache.get("key"));
+
+        cache.put("key", new ModelNode("a"), cache.getStamp());
+        grandchild.registerReadOnlyAttribute("attr", null, AttributeAccess.Storage.CONFIGURATION);
+        assertNull(cache.get("key"));
+
+        cache.put("key", new ModelNode("a"), cache.getStamp());
+        child.unregisterSubModel(PathElement.pathElement("grandchild", "*"));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testDelegatingRegistration() {
+        // Operation handlers see registrations wrapped by the operation context
+        ImmutableManagementResourceRegistration wrapped = new DelegatingImmutableManagementResourceRegistration(root)
+                .getSubModel(PathAddress.pathAddress(PathElement.pathElement("child", "one")));
+        assertSame(DescriptionCache.of(child), DescriptionCache.of(wrapped));
+    }
+
+    @Test
+    public void testStaleDescriptionNotCached() {
+        DescriptionCache cache = DescriptionCache.of(root.getSubModel(PathAddress.pathAddress(PathElement.pathElement("child", "one"))));
+        long stamp = cache.getStamp();
+        // The registration changes while the description is being built
+        child.registerOperationHandler("op", null, PROVIDER);
+        cache.put("key", new ModelNode("a"), stamp);
+        assertNull(cache.get("key"));
+    }
+}
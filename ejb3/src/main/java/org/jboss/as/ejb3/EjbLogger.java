@@ -582,6 +582,30 @@ public interface EjbLogger extends BasicLogger {
     @Message(id = 14264, value = "Exception running timer task for timer %s on EJB %s")
     void exceptionRunningTimerTask(String timerId, String timedObjectId, @Cause  Exception e);
 
+    @LogMessage(level = WARN)
+    @Message(id = 14265, value = "Timer journal %s is corrupt after offset %d, discarding the remainder of the file")
+    void truncatingTimerJournal(File file, long offset);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14266, value = "Could not delete compacted timer journal segment %s")
+    void cannotDeleteTimerJournalSegment(File file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14267, value = "Failed to refresh timers from database data store %s")
+    void timerRefreshFailed(String dataStore, @Cause Throwable cause);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 14268, value = "Failed to run timeout task of timing wheel %s")
+    void failedToRunTimeout(String wheel, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14269, value = "Cannot create index for timer persistence, timers will be looked up without it")
+    void couldNotCreateIndex(@Cause SQLException e);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14270, value = "Failed to compact the timer journal, its superseded records are kept")
+    void timerJournalCompactionFailed(@Cause Throwable cause);
+
 
     // Don't add message ids greater that 14299!!! If you need more first check what EjbMessages is
     // using and take more (lower) numbers from the available range for this module. If the range for the module is
@@ -24,18 +24,24 @@ package org.jboss.as.ejb3.cache.impl.backing;
 
 import java.io.Serializable;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ejb.NoSuchEJBException;
 
 import org.jboss.as.ejb3.EjbLogger;
 import org.jboss.as.ejb3.EjbMessages;
+import org.jboss.as.ejb3.cache.CacheStatistics;
 import org.jboss.as.ejb3.cache.Cacheable;
 import org.jboss.as.ejb3.cache.StatefulObjectFactory;
 import org.jboss.as.ejb3.cache.spi.BackingCacheEntry;
@@ -54,10 +60,19 @@ import org.jboss.ejb.client.Affinity;
 import org.jboss.logging.Logger;
 
 /**
+ * Entries the store asks to passivate when a new entry is created are passivated in batches on the executor of this
+ * cache, if it has one, rather than in the thread creating the entry.
+ *
  * @author Paul Ferraro
  *
  */
-public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cacheable<K>, E extends BackingCacheEntry<K, V>> extends AbstractBackingCache<K, V, E> implements PassivatingBackingCache<K, V, E> {
+public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cacheable<K>, E extends BackingCacheEntry<K, V>> extends AbstractBackingCache<K, V, E> implements PassivatingBackingCache<K, V, E>, CacheStatistics {
+    /**
+     * The maximum number of entries passivated by one run of the {@link #passivationTask}, so that expirations
+     * scheduled on the same executor are not held up.
+     */
+    private static final int PASSIVATION_BATCH_SIZE = 100;
+
     protected final Logger log = Logger.getLogger(getClass().getName());
 
     private final StatefulObjectFactory<V> factory;
@@ -69,6 +84,10 @@ public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cache
     private volatile ScheduledExecutorService executor;
     private final Map<K, Future<?>> expirationFutures = new ConcurrentHashMap<K, Future<?>>();
     private final Map<K, Future<?>> passivationFutures = new ConcurrentHashMap<K, Future<?>>();
+    private final Queue<K> passivationQueue = new ConcurrentLinkedQueue<K>();
+    // ConcurrentLinkedQueue.size() traverses the queue
+    private final AtomicInteger passivationQueueSize = new AtomicInteger();
+    private final AtomicBoolean passivationScheduled = new AtomicBoolean();
 
     public PassivatingBackingCacheImpl(StatefulObjectFactory<V> factory, BackingCacheEntryFactory<K, V, E> entryFactory, ReplicationPassivationManager<K, E> passivationManager, BackingCacheEntryStore<K, V, E> store) {
         this(factory, entryFactory, passivationManager, store, null, null);
@@ -120,16 +139,56 @@ public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cache
     public E create() {
         E obj = entryFactory.createEntry(factory.createInstance());
         final Set<K> toPassivate = store.insert(obj);
-        for(K i : toPassivate) {
-            try {
-                passivate(i);
-            } catch (Exception e) {
-                EjbLogger.EJB3_LOGGER.debug("passivation failed", e);
+        if (toPassivate.isEmpty()) {
+            return obj;
+        }
+        if (this.executor != null) {
+            this.passivationQueue.addAll(toPassivate);
+            this.passivationQueueSize.addAndGet(toPassivate.size());
+            this.schedulePassivation();
+        } else {
+            for (K i : toPassivate) {
+                passivateQuietly(i);
             }
         }
         return obj;
     }
 
+    private void passivateQuietly(K key) {
+        try {
+            passivate(key);
+        } catch (Exception e) {
+            EjbLogger.EJB3_LOGGER.debug("passivation failed", e);
+        }
+    }
+
+    private void schedulePassivation() {
+        if (this.passivationScheduled.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this.passivationTask);
+            } catch (RejectedExecutionException e) {
+                // stopping
+                this.passivationScheduled.set(false);
+            }
+        }
+    }
+
+    private final Runnable passivationTask = new Runnable() {
+        @Override
+        public void run() {
+            K key;
+            int count = 0;
+            while (count++ < PASSIVATION_BATCH_SIZE && !Thread.currentThread().isInterrupted() && (key = passivationQueue.poll()) != null) {
+                passivationQueueSize.decrementAndGet();
+                passivateQuietly(key);
+            }
+            passivationScheduled.set(false);
+            if (!passivationQueue.isEmpty()) {
+                schedulePassivation();
+            }
+        }
+    };
+
     @Override
     public E get(K key) throws NoSuchEJBException {
         this.trace("get(%s)", key);
@@ -170,10 +229,11 @@ public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cache
     public void passivate(K key) {
         this.trace("passivate(%s)", key);
 
-        E entry = store.get(key, false);
+        // an entry which is not in memory has nothing to passivate, e.g. because it was removed in the meantime
+        E entry = store.peek(key, false);
 
         if (entry == null) {
-            EjbLogger.ROOT_LOGGER.cacheEntryNotFound(key);
+            this.trace("passivate(%s): not in memory", key);
             return;
         }
 
@@ -202,14 +262,14 @@ public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cache
     public E peek(K key) throws NoSuchEJBException {
         this.trace("peek(%s)", key);
 
-        return store.get(key, false);
+        return store.peek(key, true);
     }
 
     @Override
     public E release(K key) {
         this.trace("release(%s)", key);
 
-        E entry = store.get(key, false);
+        E entry = store.peek(key, true);
         if (entry == null) {
             log.debug("SFSB instance with session ID " + key + " not available in cache");
             return null;
@@ -318,6 +378,9 @@ public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cache
             if (this.threadFactory != null) {
                 this.executor.shutdownNow();
             }
+            while (this.passivationQueue.poll() != null) {
+                this.passivationQueueSize.decrementAndGet();
+            }
             store.stop();
             notifyLifecycleListeners(LifecycleState.STOPPED);
         } catch (RuntimeException e) {
@@ -326,6 +389,31 @@ public class PassivatingBackingCacheImpl<K extends Serializable, V extends Cache
         }
     }
 
+    @Override
+    public int getCacheSize() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getCacheSize() : 0;
+    }
+
+    @Override
+    public long getHitCount() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getHitCount() : 0;
+    }
+
+    @Override
+    public long getMissCount() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getMissCount() : 0;
+    }
+
+    @Override
+    public long getPassivationCount() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getPassivationCount() : 0;
+    }
+
+    @Override
+    public int getPassivationQueueSize() {
+        return (this.executor != null) ? this.passivationQueueSize.get() : 0;
+    }
+
     @Override
     public GroupCompatibilityChecker getCompatibilityChecker() {
         return store;
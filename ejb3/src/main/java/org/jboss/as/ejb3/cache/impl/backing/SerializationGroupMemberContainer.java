@@ -26,6 +26,7 @@ import java.io.Serializable;
 import java.util.Set;
 
 import org.jboss.as.ejb3.EjbMessages;
+import org.jboss.as.ejb3.cache.CacheStatistics;
 import org.jboss.as.ejb3.cache.Cacheable;
 import org.jboss.as.ejb3.cache.PassivationManager;
 import org.jboss.as.ejb3.cache.spi.BackingCacheEntryFactory;
@@ -49,7 +50,7 @@ import org.jboss.marshalling.MarshallingConfiguration;
  * @author Paul Ferraro
  */
 public class SerializationGroupMemberContainer<K extends Serializable, V extends Cacheable<K>, G extends Serializable>
-    implements BackingCacheEntryFactory<K, V, SerializationGroupMember<K, V, G>>, ReplicationPassivationManager<K, SerializationGroupMember<K, V, G>>, BackingCacheEntryStore<K, V, SerializationGroupMember<K, V, G>> {
+    implements BackingCacheEntryFactory<K, V, SerializationGroupMember<K, V, G>>, ReplicationPassivationManager<K, SerializationGroupMember<K, V, G>>, BackingCacheEntryStore<K, V, SerializationGroupMember<K, V, G>>, CacheStatistics {
     private static final Logger log = Logger.getLogger(SerializationGroupMemberContainer.class);
 
     private final PassivationManager<K, V> passivationManager;
@@ -294,6 +295,15 @@ public class SerializationGroupMemberContainer<K extends Serializable, V extends
         return entry;
     }
 
+    @Override
+    public SerializationGroupMember<K, V, G> peek(K key, boolean activate) {
+        SerializationGroupMember<K, V, G> entry = store.peek(key, activate);
+        // In case it was deserialized, make sure it has a ref to us
+        if (entry != null)
+            entry.setPassivatingCache(delegate);
+        return entry;
+    }
+
     @Override
     public void passivate(SerializationGroupMember<K, V, G> entry) {
         store.passivate(entry);
@@ -329,6 +339,31 @@ public class SerializationGroupMemberContainer<K extends Serializable, V extends
         return this.store.getTimeout();
     }
 
+    @Override
+    public int getCacheSize() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getCacheSize() : 0;
+    }
+
+    @Override
+    public long getHitCount() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getHitCount() : 0;
+    }
+
+    @Override
+    public long getMissCount() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getMissCount() : 0;
+    }
+
+    @Override
+    public long getPassivationCount() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getPassivationCount() : 0;
+    }
+
+    @Override
+    public int getPassivationQueueSize() {
+        return (this.store instanceof CacheStatistics) ? ((CacheStatistics) this.store).getPassivationQueueSize() : 0;
+    }
+
     public boolean isCompatibleWith(SerializationGroup<K, V, G> group) {
         PassivatingBackingCache<G, Cacheable<G>, SerializationGroup<K, V, G>> otherCache = group.getGroupCache();
         if (otherCache != null) {
@@ -0,0 +1,415 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.cache.impl.backing;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.as.ejb3.EjbMessages;
+import org.jboss.as.ejb3.cache.CacheStatistics;
+import org.jboss.as.ejb3.cache.Cacheable;
+import org.jboss.as.ejb3.cache.IdentifierFactory;
+import org.jboss.as.ejb3.cache.spi.BackingCacheEntry;
+import org.jboss.as.ejb3.cache.spi.BackingCacheEntryStore;
+import org.jboss.as.ejb3.cache.spi.BackingCacheEntryStoreConfig;
+import org.jboss.as.ejb3.cache.spi.GroupCompatibilityChecker;
+import org.jboss.as.ejb3.cache.spi.PersistentObjectStore;
+import org.jboss.as.ejb3.cache.spi.impl.AbstractBackingCacheEntryStore;
+import org.jboss.as.ejb3.component.stateful.StatefulTimeoutInfo;
+import org.jboss.as.server.ServerEnvironment;
+import org.jboss.ejb.client.Affinity;
+import org.jboss.ejb.client.NodeAffinity;
+
+/**
+ * A {@link BackingCacheEntryStore} which splits its entries over a number of independent shards and delegates to a
+ * provided {@link PersistentObjectStore} for persistence.
+ * <p/>
+ * Unlike {@link SimpleBackingCacheEntryStore} accessing an entry does not reorder a shared sorted set; it only sets
+ * the reference bit of the entry. Eviction candidates are chosen per shard with the clock (second chance) algorithm,
+ * an approximation of LRU, and each shard holds at most its share of the configured
+ * {@link BackingCacheEntryStoreConfig#getMaxSize() max size}. A sweep is bounded, so a shard may temporarily exceed its
+ * share when most entries were used recently.
+ */
+public class ShardedBackingCacheEntryStore<K extends Serializable, V extends Cacheable<K>, E extends BackingCacheEntry<K, V>> extends AbstractBackingCacheEntryStore<K, V, E> implements CacheStatistics {
+
+    private static final int MAX_SHARDS = 64;
+    /**
+     * The number of nodes a sweep may visit in addition to twice the number of entries it has to evict.
+     */
+    private static final int SWEEP_SLACK = 64;
+
+    private final IdentifierFactory<K> identifierFactory;
+    private final PersistentObjectStore<K, E> store;
+    private final ServerEnvironment environment;
+    private final Shard<K, E>[] shards;
+    private final int shardMask;
+
+    public ShardedBackingCacheEntryStore(IdentifierFactory<K> identifierFactory, PersistentObjectStore<K, E> store, ServerEnvironment environment, StatefulTimeoutInfo timeout, BackingCacheEntryStoreConfig config) {
+        this(identifierFactory, store, environment, timeout, config, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public ShardedBackingCacheEntryStore(IdentifierFactory<K> identifierFactory, PersistentObjectStore<K, E> store, ServerEnvironment environment, StatefulTimeoutInfo timeout, BackingCacheEntryStoreConfig config, int concurrencyLevel) {
+        super(timeout, config);
+        this.identifierFactory = identifierFactory;
+        this.store = store;
+        this.environment = environment;
+        // round up to a power of two so the shard can be picked with a mask
+        int shardCount = 1;
+        while (shardCount < concurrencyLevel && shardCount < MAX_SHARDS) {
+            shardCount <<= 1;
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new Shard<K, E>();
+        }
+        this.shardMask = shardCount - 1;
+    }
+
+    @Override
+    public K createIdentifier() {
+        return this.identifierFactory.createIdentifier();
+    }
+
+    @Override
+    public Affinity getStrictAffinity() {
+        return new NodeAffinity(this.environment.getNodeName());
+    }
+
+    @Override
+    public Affinity getWeakAffinity(K key) {
+        return Affinity.NONE;
+    }
+
+    @Override
+    public boolean hasAffinity(K key) {
+        return true;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+
+    @Override
+    public E get(K key, boolean lock) {
+        final Shard<K, E> shard = this.shard(key);
+        final Node<E> node = shard.entries.get(key);
+        if (node != null) {
+            shard.hits.incrementAndGet();
+            shard.touch(node);
+            return node.entry;
+        }
+        shard.misses.incrementAndGet();
+        return this.load(shard, key);
+    }
+
+    @Override
+    public E peek(K key, boolean activate) {
+        final Shard<K, E> shard = this.shard(key);
+        final Node<E> node = shard.entries.get(key);
+        if (node != null) {
+            return node.entry;
+        }
+        return activate ? this.load(shard, key) : null;
+    }
+
+    private E load(Shard<K, E> shard, K key) {
+        E value = this.store.load(key);
+        if (value != null) {
+            final Node<E> node = new Node<E>(value);
+            final Node<E> existing = shard.entries.putIfAbsent(key, node);
+            if (existing != null) {
+                // activated concurrently
+                shard.touch(existing);
+                return existing.entry;
+            }
+            shard.add(node);
+        }
+        return value;
+    }
+
+    @Override
+    public Set<K> insert(E entry) {
+        final K key = entry.getId();
+        final Shard<K, E> shard = this.shard(key);
+        final Node<E> node = new Node<E>(entry);
+        if (shard.entries.putIfAbsent(key, node) != null) {
+            throw EjbMessages.MESSAGES.duplicateCacheEntry(key);
+        }
+        shard.add(node);
+        final int maxSize = this.getConfig().getMaxSize();
+        final int capacity = Math.max(1, (maxSize + this.shardMask) / this.shards.length);
+        return shard.sweep(capacity, key);
+    }
+
+    @Override
+    public void update(E entry, boolean modified) {
+        final K key = entry.getId();
+        final Shard<K, E> shard = this.shard(key);
+        final Node<E> node = shard.entries.get(key);
+        if (node == null) {
+            throw EjbMessages.MESSAGES.missingCacheEntry(key);
+        }
+        // we already have a ref to the entry, just record the access
+        shard.touch(node);
+    }
+
+    @Override
+    public void passivate(E entry) {
+        synchronized (entry) {
+            final K key = entry.getId();
+            final Shard<K, E> shard = this.shard(key);
+            boolean stored = false;
+            try {
+                this.store.store(entry);
+                stored = true;
+            } finally {
+                if (!stored) {
+                    shard.passivationFailed(shard.entries.get(key));
+                }
+            }
+            final Node<E> node = shard.entries.remove(key);
+            if (node != null) {
+                shard.removed(node);
+                shard.passivations.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public E remove(K id) {
+        final Shard<K, E> shard = this.shard(id);
+        Node<E> node = shard.entries.get(id);
+        final E entry = (node != null) ? node.entry : this.load(shard, id);
+        if (entry != null) {
+            node = shard.entries.remove(id);
+            if (node != null) {
+                shard.removed(node);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void start() {
+        this.store.start();
+    }
+
+    @Override
+    public void stop() {
+        this.store.stop();
+    }
+
+    @Override
+    public boolean isCompatibleWith(GroupCompatibilityChecker other) {
+        if (other instanceof BackingCacheEntryStore) {
+            return ((BackingCacheEntryStore<?, ?, ?>) other).isClustered() == false;
+        }
+        return false;
+    }
+
+    @Override
+    public int getCacheSize() {
+        int size = 0;
+        for (Shard<K, E> shard : this.shards) {
+            size += shard.size.get();
+        }
+        return size;
+    }
+
+    @Override
+    public long getHitCount() {
+        long count = 0;
+        for (Shard<K, E> shard : this.shards) {
+            count += shard.hits.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getMissCount() {
+        long count = 0;
+        for (Shard<K, E> shard : this.shards) {
+            count += shard.misses.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getPassivationCount() {
+        long count = 0;
+        for (Shard<K, E> shard : this.shards) {
+            count += shard.passivations.get();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of entries selected for eviction which have not been passivated yet
+     */
+    @Override
+    public int getPassivationQueueSize() {
+        int count = 0;
+        for (Shard<K, E> shard : this.shards) {
+            count += shard.evicting.get();
+        }
+        return count;
+    }
+
+    private Shard<K, E> shard(K key) {
+        // spread the bits, the hash codes of session ids are not necessarily well distributed
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return this.shards[h & this.shardMask];
+    }
+
+    private static final class Shard<K extends Serializable, E extends BackingCacheEntry<K, ?>> {
+        final ConcurrentMap<K, Node<E>> entries = new ConcurrentHashMap<K, Node<E>>();
+        /**
+         * The clock, holding the live nodes of this shard and removed nodes the hand has not yet passed.
+         */
+        final Queue<Node<E>> clock = new ConcurrentLinkedQueue<Node<E>>();
+        final AtomicBoolean sweeping = new AtomicBoolean();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicInteger evicting = new AtomicInteger();
+        final AtomicInteger dead = new AtomicInteger();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong passivations = new AtomicLong();
+
+        void add(Node<E> node) {
+            this.size.incrementAndGet();
+            this.clock.offer(node);
+        }
+
+        void touch(Node<E> node) {
+            node.referenced = true;
+        }
+
+        void removed(Node<E> node) {
+            final int previous = Node.STATE.getAndSet(node, Node.REMOVED);
+            if (previous == Node.REMOVED) {
+                return;
+            }
+            if (previous == Node.EVICTING) {
+                this.evicting.decrementAndGet();
+            }
+            final int size = this.size.decrementAndGet();
+            // drop removed nodes from the clock if the hand is not moving fast enough to do it
+            if (this.dead.incrementAndGet() > size + SWEEP_SLACK && this.sweeping.compareAndSet(false, true)) {
+                try {
+                    final Iterator<Node<E>> nodes = this.clock.iterator();
+                    while (nodes.hasNext()) {
+                        if (nodes.next().state == Node.REMOVED) {
+                            nodes.remove();
+                            this.dead.decrementAndGet();
+                        }
+                    }
+                } finally {
+                    this.sweeping.set(false);
+                }
+            }
+        }
+
+        /**
+         * Makes a node selected for eviction live again, so that it can be selected again once its passivation failed.
+         */
+        void passivationFailed(Node<E> node) {
+            if (node != null && Node.STATE.compareAndSet(node, Node.EVICTING, Node.LIVE)) {
+                this.evicting.decrementAndGet();
+            }
+        }
+
+        /**
+         * Selects unused, not recently referenced entries until the shard is back within its capacity.
+         */
+        Set<K> sweep(int capacity, K exclude) {
+            int excess = this.size.get() - this.evicting.get() - capacity;
+            if (excess <= 0 || !this.sweeping.compareAndSet(false, true)) {
+                return Collections.emptySet();
+            }
+            final Set<K> victims = new HashSet<K>();
+            try {
+                int budget = 2 * excess + SWEEP_SLACK;
+                while (excess > 0 && budget-- > 0) {
+                    final Node<E> node = this.clock.poll();
+                    if (node == null) {
+                        break;
+                    }
+                    final int state = node.state;
+                    if (state == Node.REMOVED) {
+                        this.dead.decrementAndGet();
+                        continue;
+                    }
+                    if (node.referenced) {
+                        node.referenced = false;
+                        // selected a lap ago but used since, so the passivation was most likely refused
+                        if (state == Node.EVICTING && Node.STATE.compareAndSet(node, Node.EVICTING, Node.LIVE)) {
+                            this.evicting.decrementAndGet();
+                        }
+                    } else if (state == Node.LIVE && !node.entry.isInUse()) {
+                        final K key = node.entry.getId();
+                        if (!key.equals(exclude) && Node.STATE.compareAndSet(node, Node.LIVE, Node.EVICTING)) {
+                            this.evicting.incrementAndGet();
+                            victims.add(key);
+                            excess--;
+                        }
+                    }
+                    this.clock.offer(node);
+                }
+            } finally {
+                this.sweeping.set(false);
+            }
+            return victims;
+        }
+    }
+
+    private static final class Node<E> {
+        static final int LIVE = 0;
+        static final int EVICTING = 1;
+        static final int REMOVED = 2;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Node> STATE = AtomicIntegerFieldUpdater.newUpdater(Node.class, "state");
+
+        final E entry;
+        volatile int state = LIVE;
+        volatile boolean referenced;
+
+        Node(E entry) {
+            this.entry = entry;
+        }
+    }
+}
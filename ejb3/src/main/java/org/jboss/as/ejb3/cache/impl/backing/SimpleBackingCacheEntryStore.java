@@ -118,6 +118,15 @@ public class SimpleBackingCacheEntryStore<K extends Serializable, V extends Cach
         return holder.value;
     }
 
+    @Override
+    public E peek(K key, boolean activate) {
+        if (activate) {
+            return this.get(key, false);
+        }
+        EntryHolder holder = cache.get(key);
+        return (holder != null) ? holder.value : null;
+    }
+
     @Override
     public Set<K> insert(E entry) {
         K key = entry.getId();
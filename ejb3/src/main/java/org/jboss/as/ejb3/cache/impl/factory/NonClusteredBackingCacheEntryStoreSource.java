@@ -29,7 +29,7 @@ import org.jboss.as.controller.services.path.PathManagerService;
 import org.jboss.as.ejb3.cache.Cacheable;
 import org.jboss.as.ejb3.cache.IdentifierFactory;
 import org.jboss.as.ejb3.cache.PassivationManager;
-import org.jboss.as.ejb3.cache.impl.backing.SimpleBackingCacheEntryStore;
+import org.jboss.as.ejb3.cache.impl.backing.ShardedBackingCacheEntryStore;
 import org.jboss.as.ejb3.cache.spi.BackingCacheEntryStore;
 import org.jboss.as.ejb3.cache.spi.SerializationGroup;
 import org.jboss.as.ejb3.cache.spi.SerializationGroupMember;
@@ -75,7 +75,7 @@ public class NonClusteredBackingCacheEntryStoreSource<K extends Serializable, V
     public <E extends SerializationGroup<K, V, G>> BackingCacheEntryStore<G, Cacheable<G>, E> createGroupIntegratedObjectStore(IdentifierFactory<G> identifierFactory, PassivationManager<G, E> passivationManager, StatefulTimeoutInfo timeout) {
         FilePersistentObjectStore<G, E> objectStore = new FilePersistentObjectStore<G, E>(passivationManager, this.getStoragePath(null, this.groupDirectoryName), subdirectoryCount);
 
-        SimpleBackingCacheEntryStore<G, Cacheable<G>, E> store = new SimpleBackingCacheEntryStore<G, Cacheable<G>, E>(identifierFactory, objectStore, this.environment.getValue(), timeout, this);
+        ShardedBackingCacheEntryStore<G, Cacheable<G>, E> store = new ShardedBackingCacheEntryStore<G, Cacheable<G>, E>(identifierFactory, objectStore, this.environment.getValue(), timeout, this);
 
         return store;
     }
@@ -84,7 +84,7 @@ public class NonClusteredBackingCacheEntryStoreSource<K extends Serializable, V
     public <E extends SerializationGroupMember<K, V, G>> BackingCacheEntryStore<K, V, E> createIntegratedObjectStore(String beanName, IdentifierFactory<K> identifierFactory, PassivationManager<K, E> passivationManager, StatefulTimeoutInfo timeout) {
         FilePersistentObjectStore<K, E> objectStore = new FilePersistentObjectStore<K, E>(passivationManager, this.getStoragePath(beanName, this.sessionDirectoryName), subdirectoryCount);
 
-        SimpleBackingCacheEntryStore<K, V, E> store = new SimpleBackingCacheEntryStore<K, V, E>(identifierFactory, objectStore, this.environment.getValue(), timeout, this);
+        ShardedBackingCacheEntryStore<K, V, E> store = new ShardedBackingCacheEntryStore<K, V, E>(identifierFactory, objectStore, this.environment.getValue(), timeout, this);
 
         return store;
     }
@@ -62,6 +62,16 @@ public interface BackingCacheEntryStore<K extends Serializable, V extends Cachea
      */
     E get(K key, boolean lock);
 
+    /**
+     * Gets the entry with the given id for the internal use of the cache. Unlike {@link #get(Serializable, boolean)}
+     * the access is not recorded, neither in the statistics nor in the eviction order of the store.
+     *
+     * @param key {@link org.jboss.as.ejb3.cache.Identifiable#getId() id} of the entry. Cannot be <code>null</code>.
+     * @param activate whether an entry which is not in memory should be loaded from persistent storage
+     * @return the object store under <code>id</code>. May return <code>null</code>.
+     */
+    E peek(K key, boolean activate);
+
     /**
      * Update an already cached item.
      *
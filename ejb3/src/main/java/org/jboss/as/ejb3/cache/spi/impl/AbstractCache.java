@@ -27,6 +27,7 @@ import java.io.Serializable;
 import javax.ejb.NoSuchEJBException;
 
 import org.jboss.as.ejb3.cache.Cache;
+import org.jboss.as.ejb3.cache.CacheStatistics;
 import org.jboss.as.ejb3.cache.Cacheable;
 import org.jboss.as.ejb3.cache.spi.BackingCache;
 import org.jboss.as.ejb3.cache.spi.BackingCacheEntry;
@@ -36,7 +37,7 @@ import org.jboss.ejb.client.Affinity;
  * @author Paul Ferraro
  *
  */
-public abstract class AbstractCache<K extends Serializable, V extends Cacheable<K>, E extends BackingCacheEntry<K, V>> implements Cache<K, V> {
+public abstract class AbstractCache<K extends Serializable, V extends Cacheable<K>, E extends BackingCacheEntry<K, V>> implements Cache<K, V>, CacheStatistics {
     private final BackingCache<K, V, E> backingCache;
 
     protected AbstractCache(BackingCache<K, V, E> backingCache) {
@@ -132,4 +133,29 @@ public abstract class AbstractCache<K extends Serializable, V extends Cacheable<
     public boolean hasAffinity(K key) {
         return this.backingCache.hasAffinity(key);
     }
+
+    @Override
+    public int getCacheSize() {
+        return (this.backingCache instanceof CacheStatistics) ? ((CacheStatistics) this.backingCache).getCacheSize() : 0;
+    }
+
+    @Override
+    public long getHitCount() {
+        return (this.backingCache instanceof CacheStatistics) ? ((CacheStatistics) this.backingCache).getHitCount() : 0;
+    }
+
+    @Override
+    public long getMissCount() {
+        return (this.backingCache instanceof CacheStatistics) ? ((CacheStatistics) this.backingCache).getMissCount() : 0;
+    }
+
+    @Override
+    public long getPassivationCount() {
+        return (this.backingCache instanceof CacheStatistics) ? ((CacheStatistics) this.backingCache).getPassivationCount() : 0;
+    }
+
+    @Override
+    public int getPassivationQueueSize() {
+        return (this.backingCache instanceof CacheStatistics) ? ((CacheStatistics) this.backingCache).getPassivationQueueSize() : 0;
+    }
 }
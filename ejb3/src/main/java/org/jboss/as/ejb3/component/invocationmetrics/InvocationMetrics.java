@@ -29,10 +29,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Invocation statistics of a single component. Recording an invocation does not allocate once the method has been
+ * seen before; the totals are kept in {@link StripedCounters} so that concurrent invocations of a hot bean do not
+ * contend on a single memory location.
+ *
  * @author <a href="mailto:cdewolf@redhat.com">Carlo de Wolf</a>
  */
 public class InvocationMetrics {
@@ -60,38 +64,57 @@ public class InvocationMetrics {
         }
     }
 
-    private final AtomicReference<Values> values = new AtomicReference<Values>(new Values(0, 0, 0));
+    // counter indexes within a StripedCounters
+    private static final int INVOCATIONS = 0;
+    private static final int WAIT_TIME = 1;
+    private static final int EXECUTION_TIME = 2;
+    private static final int COUNTERS = 3;
+    /**
+     * Every method of every bean gets its own counters, so they get a quarter of the stripes of the component totals:
+     * at most 16 cache lines instead of up to 64.
+     */
+    private static final int METHOD_STRIPES = Math.min(16, Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+
+    private final StripedCounters values = new StripedCounters(COUNTERS);
+    private final LatencyHistogram executionTimes = new LatencyHistogram();
     private final AtomicLong concurrent = new AtomicLong(0);
     private final AtomicLong peakConcurrent = new AtomicLong(0);
 
-    private final ConcurrentMap<String, AtomicReference<Values>> methods = new ConcurrentHashMap<String, AtomicReference<Values>>();
+    private final ConcurrentMap<String, StripedCounters> methods = new ConcurrentHashMap<String, StripedCounters>();
 
+    /**
+     * @param method the invoked method
+     * @param invocationWaitTime the wait time in milliseconds
+     * @param invocationExecutionTime the execution time in nanoseconds
+     */
     void finishInvocation(final Method method, final long invocationWaitTime, final long invocationExecutionTime) {
         concurrent.decrementAndGet();
-        for(;;) {
-            final Values oldv = values.get();
-            final Values newv = new Values(oldv.invocations + 1, oldv.waitTime + invocationWaitTime, oldv.executionTime + invocationExecutionTime);
-            if (values.compareAndSet(oldv, newv))
-                break;
-        }
-        final AtomicReference<Values> methodValues = ref(methods, method.getName());
-        for (;;) {
-            final Values oldv = methodValues.get();
-            final Values newv = new Values(oldv.invocations + 1, oldv.waitTime + invocationWaitTime, oldv.executionTime + invocationExecutionTime);
-            if (methodValues.compareAndSet(oldv, newv))
-                break;
-        }
+        record(values, invocationWaitTime, invocationExecutionTime);
+        record(counters(method.getName()), invocationWaitTime, invocationExecutionTime);
+        executionTimes.record(invocationExecutionTime);
+    }
+
+    private static void record(final StripedCounters counters, final long invocationWaitTime, final long invocationExecutionTime) {
+        final int stripe = counters.stripe();
+        counters.increment(stripe, INVOCATIONS);
+        if (invocationWaitTime != 0L)
+            counters.add(stripe, WAIT_TIME, invocationWaitTime);
+        counters.add(stripe, EXECUTION_TIME, invocationExecutionTime);
     }
 
-    private static AtomicReference<Values> ref(final ConcurrentMap<String, AtomicReference<Values>> map, final String key) {
-        AtomicReference<Values> ref = map.get(key);
-        if (ref == null) {
-            ref = new AtomicReference<Values>(new Values(0, 0, 0));
-            final AtomicReference<Values> prevRef = map.putIfAbsent(key, ref);
-            if (prevRef != null)
-                ref = prevRef;
+    private StripedCounters counters(final String key) {
+        StripedCounters counters = methods.get(key);
+        if (counters == null) {
+            counters = new StripedCounters(COUNTERS, METHOD_STRIPES);
+            final StripedCounters prevCounters = methods.putIfAbsent(key, counters);
+            if (prevCounters != null)
+                counters = prevCounters;
         }
-        return ref;
+        return counters;
+    }
+
+    private static Values snapshot(final StripedCounters counters) {
+        return new Values(counters.sum(INVOCATIONS), counters.sum(WAIT_TIME), TimeUnit.NANOSECONDS.toMillis(counters.sum(EXECUTION_TIME)));
     }
 
     public long getConcurrent() {
@@ -99,11 +122,21 @@ public class InvocationMetrics {
     }
 
     public long getExecutionTime() {
-        return values.get().executionTime;
+        return TimeUnit.NANOSECONDS.toMillis(values.sum(EXECUTION_TIME));
+    }
+
+    /**
+     * Returns a percentile of the execution time of all invocations.
+     *
+     * @param fraction the percentile as a fraction, for example 0.99 for the 99th percentile
+     * @return the execution time in microseconds
+     */
+    public long getExecutionTimePercentile(final double fraction) {
+        return executionTimes.getPercentile(fraction);
     }
 
     public long getInvocations() {
-        return values.get().invocations;
+        return values.sum(INVOCATIONS);
     }
 
     public Map<String, Values> getMethods() {
@@ -113,7 +146,7 @@ public class InvocationMetrics {
                 return new AbstractSet<Entry<String, Values>>() {
                     @Override
                     public Iterator<Entry<String, Values>> iterator() {
-                        final Iterator<Entry<String, AtomicReference<Values>>> delegate = methods.entrySet().iterator();
+                        final Iterator<Entry<String, StripedCounters>> delegate = methods.entrySet().iterator();
                         return new Iterator<Entry<String, Values>>() {
                             @Override
                             public boolean hasNext() {
@@ -122,7 +155,7 @@ public class InvocationMetrics {
 
                             @Override
                             public Entry<String, Values> next() {
-                                final Entry<String, AtomicReference<Values>> next = delegate.next();
+                                final Entry<String, StripedCounters> next = delegate.next();
                                 return new Entry<String, Values>() {
                                     @Override
                                     public String getKey() {
@@ -131,7 +164,7 @@ public class InvocationMetrics {
 
                                     @Override
                                     public Values getValue() {
-                                        return next.getValue().get();
+                                        return snapshot(next.getValue());
                                     }
 
                                     @Override
@@ -162,7 +195,7 @@ public class InvocationMetrics {
     }
 
     public long getWaitTime() {
-        return values.get().waitTime;
+        return values.sum(WAIT_TIME);
     }
 
     void startInvocation() {
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component.invocationmetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A latency histogram with logarithmic buckets. Every power of two is split into {@link #SUB_BUCKETS} linear
+ * buckets, so a reported percentile is at most 25% above the real value. Recording is allocation free and uses
+ * {@link StripedCounters}, so concurrent invocations do not contend on a shared bucket.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values are recorded in microseconds, 2^40 us is well over a week
+    private static final int MAGNITUDES = 40;
+    private static final int BUCKETS = (MAGNITUDES - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    // a histogram is much bigger than a plain counter, so it gets less stripes
+    private static final int STRIPES = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+    private final StripedCounters buckets = new StripedCounters(BUCKETS, STRIPES);
+
+    /**
+     * Records a single value.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void record(final long nanos) {
+        buckets.increment(bucketOf(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    /**
+     * Returns the value below which the given fraction of all recorded values fall.
+     *
+     * @param fraction a value between 0 and 1, for example 0.99 for the 99th percentile
+     * @return the upper bound of the matching bucket in microseconds, or 0 if nothing was recorded
+     */
+    long getPercentile(final double fraction) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.sum(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    static int bucketOf(final long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude >= MAGNITUDES) {
+            return BUCKETS - 1;
+        }
+        // the bits right below the highest one select the linear sub bucket
+        final int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int sub = bucket % SUB_BUCKETS;
+        final long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (1L << magnitude) + (sub + 1) * width - 1;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component.invocationmetrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of long counters which are updated by many threads at once. Each thread adds to the counters of its own
+ * stripe, every stripe living on its own cache line, and readers sum up all stripes. Updates never allocate.
+ */
+class StripedCounters {
+    /**
+     * Number of longs in a cache line, a stripe never holds more counters than this.
+     */
+    private static final int CELL_SIZE = 8;
+    private static final int MAX_STRIPES = 64;
+    private static final int DEFAULT_STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    private final int cellSize;
+
+    StripedCounters(final int counters) {
+        this(counters, DEFAULT_STRIPES);
+    }
+
+    StripedCounters(final int counters, final int stripes) {
+        assert counters > 0 : "counters must be positive";
+        // counters that do not fit into a single cache line are still correct, just not padded
+        this.cellSize = counters <= CELL_SIZE ? CELL_SIZE : counters;
+        final int count = stripesFor(stripes);
+        this.mask = count - 1;
+        this.cells = new AtomicLongArray(count * cellSize);
+    }
+
+    void increment(final int counter) {
+        increment(stripe(), counter);
+    }
+
+    /**
+     * Increments a counter within a stripe previously obtained from {@link #stripe()}, which saves looking up the
+     * stripe again when several counters are updated together.
+     */
+    void increment(final int stripe, final int counter) {
+        cells.incrementAndGet(stripe * cellSize + counter);
+    }
+
+    void add(final int stripe, final int counter, final long delta) {
+        cells.addAndGet(stripe * cellSize + counter, delta);
+    }
+
+    long sum(final int counter) {
+        long sum = 0;
+        for (int i = counter; i < cells.length(); i += cellSize) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the index of the stripe of the current thread.
+     */
+    int stripe() {
+        return stripeOf(Thread.currentThread().getId()) & mask;
+    }
+
+    private static int stripeOf(final long threadId) {
+        // thread ids are mostly sequential, spread them over the stripes
+        int h = (int) (threadId ^ (threadId >>> 32));
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+    private static int stripesFor(final int concurrency) {
+        int stripes = 1;
+        while (stripes < concurrency && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -32,14 +32,41 @@ import org.jboss.invocation.InterceptorFactory;
 public class WaitTimeInterceptor extends AbstractEJBInterceptor {
     public static final InterceptorFactory FACTORY = new ImmediateInterceptorFactory(new WaitTimeInterceptor());
 
-    static final Object START_WAIT_TIME = new Object();
+    /**
+     * The time the invocation on the current thread started waiting. The {@link ExecutionTimeInterceptor} runs further
+     * down the same chain, on the same thread, so a per thread holder passes the time on without boxing it.
+     */
+    private static final ThreadLocal<long[]> START_WAIT_TIME = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
 
     private WaitTimeInterceptor() {
     }
 
     @Override
     public Object processInvocation(final InterceptorContext context) throws Exception {
-        context.putPrivateData(START_WAIT_TIME, System.currentTimeMillis());
-        return context.proceed();
+        final long[] startWaitTime = START_WAIT_TIME.get();
+        startWaitTime[0] = System.currentTimeMillis();
+        try {
+            return context.proceed();
+        } finally {
+            startWaitTime[0] = 0L;
+        }
+    }
+
+    /**
+     * Returns the time the invocation on the current thread started waiting, and clears it so that nested invocations
+     * do not see it.
+     *
+     * @return the start of the wait time in milliseconds, or {@code 0} if unknown
+     */
+    static long takeStartWaitTime() {
+        final long[] startWaitTime = START_WAIT_TIME.get();
+        final long start = startWaitTime[0];
+        startWaitTime[0] = 0L;
+        return start;
     }
 }
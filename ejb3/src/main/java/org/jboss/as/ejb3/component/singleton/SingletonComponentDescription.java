@@ -75,6 +75,11 @@ public class SingletonComponentDescription extends SessionBeanComponentDescripti
      */
     private boolean initOnStartup;
 
+    /**
+     * Flag to indicate whether the container managed concurrency uses a {@link org.jboss.as.ejb3.concurrency.ReaderBiasedReadWriteLock}
+     */
+    private boolean readerBiasedLock;
+
     private final List<ServiceName> dependsOn = new ArrayList<ServiceName>();
 
     private DefaultAccessTimeoutService defaultAccessTimeoutProvider;
@@ -160,6 +165,18 @@ public class SingletonComponentDescription extends SessionBeanComponentDescripti
 
     }
 
+    /**
+     * Returns true if the container managed concurrency of the singleton bean uses a lock which favours
+     * {@link javax.ejb.LockType#READ} invocations. Else returns false
+     */
+    public boolean isReaderBiasedLock() {
+        return this.readerBiasedLock;
+    }
+
+    public void setReaderBiasedLock(final boolean readerBiasedLock) {
+        this.readerBiasedLock = readerBiasedLock;
+    }
+
     @Override
     public boolean allowsConcurrentAccess() {
         return true;
@@ -240,7 +257,8 @@ public class SingletonComponentDescription extends SessionBeanComponentDescripti
                 if (singletonComponentDescription.getConcurrencyManagementType() == ConcurrencyManagementType.BEAN) {
                     return;
                 }
-                configuration.addComponentInterceptor(ContainerManagedConcurrencyInterceptorFactory.INSTANCE, InterceptorOrder.Component.SINGLETON_CONTAINER_MANAGED_CONCURRENCY_INTERCEPTOR, false);
+                final ContainerManagedConcurrencyInterceptorFactory factory = singletonComponentDescription.isReaderBiasedLock() ? ContainerManagedConcurrencyInterceptorFactory.READER_BIASED_INSTANCE : ContainerManagedConcurrencyInterceptorFactory.INSTANCE;
+                configuration.addComponentInterceptor(factory, InterceptorOrder.Component.SINGLETON_CONTAINER_MANAGED_CONCURRENCY_INTERCEPTOR, false);
             }
         });
     }
@@ -29,6 +29,8 @@ import org.jboss.logging.Logger;
 import javax.ejb.LockType;
 import javax.interceptor.InvocationContext;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -45,17 +47,28 @@ public class ContainerManagedConcurrencyInterceptor implements Interceptor {
     private static final Logger logger = Logger.getLogger(ContainerManagedConcurrencyInterceptor.class);
 
     /**
-     * A spec compliant {@link org.jboss.as.ejb3.concurrency.EJBReadWriteLock}
+     * A spec compliant {@link org.jboss.as.ejb3.concurrency.EJBReadWriteLock}, or the opt-in
+     * {@link org.jboss.as.ejb3.concurrency.ReaderBiasedReadWriteLock}
      */
-    private final ReadWriteLock readWriteLock = new EJBReadWriteLock();
+    private final ReadWriteLock readWriteLock;
 
     private final LockableComponent lockableComponent;
 
+    /**
+     * The lock and explicit access timeout of each invoked method, resolved on the first invocation of the method
+     */
+    private final ConcurrentMap<Method, MethodLock> methodLocks = new ConcurrentHashMap<Method, MethodLock>();
+
     public ContainerManagedConcurrencyInterceptor(LockableComponent component) {
+        this(component, new EJBReadWriteLock());
+    }
+
+    public ContainerManagedConcurrencyInterceptor(LockableComponent component, ReadWriteLock readWriteLock) {
         if (component == null) {
             throw MESSAGES.componentIsNull(LockableComponent.class.getName());
         }
         this.lockableComponent = component;
+        this.readWriteLock = readWriteLock;
     }
 
     protected LockableComponent getLockableComponent() {
@@ -72,27 +85,23 @@ public class ContainerManagedConcurrencyInterceptor implements Interceptor {
             throw MESSAGES.invocationNotApplicableForMethodInvocation(invocationContext);
         }
         // get the Lock applicable for this method
-        Lock lock = getLock(lockableComponent, invokedMethod);
-        // the default access timeout (will be used in the absence of any explicit access timeout value for the invoked method)
-        AccessTimeoutDetails defaultAccessTimeout = lockableComponent.getDefaultAccessTimeout();
-        // set to the default values
-        long time = defaultAccessTimeout.getValue();
-        TimeUnit unit = defaultAccessTimeout.getTimeUnit();
-
-        AccessTimeoutDetails accessTimeoutOnMethod = lockableComponent.getAccessTimeout(invokedMethod);
-        if (accessTimeoutOnMethod != null) {
-            if (accessTimeoutOnMethod.getValue() < 0) {
-                // for any negative value of timeout, we just default to max timeout val and max timeout unit.
-                // violation of spec! But we don't want to wait indefinitely.
-
-                ROOT_LOGGER.debug("Ignoring a negative @AccessTimeout value: " + accessTimeoutOnMethod.getValue() + " and timeout unit: "
-                        + accessTimeoutOnMethod.getTimeUnit().name() + ". Will default to timeout value: " + defaultAccessTimeout.getValue()
-                        + " and timeout unit: " + defaultAccessTimeout.getTimeUnit().name());
-            } else {
-                // use the explicit access timeout values specified on the method
-                time = accessTimeoutOnMethod.getValue();
-                unit = accessTimeoutOnMethod.getTimeUnit();
-            }
+        MethodLock methodLock = methodLocks.get(invokedMethod);
+        if (methodLock == null) {
+            methodLock = resolveMethodLock(lockableComponent, invokedMethod);
+            methodLocks.putIfAbsent(invokedMethod, methodLock);
+        }
+        final Lock lock = methodLock.lock;
+        final long time;
+        final TimeUnit unit;
+        if (methodLock.accessTimeout != null) {
+            // use the explicit access timeout values specified on the method
+            time = methodLock.accessTimeout.getValue();
+            unit = methodLock.accessTimeout.getTimeUnit();
+        } else {
+            // the default access timeout is looked up on every invocation, it can be changed at runtime
+            AccessTimeoutDetails defaultAccessTimeout = lockableComponent.getDefaultAccessTimeout();
+            time = defaultAccessTimeout.getValue();
+            unit = defaultAccessTimeout.getTimeUnit();
         }
         // try getting the lock
         boolean success = lock.tryLock(time, unit);
@@ -107,6 +116,21 @@ public class ContainerManagedConcurrencyInterceptor implements Interceptor {
         }
     }
 
+    private MethodLock resolveMethodLock(LockableComponent lockableComponent, Method method) {
+        final Lock lock = getLock(lockableComponent, method);
+        AccessTimeoutDetails accessTimeoutOnMethod = lockableComponent.getAccessTimeout(method);
+        if (accessTimeoutOnMethod != null && accessTimeoutOnMethod.getValue() < 0) {
+            // for any negative value of timeout, we just default to max timeout val and max timeout unit.
+            // violation of spec! But we don't want to wait indefinitely.
+            AccessTimeoutDetails defaultAccessTimeout = lockableComponent.getDefaultAccessTimeout();
+            ROOT_LOGGER.debug("Ignoring a negative @AccessTimeout value: " + accessTimeoutOnMethod.getValue() + " and timeout unit: "
+                    + accessTimeoutOnMethod.getTimeUnit().name() + ". Will default to timeout value: " + defaultAccessTimeout.getValue()
+                    + " and timeout unit: " + defaultAccessTimeout.getTimeUnit().name());
+            accessTimeoutOnMethod = null;
+        }
+        return new MethodLock(lock, accessTimeoutOnMethod);
+    }
+
     private Lock getLock(LockableComponent lockableComponent, Method method) {
         LockType lockType = lockableComponent.getLockType(method);
         switch (lockType) {
@@ -118,4 +142,13 @@ public class ContainerManagedConcurrencyInterceptor implements Interceptor {
         throw MESSAGES.failToObtainLockIllegalType(lockType,method,lockableComponent);
     }
 
+    private static final class MethodLock {
+        private final Lock lock;
+        private final AccessTimeoutDetails accessTimeout;
+
+        MethodLock(final Lock lock, final AccessTimeoutDetails accessTimeout) {
+            this.lock = lock;
+            this.accessTimeout = accessTimeout;
+        }
+    }
 }
@@ -27,6 +27,8 @@ import org.jboss.as.ee.component.ComponentInstanceInterceptorFactory;
 import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorFactoryContext;
 
+import java.util.concurrent.locks.ReadWriteLock;
+
 /**
  * An {@link org.jboss.invocation.InterceptorFactory} which returns a new instance of {@link ContainerManagedConcurrencyInterceptor} on each
  * invocation to {@link #create(org.jboss.invocation.InterceptorFactoryContext)}. This {@link org.jboss.invocation.InterceptorFactory} can be used
@@ -36,14 +38,22 @@ import org.jboss.invocation.InterceptorFactoryContext;
  */
 public class ContainerManagedConcurrencyInterceptorFactory extends ComponentInstanceInterceptorFactory {
 
-    public static final ContainerManagedConcurrencyInterceptorFactory INSTANCE = new ContainerManagedConcurrencyInterceptorFactory();
+    public static final ContainerManagedConcurrencyInterceptorFactory INSTANCE = new ContainerManagedConcurrencyInterceptorFactory(false);
+
+    /**
+     * Creates interceptors which use a {@link ReaderBiasedReadWriteLock}
+     */
+    public static final ContainerManagedConcurrencyInterceptorFactory READER_BIASED_INSTANCE = new ContainerManagedConcurrencyInterceptorFactory(true);
 
-    private ContainerManagedConcurrencyInterceptorFactory() {
+    private final boolean readerBiased;
 
+    private ContainerManagedConcurrencyInterceptorFactory(final boolean readerBiased) {
+        this.readerBiased = readerBiased;
     }
 
     @Override
     protected Interceptor create(final Component component, final InterceptorFactoryContext context) {
-        return new ContainerManagedConcurrencyInterceptor((LockableComponent) component);
+        final ReadWriteLock readWriteLock = this.readerBiased ? new ReaderBiasedReadWriteLock() : new EJBReadWriteLock();
+        return new ContainerManagedConcurrencyInterceptor((LockableComponent) component, readWriteLock);
     }
 }
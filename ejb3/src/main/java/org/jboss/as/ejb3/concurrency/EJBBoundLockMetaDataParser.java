@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.concurrency;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jboss.metadata.ejb.parser.jboss.ejb3.AbstractEJBBoundMetaDataParser;
+import org.jboss.metadata.property.PropertyReplacer;
+
+/**
+ * Parses the urn:ejb-lock namespace elements, which let a singleton bean opt in to the {@link ReaderBiasedReadWriteLock}:
+ * <pre>
+ * &lt;l:lock&gt;
+ *     &lt;ejb-name&gt;*&lt;/ejb-name&gt;
+ *     &lt;l:reader-biased&gt;true&lt;/l:reader-biased&gt;
+ * &lt;/l:lock&gt;
+ * </pre>
+ */
+public class EJBBoundLockMetaDataParser extends AbstractEJBBoundMetaDataParser<EJBBoundLockMetaData> {
+
+    public static final String NAMESPACE_URI = "urn:ejb-lock:1.0";
+    public static final EJBBoundLockMetaDataParser INSTANCE = new EJBBoundLockMetaDataParser();
+
+    private static final String ROOT_ELEMENT_LOCK = "lock";
+
+    private EJBBoundLockMetaDataParser() {
+
+    }
+
+    @Override
+    public EJBBoundLockMetaData parse(final XMLStreamReader reader, final PropertyReplacer propertyReplacer) throws XMLStreamException {
+        // we only parse <lock> (root) element
+        if (!ROOT_ELEMENT_LOCK.equals(reader.getLocalName())) {
+            throw unexpectedElement(reader);
+        }
+        final EJBBoundLockMetaData metaData = new EJBBoundLockMetaData();
+        this.processElements(metaData, reader, propertyReplacer);
+        return metaData;
+    }
+
+    @Override
+    protected void processElement(final EJBBoundLockMetaData metaData, final XMLStreamReader reader, final PropertyReplacer propertyReplacer) throws XMLStreamException {
+        if (NAMESPACE_URI.equals(reader.getNamespaceURI())) {
+            final String localName = reader.getLocalName();
+            if (localName.equals("reader-biased")) {
+                final String text = getElementText(reader, propertyReplacer);
+                if (text != null) {
+                    metaData.setReaderBiased(Boolean.parseBoolean(text.trim()));
+                }
+            } else {
+                throw unexpectedElement(reader);
+            }
+        } else {
+            super.processElement(metaData, reader, propertyReplacer);
+        }
+    }
+}
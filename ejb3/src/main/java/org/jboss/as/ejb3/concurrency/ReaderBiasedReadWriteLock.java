@@ -0,0 +1,338 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.concurrency;
+
+import static org.jboss.as.ejb3.EjbMessages.MESSAGES;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link ReadWriteLock} biased towards readers, with the same semantics as {@link EJBReadWriteLock}.
+ * <p/>
+ * Readers announce themselves by incrementing a counter in the stripe of the current thread, each stripe living on
+ * its own cache line, and only fall back to the underlying {@link ReentrantReadWriteLock} while a writer is active.
+ * An uncontended read is therefore a single atomic increment on a line which is not shared with readers on other
+ * processors. A writer first takes the write lock of the underlying lock, which excludes other writers and parks
+ * newly arriving readers, raises the {@link #writing} flag and then waits for the stripes to drain.
+ * <p/>
+ * Reads are reentrant, also while a writer is waiting, and the thread holding the write lock may take the read
+ * lock. A thread holding a read lock which tries to obtain the write lock gets an
+ * {@link javax.ejb.IllegalLoopbackException}.
+ */
+public class ReaderBiasedReadWriteLock implements ReadWriteLock {
+
+    /**
+     * Number of longs per stripe, so that every stripe has a cache line of its own.
+     */
+    private static final int CELL_SIZE = 8;
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * Serializes writers and parks readers arriving while a writer is active.
+     */
+    private final ReentrantReadWriteLock delegate = new ReentrantReadWriteLock();
+    /**
+     * The number of read locks held, per stripe.
+     */
+    private final AtomicLongArray readers;
+    private final int stripeMask;
+    /**
+     * The number of read locks held by the current thread. A mutable holder, so that a read does not allocate.
+     */
+    private final ThreadLocal<int[]> readHolds = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+    /**
+     * Set while a writer holds, or is waiting for, the write lock.
+     */
+    private volatile boolean writing;
+    /**
+     * The writer waiting for the readers to drain, unparked by the last reader to leave.
+     */
+    private volatile Thread drainingWriter;
+
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+
+    public ReaderBiasedReadWriteLock() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ReaderBiasedReadWriteLock(int concurrencyLevel) {
+        // round up to a power of two so the stripe can be picked with a mask
+        int stripeCount = 1;
+        while (stripeCount < concurrencyLevel && stripeCount < MAX_STRIPES) {
+            stripeCount <<= 1;
+        }
+        this.readers = new AtomicLongArray(stripeCount * CELL_SIZE);
+        this.stripeMask = stripeCount - 1;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * @return the number of read locks currently held
+     */
+    public long getReadLockCount() {
+        long count = 0;
+        for (int i = 0; i <= stripeMask; i++) {
+            count += readers.get(i * CELL_SIZE);
+        }
+        return count;
+    }
+
+    public boolean isWriteLocked() {
+        return delegate.isWriteLocked();
+    }
+
+    private boolean acquireRead(final boolean timed, final long nanos) throws InterruptedException {
+        final int[] holds = readHolds.get();
+        final int index = stripeIndex();
+        if (holds[0] > 0 || delegate.isWriteLockedByCurrentThread()) {
+            // reentrant read, a waiting writer is waiting for us so we must not back off
+            readers.incrementAndGet(index);
+            holds[0]++;
+            return true;
+        }
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (;;) {
+            readers.incrementAndGet(index);
+            if (!writing) {
+                holds[0]++;
+                return true;
+            }
+            // a writer is active, back off and wait for it on the underlying lock
+            releaseRead(index);
+            final Lock slow = delegate.readLock();
+            if (timed) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L || !slow.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            } else {
+                slow.lockInterruptibly();
+            }
+            slow.unlock();
+        }
+    }
+
+    private void unlockRead() {
+        final int[] holds = readHolds.get();
+        if (holds[0] <= 0) {
+            throw new IllegalMonitorStateException();
+        }
+        holds[0]--;
+        releaseRead(stripeIndex());
+    }
+
+    private void releaseRead(final int index) {
+        readers.decrementAndGet(index);
+        if (writing) {
+            final Thread writer = drainingWriter;
+            if (writer != null) {
+                LockSupport.unpark(writer);
+            }
+        }
+    }
+
+    private boolean acquireWrite(final boolean timed, final long nanos) throws InterruptedException {
+        if (readHolds.get()[0] > 0) {
+            throw MESSAGES.failToUpgradeToWriteLock();
+        }
+        final Lock exclusive = delegate.writeLock();
+        if (delegate.isWriteLockedByCurrentThread()) {
+            // reentrant write, the readers have already drained
+            exclusive.lock();
+            return true;
+        }
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        if (timed) {
+            if (!exclusive.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } else {
+            exclusive.lockInterruptibly();
+        }
+        writing = true;
+        if (getReadLockCount() == 0L) {
+            return true;
+        }
+        drainingWriter = Thread.currentThread();
+        boolean drained = false;
+        try {
+            while (getReadLockCount() != 0L) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (timed) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            drained = true;
+            return true;
+        } finally {
+            drainingWriter = null;
+            if (!drained) {
+                writing = false;
+                exclusive.unlock();
+            }
+        }
+    }
+
+    private void unlockWrite() {
+        if (delegate.getWriteHoldCount() == 1) {
+            writing = false;
+        }
+        delegate.writeLock().unlock();
+    }
+
+    private int stripeIndex() {
+        final long id = Thread.currentThread().getId();
+        // spread the bits, thread ids are mostly sequential
+        int h = (int) (id ^ (id >>> 32));
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return (h & stripeMask) * CELL_SIZE;
+    }
+
+    private class ReadLock implements Lock {
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    acquireRead(false, 0L);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquireRead(false, 0L);
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return acquireRead(true, 0L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return acquireRead(true, unit.toNanos(time));
+        }
+
+        @Override
+        public void unlock() {
+            unlockRead();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class WriteLock implements Lock {
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    acquireWrite(false, 0L);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquireWrite(false, 0L);
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return acquireWrite(true, 0L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return acquireWrite(true, unit.toNanos(time));
+        }
+
+        @Override
+        public void unlock() {
+            unlockWrite();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
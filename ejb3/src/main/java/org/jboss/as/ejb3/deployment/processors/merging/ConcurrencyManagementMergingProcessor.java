@@ -25,14 +25,19 @@ import org.jboss.as.ee.component.EEApplicationClasses;
 import org.jboss.as.ee.component.EEModuleClassDescription;
 import org.jboss.as.ee.metadata.ClassAnnotationInformation;
 import org.jboss.as.ejb3.component.session.SessionBeanComponentDescription;
+import org.jboss.as.ejb3.component.singleton.SingletonComponentDescription;
+import org.jboss.as.ejb3.concurrency.EJBBoundLockMetaData;
+import org.jboss.as.ejb3.deployment.EjbDeploymentAttachmentKeys;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
 import org.jboss.as.server.deployment.reflect.DeploymentReflectionIndex;
+import org.jboss.metadata.ejb.spec.EjbJarMetaData;
 import org.jboss.metadata.ejb.spec.SessionBean31MetaData;
 import org.jboss.metadata.ejb.spec.SessionBeanMetaData;
 
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
+import java.util.List;
 
 /**
  * @author Stuart Douglas
@@ -61,6 +66,9 @@ public class ConcurrencyManagementMergingProcessor extends AbstractMergingProces
 
     @Override
     protected void handleDeploymentDescriptor(final DeploymentUnit deploymentUnit, final DeploymentReflectionIndex deploymentReflectionIndex, final Class<?> componentClass, final SessionBeanComponentDescription componentConfiguration) throws DeploymentUnitProcessingException {
+        if (componentConfiguration instanceof SingletonComponentDescription) {
+            this.handleLockMetaData(deploymentUnit, (SingletonComponentDescription) componentConfiguration);
+        }
         if (componentConfiguration.getDescriptorData() == null) {
             return;
         }
@@ -73,4 +81,32 @@ public class ConcurrencyManagementMergingProcessor extends AbstractMergingProces
             }
         }
     }
+
+    /**
+     * Applies the urn:ejb-lock elements of jboss-ejb3.xml, an element for the bean itself takes precedence over one for all beans (*)
+     */
+    private void handleLockMetaData(final DeploymentUnit deploymentUnit, final SingletonComponentDescription componentConfiguration) {
+        final EjbJarMetaData ejbJarMetaData = deploymentUnit.getAttachment(EjbDeploymentAttachmentKeys.EJB_JAR_METADATA);
+        if (ejbJarMetaData == null || ejbJarMetaData.getAssemblyDescriptor() == null) {
+            return;
+        }
+        final List<EJBBoundLockMetaData> lockMetaDatas = ejbJarMetaData.getAssemblyDescriptor().getAny(EJBBoundLockMetaData.class);
+        if (lockMetaDatas == null) {
+            return;
+        }
+        Boolean beanReaderBiased = null;
+        Boolean allBeansReaderBiased = null;
+        for (final EJBBoundLockMetaData lockMetaData : lockMetaDatas) {
+            if ("*".equals(lockMetaData.getEjbName())) {
+                allBeansReaderBiased = lockMetaData.isReaderBiased();
+            } else if (componentConfiguration.getComponentName().equals(lockMetaData.getEjbName())) {
+                beanReaderBiased = lockMetaData.isReaderBiased();
+            }
+        }
+        if (beanReaderBiased != null) {
+            componentConfiguration.setReaderBiasedLock(beanReaderBiased);
+        } else if (allBeansReaderBiased != null) {
+            componentConfiguration.setReaderBiasedLock(allBeansReaderBiased);
+        }
+    }
 }
@@ -0,0 +1,272 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.pool.striped;
+
+import static org.jboss.as.ejb3.EjbLogger.ROOT_LOGGER;
+import static org.jboss.as.ejb3.EjbMessages.MESSAGES;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.jboss.as.ejb3.pool.AbstractPool;
+import org.jboss.as.ejb3.pool.StatelessObjectFactory;
+
+/**
+ * A pool with a maximum size, tuned for many concurrent callers.
+ * <p/>
+ * Like {@link org.jboss.as.ejb3.pool.strictmax.StrictMaxPool} at most <code>maxSize</code> instances may be
+ * in use at any given time, but idle instances are kept in a number of stripes (one per available processor)
+ * instead of a single synchronized list. A caller first looks in the stripe of the current thread, then steals
+ * from the other stripes and finally falls back to a shared overflow queue, none of which take a lock. Permits are
+ * handed out by a non-fair semaphore, so the uncontended path is a single CAS.
+ */
+public class StripedPool<T> extends AbstractPool<T> {
+
+    /**
+     * Only maxSize instances may be active and any attempt to get an
+     * instance will block until an instance is freed.
+     */
+    private final Semaphore semaphore;
+    /**
+     * The maximum number of instances allowed in the pool
+     */
+    private final int maxSize;
+    /**
+     * The time to wait for the semaphore.
+     */
+    private final long timeout;
+    private final TimeUnit timeUnit;
+    /**
+     * The idle instances, per stripe. Each stripe is used as a stack so that recently used (cache hot) instances
+     * are handed out first.
+     */
+    private final ConcurrentLinkedDeque<T>[] stripes;
+    /**
+     * The approximate number of instances held by each stripe.
+     */
+    private final AtomicIntegerArray stripeSizes;
+    /**
+     * The maximum number of instances a single stripe holds before spilling into {@link #overflow}.
+     */
+    private final int stripeCapacity;
+    private final int stripeMask;
+    /**
+     * Idle instances which did not fit into the stripe of the releasing thread.
+     */
+    private final ConcurrentLinkedQueue<T> overflow = new ConcurrentLinkedQueue<T>();
+    /**
+     * The total number of idle instances.
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    public StripedPool(StatelessObjectFactory<T> factory, int maxSize, long timeout, TimeUnit timeUnit) {
+        this(factory, maxSize, timeout, timeUnit, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedPool(StatelessObjectFactory<T> factory, int maxSize, long timeout, TimeUnit timeUnit, int concurrencyLevel) {
+        super(factory);
+        this.maxSize = maxSize;
+        this.semaphore = new Semaphore(maxSize, false);
+        this.timeout = timeout;
+        this.timeUnit = timeUnit;
+
+        // round up to a power of two so the stripe can be picked with a mask
+        int stripeCount = 1;
+        while (stripeCount < concurrencyLevel && stripeCount < maxSize) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new ConcurrentLinkedDeque[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ConcurrentLinkedDeque<T>();
+        }
+        this.stripeSizes = new AtomicIntegerArray(stripeCount);
+        this.stripeMask = stripeCount - 1;
+        this.stripeCapacity = Math.max(1, (maxSize + stripeCount - 1) / stripeCount);
+    }
+
+    public void discard(T ctx) {
+        if (ROOT_LOGGER.isTraceEnabled()) {
+            ROOT_LOGGER.tracef("Discard instance %s#%s", this, ctx);
+        }
+
+        semaphore.release();
+
+        // Let the super do any other remove stuff
+        super.doRemove(ctx);
+    }
+
+    public int getCurrentSize() {
+        return getCreateCount() - getRemoveCount();
+    }
+
+    public int getAvailableCount() {
+        return semaphore.availablePermits();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        throw MESSAGES.methodNotImplemented();
+    }
+
+    /**
+     * Get an instance without identity.
+     * Can be used by finders,create-methods, and activation
+     *
+     * @return Context /w instance
+     */
+    public T get() {
+        // barge first, only fall back to a timed wait if all permits are taken
+        if (!semaphore.tryAcquire()) {
+            try {
+                boolean acquired = semaphore.tryAcquire(timeout, timeUnit);
+                if (!acquired)
+                    throw MESSAGES.failedToAcquirePermit(timeout, timeUnit);
+            } catch (InterruptedException e) {
+                throw MESSAGES.acquireSemaphoreInterrupted();
+            }
+        }
+
+        final T pooled = poll();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        T bean = null;
+        try {
+            // Pool is empty, create an instance
+            bean = create();
+        } finally {
+            if (bean == null) {
+                semaphore.release();
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * Return an instance after invocation.
+     * <p/>
+     * Called in 2 cases:
+     * a) Done with finder method
+     * b) Just removed
+     *
+     * @param obj
+     */
+    public void release(T obj) {
+        if (ROOT_LOGGER.isTraceEnabled()) {
+            ROOT_LOGGER.tracef("%s/%s Free instance: %s", idleCount.get(), maxSize, this);
+        }
+
+        if (!offer(obj))
+            destroy(obj);
+        semaphore.release();
+    }
+
+    @Override
+    @Deprecated
+    public void remove(T ctx) {
+        if (ROOT_LOGGER.isTraceEnabled()) {
+            ROOT_LOGGER.tracef("Removing instance: %s#%s", this, ctx);
+        }
+
+        semaphore.release();
+        // let the super do the other remove stuff
+        super.doRemove(ctx);
+    }
+
+    public void start() {
+        // nothing to do
+    }
+
+    public void stop() {
+        T obj;
+        while ((obj = poll()) != null) {
+            destroy(obj);
+        }
+    }
+
+    private T poll() {
+        final int home = stripeIndex();
+        // own stripe first, most recently released instance on top
+        T obj = stripes[home].pollFirst();
+        if (obj != null) {
+            stripeSizes.decrementAndGet(home);
+            idleCount.decrementAndGet();
+            return obj;
+        }
+        obj = overflow.poll();
+        if (obj != null) {
+            idleCount.decrementAndGet();
+            return obj;
+        }
+        // steal the coldest instance of the other stripes
+        for (int i = 1; i <= stripeMask; i++) {
+            final int victim = (home + i) & stripeMask;
+            obj = stripes[victim].pollLast();
+            if (obj != null) {
+                stripeSizes.decrementAndGet(victim);
+                idleCount.decrementAndGet();
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    private boolean offer(T obj) {
+        // reserve a slot, the number of idle instances never exceeds maxSize
+        for (;;) {
+            final int idle = idleCount.get();
+            if (idle >= maxSize) {
+                return false;
+            }
+            if (idleCount.compareAndSet(idle, idle + 1)) {
+                break;
+            }
+        }
+        final int home = stripeIndex();
+        if (stripeSizes.incrementAndGet(home) <= stripeCapacity) {
+            stripes[home].offerFirst(obj);
+        } else {
+            stripeSizes.decrementAndGet(home);
+            overflow.offer(obj);
+        }
+        return true;
+    }
+
+    private int stripeIndex() {
+        final long id = Thread.currentThread().getId();
+        // spread the bits, thread ids are mostly sequential
+        int h = (int) (id ^ (id >>> 32));
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & stripeMask;
+    }
+}
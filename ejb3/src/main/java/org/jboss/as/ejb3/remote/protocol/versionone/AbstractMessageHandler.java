@@ -22,6 +22,7 @@
 
 package org.jboss.as.ejb3.remote.protocol.versionone;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
@@ -60,6 +61,18 @@ abstract class AbstractMessageHandler implements MessageHandler {
     protected static final byte HEADER_SESSION_NOT_ACTIVE_FAILURE = 0x0C;
     private static final byte HEADER_INVOCATION_EXCEPTION = 0x06;
 
+    /**
+     * Buffers larger than this are not kept for reuse by their thread after a message was written
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<MessageBuffer> MESSAGE_BUFFERS = new ThreadLocal<MessageBuffer>() {
+        @Override
+        protected MessageBuffer initialValue() {
+            return new MessageBuffer();
+        }
+    };
+
 
     protected Map<String, Object> readAttachments(final ObjectInput input) throws IOException, ClassNotFoundException {
         final int numAttachments = input.readByte();
@@ -93,30 +106,33 @@ abstract class AbstractMessageHandler implements MessageHandler {
     protected void writeException(final ChannelAssociation channelAssociation, final MarshallerFactory marshallerFactory,
                                   final short invocationId, final Throwable t,
                                   final Map<String, Object> attachments) throws IOException {
-        final DataOutputStream outputStream;
-        final MessageOutputStream messageOutputStream;
-        try {
-            messageOutputStream = channelAssociation.acquireChannelMessageOutputStream();
-        } catch (Exception e) {
-            throw EjbMessages.MESSAGES.failedToOpenMessageOutputStream(e);
-        }
-        outputStream = new DataOutputStream(messageOutputStream);
-        try {
-            // write the header
-            outputStream.write(HEADER_INVOCATION_EXCEPTION);
-            // write the invocation id
-            outputStream.writeShort(invocationId);
-            // write out the exception
-            final Marshaller marshaller = this.prepareForMarshalling(marshallerFactory, outputStream);
-            marshaller.writeObject(t);
-            // write the attachments
-            this.writeAttachments(marshaller, attachments);
-            // finish marshalling
-            marshaller.finish();
-        } finally {
-            channelAssociation.releaseChannelMessageOutputStream(messageOutputStream);
-            outputStream.close();
-        }
+        final MessageBuffer buffer = acquireMessageBuffer();
+        final DataOutputStream outputStream = new DataOutputStream(buffer);
+        // write the header
+        outputStream.write(HEADER_INVOCATION_EXCEPTION);
+        // write the invocation id
+        outputStream.writeShort(invocationId);
+        // write out the exception
+        final Marshaller marshaller = this.prepareForMarshalling(marshallerFactory, outputStream);
+        marshaller.writeObject(t);
+        // write the attachments
+        this.writeAttachments(marshaller, attachments);
+        // finish marshalling
+        marshaller.finish();
+        buffer.writeTo(channelAssociation);
+    }
+
+    /**
+     * Returns the (empty) message buffer of the current thread. A message is marshalled into the buffer and then
+     * written to the channel in one go by {@link MessageBuffer#writeTo(ChannelAssociation)}, so that the channel write
+     * permit is not held while marshalling.
+     *
+     * @return the message buffer of the current thread
+     */
+    protected static MessageBuffer acquireMessageBuffer() {
+        final MessageBuffer buffer = MESSAGE_BUFFERS.get();
+        buffer.reset();
+        return buffer;
     }
 
     protected void writeInvocationFailure(final ChannelAssociation channelAssociation, final byte messageHeader, final short invocationId, final String failureMessage) throws IOException {
@@ -296,4 +312,35 @@ abstract class AbstractMessageHandler implements MessageHandler {
         marshallingConfiguration.setSerializedCreator(new SunReflectiveCreator());
         return marshallerFactory.createUnmarshaller(marshallingConfiguration);
     }
+
+    static final class MessageBuffer extends ByteArrayOutputStream {
+
+        MessageBuffer() {
+            super(512);
+        }
+
+        /**
+         * Writes the buffered message to the channel as a single message and empties the buffer.
+         *
+         * @param channelAssociation the channel to write to
+         * @throws IOException if the message could not be written
+         */
+        void writeTo(final ChannelAssociation channelAssociation) throws IOException {
+            final MessageOutputStream messageOutputStream;
+            try {
+                messageOutputStream = channelAssociation.acquireChannelMessageOutputStream();
+            } catch (Exception e) {
+                throw EjbMessages.MESSAGES.failedToOpenMessageOutputStream(e);
+            }
+            try {
+                messageOutputStream.write(this.buf, 0, this.count);
+            } finally {
+                channelAssociation.releaseChannelMessageOutputStream(messageOutputStream);
+                if (this.buf.length > MAX_RETAINED_BUFFER_SIZE) {
+                    this.buf = new byte[512];
+                }
+                this.count = 0;
+            }
+        }
+    }
 }
@@ -58,7 +58,7 @@ import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 
 
@@ -72,15 +72,19 @@ class MethodInvocationMessageHandler extends EJBIdentifierBasedMessageHandler {
     private static final byte HEADER_METHOD_INVOCATION_RESPONSE = 0x05;
     private static final byte HEADER_ASYNC_METHOD_NOTIFICATION = 0x0E;
 
-    private final ExecutorService executorService;
+    private final Executor executor;
     private final MarshallerFactory marshallerFactory;
     private final RemoteAsyncInvocationCancelStatusService remoteAsyncInvocationCancelStatus;
 
-    MethodInvocationMessageHandler(final DeploymentRepository deploymentRepository, final org.jboss.marshalling.MarshallerFactory marshallerFactory, final ExecutorService executorService,
+    /**
+     * @param executor the executor which invokes the method and writes the response, once the invocation has been
+     *                 unmarshalled
+     */
+    MethodInvocationMessageHandler(final DeploymentRepository deploymentRepository, final org.jboss.marshalling.MarshallerFactory marshallerFactory, final Executor executor,
                                    final RemoteAsyncInvocationCancelStatusService asyncInvocationCancelStatus) {
         super(deploymentRepository);
         this.marshallerFactory = marshallerFactory;
-        this.executorService = executorService;
+        this.executor = executor;
         this.remoteAsyncInvocationCancelStatus = asyncInvocationCancelStatus;
     }
 
@@ -177,6 +181,8 @@ class MethodInvocationMessageHandler extends EJBIdentifierBasedMessageHandler {
             }
             // done with unmarshalling
             unmarshaller.finish();
+            // the message has been read completely, free it up for the channel before invoking
+            IoUtils.safeClose(messageInputStream);
 
             runnable = new Runnable() {
 
@@ -250,8 +256,8 @@ class MethodInvocationMessageHandler extends EJBIdentifierBasedMessageHandler {
         } finally {
             SecurityActions.setContextClassLoader(tccl);
         }
-        // invoke the method and write out the response on a separate thread
-        executorService.submit(runnable);
+        // invoke the method and write out the response
+        executor.execute(runnable);
     }
 
     private Affinity getWeakAffinity(final StatefulSessionComponent statefulSessionComponent, final StatefulEJBLocator<?> statefulEJBLocator) {
@@ -345,30 +351,21 @@ class MethodInvocationMessageHandler extends EJBIdentifierBasedMessageHandler {
     }
 
     private void writeMethodInvocationResponse(final ChannelAssociation channelAssociation, final short invocationId, final Object result, final Map<String, Object> attachments) throws IOException {
-        final DataOutputStream outputStream;
-        final MessageOutputStream messageOutputStream;
-        try {
-            messageOutputStream = channelAssociation.acquireChannelMessageOutputStream();
-        } catch (Throwable e) {
-            throw EjbMessages.MESSAGES.failedToOpenMessageOutputStream(e);
-        }
-        outputStream = new DataOutputStream(messageOutputStream);
-        try {
-            // write invocation response header
-            outputStream.write(HEADER_METHOD_INVOCATION_RESPONSE);
-            // write the invocation id
-            outputStream.writeShort(invocationId);
-            // write out the result
-            final Marshaller marshaller = this.prepareForMarshalling(this.marshallerFactory, outputStream);
-            marshaller.writeObject(result);
-            // write the attachments
-            this.writeAttachments(marshaller, attachments);
-            // finish marshalling
-            marshaller.finish();
-        } finally {
-            channelAssociation.releaseChannelMessageOutputStream(messageOutputStream);
-            outputStream.close();
-        }
+        // marshal the whole response before taking one of the limited write permits of the channel
+        final MessageBuffer buffer = acquireMessageBuffer();
+        final DataOutputStream outputStream = new DataOutputStream(buffer);
+        // write invocation response header
+        outputStream.write(HEADER_METHOD_INVOCATION_RESPONSE);
+        // write the invocation id
+        outputStream.writeShort(invocationId);
+        // write out the result
+        final Marshaller marshaller = this.prepareForMarshalling(this.marshallerFactory, outputStream);
+        marshaller.writeObject(result);
+        // write the attachments
+        this.writeAttachments(marshaller, attachments);
+        // finish marshalling
+        marshaller.finish();
+        buffer.writeTo(channelAssociation);
     }
 
 
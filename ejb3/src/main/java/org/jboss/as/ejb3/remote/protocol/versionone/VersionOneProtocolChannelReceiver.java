@@ -38,6 +38,7 @@ import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.CloseHandler;
 import org.jboss.remoting3.MessageInputStream;
 import org.jboss.remoting3.MessageOutputStream;
+import org.jboss.remoting3.RemotingOptions;
 import org.xnio.IoUtils;
 
 import java.io.DataOutputStream;
@@ -48,7 +49,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Jaikiran Pai
@@ -65,6 +70,18 @@ public class VersionOneProtocolChannelReceiver implements Channel.Receiver, Depl
     private static final byte HEADER_TX_FORGET_REQUEST = 0x12;
     private static final byte HEADER_TX_BEFORE_COMPLETION_REQUEST = 0x13;
 
+    private static final int DEFAULT_MAX_INBOUND_INVOCATIONS = 80;
+
+    /**
+     * Runs the invocation in the thread which unmarshalled it, that thread already belongs to {@link #executorService}
+     */
+    private static final Executor CALLER_RUNS = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
     private final ChannelAssociation channelAssociation;
     private final DeploymentRepository deploymentRepository;
     private final EJBRemoteTransactionsRepository transactionsRepository;
@@ -73,6 +90,14 @@ public class VersionOneProtocolChannelReceiver implements Channel.Receiver, Depl
     private final RegistryCollector<String, List<ClientMapping>> clientMappingRegistryCollector;
     private final Set<ClusterTopologyUpdateListener> clusterTopologyUpdateListeners = Collections.synchronizedSet(new HashSet<ClusterTopologyUpdateListener>());
     private final RemoteAsyncInvocationCancelStatusService remoteAsyncInvocationCancelStatus;
+    /**
+     * The maximum number of invocations of this channel being unmarshalled or invoked at the same time. Once reached,
+     * no further messages are received from the channel until an invocation completes, so that the client is
+     * throttled by the flow control of the channel.
+     */
+    private final int maxInboundInvocations;
+    private final AtomicInteger inboundInvocations = new AtomicInteger();
+    private final AtomicBoolean receiveSuspended = new AtomicBoolean();
 
     public VersionOneProtocolChannelReceiver(final ChannelAssociation channelAssociation, final DeploymentRepository deploymentRepository,
                                              final EJBRemoteTransactionsRepository transactionsRepository, final RegistryCollector<String, List<ClientMapping>> clientMappingRegistryCollector,
@@ -84,6 +109,8 @@ public class VersionOneProtocolChannelReceiver implements Channel.Receiver, Depl
         this.transactionsRepository = transactionsRepository;
         this.clientMappingRegistryCollector = clientMappingRegistryCollector;
         this.remoteAsyncInvocationCancelStatus = asyncInvocationCancelStatusService;
+        final Integer maxInboundMessages = channelAssociation.getChannel().getOption(RemotingOptions.MAX_INBOUND_MESSAGES);
+        this.maxInboundInvocations = (maxInboundMessages != null) ? maxInboundMessages : DEFAULT_MAX_INBOUND_INVOCATIONS;
     }
 
     public void startReceiving() {
@@ -140,6 +167,7 @@ public class VersionOneProtocolChannelReceiver implements Channel.Receiver, Depl
 
     @Override
     public void handleMessage(Channel channel, MessageInputStream messageInputStream) {
+        boolean dispatched = false;
         try {
             // read the first byte to see what type of a message it is
             final int header = messageInputStream.read();
@@ -149,8 +177,11 @@ public class VersionOneProtocolChannelReceiver implements Channel.Receiver, Depl
             MessageHandler messageHandler = null;
             switch (header) {
                 case HEADER_INVOCATION_REQUEST:
-                    messageHandler = new MethodInvocationMessageHandler(this.deploymentRepository, this.marshallerFactory, this.executorService, this.remoteAsyncInvocationCancelStatus);
-                    break;
+                    // the arguments are unmarshalled on the executor, so that a large invocation does not hold
+                    // up the following messages of the channel
+                    dispatched = true;
+                    this.dispatchInvocation(channel, messageInputStream);
+                    return;
                 case HEADER_INVOCATION_CANCELLATION_REQUEST:
                     messageHandler = new InvocationCancellationMessageHandler(this.remoteAsyncInvocationCancelStatus);
                     break;
@@ -187,7 +218,53 @@ public class VersionOneProtocolChannelReceiver implements Channel.Receiver, Depl
             // no more messages can be sent or received on this channel
             IoUtils.safeClose(channel);
         } finally {
-            IoUtils.safeClose(messageInputStream);
+            if (!dispatched) {
+                IoUtils.safeClose(messageInputStream);
+            }
+        }
+    }
+
+    private void dispatchInvocation(final Channel channel, final MessageInputStream messageInputStream) {
+        final MessageHandler messageHandler = new MethodInvocationMessageHandler(this.deploymentRepository, this.marshallerFactory, CALLER_RUNS, this.remoteAsyncInvocationCancelStatus);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    messageHandler.processMessage(channelAssociation, messageInputStream);
+                } catch (Throwable e) {
+                    // log it
+                    EjbLogger.ROOT_LOGGER.exceptionOnChannel(e, channel, messageInputStream);
+                    // no more messages can be sent or received on this channel
+                    IoUtils.safeClose(channel);
+                } finally {
+                    IoUtils.safeClose(messageInputStream);
+                    invocationCompleted(channel);
+                }
+            }
+        };
+        this.inboundInvocations.incrementAndGet();
+        try {
+            this.executorService.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the executor is saturated, handle it in the channel thread which holds up the channel meanwhile
+            task.run();
+        }
+        // enroll for next message, unless there are too many invocations in progress
+        if (this.inboundInvocations.get() < this.maxInboundInvocations) {
+            channel.receiveMessage(this);
+        } else {
+            this.receiveSuspended.set(true);
+            // an invocation may have completed in the meantime
+            if (this.inboundInvocations.get() < this.maxInboundInvocations && this.receiveSuspended.compareAndSet(true, false)) {
+                channel.receiveMessage(this);
+            }
+        }
+    }
+
+    private void invocationCompleted(final Channel channel) {
+        if (this.inboundInvocations.decrementAndGet() < this.maxInboundInvocations && this.receiveSuspended.compareAndSet(true, false)) {
+            // resume receiving
+            channel.receiveMessage(this);
         }
     }
 
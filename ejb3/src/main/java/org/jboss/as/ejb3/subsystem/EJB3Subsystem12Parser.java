@@ -409,7 +409,7 @@ public class EJB3Subsystem12Parser implements XMLElementReader<List<ModelNode>>
         }
     }
 
-    private void parseBeanInstancePools(final XMLExtendedStreamReader reader, List<ModelNode> operations) throws XMLStreamException {
+    protected void parseBeanInstancePools(final XMLExtendedStreamReader reader, List<ModelNode> operations) throws XMLStreamException {
         // no attributes expected
         requireNoAttributes(reader);
 
@@ -427,6 +427,10 @@ public class EJB3Subsystem12Parser implements XMLElementReader<List<ModelNode>>
     }
 
     private void parseStrictMaxPool(final XMLExtendedStreamReader reader, List<ModelNode> operations) throws XMLStreamException {
+        this.parseBeanInstancePool(reader, operations, STRICT_MAX_BEAN_INSTANCE_POOL);
+    }
+
+    protected void parseBeanInstancePool(final XMLExtendedStreamReader reader, List<ModelNode> operations, final String poolType) throws XMLStreamException {
         final int count = reader.getAttributeCount();
         String poolName = null;
         final ModelNode operation = Util.createAddOperation();
@@ -458,7 +462,7 @@ public class EJB3Subsystem12Parser implements XMLElementReader<List<ModelNode>>
         }
         // create and add the operation
         // create /subsystem=ejb3/strict-max-bean-instance-pool=name:add(...)
-        final PathAddress address = this.getEJB3SubsystemAddress().append(STRICT_MAX_BEAN_INSTANCE_POOL, poolName);
+        final PathAddress address = this.getEJB3SubsystemAddress().append(poolType, poolName);
         operation.get(OP_ADDR).set(address.toModelNode());
         operations.add(operation);
     }
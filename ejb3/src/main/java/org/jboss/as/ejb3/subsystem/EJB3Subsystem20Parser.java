@@ -36,6 +36,7 @@ import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
 import static org.jboss.as.controller.parsing.ParseUtils.missingRequired;
+import static org.jboss.as.controller.parsing.ParseUtils.requireNoAttributes;
 import static org.jboss.as.controller.parsing.ParseUtils.requireNoContent;
 import static org.jboss.as.controller.parsing.ParseUtils.requireNoNamespaceAttribute;
 import static org.jboss.as.controller.parsing.ParseUtils.unexpectedAttribute;
@@ -43,9 +44,13 @@ import static org.jboss.as.controller.parsing.ParseUtils.unexpectedElement;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.DATABASE_DATA_STORE;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.DATASOURCE_JNDI_NAME;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.FILE_DATA_STORE;
+import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.JOURNAL;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.PATH;
+import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.REFRESH_INTERVAL;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.RELATIVE_TO;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.SERVICE;
+import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL;
+import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.STRIPED_BEAN_INSTANCE_POOL;
 import static org.jboss.as.ejb3.subsystem.EJB3SubsystemModel.TIMER_SERVICE;
 
 
@@ -71,6 +76,28 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
         }
     }
 
+    @Override
+    protected void parseBeanInstancePools(final XMLExtendedStreamReader reader, List<ModelNode> operations) throws XMLStreamException {
+        // no attributes expected
+        requireNoAttributes(reader);
+
+        while (reader.hasNext() && reader.nextTag() != XMLStreamConstants.END_ELEMENT) {
+            switch (EJB3SubsystemXMLElement.forName(reader.getLocalName())) {
+                case STRICT_MAX_POOL: {
+                    this.parseBeanInstancePool(reader, operations, STRICT_MAX_BEAN_INSTANCE_POOL);
+                    break;
+                }
+                case STRIPED_POOL: {
+                    this.parseBeanInstancePool(reader, operations, STRIPED_BEAN_INSTANCE_POOL);
+                    break;
+                }
+                default: {
+                    throw unexpectedElement(reader);
+                }
+            }
+        }
+    }
+
     @Override
     protected EJB3SubsystemNamespace getExpectedNamespace() {
         return EJB3SubsystemNamespace.EJB3_2_0;
@@ -178,6 +205,7 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
     private void parseFileDataStore(final XMLExtendedStreamReader reader, final List<ModelNode> operations) throws XMLStreamException {
         String dataStorePath = null;
         String dataStorePathRelativeTo = null;
+        ModelNode journal = null;
         String name = null;
         final EnumSet<EJB3SubsystemXMLAttribute> required = EnumSet.of(EJB3SubsystemXMLAttribute.NAME, EJB3SubsystemXMLAttribute.PATH);
         final int count = reader.getAttributeCount();
@@ -205,6 +233,12 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
                     }
                     dataStorePathRelativeTo = FileDataStoreResourceDefinition.RELATIVE_TO.parse(value, reader).asString();
                     break;
+                case JOURNAL:
+                    if (journal != null) {
+                        throw unexpectedAttribute(reader, i);
+                    }
+                    journal = FileDataStoreResourceDefinition.JOURNAL.parse(value, reader);
+                    break;
                 default:
                     throw unexpectedAttribute(reader, i);
             }
@@ -223,6 +257,9 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
         if (dataStorePathRelativeTo != null) {
             fileDataStoreAdd.get(RELATIVE_TO).set(dataStorePathRelativeTo);
         }
+        if (journal != null) {
+            fileDataStoreAdd.get(JOURNAL).set(journal);
+        }
         operations.add(fileDataStoreAdd);
         requireNoContent(reader);
     }
@@ -231,6 +268,7 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
     private void parseDatabaseDataStore(final XMLExtendedStreamReader reader, final List<ModelNode> operations) throws XMLStreamException {
         String name = null;
         String datasourceJndiName = null;
+        ModelNode refreshInterval = null;
         final EnumSet<EJB3SubsystemXMLAttribute> required = EnumSet.of(EJB3SubsystemXMLAttribute.NAME, EJB3SubsystemXMLAttribute.DATASOURCE_JNDI_NAME);
         final int count = reader.getAttributeCount();
         for (int i = 0; i < count; i++) {
@@ -251,6 +289,12 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
                     }
                     datasourceJndiName = DatabaseDataStoreResourceDefinition.DATASOURCE_JNDI_NAME.parse(value, reader).asString();
                     break;
+                case REFRESH_INTERVAL:
+                    if (refreshInterval != null) {
+                        throw unexpectedAttribute(reader, i);
+                    }
+                    refreshInterval = DatabaseDataStoreResourceDefinition.REFRESH_INTERVAL.parse(value, reader);
+                    break;
                 default:
                     throw unexpectedAttribute(reader, i);
             }
@@ -266,6 +310,9 @@ public class EJB3Subsystem20Parser extends EJB3Subsystem14Parser {
         databaseDataStore.get(OP).set(ADD);
         databaseDataStore.get(ADDRESS).set(address);
         databaseDataStore.get(DATASOURCE_JNDI_NAME).set(datasourceJndiName);
+        if (refreshInterval != null) {
+            databaseDataStore.get(REFRESH_INTERVAL).set(refreshInterval);
+        }
 
         operations.add(databaseDataStore);
         requireNoContent(reader);
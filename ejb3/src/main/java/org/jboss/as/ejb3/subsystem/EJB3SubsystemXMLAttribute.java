@@ -44,6 +44,7 @@ public enum EJB3SubsystemXMLAttribute {
     DEFAULT_ACCESS_TIMEOUT("default-access-timeout"),
     DEFAULT_DATA_STORE("default-data-store"),
     DATASOURCE_JNDI_NAME("datasource-jndi-name"),
+    REFRESH_INTERVAL("refresh-interval"),
 
     ENABLED("enabled"),
     ENABLE_BY_DEFAULT("enable-by-default"),
@@ -55,6 +56,8 @@ public enum EJB3SubsystemXMLAttribute {
     INSTANCE_ACQUISITION_TIMEOUT("instance-acquisition-timeout"),
     INSTANCE_ACQUISITION_TIMEOUT_UNIT("instance-acquisition-timeout-unit"),
 
+    JOURNAL("journal"),
+
     KEEPALIVE_TIME("keepalive-time"),
 
     MAX_POOL_SIZE("max-pool-size"),
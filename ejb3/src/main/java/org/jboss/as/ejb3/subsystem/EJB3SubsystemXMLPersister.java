@@ -140,7 +140,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
             writer.writeEndElement();
         }
         // write the pools element
-        if (model.hasDefined(EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL)) {
+        if (model.hasDefined(EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL) || model.hasDefined(EJB3SubsystemModel.STRIPED_BEAN_INSTANCE_POOL)) {
             // <pools>
             writer.writeStartElement(EJB3SubsystemXMLElement.POOLS.getLocalName());
             // <bean-instance-pools>
@@ -385,6 +385,17 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
                 writer.writeEndElement();
             }
         }
+        if (beanInstancePoolModelNode.hasDefined(EJB3SubsystemModel.STRIPED_BEAN_INSTANCE_POOL)) {
+            final List<Property> stripedPools = beanInstancePoolModelNode.get(EJB3SubsystemModel.STRIPED_BEAN_INSTANCE_POOL).asPropertyList();
+            for (Property property : stripedPools) {
+                // <striped-pool>
+                writer.writeStartElement(EJB3SubsystemXMLElement.STRIPED_POOL.getLocalName());
+                // contents of striped-pool, same as for strict-max-pool
+                this.writeStrictMaxPoolConfig(writer, property);
+                // </striped-pool>
+                writer.writeEndElement();
+            }
+        }
     }
 
     private void writeStrictMaxPoolConfig(final XMLExtendedStreamWriter writer, final Property strictMaxPoolModel) throws XMLStreamException {
@@ -471,6 +482,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
                 ModelNode store = property.getValue();
                 writer.writeAttribute(EJB3SubsystemXMLAttribute.NAME.getLocalName(), property.getName());
                 DatabaseDataStoreResourceDefinition.DATASOURCE_JNDI_NAME.marshallAsAttribute(store, writer);
+                DatabaseDataStoreResourceDefinition.REFRESH_INTERVAL.marshallAsAttribute(store, writer);
                 writer.writeEndElement();
             }
         }
@@ -485,6 +497,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
                 writer.writeAttribute(EJB3SubsystemXMLAttribute.NAME.getLocalName(), property.getName());
                 FileDataStoreResourceDefinition.PATH.marshallAsAttribute(store, writer);
                 FileDataStoreResourceDefinition.RELATIVE_TO.marshallAsAttribute(store, writer);
+                FileDataStoreResourceDefinition.JOURNAL.marshallAsAttribute(store, writer);
                 writer.writeEndElement();
             }
         }
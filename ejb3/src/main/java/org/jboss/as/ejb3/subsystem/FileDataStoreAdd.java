@@ -37,6 +37,7 @@ import org.jboss.as.controller.services.path.PathManager;
 import org.jboss.as.controller.services.path.PathManagerService;
 import org.jboss.as.ejb3.timerservice.persistence.TimerPersistence;
 import org.jboss.as.ejb3.timerservice.persistence.filestore.FileTimerPersistence;
+import org.jboss.as.ejb3.timerservice.persistence.filestore.JournalFileTimerPersistence;
 import org.jboss.as.server.Services;
 import org.jboss.as.txn.service.TransactionManagerService;
 import org.jboss.as.txn.service.TransactionSynchronizationRegistryService;
@@ -71,11 +72,22 @@ public class FileDataStoreAdd extends AbstractAddStepHandler {
         final String path = pathNode.isDefined() ? pathNode.asString() : null;
         final ModelNode relativeToNode = FileDataStoreResourceDefinition.RELATIVE_TO.resolveModelAttribute(context, model);
         final String relativeTo = relativeToNode.isDefined() ? relativeToNode.asString() : null;
+        final boolean journal = FileDataStoreResourceDefinition.JOURNAL.resolveModelAttribute(context, model).asBoolean();
 
-
-        final FileTimerPersistence fileTimerPersistence = new FileTimerPersistence(true, path, relativeTo);
         final PathAddress address = PathAddress.pathAddress(operation.get(OP_ADDR));
         final ServiceName serviceName = TimerPersistence.SERVICE_NAME.append(address.getLastElement().getValue());
+        if (journal) {
+            final JournalFileTimerPersistence journalTimerPersistence = new JournalFileTimerPersistence(true, path, relativeTo);
+            newControllers.add(context.getServiceTarget().addService(serviceName, journalTimerPersistence)
+                    .addDependency(Services.JBOSS_SERVICE_MODULE_LOADER, ModuleLoader.class, journalTimerPersistence.getModuleLoader())
+                    .addDependency(PathManagerService.SERVICE_NAME, PathManager.class, journalTimerPersistence.getPathManager())
+                    .addDependency(TransactionManagerService.SERVICE_NAME, TransactionManager.class, journalTimerPersistence.getTransactionManager())
+                    .addDependency(TransactionSynchronizationRegistryService.SERVICE_NAME, TransactionSynchronizationRegistry.class, journalTimerPersistence.getTransactionSynchronizationRegistry())
+                    .install());
+            return;
+        }
+
+        final FileTimerPersistence fileTimerPersistence = new FileTimerPersistence(true, path, relativeTo);
         newControllers.add(context.getServiceTarget().addService(serviceName, fileTimerPersistence)
                 .addDependency(Services.JBOSS_SERVICE_MODULE_LOADER, ModuleLoader.class, fileTimerPersistence.getModuleLoader())
                 .addDependency(PathManagerService.SERVICE_NAME, PathManager.class, fileTimerPersistence.getPathManager())
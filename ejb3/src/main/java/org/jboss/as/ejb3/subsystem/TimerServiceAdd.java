@@ -23,7 +23,6 @@
 package org.jboss.as.ejb3.subsystem;
 
 import java.util.List;
-import java.util.Timer;
 
 import org.jboss.as.controller.AbstractBoottimeAddStepHandler;
 import org.jboss.as.controller.AttributeDefinition;
@@ -34,6 +33,7 @@ import org.jboss.as.ejb3.deployment.processors.AroundTimeoutAnnotationParsingPro
 import org.jboss.as.ejb3.deployment.processors.TimerServiceDeploymentProcessor;
 import org.jboss.as.ejb3.deployment.processors.annotation.TimerServiceAnnotationProcessor;
 import org.jboss.as.ejb3.deployment.processors.merging.TimerMethodMergingProcessor;
+import org.jboss.as.ejb3.timerservice.TimingWheel;
 import org.jboss.as.server.AbstractDeploymentChainStep;
 import org.jboss.as.server.DeploymentProcessorTarget;
 import org.jboss.as.server.deployment.Phase;
@@ -93,28 +93,32 @@ public class TimerServiceAdd extends AbstractBoottimeAddStepHandler {
             }
         }, OperationContext.Stage.RUNTIME);
 
-        newControllers.add(context.getServiceTarget().addService(TimerServiceDeploymentProcessor.TIMER_SERVICE_NAME, new TimerValueService())
+        newControllers.add(context.getServiceTarget().addService(TimerServiceDeploymentProcessor.TIMER_SERVICE_NAME, new TimingWheelService())
                 .install());
 
     }
 
-    private static final class TimerValueService implements Service<Timer> {
+    /**
+     * The scheduler shared by the timer services of all deployments.
+     */
+    private static final class TimingWheelService implements Service<TimingWheel> {
 
-        private Timer timer;
+        private TimingWheel timer;
 
         @Override
         public synchronized void start(final StartContext context) throws StartException {
-            timer = new Timer();
+            timer = new TimingWheel("EJB timer scheduler");
+            timer.start();
         }
 
         @Override
         public synchronized void stop(final StopContext context) {
-            timer.cancel();
+            timer.stop();
             timer = null;
         }
 
         @Override
-        public synchronized Timer getValue() throws IllegalStateException, IllegalArgumentException {
+        public synchronized TimingWheel getValue() throws IllegalStateException, IllegalArgumentException {
             return timer;
         }
     }
@@ -30,8 +30,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
 import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.ControllerMessages;
+import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.PathAddress;
 import org.jboss.as.controller.PathElement;
@@ -40,6 +42,7 @@ import org.jboss.as.controller.ReloadRequiredWriteAttributeHandler;
 import org.jboss.as.controller.SimpleAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
@@ -57,8 +60,11 @@ import org.jboss.as.controller.transform.description.DiscardAttributeChecker;
 import org.jboss.as.controller.transform.description.RejectAttributeChecker;
 import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
 import org.jboss.as.ejb3.EjbMessages;
+import org.jboss.as.ejb3.deployment.processors.TimerServiceDeploymentProcessor;
+import org.jboss.as.ejb3.timerservice.TimingWheel;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
+import org.jboss.msc.service.ServiceController;
 
 /**
  * {@link org.jboss.as.controller.ResourceDefinition} for the timer-service resource.
@@ -79,6 +85,28 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
                     //.setDefaultValue(new ModelNode("default-file-store")) //for backward compatibility!
                     .build();
 
+    private static final AttributeDefinition PENDING_TIMEOUTS = new SimpleAttributeDefinitionBuilder("pending-timeouts", ModelType.INT)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition EXPIRED_TIMEOUTS = new SimpleAttributeDefinitionBuilder("expired-timeouts", ModelType.LONG)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition AVERAGE_TIMEOUT_LAG = new SimpleAttributeDefinitionBuilder("average-timeout-lag", ModelType.LONG)
+            .setAllowNull(false)
+            .setMeasurementUnit(MeasurementUnit.MILLISECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition MAX_TIMEOUT_LAG = new SimpleAttributeDefinitionBuilder("max-timeout-lag", ModelType.LONG)
+            .setAllowNull(false)
+            .setMeasurementUnit(MeasurementUnit.MILLISECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
     public static final Map<String, AttributeDefinition> ATTRIBUTES ;
 
     private final PathManager pathManager;
@@ -105,6 +133,48 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
         for (AttributeDefinition attr : ATTRIBUTES.values()) {
             resourceRegistration.registerReadWriteAttribute(attr, null, new ReloadRequiredWriteAttributeHandler(attr));
         }
+        resourceRegistration.registerMetric(PENDING_TIMEOUTS, new TimingWheelMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final TimingWheel timingWheel) {
+                context.getResult().set(timingWheel.getPendingTimeouts());
+            }
+        });
+        resourceRegistration.registerMetric(EXPIRED_TIMEOUTS, new TimingWheelMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final TimingWheel timingWheel) {
+                context.getResult().set(timingWheel.getExpiredTimeouts());
+            }
+        });
+        resourceRegistration.registerMetric(AVERAGE_TIMEOUT_LAG, new TimingWheelMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final TimingWheel timingWheel) {
+                context.getResult().set(timingWheel.getAverageLag());
+            }
+        });
+        resourceRegistration.registerMetric(MAX_TIMEOUT_LAG, new TimingWheelMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final TimingWheel timingWheel) {
+                context.getResult().set(timingWheel.getMaxLag());
+            }
+        });
+    }
+
+    /**
+     * Reads a metric of the scheduler shared by all timer services.
+     */
+    private abstract static class TimingWheelMetricsHandler extends AbstractRuntimeOnlyHandler {
+
+        protected abstract void executeReadMetricStep(OperationContext context, TimingWheel timingWheel);
+
+        @Override
+        protected void executeRuntimeStep(final OperationContext context, final ModelNode operation) throws OperationFailedException {
+            final ServiceController<?> controller = context.getServiceRegistry(false).getService(TimerServiceDeploymentProcessor.TIMER_SERVICE_NAME);
+            final TimingWheel timingWheel = controller == null ? null : (TimingWheel) controller.getValue();
+            if (timingWheel != null) {
+                executeReadMetricStep(context, timingWheel);
+            }
+            context.stepCompleted();
+        }
     }
 
     @Override
@@ -145,6 +215,11 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
                 .addRejectCheck(RejectAttributeChecker.SIMPLE_EXPRESSIONS, FileDataStoreResourceDefinition.PATH)
                 .end();
         }
+        // legacy hosts only know the file per timer format
+        fileDataStore = fileDataStore.getAttributeBuilder()
+                .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(false)), FileDataStoreResourceDefinition.JOURNAL)
+                .addRejectCheck(RejectAttributeChecker.DEFINED, FileDataStoreResourceDefinition.JOURNAL)
+                .end();
         fileDataStore.addOperationTransformationOverride(ModelDescriptionConstants.ADD)
             .inheritResourceAttributeDefinitions()
             .setCustomOperationTransformer(dataStoreTransformer)
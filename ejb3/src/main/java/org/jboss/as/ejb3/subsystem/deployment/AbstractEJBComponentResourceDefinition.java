@@ -34,6 +34,7 @@ import org.jboss.as.controller.PrimitiveListAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.jboss.as.controller.operations.validation.StringLengthValidator;
 import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
@@ -60,6 +61,24 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
             .build();
 
+    private static final AttributeDefinition EXECUTION_TIME_P50 = new SimpleAttributeDefinitionBuilder("execution-time-p50", ModelType.LONG)
+            .setAllowNull(false)
+            .setMeasurementUnit(MeasurementUnit.MICROSECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition EXECUTION_TIME_P99 = new SimpleAttributeDefinitionBuilder("execution-time-p99", ModelType.LONG)
+            .setAllowNull(false)
+            .setMeasurementUnit(MeasurementUnit.MICROSECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition EXECUTION_TIME_P999 = new SimpleAttributeDefinitionBuilder("execution-time-p999", ModelType.LONG)
+            .setAllowNull(false)
+            .setMeasurementUnit(MeasurementUnit.MICROSECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
     private static final AttributeDefinition INVOCATIONS = new SimpleAttributeDefinitionBuilder("invocations", ModelType.LONG)
             .setAllowNull(false)
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
@@ -144,6 +163,24 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
                 context.getResult().set(component.getInvocationMetrics().getExecutionTime());
             }
         });
+        resourceRegistration.registerMetric(EXECUTION_TIME_P50, new AbstractRuntimeMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                context.getResult().set(component.getInvocationMetrics().getExecutionTimePercentile(0.5));
+            }
+        });
+        resourceRegistration.registerMetric(EXECUTION_TIME_P99, new AbstractRuntimeMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                context.getResult().set(component.getInvocationMetrics().getExecutionTimePercentile(0.99));
+            }
+        });
+        resourceRegistration.registerMetric(EXECUTION_TIME_P999, new AbstractRuntimeMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                context.getResult().set(component.getInvocationMetrics().getExecutionTimePercentile(0.999));
+            }
+        });
         resourceRegistration.registerMetric(INVOCATIONS, new AbstractRuntimeMetricsHandler() {
             @Override
             protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
@@ -22,6 +22,18 @@
 
 package org.jboss.as.ejb3.subsystem.deployment;
 
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.registry.AttributeAccess;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.ejb3.cache.CacheStatistics;
+import org.jboss.as.ejb3.component.EJBComponent;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionComponent;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
 /**
  * {@link org.jboss.as.controller.ResourceDefinition} for a {@link org.jboss.as.ejb3.component.stateful.StatefulSessionComponent}.
  *
@@ -31,7 +43,81 @@ public class StatefulSessionBeanDeploymentResourceDefinition extends AbstractEJB
 
     public static final StatefulSessionBeanDeploymentResourceDefinition INSTANCE = new StatefulSessionBeanDeploymentResourceDefinition();
 
+    private static final AttributeDefinition CACHE_SIZE = new SimpleAttributeDefinitionBuilder("cache-size", ModelType.INT)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition CACHE_HITS = new SimpleAttributeDefinitionBuilder("cache-hits", ModelType.LONG)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition CACHE_MISSES = new SimpleAttributeDefinitionBuilder("cache-misses", ModelType.LONG)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition PASSIVATED_COUNT = new SimpleAttributeDefinitionBuilder("passivated-count", ModelType.LONG)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition PASSIVATION_QUEUE_SIZE = new SimpleAttributeDefinitionBuilder("passivation-queue-size", ModelType.INT)
+            .setAllowNull(false)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
     private StatefulSessionBeanDeploymentResourceDefinition() {
         super(EJBComponentType.STATEFUL);
     }
+
+    @Override
+    public void registerAttributes(ManagementResourceRegistration resourceRegistration) {
+        super.registerAttributes(resourceRegistration);
+        resourceRegistration.registerMetric(CACHE_SIZE, new AbstractCacheMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final CacheStatistics statistics) {
+                context.getResult().set(statistics.getCacheSize());
+            }
+        });
+        resourceRegistration.registerMetric(CACHE_HITS, new AbstractCacheMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final CacheStatistics statistics) {
+                context.getResult().set(statistics.getHitCount());
+            }
+        });
+        resourceRegistration.registerMetric(CACHE_MISSES, new AbstractCacheMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final CacheStatistics statistics) {
+                context.getResult().set(statistics.getMissCount());
+            }
+        });
+        resourceRegistration.registerMetric(PASSIVATED_COUNT, new AbstractCacheMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final CacheStatistics statistics) {
+                context.getResult().set(statistics.getPassivationCount());
+            }
+        });
+        resourceRegistration.registerMetric(PASSIVATION_QUEUE_SIZE, new AbstractCacheMetricsHandler() {
+            @Override
+            protected void executeReadMetricStep(final OperationContext context, final CacheStatistics statistics) {
+                context.getResult().set(statistics.getPassivationQueueSize());
+            }
+        });
+    }
+
+    private abstract static class AbstractCacheMetricsHandler extends AbstractRuntimeMetricsHandler {
+        @Override
+        protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+            final Object cache = ((StatefulSessionComponent) component).getCache();
+            if (cache instanceof CacheStatistics) {
+                executeReadMetricStep(context, (CacheStatistics) cache);
+            } else {
+                context.getResult().set(0);
+            }
+        }
+
+        protected abstract void executeReadMetricStep(OperationContext context, CacheStatistics statistics);
+    }
 }
@@ -103,7 +103,7 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
 
     private final InjectedValue<ExecutorService> executorServiceInjectedValue = new InjectedValue<ExecutorService>();
 
-    private final InjectedValue<java.util.Timer> timerInjectedValue = new InjectedValue<java.util.Timer>();
+    private final InjectedValue<TimingWheel> timerInjectedValue = new InjectedValue<TimingWheel>();
 
     private final InjectedValue<TimedObjectInvoker> timedObjectInvoker = new InjectedValue<TimedObjectInvoker>();
 
@@ -123,9 +123,9 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
     private final Map<String, TimerImpl> timers = Collections.synchronizedMap(new HashMap<String, TimerImpl>());
 
     /**
-     * Holds the {@link java.util.concurrent.Future} of each of the timer tasks that have been scheduled
+     * Holds the {@link TimingWheel.Timeout} of each of the timer tasks that have been scheduled
      */
-    private final Map<String, java.util.TimerTask> scheduledTimerFutures = new HashMap<String, java.util.TimerTask>();
+    private final Map<String, Task<?>> scheduledTimerFutures = new HashMap<String, Task<?>>();
 
     /**
      * Key that is used to store timers that are waiting on transaction completion in the transaction local
@@ -603,6 +603,89 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         }
     }
 
+    /**
+     * Persists the new state of a timer which is about to time out, see
+     * {@link TimerPersistence#claimTimeout(TimerImpl, java.util.Date)}.
+     *
+     * @param timer                  The timer, already holding its new state
+     * @param expectedNextExpiration The expiration being fired
+     * @return <code>true</code> if the timeout method should be invoked on this node
+     */
+    public boolean claimTimeout(final TimerImpl timer, final Date expectedNextExpiration) {
+        if (!timer.isTimerPersistent() || expectedNextExpiration == null) {
+            persistTimer(timer, false);
+            return true;
+        }
+        if (timerPersistence.getOptionalValue() == null) {
+            ROOT_LOGGER.timerPersistenceNotEnable();
+            return true;
+        }
+        try {
+            return timerPersistence.getValue().claimTimeout(timer, expectedNextExpiration);
+        } catch (Throwable t) {
+            this.setRollbackOnly();
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Called by a shared timer store when a timer which is not yet known to this timer service has been found in
+     * the store, e.g. because it was created on another node.
+     *
+     * @param timer The timer as loaded from the store
+     */
+    public void timerAdded(final TimerImpl timer) {
+        if (ineligibleTimerStates.contains(timer.getState()) || timers.containsKey(timer.getId())) {
+            return;
+        }
+        startTimer(timer);
+    }
+
+    /**
+     * Called by a shared timer store when the stored state of a known timer differs from the local one, e.g.
+     * because the timeout was delivered by another node. The next timeout is rescheduled accordingly.
+     *
+     * @return <code>false</code> if this timer service does not know the timer
+     */
+    public boolean timerChanged(final String timerId, final TimerState state, final Date nextExpiration, final Date previousRun) {
+        final TimerImpl timer = timers.get(timerId);
+        if (timer == null) {
+            return false;
+        }
+        timer.lock();
+        try {
+            if (timer.getState() == TimerState.IN_TIMEOUT) {
+                // running on this node, the store will be updated once the timeout completes
+                return true;
+            }
+            if (ineligibleTimerStates.contains(state) || nextExpiration == null) {
+                cancelTimeout(timer);
+                timer.setTimerState(TimerState.CANCELED);
+                timers.remove(timerId);
+            } else if (timer.getNextExpiration() == null || timer.getNextExpiration().getTime() != nextExpiration.getTime()) {
+                cancelTimeout(timer);
+                timer.setPreviousRun(previousRun);
+                timer.setNextTimeout(nextExpiration);
+                scheduleTimeout(timer, true);
+            }
+        } finally {
+            timer.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Called by a shared timer store when a known timer is no longer present in the store, e.g. because it was
+     * cancelled on another node.
+     */
+    public void timerRemoved(final String timerId) {
+        final TimerImpl timer = timers.remove(timerId);
+        if (timer != null) {
+            cancelTimeout(timer);
+            timer.setTimerState(TimerState.CANCELED);
+        }
+    }
+
     public void cancelTimer(final TimerImpl timer) {
         timer.lock();
         boolean release = true;
@@ -848,18 +931,18 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
                 delay = 0;
             }
             long intervalDuration = timer.getInterval();
-            final Task task = new Task(timerTask);
+            final Task<?> task = new Task(timerTask);
             if (intervalDuration > 0) {
                 ROOT_LOGGER.debug("Scheduling timer " + timer + " at fixed rate, starting at " + delay
                         + " milliseconds from now with repeated interval=" + intervalDuration);
                 // schedule the task
-                this.timerInjectedValue.getValue().scheduleAtFixedRate(task, delay, intervalDuration);
+                task.timeout = this.timerInjectedValue.getValue().scheduleAtFixedRate(task, delay, intervalDuration);
                 // maintain it in timerservice for future use (like cancellation)
                 this.scheduledTimerFutures.put(timer.getId(), task);
             } else {
                 ROOT_LOGGER.debug("Scheduling a single action timer " + timer + " starting at " + delay + " milliseconds from now");
                 // schedule the task
-                this.timerInjectedValue.getValue().schedule(task, delay);
+                task.timeout = this.timerInjectedValue.getValue().schedule(task, delay);
                 // maintain it in timerservice for future use (like cancellation)
                 this.scheduledTimerFutures.put(timer.getId(), task);
 
@@ -874,7 +957,7 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
      */
     protected void cancelTimeout(final TimerImpl timer) {
         synchronized (this.scheduledTimerFutures) {
-            java.util.TimerTask timerTask = this.scheduledTimerFutures.remove(timer.getId());
+            Task<?> timerTask = this.scheduledTimerFutures.remove(timer.getId());
             if (timerTask != null) {
                 timerTask.cancel();
             }
@@ -1041,7 +1124,7 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         return executorServiceInjectedValue;
     }
 
-    public InjectedValue<java.util.Timer> getTimerInjectedValue() {
+    public InjectedValue<TimingWheel> getTimerInjectedValue() {
         return timerInjectedValue;
     }
 
@@ -1133,9 +1216,10 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         }
     }
 
-    private class Task<T extends TimerImpl> extends java.util.TimerTask {
+    private class Task<T extends TimerImpl> implements Runnable {
 
         private final TimerTask<T> delegate;
+        private volatile TimingWheel.Timeout timeout;
 
         public Task(final TimerTask<T> delegate) {
             this.delegate = delegate;
@@ -1149,10 +1233,10 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
             }
         }
 
-        @Override
         public boolean cancel() {
             delegate.cancel();
-            return super.cancel();
+            final TimingWheel.Timeout timeout = this.timeout;
+            return timeout != null && timeout.cancel();
         }
     }
 
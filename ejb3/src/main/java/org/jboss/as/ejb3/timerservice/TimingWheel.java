@@ -0,0 +1,404 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice;
+
+import static org.jboss.as.ejb3.EjbLogger.ROOT_LOGGER;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hashed timing wheel, used to schedule the timeouts of all EJB timers of a server.
+ * <p/>
+ * The wheel is a circular array of buckets, each covering one tick. A timeout is placed in the bucket of the tick
+ * it expires in, together with the number of full rotations left before it is due, so scheduling and cancelling
+ * are constant time regardless of how many timeouts are pending. A single worker thread advances the wheel once
+ * per tick and runs the tasks of the bucket it reaches, tasks are therefore expected to hand the actual work over
+ * to an executor. Timeouts fire at most one tick late.
+ */
+public final class TimingWheel {
+
+    private static final long DEFAULT_TICK_DURATION = 10;
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private final String name;
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    /**
+     * Timeouts which have been scheduled or re-armed but not yet placed in the wheel, they are only ever placed by
+     * the worker.
+     */
+    private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    /**
+     * Timeouts which have been cancelled but may still be in the wheel.
+     */
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+    private final AtomicLong expiredTimeouts = new AtomicLong();
+    private final AtomicLong totalLag = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private volatile long startTime;
+    private volatile boolean running;
+    private Thread worker;
+    /**
+     * The tick the worker is processing, only accessed by the worker.
+     */
+    private long tick;
+
+    public TimingWheel(final String name) {
+        this(name, DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * @param name          The name of the worker thread
+     * @param tickDuration  The duration of one tick, which is the precision of the timeouts
+     * @param unit          The unit of the tick duration
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two
+     */
+    public TimingWheel(final String name, final long tickDuration, final TimeUnit unit, final int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("ticksPerWheel must be positive: " + ticksPerWheel);
+        }
+        this.name = name;
+        this.tickDuration = unit.toNanos(tickDuration);
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startTime = System.nanoTime();
+        tick = 0;
+        running = true;
+        worker = new Thread(new Worker(), name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the worker thread, pending timeouts are discarded.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        worker = null;
+        for (Bucket bucket : wheel) {
+            bucket.clear();
+        }
+        newTimeouts.clear();
+        cancelledTimeouts.clear();
+        pendingTimeouts.set(0);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the task once after the given delay.
+     *
+     * @param task  The task, which should not block
+     * @param delay The delay in milliseconds
+     */
+    public Timeout schedule(final Runnable task, final long delay) {
+        return schedule(task, delay, 0);
+    }
+
+    /**
+     * Runs the task after the given delay and then repeatedly with the given period. Like
+     * {@link java.util.Timer#scheduleAtFixedRate(java.util.TimerTask, long, long)} every execution is scheduled
+     * relative to the first one, so delays do not accumulate.
+     *
+     * @param task   The task, which should not block
+     * @param delay  The delay in milliseconds
+     * @param period The period in milliseconds
+     */
+    public Timeout scheduleAtFixedRate(final Runnable task, final long delay, final long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        return schedule(task, delay, period);
+    }
+
+    private Timeout schedule(final Runnable task, final long delay, final long period) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        final long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay));
+        final Timeout timeout = new Timeout(task, deadline, TimeUnit.MILLISECONDS.toNanos(period));
+        pendingTimeouts.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the number of timeouts which are scheduled and have not expired or been cancelled
+     */
+    public int getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * @return the number of times a timeout has fired
+     */
+    public long getExpiredTimeouts() {
+        return expiredTimeouts.get();
+    }
+
+    /**
+     * @return the average time between the scheduled and the actual firing of a timeout, in milliseconds
+     */
+    public long getAverageLag() {
+        final long expired = expiredTimeouts.get();
+        return expired == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLag.get() / expired);
+    }
+
+    /**
+     * @return the longest time between the scheduled and the actual firing of a timeout, in milliseconds
+     */
+    public long getMaxLag() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLag.get());
+    }
+
+    private void transferTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state != Timeout.CANCELLED) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void place(final Timeout timeout) {
+        final long calculated = timeout.deadline / tickDuration;
+        timeout.remainingRounds = (calculated - tick) / wheel.length;
+        // timeouts which are already due go in the current bucket
+        final long ticks = Math.max(calculated, tick);
+        wheel[(int) (ticks & mask)].add(timeout);
+    }
+
+    private void expire(final Bucket bucket, final long now) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                // due within the tick which just passed
+                bucket.remove(timeout);
+                fire(timeout, now);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void fire(final Timeout timeout, final long now) {
+        final boolean repeating = timeout.period > 0;
+        if (!repeating && !timeout.expire()) {
+            return;
+        }
+        final long lag = now - timeout.deadline;
+        expiredTimeouts.incrementAndGet();
+        totalLag.addAndGet(lag);
+        long max;
+        while (lag > (max = maxLag.get()) && !maxLag.compareAndSet(max, lag)) {
+            // retry
+        }
+        try {
+            timeout.task.run();
+        } catch (Throwable t) {
+            ROOT_LOGGER.failedToRunTimeout(name, t);
+        }
+        if (repeating && timeout.state == Timeout.ACTIVE) {
+            // placed with the next tick, not into the bucket which is being expired
+            timeout.deadline += timeout.period;
+            newTimeouts.add(timeout);
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (running) {
+                final long now = waitForNextTick();
+                if (now < 0) {
+                    continue;
+                }
+                transferTimeouts();
+                expire(wheel[(int) (tick & mask)], now);
+                tick++;
+            }
+        }
+
+        /**
+         * @return the current time relative to the start of the wheel, or -1 if interrupted
+         */
+        private long waitForNextTick() {
+            final long deadline = tickDuration * (tick + 1);
+            for (;;) {
+                final long now = System.nanoTime() - startTime;
+                final long sleep = deadline - now;
+                if (sleep <= 0) {
+                    return now;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return -1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The bucket of one tick, a doubly linked list which is only accessed by the worker.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(final Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void clear() {
+            head = tail = null;
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public final class Timeout {
+
+        private static final int ACTIVE = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long period;
+        // not private, so that the field updater can access it
+        volatile int state = ACTIVE;
+        private long deadline;
+        // only accessed by the worker
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(final Runnable task, final long deadline, final long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the timeout, the task will not run again unless it is already running.
+         *
+         * @return <code>false</code> if the timeout had already been cancelled or expired
+         */
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ACTIVE, CANCELLED)) {
+                return false;
+            }
+            pendingTimeouts.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        private boolean expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ACTIVE, EXPIRED)) {
+                return false;
+            }
+            pendingTimeouts.decrementAndGet();
+            return true;
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+}
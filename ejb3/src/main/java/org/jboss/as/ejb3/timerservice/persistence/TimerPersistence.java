@@ -21,6 +21,7 @@
  */
 package org.jboss.as.ejb3.timerservice.persistence;
 
+import java.util.Date;
 import java.util.List;
 
 import org.jboss.as.ejb3.timerservice.TimerImpl;
@@ -48,6 +49,17 @@ public interface TimerPersistence {
      */
     void persistTimer(TimerImpl timer);
 
+    /**
+     * Called when a timer is about to time out, after its new state has been computed. The new state is only
+     * persisted if the stored next expiration still matches the one being fired, so that when several nodes share
+     * the same store the timeout is only delivered once.
+     *
+     * @param timer                  The timer, already holding its new state
+     * @param expectedNextExpiration The expiration being fired
+     * @return <code>true</code> if this node claimed the timeout and should invoke the timeout method
+     */
+    boolean claimTimeout(TimerImpl timer, Date expectedNextExpiration);
+
     /**
      * Signals that a timer is being undeployed, and all cached data relating to this object should
      * be dropped to prevent a class loader leak
@@ -30,19 +30,33 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.sql.DataSource;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 import org.jboss.as.ejb3.EjbLogger;
+import org.jboss.as.ejb3.component.stateful.CurrentSynchronizationCallback;
 import org.jboss.as.ejb3.timerservice.CalendarTimer;
 import org.jboss.as.ejb3.timerservice.TimerImpl;
 import org.jboss.as.ejb3.timerservice.TimerServiceImpl;
@@ -68,13 +82,39 @@ import org.jboss.msc.value.InjectedValue;
 import org.jboss.util.Base64;
 
 /**
+ * Timer persistence backed by a database table.
+ * <p/>
+ * Changes made within a transaction are collected and written with JDBC batches just before the transaction
+ * completes. If a refresh interval is configured the table may be shared by several nodes: each node periodically
+ * loads the timers which are due before its next refresh, and a timeout is only delivered by the node which manages
+ * to advance the next expiration of the timer row.
+ *
  * @author Stuart Douglas
  */
 public class DatabaseTimerPersistence implements TimerPersistence, Service<DatabaseTimerPersistence> {
 
     private final InjectedValue<ManagedReferenceFactory> dataSourceInjectedValue = new InjectedValue<ManagedReferenceFactory>();
     private final InjectedValue<ModuleLoader> moduleLoader = new InjectedValue<ModuleLoader>();
+    private final InjectedValue<TransactionSynchronizationRegistry> transactionSynchronizationRegistry = new InjectedValue<TransactionSynchronizationRegistry>();
     private final String name;
+    /**
+     * How often the table is polled for changes made by other nodes, in milliseconds. If this is not positive the
+     * table is owned by this node and never polled.
+     */
+    private final long refreshInterval;
+    /**
+     * Key of the {@link TransactionBatch} of the current transaction in the transaction synchronization registry.
+     */
+    private final Object batchKey = new Object();
+    /**
+     * The timer services whose timers are refreshed, by timed object id.
+     */
+    private final ConcurrentMap<String, TimerServiceImpl> timerServices = new ConcurrentHashMap<String, TimerServiceImpl>();
+    /**
+     * Timers whose timeout was claimed by another node, they are reloaded on the next refresh.
+     */
+    private final ConcurrentLinkedQueue<TimerImpl> staleTimers = new ConcurrentLinkedQueue<TimerImpl>();
+    private volatile Timer refreshTimer;
     private volatile ManagedReference managedReference;
     private volatile DataSource dataSource;
     private volatile Properties sql;
@@ -82,14 +122,33 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
     private MarshallingConfiguration configuration;
 
     private static final String CREATE_TABLE = "create-table";
+    private static final String CREATE_INDEX = "create-index";
+    /**
+     * The table and index columns of the statements in sql.properties.
+     */
+    private static final String TIMER_TABLE = "JBOSS_EJB_TIMER";
+    private static final String[] INDEX_COLUMNS = {"TIMED_OBJECT_ID", "NEXT_DATE"};
     private static final String CREATE_TIMER = "create-timer";
     private static final String UPDATE_TIMER = "update-timer";
+    private static final String CLAIM_TIMER = "claim-timer";
     private static final String LOAD_ALL_TIMERS = "load-all-timers";
+    private static final String LOAD_DUE_TIMERS = "load-due-timers";
     private static final String LOAD_TIMER = "load-timer";
     private static final String DELETE_TIMER = "delete-timer";
 
+    /**
+     * Some databases only store timestamps with a precision of one second, so a claim matches any stored next
+     * expiration up to this many milliseconds before the expected one.
+     */
+    private static final long TIMESTAMP_PRECISION = 1000;
+
     public DatabaseTimerPersistence(final String name) {
+        this(name, 0);
+    }
+
+    public DatabaseTimerPersistence(final String name, final long refreshInterval) {
         this.name = name;
+        this.refreshInterval = refreshInterval;
     }
 
     @Override
@@ -111,10 +170,25 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
             safeClose(stream);
         }
         runCreateTable();
+        if (refreshInterval > 0) {
+            refreshTimer = new Timer("ejb3-timer-refresh-" + name, true);
+            refreshTimer.schedule(new java.util.TimerTask() {
+                @Override
+                public void run() {
+                    refreshTimers();
+                }
+            }, refreshInterval, refreshInterval);
+        }
     }
 
     @Override
     public void stop(final StopContext context) {
+        if (refreshTimer != null) {
+            refreshTimer.cancel();
+            refreshTimer = null;
+        }
+        timerServices.clear();
+        staleTimers.clear();
         managedReference.release();
         managedReference = null;
         dataSource = null;
@@ -150,67 +224,217 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
             safeClose(resultSet);
             safeClose(preparedStatement);
             safeClose(statement);
+        }
+        try {
+            if (connection != null) {
+                // a table created by an older version lacks the index
+                runCreateIndex(connection);
+            }
+        } finally {
             safeClose(connection);
         }
     }
 
+    /**
+     * Creates the index timers are looked up by, i.e. timed object and due date, unless the timer table already has it.
+     */
+    private void runCreateIndex(final Connection connection) {
+        Statement statement = null;
+        try {
+            if (hasIndex(connection.getMetaData(), INDEX_COLUMNS)) {
+                return;
+            }
+            statement = connection.createStatement();
+            statement.executeUpdate(sql.getProperty(CREATE_INDEX));
+        } catch (SQLException e) {
+            EjbLogger.EJB3_LOGGER.couldNotCreateIndex(e);
+        } finally {
+            safeClose(statement);
+        }
+    }
+
+    /**
+     * Checks if an index of the timer table starts with the given columns, in that order.
+     */
+    private static boolean hasIndex(final DatabaseMetaData metaData, final String[] columns) throws SQLException {
+        String table = TIMER_TABLE;
+        if (metaData.storesLowerCaseIdentifiers()) {
+            table = table.toLowerCase(Locale.ENGLISH);
+        }
+        final Map<String, String[]> indexes = new HashMap<String, String[]>();
+        final ResultSet resultSet = metaData.getIndexInfo(null, null, table, false, true);
+        try {
+            while (resultSet.next()) {
+                final String index = resultSet.getString("INDEX_NAME");
+                final int position = resultSet.getShort("ORDINAL_POSITION");
+                final String column = resultSet.getString("COLUMN_NAME");
+                if (index == null || column == null || position < 1 || position > columns.length) {
+                    continue;
+                }
+                String[] indexColumns = indexes.get(index);
+                if (indexColumns == null) {
+                    indexColumns = new String[columns.length];
+                    indexes.put(index, indexColumns);
+                }
+                indexColumns[position - 1] = column;
+            }
+        } finally {
+            safeClose(resultSet);
+        }
+        for (String[] indexColumns : indexes.values()) {
+            boolean matches = true;
+            for (int i = 0; i < columns.length && matches; ++i) {
+                matches = columns[i].equalsIgnoreCase(indexColumns[i]);
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void addTimer(final TimerImpl timerEntity) {
-        String createTimer = sql.getProperty(CREATE_TIMER);
+        write(timerEntity, true);
+    }
+
+    @Override
+    public void persistTimer(final TimerImpl timerEntity) {
+        write(timerEntity, false);
+    }
+
+    @Override
+    public boolean claimTimeout(final TimerImpl timerEntity, final Date expectedNextExpiration) {
+        if (refreshInterval <= 0) {
+            // nobody else fires timers from this table
+            write(timerEntity, false);
+            return true;
+        }
+        String claimTimer = sql.getProperty(CLAIM_TIMER);
         Connection connection = null;
         PreparedStatement statement = null;
-        ResultSet resultSet = null;
         try {
             connection = dataSource.getConnection();
-            statement = connection.prepareStatement(createTimer);
-            statementParameters(timerEntity, statement);
-            statement.execute();
+            statement = connection.prepareStatement(claimTimer);
+            statement.setTimestamp(1, timestamp(timerEntity.getNextExpiration()));
+            statement.setTimestamp(2, timestamp(timerEntity.getPreviousRun()));
+            statement.setString(3, timerEntity.getState().name());
+            statement.setString(4, timerEntity.getTimedObjectId());
+            statement.setString(5, timerEntity.getId());
+            statement.setTimestamp(6, new Timestamp(expectedNextExpiration.getTime() - TIMESTAMP_PRECISION));
+            statement.setTimestamp(7, timestamp(expectedNextExpiration));
+            if (statement.executeUpdate() == 1) {
+                return true;
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } finally {
-            safeClose(resultSet);
             safeClose(statement);
             safeClose(connection);
         }
+        // another node got there first, or the timer has been removed
+        staleTimers.add(timerEntity);
+        return false;
     }
 
+    private void write(final TimerImpl timerEntity, final boolean newTimer) {
+        final TransactionSynchronizationRegistry registry = transactionSynchronizationRegistry.getOptionalValue();
+        if (registry != null) {
+            final int status = registry.getTransactionStatus();
+            if (status == Status.STATUS_MARKED_ROLLBACK || status == Status.STATUS_ROLLEDBACK ||
+                    status == Status.STATUS_ROLLING_BACK) {
+                //no need to persist anyway
+                return;
+            }
+            if (status == Status.STATUS_ACTIVE && !isBeforeCompletion()) {
+                TransactionBatch batch = (TransactionBatch) registry.getResource(batchKey);
+                if (batch == null) {
+                    batch = new TransactionBatch();
+                    registry.registerInterposedSynchronization(batch);
+                    registry.putResource(batchKey, batch);
+                }
+                batch.add(timerEntity, newTimer);
+                return;
+            }
+        }
+        executeBatch(Collections.singletonMap(timerEntity.getId(), timerEntity), Collections.singletonMap(timerEntity.getId(), newTimer));
+    }
 
-    @Override
-    public void persistTimer(final TimerImpl timerEntity) {
+    /**
+     * Writes the current state of the given timers, using one JDBC batch per statement type.
+     *
+     * @param timers    The timers to write, by id
+     * @param newTimers Whether each timer has to be inserted, by id
+     */
+    void executeBatch(final Map<String, TimerImpl> timers, final Map<String, Boolean> newTimers) {
         Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
+        PreparedStatement insert = null;
+        PreparedStatement update = null;
+        PreparedStatement delete = null;
         try {
             connection = dataSource.getConnection();
-            if (timerEntity.getState() == TimerState.CANCELED ||
-                    timerEntity.getState() == TimerState.EXPIRED) {
-                String deleteTimer = sql.getProperty(DELETE_TIMER);
-                statement = connection.prepareStatement(deleteTimer);
-                statement.setString(1, timerEntity.getTimedObjectId());
-                statement.setString(2, timerEntity.getId());
-                statement.execute();
-            } else {
-                String updateTimer = sql.getProperty(UPDATE_TIMER);
-                statement = connection.prepareStatement(updateTimer);
-                statement.setTimestamp(1, timestamp(timerEntity.getNextExpiration()));
-                statement.setTimestamp(2, timestamp(timerEntity.getPreviousRun()));
-                statement.setString(3, timerEntity.getState().name());
-                statement.setString(4, timerEntity.getTimedObjectId());
-                statement.setString(5, timerEntity.getId());
-                statement.execute();
+            for (final TimerImpl timerEntity : timers.values()) {
+                final boolean removed = timerEntity.getState() == TimerState.CANCELED ||
+                        timerEntity.getState() == TimerState.EXPIRED;
+                if (Boolean.TRUE.equals(newTimers.get(timerEntity.getId()))) {
+                    if (removed) {
+                        // created and removed again before it was ever written
+                        continue;
+                    }
+                    if (insert == null) {
+                        insert = connection.prepareStatement(sql.getProperty(CREATE_TIMER));
+                    }
+                    statementParameters(timerEntity, insert);
+                    insert.addBatch();
+                } else if (removed) {
+                    if (delete == null) {
+                        delete = connection.prepareStatement(sql.getProperty(DELETE_TIMER));
+                    }
+                    delete.setString(1, timerEntity.getTimedObjectId());
+                    delete.setString(2, timerEntity.getId());
+                    delete.addBatch();
+                } else {
+                    if (update == null) {
+                        update = connection.prepareStatement(sql.getProperty(UPDATE_TIMER));
+                    }
+                    update.setTimestamp(1, timestamp(timerEntity.getNextExpiration()));
+                    update.setTimestamp(2, timestamp(timerEntity.getPreviousRun()));
+                    update.setString(3, timerEntity.getState().name());
+                    update.setString(4, timerEntity.getTimedObjectId());
+                    update.setString(5, timerEntity.getId());
+                    update.addBatch();
+                }
+            }
+            if (insert != null) {
+                insert.executeBatch();
+            }
+            if (update != null) {
+                update.executeBatch();
+            }
+            if (delete != null) {
+                delete.executeBatch();
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } finally {
-            safeClose(resultSet);
-            safeClose(statement);
+            safeClose(insert);
+            safeClose(update);
+            safeClose(delete);
             safeClose(connection);
         }
     }
 
+    private boolean isBeforeCompletion() {
+        final CurrentSynchronizationCallback.CallbackType type = CurrentSynchronizationCallback.get();
+        if (type != null) {
+            return type == CurrentSynchronizationCallback.CallbackType.BEFORE_COMPLETION;
+        }
+        return false;
+    }
+
     @Override
     public void timerUndeployed(final String timedObjectId) {
-
+        timerServices.remove(timedObjectId);
     }
 
     @Override
@@ -225,6 +449,9 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
             statement.setString(1, timedObjectId);
             resultSet = statement.executeQuery();
             final List<TimerImpl> timers = new ArrayList<TimerImpl>();
+            if (refreshInterval > 0) {
+                timerServices.put(timedObjectId, timerService);
+            }
             while (resultSet.next()) {
                 try {
                     final TimerImpl timerImpl = timerFromResult(resultSet, timerService);
@@ -245,6 +472,87 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         }
     }
 
+    /**
+     * Synchronizes the registered timer services with the table. Only timers which are due before the one after
+     * next refresh are loaded, so that a node does not have to hold every timer of a shared table in memory.
+     */
+    void refreshTimers() {
+        try {
+            TimerImpl stale;
+            while ((stale = staleTimers.poll()) != null) {
+                refreshTimer(stale.getTimerService(), stale.getTimedObjectId(), stale.getId());
+            }
+            final Timestamp horizon = new Timestamp(System.currentTimeMillis() + 2 * refreshInterval);
+            for (Map.Entry<String, TimerServiceImpl> entry : timerServices.entrySet()) {
+                refreshDueTimers(entry.getKey(), entry.getValue(), horizon);
+            }
+        } catch (Throwable t) {
+            EjbLogger.ROOT_LOGGER.timerRefreshFailed(name, t);
+        }
+    }
+
+    private void refreshTimer(final TimerServiceImpl timerService, final String timedObjectId, final String timerId) throws SQLException {
+        String loadTimer = sql.getProperty(LOAD_TIMER);
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.prepareStatement(loadTimer);
+            statement.setString(1, timedObjectId);
+            statement.setString(2, timerId);
+            resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                refreshTimer(resultSet, timerService);
+            } else {
+                timerService.timerRemoved(timerId);
+            }
+        } finally {
+            safeClose(resultSet);
+            safeClose(statement);
+            safeClose(connection);
+        }
+    }
+
+    private void refreshDueTimers(final String timedObjectId, final TimerServiceImpl timerService, final Timestamp horizon) throws SQLException {
+        String loadTimers = sql.getProperty(LOAD_DUE_TIMERS);
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.prepareStatement(loadTimers);
+            statement.setString(1, timedObjectId);
+            statement.setTimestamp(2, horizon);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                refreshTimer(resultSet, timerService);
+            }
+        } finally {
+            safeClose(resultSet);
+            safeClose(statement);
+            safeClose(connection);
+        }
+    }
+
+    private void refreshTimer(final ResultSet resultSet, final TimerServiceImpl timerService) throws SQLException {
+        final String timerId = resultSet.getString(1);
+        final Date nextDate = date(resultSet.getTimestamp(5));
+        final Date previousRun = date(resultSet.getTimestamp(6));
+        final TimerState state = TimerState.valueOf(resultSet.getString(9));
+        // only unmarshal the timer if the timer service does not know it yet
+        if (!timerService.timerChanged(timerId, state, nextDate, previousRun)) {
+            try {
+                final TimerImpl timerImpl = timerFromResult(resultSet, timerService);
+                if (timerImpl != null) {
+                    timerService.timerAdded(timerImpl);
+                }
+            } catch (Exception e) {
+                EjbLogger.ROOT_LOGGER.timerReinstatementFailed(resultSet.getString(2), timerId, e);
+            }
+        }
+    }
+
     @Override
     public DatabaseTimerPersistence getValue() throws IllegalStateException, IllegalArgumentException {
         return this;
@@ -404,6 +712,13 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         return new Timestamp(date.getTime());
     }
 
+    private static Date date(final Timestamp timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        return new Date(timestamp.getTime());
+    }
+
 
     public InjectedValue<ManagedReferenceFactory> getDataSourceInjectedValue() {
         return dataSourceInjectedValue;
@@ -413,6 +728,37 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         return moduleLoader;
     }
 
+    public InjectedValue<TransactionSynchronizationRegistry> getTransactionSynchronizationRegistry() {
+        return transactionSynchronizationRegistry;
+    }
+
+    /**
+     * The changes made to timers within a transaction, they are written just before the transaction commits so that
+     * they become part of it.
+     */
+    private final class TransactionBatch implements Synchronization {
+
+        private final Map<String, TimerImpl> timers = new LinkedHashMap<String, TimerImpl>();
+        private final Map<String, Boolean> newTimers = new LinkedHashMap<String, Boolean>();
+
+        synchronized void add(final TimerImpl timer, final boolean newTimer) {
+            // only the most recent version of a timer is written, a timer created in this transaction stays an insert
+            timers.put(timer.getId(), timer);
+            if (!newTimers.containsKey(timer.getId()) || newTimer) {
+                newTimers.put(timer.getId(), newTimer);
+            }
+        }
+
+        @Override
+        public synchronized void beforeCompletion() {
+            executeBatch(timers, newTimers);
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+        }
+    }
+
     private static void safeClose(final Closeable resource) {
         try {
             if (resource != null) {
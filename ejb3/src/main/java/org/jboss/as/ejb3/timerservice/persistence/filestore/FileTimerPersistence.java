@@ -55,6 +55,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -149,6 +150,13 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
         persistTimer(TimerImpl, false);
     }
 
+    @Override
+    public boolean claimTimeout(final TimerImpl TimerImpl, final Date expectedNextExpiration) {
+        // the store is never shared, so this node always owns the timeout
+        persistTimer(TimerImpl, false);
+        return true;
+    }
+
     private void persistTimer(final TimerImpl timer, boolean newTimer) {
         final Lock lock = getLock(timer.getTimedObjectId());
         try {
@@ -295,39 +303,7 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
 
                     final TimerEntity entity = unmarshaller.readObject(TimerEntity.class);
 
-                    //we load the legacy timer entity class, and turn it into a timer state
-
-                    TimerImpl.Builder builder;
-                    if (entity instanceof CalendarTimerEntity) {
-                        CalendarTimerEntity c = (CalendarTimerEntity) entity;
-                        builder = CalendarTimer.builder()
-                                .setScheduleExprSecond(c.getSecond())
-                                .setScheduleExprMinute(c.getMinute())
-                                .setScheduleExprHour(c.getHour())
-                                .setScheduleExprDayOfWeek(c.getDayOfWeek())
-                                .setScheduleExprDayOfMonth(c.getDayOfMonth())
-                                .setScheduleExprMonth(c.getMonth())
-                                .setScheduleExprYear(c.getYear())
-                                .setScheduleExprStartDate(c.getStartDate())
-                                .setScheduleExprEndDate(c.getEndDate())
-                                .setScheduleExprTimezone(c.getTimezone())
-                                .setAutoTimer(c.isAutoTimer())
-                                .setTimeoutMethod(CalendarTimer.getTimeoutMethod(c.getTimeoutMethod(), timerService.getTimedObjectInvoker().getValue()));
-                    } else {
-                        builder = TimerImpl.builder();
-                    }
-                    builder.setId(entity.getId())
-                            .setTimedObjectId(entity.getTimedObjectId())
-                            .setInitialDate(entity.getInitialDate())
-                            .setRepeatInterval(entity.getInterval())
-                            .setNextDate(entity.getNextDate())
-                            .setPreviousRun(entity.getPreviousRun())
-                            .setInfo(entity.getInfo())
-                            .setPrimaryKey(entity.getPrimaryKey())
-                            .setTimerState(entity.getTimerState())
-                            .setPersistent(true);
-
-                    timers.put(entity.getId(), builder.build(timerService));
+                    timers.put(entity.getId(), fromEntity(entity, timerService));
                     unmarshaller.finish();
                 } catch (Exception e) {
                     ROOT_LOGGER.failToRestoreTimersFromFile(timerFile, e);
@@ -386,12 +362,7 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
             return;
         }
 
-        final TimerEntity entity;
-        if (timer instanceof CalendarTimer) {
-            entity = new CalendarTimerEntity((CalendarTimer) timer);
-        } else {
-            entity = new TimerEntity(timer);
-        }
+        final TimerEntity entity = toEntity(timer);
 
         FileOutputStream fileOutputStream = null;
         try {
@@ -417,6 +388,50 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
         }
     }
 
+    static TimerEntity toEntity(final TimerImpl timer) {
+        if (timer instanceof CalendarTimer) {
+            return new CalendarTimerEntity((CalendarTimer) timer);
+        } else {
+            return new TimerEntity(timer);
+        }
+    }
+
+    /**
+     * Turns a (legacy) timer entity, as stored on disk, back into a timer.
+     */
+    static TimerImpl fromEntity(final TimerEntity entity, final TimerServiceImpl timerService) {
+        TimerImpl.Builder builder;
+        if (entity instanceof CalendarTimerEntity) {
+            CalendarTimerEntity c = (CalendarTimerEntity) entity;
+            builder = CalendarTimer.builder()
+                    .setScheduleExprSecond(c.getSecond())
+                    .setScheduleExprMinute(c.getMinute())
+                    .setScheduleExprHour(c.getHour())
+                    .setScheduleExprDayOfWeek(c.getDayOfWeek())
+                    .setScheduleExprDayOfMonth(c.getDayOfMonth())
+                    .setScheduleExprMonth(c.getMonth())
+                    .setScheduleExprYear(c.getYear())
+                    .setScheduleExprStartDate(c.getStartDate())
+                    .setScheduleExprEndDate(c.getEndDate())
+                    .setScheduleExprTimezone(c.getTimezone())
+                    .setAutoTimer(c.isAutoTimer())
+                    .setTimeoutMethod(CalendarTimer.getTimeoutMethod(c.getTimeoutMethod(), timerService.getTimedObjectInvoker().getValue()));
+        } else {
+            builder = TimerImpl.builder();
+        }
+        builder.setId(entity.getId())
+                .setTimedObjectId(entity.getTimedObjectId())
+                .setInitialDate(entity.getInitialDate())
+                .setRepeatInterval(entity.getInterval())
+                .setNextDate(entity.getNextDate())
+                .setPreviousRun(entity.getPreviousRun())
+                .setInfo(entity.getInfo())
+                .setPrimaryKey(entity.getPrimaryKey())
+                .setTimerState(entity.getTimerState())
+                .setPersistent(true);
+        return builder.build(timerService);
+    }
+
     private final class PersistTransactionSynchronization implements Synchronization {
 
         private final String transactionKey;
@@ -0,0 +1,1056 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.persistence.filestore;
+
+import static org.jboss.as.ejb3.EjbLogger.ROOT_LOGGER;
+import static org.jboss.as.ejb3.EjbMessages.MESSAGES;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.TransactionManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.jboss.as.controller.services.path.PathManager;
+import org.jboss.as.ejb3.component.stateful.CurrentSynchronizationCallback;
+import org.jboss.as.ejb3.timerservice.TimerImpl;
+import org.jboss.as.ejb3.timerservice.TimerServiceImpl;
+import org.jboss.as.ejb3.timerservice.TimerState;
+import org.jboss.as.ejb3.timerservice.persistence.TimerEntity;
+import org.jboss.as.ejb3.timerservice.persistence.TimerPersistence;
+import org.jboss.marshalling.InputStreamByteInput;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.ModularClassResolver;
+import org.jboss.marshalling.OutputStreamByteOutput;
+import org.jboss.marshalling.Unmarshaller;
+import org.jboss.marshalling.river.RiverMarshallerFactory;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.jboss.msc.value.InjectedValue;
+
+/**
+ * File based persistent timer store which appends all timer changes to a journal, instead of writing one file per
+ * timer like {@link FileTimerPersistence}.
+ * <p/>
+ * The journal is split into segments. Each record holds the timed object id, the timer id and the marshalled
+ * {@link TimerEntity}, protected by a checksum. On start the segments are scanned in parallel to build an in memory
+ * index of where the latest version of every active timer lives, the entities themselves are only unmarshalled when a
+ * timer service asks for its timers. Timers changed within one transaction are appended together once it has
+ * committed and all writers waiting at the same time share a single fsync (group commit). Once a segment is full
+ * and the journal holds more superseded records than live ones, a background thread copies the live timers of the
+ * full segments into a fresh segment and deletes the full ones, writers only ever append to the current segment.
+ */
+public class JournalFileTimerPersistence implements TimerPersistence, Service<JournalFileTimerPersistence> {
+
+    static final long DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "timers-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final boolean createIfNotExists;
+    private final long maxSegmentSize;
+    private MarshallerFactory factory;
+    private MarshallingConfiguration configuration;
+    private final InjectedValue<TransactionManager> transactionManager = new InjectedValue<TransactionManager>();
+    private final InjectedValue<TransactionSynchronizationRegistry> transactionSynchronizationRegistry = new InjectedValue<TransactionSynchronizationRegistry>();
+    private final InjectedValue<ModuleLoader> moduleLoader = new InjectedValue<ModuleLoader>();
+    private final InjectedValue<PathManager> pathManager = new InjectedValue<PathManager>();
+    private final String path;
+    private final String pathRelativeTo;
+    private File baseDir;
+    private PathManager.Callback.Handle callbackHandle;
+
+    /**
+     * The location of the latest record of every active timer, by timed object id and timer id.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Location>> index = new ConcurrentHashMap<String, ConcurrentMap<String, Location>>();
+
+    /**
+     * Key of the {@link TransactionBatch} of the current transaction in the transaction synchronization registry.
+     */
+    private final Object batchKey = new Object();
+
+    /**
+     * Guards the segments, the index updates and the counters below.
+     */
+    private final Object journalLock = new Object();
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private volatile Segment current;
+    private long nextSegmentId;
+    private long liveRecords;
+    private long deadRecords;
+    private long writtenPosition;
+    private boolean compacting;
+
+    private volatile ExecutorService compactor;
+
+    /**
+     * Guards the group commit state.
+     */
+    private final Object syncLock = new Object();
+    private long durablePosition;
+    private boolean syncing;
+    private long syncCount;
+
+    public JournalFileTimerPersistence(final boolean createIfNotExists, final String path, final String pathRelativeTo) {
+        this(createIfNotExists, path, pathRelativeTo, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    public JournalFileTimerPersistence(final boolean createIfNotExists, final String path, final String pathRelativeTo, final long maxSegmentSize) {
+        this.createIfNotExists = createIfNotExists;
+        this.path = path;
+        this.pathRelativeTo = pathRelativeTo;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    @Override
+    public synchronized void start(final StartContext context) throws StartException {
+
+        final RiverMarshallerFactory factory = new RiverMarshallerFactory();
+        final MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setClassResolver(ModularClassResolver.getInstance(moduleLoader.getValue()));
+
+        this.configuration = configuration;
+        this.factory = factory;
+        if (pathRelativeTo != null) {
+            callbackHandle = pathManager.getValue().registerCallback(pathRelativeTo, PathManager.ReloadServerCallback.create(), PathManager.Event.UPDATED, PathManager.Event.REMOVED);
+        }
+        baseDir = new File(pathManager.getValue().resolveRelativePathEntry(path, pathRelativeTo));
+        if (!baseDir.exists()) {
+            if (createIfNotExists) {
+                if (!baseDir.mkdirs()) {
+                    throw MESSAGES.failToCreateTimerFileStoreDir(baseDir);
+                }
+            } else {
+                throw MESSAGES.timerFileStoreDirNotExist(baseDir);
+            }
+        }
+        if (!baseDir.isDirectory()) {
+            throw MESSAGES.invalidTimerFileStoreDir(baseDir);
+        }
+        compactor = Executors.newSingleThreadExecutor(new JournalThreadFactory("EJB timer journal compaction"));
+        try {
+            synchronized (journalLock) {
+                recover();
+                if (deadRecords > liveRecords) {
+                    roll();
+                }
+            }
+        } catch (IOException e) {
+            stopCompactor();
+            closeSegments();
+            throw new StartException(e);
+        }
+    }
+
+    @Override
+    public synchronized void stop(final StopContext context) {
+        stopCompactor();
+        synchronized (journalLock) {
+            closeSegments();
+            index.clear();
+            liveRecords = 0;
+            deadRecords = 0;
+        }
+        if (callbackHandle != null) {
+            callbackHandle.remove();
+        }
+        factory = null;
+        configuration = null;
+    }
+
+    /**
+     * Waits for a running compaction to finish, so that it does not work on closed segments.
+     */
+    private void stopCompactor() {
+        final ExecutorService compactor = this.compactor;
+        if (compactor == null) {
+            return;
+        }
+        this.compactor = null;
+        // not shutdownNow(), interrupting a thread closes the file channel it is using
+        compactor.shutdown();
+        boolean interrupted = false;
+        try {
+            while (!compactor.isTerminated()) {
+                try {
+                    compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public JournalFileTimerPersistence getValue() throws IllegalStateException, IllegalArgumentException {
+        return this;
+    }
+
+    @Override
+    public void addTimer(final TimerImpl timer) {
+        persistTimer(timer, true);
+    }
+
+    @Override
+    public void persistTimer(final TimerImpl timer) {
+        persistTimer(timer, false);
+    }
+
+    @Override
+    public boolean claimTimeout(final TimerImpl timer, final Date expectedNextExpiration) {
+        // the store is never shared, so this node always owns the timeout
+        persistTimer(timer, false);
+        return true;
+    }
+
+    private void persistTimer(final TimerImpl timer, final boolean newTimer) {
+        try {
+            final int status = transactionManager.getValue().getStatus();
+            if (status == Status.STATUS_MARKED_ROLLBACK || status == Status.STATUS_ROLLEDBACK ||
+                    status == Status.STATUS_ROLLING_BACK) {
+                //no need to persist anyway
+                return;
+            }
+
+            if (status == Status.STATUS_NO_TRANSACTION ||
+                    status == Status.STATUS_UNKNOWN || isBeforeCompletion()
+                    || status == Status.STATUS_COMMITTED) {
+                write(Collections.singletonList(timer), newTimer ? Collections.singleton(timer.getId()) : Collections.<String>emptySet());
+            } else {
+                final TransactionSynchronizationRegistry registry = transactionSynchronizationRegistry.getValue();
+                TransactionBatch batch = (TransactionBatch) registry.getResource(batchKey);
+                if (batch == null) {
+                    batch = new TransactionBatch();
+                    registry.registerInterposedSynchronization(batch);
+                    registry.putResource(batchKey, batch);
+                }
+                batch.add(timer, newTimer);
+                //update the most recent version of the timer to be persisted
+                registry.putResource(timerTransactionKey(timer), timer);
+            }
+        } catch (SystemException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String timerTransactionKey(final TimerImpl timer) {
+        return "org.jboss.as.ejb3.timerTransactionKey." + timer.getId();
+    }
+
+    @Override
+    public void timerUndeployed(final String timedObjectId) {
+        // the index only holds file locations, there is nothing which could leak the deployment class loader
+    }
+
+    private boolean isBeforeCompletion() {
+        final CurrentSynchronizationCallback.CallbackType type = CurrentSynchronizationCallback.get();
+        if (type != null) {
+            return type == CurrentSynchronizationCallback.CallbackType.BEFORE_COMPLETION;
+        }
+        return false;
+    }
+
+    @Override
+    public List<TimerImpl> loadActiveTimers(final String timedObjectId, final TimerServiceImpl timerService) {
+        final Map<String, byte[]> payloads = new LinkedHashMap<String, byte[]>();
+        synchronized (journalLock) {
+            final Map<String, Location> timers = index.get(timedObjectId);
+            if (timers == null) {
+                return new ArrayList<TimerImpl>();
+            }
+            for (Map.Entry<String, Location> entry : timers.entrySet()) {
+                try {
+                    payloads.put(entry.getKey(), entry.getValue().read());
+                } catch (IOException e) {
+                    ROOT_LOGGER.timerReinstatementFailed(timedObjectId, entry.getKey(), e);
+                }
+            }
+        }
+        // unmarshall outside of the lock, so timer services can restore their timers in parallel
+        final List<TimerImpl> entities = new ArrayList<TimerImpl>(payloads.size());
+        for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+            try {
+                final Unmarshaller unmarshaller = factory.createUnmarshaller(configuration);
+                unmarshaller.start(new InputStreamByteInput(new ByteArrayInputStream(entry.getValue())));
+                final TimerEntity entity = unmarshaller.readObject(TimerEntity.class);
+                unmarshaller.finish();
+                entities.add(mostRecentEntityVersion(FileTimerPersistence.fromEntity(entity, timerService)));
+            } catch (Exception e) {
+                ROOT_LOGGER.timerReinstatementFailed(timedObjectId, entry.getKey(), e);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Returns either the loaded entity or the most recent version of the entity that has
+     * been persisted in this transaction.
+     */
+    private TimerImpl mostRecentEntityVersion(final TimerImpl timerImpl) {
+        try {
+            final int status = transactionManager.getValue().getStatus();
+            if (status == Status.STATUS_UNKNOWN ||
+                    status == Status.STATUS_NO_TRANSACTION) {
+                return timerImpl;
+            }
+            final String key = timerTransactionKey(timerImpl);
+            TimerImpl existing = (TimerImpl) transactionSynchronizationRegistry.getValue().getResource(key);
+            return existing != null ? existing : timerImpl;
+        } catch (SystemException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Appends the given timers to the journal and waits until the journal has been synced to disk.
+     *
+     * @param timers    the timers to write
+     * @param newTimers the ids of the timers which have been created rather than updated
+     */
+    private void write(final Collection<TimerImpl> timers, final Set<String> newTimers) {
+        // marshall before taking the lock
+        final List<byte[]> payloads = new ArrayList<byte[]>(timers.size());
+        for (TimerImpl timer : timers) {
+            payloads.add(isActive(timer) ? marshall(timer) : null);
+        }
+        final long position;
+        try {
+            synchronized (journalLock) {
+                int i = 0;
+                for (TimerImpl timer : timers) {
+                    final byte[] payload = payloads.get(i++);
+                    final ConcurrentMap<String, Location> map = timers(timer.getTimedObjectId());
+                    if (payload == null) {
+                        if (map.containsKey(timer.getId())) {
+                            append(current, REMOVE, timer.getTimedObjectId(), timer.getId(), new byte[0]);
+                            map.remove(timer.getId());
+                            liveRecords--;
+                            // both the last put and the remove itself are garbage now
+                            deadRecords += 2;
+                        }
+                    } else if (newTimers.contains(timer.getId()) || map.containsKey(timer.getId())) {
+                        //if it is not a new timer and is not in the map then it has
+                        //been removed by another thread.
+                        final Location location = append(current, PUT, timer.getTimedObjectId(), timer.getId(), payload);
+                        if (map.put(timer.getId(), location) == null) {
+                            liveRecords++;
+                        } else {
+                            deadRecords++;
+                        }
+                    }
+                }
+                position = writtenPosition;
+                if (current.size >= maxSegmentSize) {
+                    roll();
+                }
+            }
+            awaitDurable(position);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean isActive(final TimerImpl timer) {
+        return timer.getState() != TimerState.CANCELED && timer.getState() != TimerState.EXPIRED;
+    }
+
+    private byte[] marshall(final TimerImpl timer) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final Marshaller marshaller = factory.createMarshaller(configuration);
+            marshaller.start(new OutputStreamByteOutput(bytes));
+            marshaller.writeObject(FileTimerPersistence.toEntity(timer));
+            marshaller.finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private ConcurrentMap<String, Location> timers(final String timedObjectId) {
+        ConcurrentMap<String, Location> timers = index.get(timedObjectId);
+        if (timers == null) {
+            timers = new ConcurrentHashMap<String, Location>();
+            final ConcurrentMap<String, Location> existing = index.putIfAbsent(timedObjectId, timers);
+            if (existing != null) {
+                timers = existing;
+            }
+        }
+        return timers;
+    }
+
+    /**
+     * Waits until everything up to the given journal position is on disk. The first thread to arrive syncs
+     * everything written so far, threads arriving while a sync is in progress wait for it and are usually
+     * covered by it or by the next one.
+     */
+    private void awaitDurable(final long position) throws IOException {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                synchronized (syncLock) {
+                    while (syncing && durablePosition < position) {
+                        try {
+                            syncLock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (durablePosition >= position) {
+                        return;
+                    }
+                    syncing = true;
+                }
+                long target = -1;
+                try {
+                    final Segment segment;
+                    synchronized (journalLock) {
+                        target = writtenPosition;
+                        segment = current;
+                    }
+                    // segments which have been rolled over were synced at that point
+                    sync(segment);
+                } finally {
+                    synchronized (syncLock) {
+                        syncing = false;
+                        syncCount++;
+                        durablePosition = Math.max(durablePosition, target);
+                        syncLock.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Syncs a segment to disk, on behalf of all writers waiting for it or of a compaction.
+     */
+    void sync(final Segment segment) throws IOException {
+        segment.force();
+    }
+
+    /**
+     * Appends a single record, must be called while holding the journal lock.
+     * <p/>
+     * Record layout: record length, type, timed object id, timer id, payload length, payload, CRC32 of everything
+     * after the record length and before the checksum.
+     */
+    private Location append(final Segment segment, final byte type, final String timedObjectId, final String timerId, final byte[] payload) throws IOException {
+        final long start = segment.size;
+        final Location location = writeRecord(segment, type, timedObjectId, timerId, payload);
+        writtenPosition += segment.size - start;
+        return location;
+    }
+
+    /**
+     * Writes a single record at the end of the given segment, the caller must be the only one writing to it.
+     */
+    private static Location writeRecord(final Segment segment, final byte type, final String timedObjectId, final String timerId, final byte[] payload) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 128);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(type);
+        out.writeUTF(timedObjectId);
+        out.writeUTF(timerId);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeLong(0L);
+        out.close();
+        final byte[] record = bytes.toByteArray();
+        final int bodyLength = record.length - 12;
+        final CRC32 crc = new CRC32();
+        crc.update(record, 4, bodyLength);
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(0, bodyLength);
+        buffer.putLong(record.length - 8, crc.getValue());
+
+        final long start = segment.size;
+        segment.write(buffer, start);
+        segment.size += record.length;
+        segment.records++;
+        return new Location(segment, start + 4 + bodyLength - payload.length, payload.length);
+    }
+
+    /**
+     * Starts a new segment. If most of the journal is garbage, the segments written so far are compacted in the
+     * background.
+     */
+    private void roll() throws IOException {
+        current.force();
+        final List<Segment> sealed = new ArrayList<Segment>(segments);
+        // the compacted segment has to be replayed before the new one, so its id is taken first
+        final long compactedId = (!compacting && deadRecords > liveRecords) ? nextSegmentId++ : -1;
+        current = createSegment();
+        segments.add(current);
+        if (compactedId >= 0) {
+            compact(sealed, compactedId);
+        }
+    }
+
+    /**
+     * Schedules the compaction of the given segments, which are no longer written to, into a new segment with the
+     * given id. Must be called while holding the journal lock.
+     */
+    private void compact(final List<Segment> sealed, final long segmentId) {
+        final ExecutorService compactor = this.compactor;
+        if (compactor == null) {
+            return;
+        }
+        final Set<Segment> sealedSet = new HashSet<Segment>(sealed);
+        long sealedRecords = 0;
+        for (Segment segment : sealed) {
+            sealedRecords += segment.records;
+        }
+        final List<LiveRecord> live = new ArrayList<LiveRecord>();
+        for (Map.Entry<String, ConcurrentMap<String, Location>> timers : index.entrySet()) {
+            for (Map.Entry<String, Location> entry : timers.getValue().entrySet()) {
+                if (sealedSet.contains(entry.getValue().segment)) {
+                    live.add(new LiveRecord(timers.getKey(), entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        try {
+            compactor.execute(new Compaction(sealed, sealedRecords, live, segmentId));
+            compacting = true;
+        } catch (RejectedExecutionException e) {
+            // stopping
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        return new Segment(segmentFile(nextSegmentId++));
+    }
+
+    private File segmentFile(final long segmentId) {
+        return new File(baseDir, String.format("%s%016d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Rebuilds the index from the segments on disk. The segments are scanned in parallel, their records are then
+     * applied to the index one segment after the other, in the order they were written.
+     */
+    private void recover() throws IOException {
+        final File[] files = baseDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        // the file names are zero padded, so they sort by segment id
+        Arrays.sort(files);
+        for (File file : files) {
+            final String id = file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length());
+            nextSegmentId = Math.max(nextSegmentId, Long.parseLong(id) + 1);
+            segments.add(new Segment(file));
+        }
+        final List<SegmentScan> scans = scan(segments);
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            final SegmentScan scan = scans.get(i);
+            for (Record record : scan.records) {
+                replay(record);
+            }
+            segment.records = scan.records.size();
+            if (scan.valid < segment.size) {
+                // a torn write at the end of the journal, the transaction was never acknowledged
+                ROOT_LOGGER.truncatingTimerJournal(segment.file, scan.valid);
+                segment.truncate(scan.valid);
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(createSegment());
+        }
+        current = segments.get(segments.size() - 1);
+        writtenPosition = 0;
+        synchronized (syncLock) {
+            durablePosition = 0;
+        }
+    }
+
+    /**
+     * Scans the given segments, using up to one thread per available processor.
+     *
+     * @return the scan of each segment, in the order of the segments
+     */
+    private static List<SegmentScan> scan(final List<Segment> segments) throws IOException {
+        final int threads = Math.min(segments.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            final List<SegmentScan> scans = new ArrayList<SegmentScan>(segments.size());
+            for (Segment segment : segments) {
+                scans.add(scan(segment));
+            }
+            return scans;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new JournalThreadFactory("EJB timer journal recovery"));
+        try {
+            final List<Future<SegmentScan>> futures = new ArrayList<Future<SegmentScan>>(segments.size());
+            for (final Segment segment : segments) {
+                futures.add(executor.submit(new Callable<SegmentScan>() {
+                    @Override
+                    public SegmentScan call() throws IOException {
+                        return scan(segment);
+                    }
+                }));
+            }
+            final List<SegmentScan> scans = new ArrayList<SegmentScan>(segments.size());
+            for (Future<SegmentScan> future : futures) {
+                scans.add(future.get());
+            }
+            return scans;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Applies a record read from the journal to the index.
+     */
+    private void replay(final Record record) {
+        final ConcurrentMap<String, Location> timers = timers(record.timedObjectId);
+        if (record.location != null) {
+            if (timers.put(record.timerId, record.location) == null) {
+                liveRecords++;
+            } else {
+                deadRecords++;
+            }
+        } else if (timers.remove(record.timerId) != null) {
+            liveRecords--;
+            deadRecords += 2;
+        } else {
+            deadRecords++;
+        }
+    }
+
+    /**
+     * Reads the records of a segment, up to the first one which is incomplete or corrupt.
+     */
+    private static SegmentScan scan(final Segment segment) throws IOException {
+        final List<Record> records = new ArrayList<Record>();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        long position = 0;
+        try {
+            final CRC32 crc = new CRC32();
+            for (;;) {
+                final byte[] record;
+                final long checksum;
+                try {
+                    final int bodyLength = in.readInt();
+                    if (bodyLength <= 0 || position + 12 + bodyLength > segment.size) {
+                        return new SegmentScan(records, position);
+                    }
+                    record = new byte[bodyLength];
+                    in.readFully(record);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    return new SegmentScan(records, position);
+                }
+                crc.reset();
+                crc.update(record, 0, record.length);
+                if (crc.getValue() != checksum) {
+                    return new SegmentScan(records, position);
+                }
+                final DataInputStream body = new DataInputStream(new ByteArrayInputStream(record));
+                final byte type = body.readByte();
+                final String timedObjectId = body.readUTF();
+                final String timerId = body.readUTF();
+                final int payloadLength = body.readInt();
+                final Location location = type == PUT ? new Location(segment, position + 4 + record.length - payloadLength, payloadLength) : null;
+                records.add(new Record(timedObjectId, timerId, location));
+                position += 12 + record.length;
+            }
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                ROOT_LOGGER.failToCloseFile(e);
+            }
+        }
+    }
+
+    private void closeSegments() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        current = null;
+    }
+
+    private final class TransactionBatch implements Synchronization {
+
+        private final Map<String, TimerImpl> timers = new LinkedHashMap<String, TimerImpl>();
+        private final Set<String> newTimers = new HashSet<String>();
+
+        synchronized void add(final TimerImpl timer, final boolean newTimer) {
+            // only the most recent version of a timer is written
+            timers.put(timer.getId(), timer);
+            if (newTimer) {
+                newTimers.add(timer.getId());
+            }
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            if (status == Status.STATUS_COMMITTED) {
+                final List<TimerImpl> toWrite;
+                final Set<String> created;
+                synchronized (this) {
+                    toWrite = new ArrayList<TimerImpl>(timers.values());
+                    created = new HashSet<String>(newTimers);
+                }
+                write(toWrite, created);
+            }
+        }
+    }
+
+    /**
+     * A record read from the journal.
+     */
+    private static final class Record {
+        private final String timedObjectId;
+        private final String timerId;
+        /** Where the entity was written, or {@code null} if the record removes the timer */
+        private final Location location;
+
+        Record(final String timedObjectId, final String timerId, final Location location) {
+            this.timedObjectId = timedObjectId;
+            this.timerId = timerId;
+            this.location = location;
+        }
+    }
+
+    /**
+     * The records of a segment and the length of its valid part.
+     */
+    private static final class SegmentScan {
+        private final List<Record> records;
+        private final long valid;
+
+        SegmentScan(final List<Record> records, final long valid) {
+            this.records = records;
+            this.valid = valid;
+        }
+    }
+
+    /**
+     * Copies the live records of segments which are no longer written to into a new segment, then replaces them by it.
+     * <p/>
+     * The new segment is ordered after the segments it replaces and before the current one. Until the old segments
+     * are deleted recovery replays it after them, which repeats the latest version of each copied timer, so a crash
+     * at any point leaves a journal which recovers to the same timers.
+     */
+    private final class Compaction implements Runnable {
+        private final List<Segment> sealed;
+        private final long sealedRecords;
+        private final List<LiveRecord> live;
+        private final long segmentId;
+
+        Compaction(final List<Segment> sealed, final long sealedRecords, final List<LiveRecord> live, final long segmentId) {
+            this.sealed = sealed;
+            this.sealedRecords = sealedRecords;
+            this.live = live;
+            this.segmentId = segmentId;
+        }
+
+        @Override
+        public void run() {
+            boolean compacted = false;
+            try {
+                compacted = compact();
+            } finally {
+                synchronized (journalLock) {
+                    compacting = false;
+                    journalLock.notifyAll();
+                    // compact again if more garbage than could be dropped has been written in the meantime
+                    if (compacted && deadRecords > liveRecords && segments.size() > 2) {
+                        try {
+                            roll();
+                        } catch (IOException e) {
+                            ROOT_LOGGER.timerJournalCompactionFailed(e);
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean compact() {
+            final List<Location> copies = new ArrayList<Location>(live.size());
+            Segment target = null;
+            try {
+                target = new Segment(segmentFile(segmentId));
+                for (LiveRecord record : live) {
+                    copies.add(writeRecord(target, PUT, record.timedObjectId, record.timerId, record.location.read()));
+                }
+                sync(target);
+            } catch (IOException e) {
+                ROOT_LOGGER.timerJournalCompactionFailed(e);
+                if (target != null) {
+                    // what has been copied is still valid, so the file may stay if it can not be deleted
+                    target.close();
+                    target.file.delete();
+                }
+                return false;
+            }
+            synchronized (journalLock) {
+                for (int i = 0; i < live.size(); i++) {
+                    final LiveRecord record = live.get(i);
+                    final ConcurrentMap<String, Location> timers = index.get(record.timedObjectId);
+                    // timers which have been written or removed in the meantime keep their newer record
+                    if (timers != null) {
+                        timers.replace(record.timerId, record.location, copies.get(i));
+                    }
+                }
+                segments.removeAll(sealed);
+                segments.add(0, target);
+                deadRecords -= sealedRecords - live.size();
+            }
+            // nothing refers to the old segments anymore
+            // delete the oldest first, a crash in the middle still leaves a replayable journal
+            for (Segment segment : sealed) {
+                segment.close();
+                if (!segment.file.delete()) {
+                    ROOT_LOGGER.cannotDeleteTimerJournalSegment(segment.file);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The latest record of a timer, as found when a compaction was scheduled.
+     */
+    private static final class LiveRecord {
+        private final String timedObjectId;
+        private final String timerId;
+        private final Location location;
+
+        LiveRecord(final String timedObjectId, final String timerId, final Location location) {
+            this.timedObjectId = timedObjectId;
+            this.timerId = timerId;
+            this.location = location;
+        }
+    }
+
+    private static final class JournalThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        JournalThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * A file of the journal.
+     */
+    static final class Segment {
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private long size;
+        /** The number of records in the segment, live or not */
+        private long records;
+
+        Segment(final File file) throws IOException {
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+            this.size = channel.size();
+        }
+
+        void write(final ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        void read(final ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                final int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException(file.getAbsolutePath());
+                }
+                position += read;
+            }
+        }
+
+        void force() throws IOException {
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // the segment has been compacted away, its content was synced before that
+            }
+        }
+
+        void truncate(final long length) throws IOException {
+            channel.truncate(length);
+            size = length;
+        }
+
+        void close() {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                ROOT_LOGGER.failToCloseFile(e);
+            }
+        }
+    }
+
+    /**
+     * Where the marshalled entity of a timer is stored.
+     */
+    private static final class Location {
+        private final Segment segment;
+        private final long position;
+        private final int length;
+
+        Location(final Segment segment, final long position, final int length) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+
+        byte[] read() throws IOException {
+            final byte[] bytes = new byte[length];
+            segment.read(ByteBuffer.wrap(bytes), position);
+            return bytes;
+        }
+    }
+
+    /**
+     * @return how often the journal has been synced to disk since the store was created
+     */
+    long getSyncCount() {
+        synchronized (syncLock) {
+            return syncCount;
+        }
+    }
+
+    /**
+     * Waits until no compaction is in progress.
+     */
+    void awaitCompaction() throws InterruptedException {
+        synchronized (journalLock) {
+            while (compacting) {
+                journalLock.wait();
+            }
+        }
+    }
+
+    /**
+     * @return the number of segment files of the journal
+     */
+    int getSegmentCount() {
+        synchronized (journalLock) {
+            return segments.size();
+        }
+    }
+
+    public InjectedValue<TransactionManager> getTransactionManager() {
+        return transactionManager;
+    }
+
+    public InjectedValue<TransactionSynchronizationRegistry> getTransactionSynchronizationRegistry() {
+        return transactionSynchronizationRegistry;
+    }
+
+    public InjectedValue<ModuleLoader> getModuleLoader() {
+        return moduleLoader;
+    }
+
+    public InjectedValue<PathManager> getPathManager() {
+        return pathManager;
+    }
+}
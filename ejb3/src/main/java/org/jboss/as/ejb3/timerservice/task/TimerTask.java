@@ -150,6 +150,7 @@ public class TimerTask<T extends TimerImpl> implements Runnable {
                     ROOT_LOGGER.debug("Timer is not active, skipping this scheduled execution at: " + now + "for " + timer);
                     return;
                 }
+                final Date currentTimeout = timer.getNextExpiration();
                 // set the current date as the "previous run" of the timer.
                 timer.setPreviousRun(new Date());
                 Date nextTimeout = this.calculateNextTimeout(timer);
@@ -157,8 +158,13 @@ public class TimerTask<T extends TimerImpl> implements Runnable {
                 // change the state to mark it as in timeout method
                 timer.setTimerState(TimerState.IN_TIMEOUT);
 
-                // persist changes
-                timerService.persistTimer(timer, false);
+                // persist changes, unless another node sharing the timer store already delivered this timeout
+                if (!timerService.claimTimeout(timer, currentTimeout)) {
+                    ROOT_LOGGER.debug("Timeout at " + currentTimeout + " was claimed by another node for " + timer);
+                    timer.setTimerState(TimerState.ACTIVE);
+                    scheduleTimeoutIfRequired(timer);
+                    return;
+                }
 
             } finally {
                 timer.unlock();
@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.cache.impl.backing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.jboss.as.ejb3.cache.Cacheable;
+import org.jboss.as.ejb3.cache.IdentifierFactory;
+import org.jboss.as.ejb3.cache.spi.BackingCacheEntry;
+import org.jboss.as.ejb3.cache.spi.BackingCacheEntryStoreConfig;
+import org.jboss.as.ejb3.cache.spi.PersistentObjectStore;
+import org.jboss.as.server.ServerEnvironment;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ShardedBackingCacheEntryStore}
+ */
+public class ShardedBackingCacheEntryStoreTestCase {
+
+    private PersistentObjectStore<String, BackingCacheEntry<String, Cacheable<String>>> persistentStore;
+    private ShardedBackingCacheEntryStore<String, Cacheable<String>, BackingCacheEntry<String, Cacheable<String>>> store;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.persistentStore = mock(PersistentObjectStore.class);
+        BackingCacheEntryStoreConfig config = mock(BackingCacheEntryStoreConfig.class);
+        when(config.getMaxSize()).thenReturn(3);
+        // a single shard, so that the eviction order is deterministic
+        this.store = new ShardedBackingCacheEntryStore<String, Cacheable<String>, BackingCacheEntry<String, Cacheable<String>>>(mock(IdentifierFactory.class), this.persistentStore, mock(ServerEnvironment.class), null, config, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BackingCacheEntry<String, Cacheable<String>> entry(String id) {
+        BackingCacheEntry<String, Cacheable<String>> entry = mock(BackingCacheEntry.class);
+        when(entry.getId()).thenReturn(id);
+        return entry;
+    }
+
+    @Test
+    public void testEvictsOldestUnreferencedEntry() {
+        assertTrue(this.store.insert(entry("a")).isEmpty());
+        assertTrue(this.store.insert(entry("b")).isEmpty());
+        assertTrue(this.store.insert(entry("c")).isEmpty());
+        assertEquals(Collections.singleton("a"), this.store.insert(entry("d")));
+        assertEquals(1, this.store.getPassivationQueueSize());
+        // "a" is still pending, so the next insert selects exactly one more
+        assertEquals(Collections.singleton("b"), this.store.insert(entry("e")));
+    }
+
+    @Test
+    public void testReferencedEntryGetsSecondChance() {
+        this.store.insert(entry("a"));
+        this.store.insert(entry("b"));
+        this.store.insert(entry("c"));
+        this.store.get("a", false);
+        assertEquals(Collections.singleton("b"), this.store.insert(entry("d")));
+    }
+
+    @Test
+    public void testPeekIsNotRecorded() {
+        BackingCacheEntry<String, Cacheable<String>> a = entry("a");
+        this.store.insert(a);
+        this.store.insert(entry("b"));
+        this.store.insert(entry("c"));
+        assertSame(a, this.store.peek("a", false));
+        assertNull(this.store.peek("x", false));
+        verify(this.persistentStore, never()).load("x");
+        assertEquals(0, this.store.getHitCount());
+        assertEquals(0, this.store.getMissCount());
+        // "a" did not get a second chance
+        assertEquals(Collections.singleton("a"), this.store.insert(entry("d")));
+
+        when(this.persistentStore.load("x")).thenReturn(entry("x"));
+        assertNotNull(this.store.peek("x", true));
+        assertEquals(0, this.store.getMissCount());
+    }
+
+    @Test
+    public void testEntryInUseIsNotEvicted() {
+        BackingCacheEntry<String, Cacheable<String>> a = entry("a");
+        when(a.isInUse()).thenReturn(true);
+        this.store.insert(a);
+        this.store.insert(entry("b"));
+        this.store.insert(entry("c"));
+        assertEquals(Collections.singleton("b"), this.store.insert(entry("d")));
+    }
+
+    @Test
+    public void testPassivateAndActivate() {
+        BackingCacheEntry<String, Cacheable<String>> a = entry("a");
+        this.store.insert(a);
+        this.store.insert(entry("b"));
+        this.store.insert(entry("c"));
+        Set<String> victims = this.store.insert(entry("d"));
+        assertEquals(Collections.singleton("a"), victims);
+
+        this.store.passivate(a);
+        verify(this.persistentStore).store(a);
+        assertEquals(3, this.store.getCacheSize());
+        assertEquals(1, this.store.getPassivationCount());
+        assertEquals(0, this.store.getPassivationQueueSize());
+
+        when(this.persistentStore.load("a")).thenReturn(a);
+        assertSame(a, this.store.get("a", false));
+        assertSame(a, this.store.get("a", false));
+        assertEquals(4, this.store.getCacheSize());
+        assertEquals(1, this.store.getHitCount());
+        assertEquals(1, this.store.getMissCount());
+    }
+
+    @Test
+    public void testFailedPassivation() {
+        BackingCacheEntry<String, Cacheable<String>> a = entry("a");
+        this.store.insert(a);
+        this.store.insert(entry("b"));
+        this.store.insert(entry("c"));
+        assertEquals(Collections.singleton("a"), this.store.insert(entry("d")));
+        assertEquals(1, this.store.getPassivationQueueSize());
+
+        RuntimeException failure = new RuntimeException();
+        doThrow(failure).when(this.persistentStore).store(a);
+        try {
+            this.store.passivate(a);
+            fail("Expected the passivation to fail");
+        } catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+        // the entry stays cached and is no longer counted as being evicted
+        assertEquals(0, this.store.getPassivationQueueSize());
+        assertEquals(0, this.store.getPassivationCount());
+        assertEquals(4, this.store.getCacheSize());
+        assertSame(a, this.store.get("a", false));
+        verify(this.persistentStore, never()).load("a");
+    }
+
+    @Test
+    public void testRemove() {
+        BackingCacheEntry<String, Cacheable<String>> a = entry("a");
+        this.store.insert(a);
+        assertSame(a, this.store.remove("a"));
+        assertEquals(0, this.store.getCacheSize());
+        // the removed node must not count towards the capacity
+        assertTrue(this.store.insert(entry("b")).isEmpty());
+        assertTrue(this.store.insert(entry("c")).isEmpty());
+        assertTrue(this.store.insert(entry("d")).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUpdateMissingEntry() {
+        this.store.update(entry("a"), true);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component.invocationmetrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorContext;
+import org.jboss.invocation.SimpleInterceptorFactoryContext;
+import org.junit.Test;
+
+/**
+ * Tests that {@link WaitTimeInterceptor} hands the start of the wait to the {@link ExecutionTimeInterceptor} further
+ * down the chain.
+ */
+public class WaitTimeInterceptorTestCase {
+
+    @Test
+    public void testStartWaitTimeIsTakenOnce() throws Exception {
+        final long before = System.currentTimeMillis();
+        final long[] taken = new long[2];
+        final InterceptorContext context = new InterceptorContext();
+        context.setInterceptors(Arrays.asList(WaitTimeInterceptor.FACTORY.create(new SimpleInterceptorFactoryContext()), new Interceptor() {
+            @Override
+            public Object processInvocation(final InterceptorContext context) throws Exception {
+                taken[0] = WaitTimeInterceptor.takeStartWaitTime();
+                // a nested invocation on this thread does not see it
+                taken[1] = WaitTimeInterceptor.takeStartWaitTime();
+                return null;
+            }
+        }));
+        context.proceed();
+
+        assertTrue(taken[0] >= before);
+        assertTrue(taken[0] <= System.currentTimeMillis());
+        assertEquals(0L, taken[1]);
+        assertEquals(0L, WaitTimeInterceptor.takeStartWaitTime());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.concurrency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+import javax.ejb.IllegalLoopbackException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ReaderBiasedReadWriteLock}
+ */
+public class ReaderBiasedReadWriteLockTestCase {
+
+    private final ReaderBiasedReadWriteLock lock = new ReaderBiasedReadWriteLock(4);
+
+    @Test
+    public void testIllegalLoopBack() throws Exception {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            lock.writeLock().tryLock(1, TimeUnit.SECONDS);
+            Assert.fail("Unexpected acquired write lock");
+        } catch (IllegalLoopbackException expected) {
+            // expected
+        } finally {
+            readLock.unlock();
+        }
+        Assert.assertEquals(0, lock.getReadLockCount());
+    }
+
+    @Test
+    public void testWriterMayRead() throws Exception {
+        Assert.assertTrue(lock.writeLock().tryLock(1, TimeUnit.SECONDS));
+        Assert.assertTrue(lock.readLock().tryLock(1, TimeUnit.SECONDS));
+        lock.readLock().unlock();
+        Assert.assertTrue(lock.writeLock().tryLock(1, TimeUnit.SECONDS));
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+        Assert.assertFalse(lock.isWriteLocked());
+    }
+
+    @Test
+    public void testReadTimesOutWhileWriteLocked() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lock.writeLock().lock();
+                try {
+                    locked.countDown();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        });
+        writer.start();
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(lock.readLock().tryLock(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        writer.join(5000);
+        Assert.assertTrue(lock.readLock().tryLock(1, TimeUnit.SECONDS));
+        lock.readLock().unlock();
+    }
+
+    @Test
+    public void testWriteTimesOutWhileReadLocked() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lock.readLock().lock();
+                try {
+                    locked.countDown();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+        });
+        reader.start();
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(lock.writeLock().tryLock(100, TimeUnit.MILLISECONDS));
+        // a failed writer must not keep out new readers
+        Assert.assertTrue(lock.readLock().tryLock(1, TimeUnit.SECONDS));
+        lock.readLock().unlock();
+        release.countDown();
+        reader.join(5000);
+        Assert.assertTrue(lock.writeLock().tryLock(1, TimeUnit.SECONDS));
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * A reader re-entering the bean must not wait for a writer which is itself waiting for the reader to leave.
+     */
+    @Test
+    public void testReentrantReadWhileWriterWaits() throws Exception {
+        lock.readLock().lock();
+        final AtomicInteger writes = new AtomicInteger();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lock.writeLock().lock();
+                writes.incrementAndGet();
+                lock.writeLock().unlock();
+            }
+        });
+        writer.start();
+        while (!lock.isWriteLocked()) {
+            Thread.sleep(1);
+        }
+        Assert.assertTrue(lock.readLock().tryLock(1, TimeUnit.SECONDS));
+        lock.readLock().unlock();
+        Assert.assertEquals(0, writes.get());
+        lock.readLock().unlock();
+        writer.join(5000);
+        Assert.assertEquals(1, writes.get());
+    }
+
+    @Test
+    public void testMutualExclusion() throws Exception {
+        final int threads = 8;
+        final int iterations = 20000;
+        final AtomicInteger activeReaders = new AtomicInteger();
+        final AtomicInteger activeWriters = new AtomicInteger();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < iterations; i++) {
+                            if ((i + id) % 64 == 0) {
+                                lock.writeLock().lock();
+                                try {
+                                    if (activeWriters.incrementAndGet() != 1 || activeReaders.get() != 0) {
+                                        failure.set("writer was not exclusive");
+                                    }
+                                    activeWriters.decrementAndGet();
+                                } finally {
+                                    lock.writeLock().unlock();
+                                }
+                            } else {
+                                lock.readLock().lock();
+                                try {
+                                    activeReaders.incrementAndGet();
+                                    if (activeWriters.get() != 0) {
+                                        failure.set("reader ran concurrently with a writer");
+                                    }
+                                    activeReaders.decrementAndGet();
+                                } finally {
+                                    lock.readLock().unlock();
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        failure.set(e.toString());
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join(60000);
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(0, lock.getReadLockCount());
+        Assert.assertFalse(lock.isWriteLocked());
+    }
+}
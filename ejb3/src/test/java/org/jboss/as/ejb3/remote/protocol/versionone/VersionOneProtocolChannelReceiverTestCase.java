@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.remote.protocol.versionone;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jboss.as.clustering.registry.RegistryCollector;
+import org.jboss.as.ejb3.deployment.DeploymentRepository;
+import org.jboss.as.ejb3.remote.EJBRemoteTransactionsRepository;
+import org.jboss.as.ejb3.remote.RemoteAsyncInvocationCancelStatusService;
+import org.jboss.as.network.ClientMapping;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.remoting3.Channel;
+import org.jboss.remoting3.MessageInputStream;
+import org.jboss.remoting3.RemotingOptions;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests the throttling of invocations received by {@link VersionOneProtocolChannelReceiver}.
+ */
+public class VersionOneProtocolChannelReceiverTestCase {
+
+    private static final int HEADER_INVOCATION_REQUEST = 0x03;
+    private static final int MAX_INBOUND_INVOCATIONS = 2;
+
+    private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+    private Channel channel;
+    private ExecutorService executor;
+    private VersionOneProtocolChannelReceiver receiver;
+
+    @Before
+    public void setUp() {
+        this.channel = mock(Channel.class);
+        when(this.channel.getOption(RemotingOptions.MAX_INBOUND_MESSAGES)).thenReturn(MAX_INBOUND_INVOCATIONS);
+        this.executor = mock(ExecutorService.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                tasks.add((Runnable) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(this.executor).execute(any(Runnable.class));
+        @SuppressWarnings("unchecked")
+        final RegistryCollector<String, List<ClientMapping>> registryCollector = mock(RegistryCollector.class);
+        this.receiver = new VersionOneProtocolChannelReceiver(new ChannelAssociation(this.channel), mock(DeploymentRepository.class),
+                mock(EJBRemoteTransactionsRepository.class), registryCollector, mock(MarshallerFactory.class), this.executor,
+                mock(RemoteAsyncInvocationCancelStatusService.class));
+    }
+
+    /**
+     * Invocations are handed to the executor, and the next message is received until the cap is reached.
+     */
+    @Test
+    public void testInFlightCap() throws IOException {
+        final MessageInputStream first = invocation();
+        this.receiver.handleMessage(this.channel, first);
+        assertEquals(1, this.tasks.size());
+        verify(this.channel, times(1)).receiveMessage(this.receiver);
+        // the stream is only closed once the invocation has been unmarshalled
+        verify(first, times(0)).close();
+
+        this.receiver.handleMessage(this.channel, invocation());
+        assertEquals(MAX_INBOUND_INVOCATIONS, this.tasks.size());
+        // the cap is reached, so no further message is requested from the channel
+        verify(this.channel, times(1)).receiveMessage(this.receiver);
+    }
+
+    /**
+     * Receiving is suspended at the cap, and resumed once, as soon as an invocation completes.
+     */
+    @Test
+    public void testSuspendResume() throws IOException {
+        this.receiver.handleMessage(this.channel, invocation());
+        this.receiver.handleMessage(this.channel, invocation());
+        verify(this.channel, times(1)).receiveMessage(this.receiver);
+
+        this.tasks.poll().run();
+        verify(this.channel, times(2)).receiveMessage(this.receiver);
+
+        // receiving was not suspended, so the completion of the other invocation does not request another message
+        this.tasks.poll().run();
+        verify(this.channel, times(2)).receiveMessage(this.receiver);
+
+        // and the receiver keeps going as before
+        this.receiver.handleMessage(this.channel, invocation());
+        verify(this.channel, times(3)).receiveMessage(this.receiver);
+    }
+
+    /**
+     * An invocation the executor rejects is handled in the channel thread, and does not count towards the cap.
+     */
+    @Test
+    public void testRejectedExecution() throws IOException {
+        doThrow(new RejectedExecutionException()).when(this.executor).execute(any(Runnable.class));
+        for (int i = 1; i <= MAX_INBOUND_INVOCATIONS + 1; i++) {
+            final MessageInputStream stream = invocation();
+            this.receiver.handleMessage(this.channel, stream);
+            verify(stream).close();
+            verify(this.channel, times(i)).receiveMessage(this.receiver);
+        }
+        verify(this.executor, times(MAX_INBOUND_INVOCATIONS + 1)).execute(any(Runnable.class));
+    }
+
+    /**
+     * Creates an invocation message whose body is truncated, so that its handling fails as soon as it is unmarshalled.
+     */
+    private static MessageInputStream invocation() throws IOException {
+        final MessageInputStream stream = mock(MessageInputStream.class);
+        when(stream.read()).thenReturn(HEADER_INVOCATION_REQUEST).thenThrow(new EOFException());
+        return stream;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link TimingWheel}.
+ */
+public class TimingWheelTestCase {
+
+    private TimingWheel wheel;
+
+    @Before
+    public void start() {
+        // a small wheel, so that timeouts have to wait for several rotations
+        wheel = new TimingWheel("test-wheel", 5, TimeUnit.MILLISECONDS, 8);
+        wheel.start();
+    }
+
+    @After
+    public void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    public void testTimeoutFiresAfterDelay() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        Assert.assertEquals(1, wheel.getExpiredTimeouts());
+        Assert.assertEquals(0, wheel.getPendingTimeouts());
+    }
+
+    @Test
+    public void testCancelledTimeoutDoesNotFire() throws Exception {
+        final AtomicInteger fired = new AtomicInteger();
+        final TimingWheel.Timeout timeout = wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fired.incrementAndGet();
+            }
+        }, 50);
+        Assert.assertEquals(1, wheel.getPendingTimeouts());
+        Assert.assertTrue(timeout.cancel());
+        Assert.assertFalse(timeout.cancel());
+        Assert.assertTrue(timeout.isCancelled());
+        Assert.assertEquals(0, wheel.getPendingTimeouts());
+        Thread.sleep(150);
+        Assert.assertEquals(0, fired.get());
+    }
+
+    @Test
+    public void testFixedRate() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(5);
+        final TimingWheel.Timeout timeout = wheel.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 0, 20);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(timeout.cancel());
+        final long expired = wheel.getExpiredTimeouts();
+        Thread.sleep(100);
+        // at most one execution may have been in progress while cancelling
+        Assert.assertTrue(wheel.getExpiredTimeouts() <= expired + 1);
+    }
+
+    @Test
+    public void testFixedRateOfOneRotation() throws Exception {
+        // the wheel spans 40ms, so every execution lands in the bucket of the previous one
+        final CountDownLatch latch = new CountDownLatch(11);
+        final long start = System.nanoTime();
+        final TimingWheel.Timeout timeout = wheel.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 0, 40);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        timeout.cancel();
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // ten periods take 400ms, a timeout which skipped a rotation each time would take 800ms
+        Assert.assertTrue("took " + elapsed + "ms", elapsed >= 400 && elapsed < 700);
+    }
+
+    @Test
+    public void testFixedRateShorterThanTick() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(20);
+        final long start = System.nanoTime();
+        final TimingWheel.Timeout timeout = wheel.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 0, 1);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        timeout.cancel();
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // fires once per 5ms tick, a timeout which waited for a rotation each time would take 800ms
+        Assert.assertTrue("took " + elapsed + "ms", elapsed < 400);
+    }
+
+    @Test
+    public void testManyTimeouts() throws Exception {
+        final int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(count);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(task, i % 200);
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(count, wheel.getExpiredTimeouts());
+        // a timeout fires at most a tick late, allow for a slow machine
+        Assert.assertTrue(wheel.getAverageLag() < 1000);
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopTheWheel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("expected");
+            }
+        }, 0);
+        wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 20);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
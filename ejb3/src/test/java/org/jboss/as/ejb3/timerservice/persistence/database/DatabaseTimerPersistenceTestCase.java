@@ -0,0 +1,293 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.persistence.database;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jboss.as.ejb3.timerservice.TimerImpl;
+import org.jboss.as.ejb3.timerservice.TimerServiceImpl;
+import org.jboss.as.ejb3.timerservice.TimerState;
+import org.jboss.as.ejb3.timerservice.spi.TimedObjectInvoker;
+import org.jboss.as.naming.ManagedReference;
+import org.jboss.as.naming.ManagedReferenceFactory;
+import org.jboss.as.naming.ValueManagedReferenceFactory;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.value.ImmediateValue;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link DatabaseTimerPersistence} against an embedded H2 database.
+ */
+public class DatabaseTimerPersistenceTestCase {
+
+    private static final String TIMED_OBJECT_ID = "test-timed-object";
+
+    private static int databaseCount;
+
+    private JdbcDataSource dataSource;
+    private TimerServiceImpl timerService;
+    private final List<DatabaseTimerPersistence> started = new ArrayList<DatabaseTimerPersistence>();
+
+    @Before
+    public void setup() {
+        dataSource = new JdbcDataSource();
+        // a fresh database per test, kept open until the test is done
+        dataSource.setURL("jdbc:h2:mem:timers" + (++databaseCount) + ";DB_CLOSE_DELAY=-1");
+
+        final TimedObjectInvoker invoker = mock(TimedObjectInvoker.class);
+        when(invoker.getTimedObjectId()).thenReturn(TIMED_OBJECT_ID);
+        timerService = mock(TimerServiceImpl.class);
+        when(timerService.getInvoker()).thenReturn(invoker);
+        when(timerService.getServiceName()).thenReturn(ServiceName.of("test", "timer-service"));
+    }
+
+    @After
+    public void tearDown() {
+        for (DatabaseTimerPersistence persistence : started) {
+            persistence.stop(null);
+        }
+    }
+
+    @Test
+    public void testAddAndLoad() throws Exception {
+        final DatabaseTimerPersistence persistence = start(0, null);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+        persistence.addTimer(timer("one", next));
+        persistence.addTimer(timer("two", next));
+
+        final TimerImpl cancelled = timer("two", next);
+        cancelled.setTimerState(TimerState.CANCELED);
+        persistence.persistTimer(cancelled);
+
+        final List<TimerImpl> timers = persistence.loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals("one", timers.get(0).getId());
+        Assert.assertEquals(next.getTime(), timers.get(0).getNextExpiration().getTime());
+    }
+
+    @Test
+    public void testTransactionIsWrittenOnce() throws Exception {
+        final TestSynchronizationRegistry registry = new TestSynchronizationRegistry();
+        final DatabaseTimerPersistence persistence = start(0, registry);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+
+        final TimerImpl kept = timer("kept", next);
+        persistence.addTimer(kept);
+        final TimerImpl dropped = timer("dropped", next);
+        persistence.addTimer(dropped);
+        final Date later = new Date(next.getTime() + 1000);
+        kept.setNextTimeout(later);
+        persistence.persistTimer(kept);
+        dropped.setTimerState(TimerState.CANCELED);
+        persistence.persistTimer(dropped);
+
+        // nothing is written before the transaction completes
+        Assert.assertEquals(1, registry.synchronizations.size());
+        Assert.assertTrue(persistence.loadActiveTimers(TIMED_OBJECT_ID, timerService).isEmpty());
+
+        registry.synchronizations.get(0).beforeCompletion();
+        registry.status = Status.STATUS_NO_TRANSACTION;
+
+        final List<TimerImpl> timers = persistence.loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals("kept", timers.get(0).getId());
+        Assert.assertEquals(later.getTime(), timers.get(0).getNextExpiration().getTime());
+    }
+
+    @Test
+    public void testTimeoutIsClaimedOnce() throws Exception {
+        final DatabaseTimerPersistence first = start(60000, null);
+        final DatabaseTimerPersistence second = start(60000, null);
+        final Date current = new Date(System.currentTimeMillis() - 10);
+        first.addTimer(timer("claimed", current));
+
+        // both nodes fire the same timeout
+        final TimerImpl onFirst = timer("claimed", new Date(current.getTime() + 1000));
+        onFirst.setTimerState(TimerState.IN_TIMEOUT);
+        final TimerImpl onSecond = timer("claimed", new Date(current.getTime() + 1000));
+        onSecond.setTimerState(TimerState.IN_TIMEOUT);
+
+        Assert.assertTrue(first.claimTimeout(onFirst, current));
+        Assert.assertFalse(second.claimTimeout(onSecond, current));
+
+        // the loser resynchronizes its copy on the next refresh
+        second.loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        second.refreshTimers();
+        verify(timerService, atLeastOnce()).timerChanged("claimed", TimerState.IN_TIMEOUT, onFirst.getNextExpiration(), null);
+    }
+
+    @Test
+    public void testRefreshOnlyLoadsDueTimers() throws Exception {
+        final DatabaseTimerPersistence writer = start(0, null);
+        final DatabaseTimerPersistence reader = start(1000, null);
+        Assert.assertTrue(reader.loadActiveTimers(TIMED_OBJECT_ID, timerService).isEmpty());
+
+        writer.addTimer(timer("soon", new Date(System.currentTimeMillis() + 500)));
+        writer.addTimer(timer("later", new Date(System.currentTimeMillis() + 3600000)));
+
+        reader.refreshTimers();
+        verify(timerService).timerChanged(any(String.class), any(TimerState.class), any(Date.class), any(Date.class));
+        verify(timerService).timerAdded(any(TimerImpl.class));
+        verify(timerService, never()).timerChanged(eq("later"), any(TimerState.class), any(Date.class), any(Date.class));
+    }
+
+    @Test
+    public void testIndexIsAddedToExistingTable() throws Exception {
+        final Properties sql = new Properties();
+        final InputStream stream = DatabaseTimerPersistence.class.getResourceAsStream("sql.properties");
+        try {
+            sql.load(stream);
+        } finally {
+            stream.close();
+        }
+        final Connection connection = dataSource.getConnection();
+        try {
+            // a table as created before timers were indexed
+            final Statement statement = connection.createStatement();
+            try {
+                statement.executeUpdate(sql.getProperty("create-table"));
+            } finally {
+                statement.close();
+            }
+            Assert.assertEquals(0, timerIndexes(connection));
+
+            start(0, null);
+            Assert.assertEquals(1, timerIndexes(connection));
+
+            // the index is not created twice
+            start(0, null);
+            Assert.assertEquals(1, timerIndexes(connection));
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static int timerIndexes(final Connection connection) throws Exception {
+        int count = 0;
+        final ResultSet resultSet = connection.getMetaData().getIndexInfo(null, null, "JBOSS_EJB_TIMER", false, true);
+        try {
+            while (resultSet.next()) {
+                if ("TIMED_OBJECT_ID".equals(resultSet.getString("COLUMN_NAME")) && resultSet.getShort("ORDINAL_POSITION") == 1) {
+                    ++count;
+                }
+            }
+        } finally {
+            resultSet.close();
+        }
+        return count;
+    }
+
+    private DatabaseTimerPersistence start(final long refreshInterval, final TransactionSynchronizationRegistry registry) throws Exception {
+        final DatabaseTimerPersistence persistence = new DatabaseTimerPersistence("test", refreshInterval);
+        persistence.getDataSourceInjectedValue().inject(new ValueManagedReferenceFactory(new ImmediateValue<Object>(dataSource)));
+        persistence.getModuleLoader().inject(mock(ModuleLoader.class));
+        if (registry != null) {
+            persistence.getTransactionSynchronizationRegistry().inject(registry);
+        }
+        persistence.start(null);
+        started.add(persistence);
+        return persistence;
+    }
+
+    private TimerImpl timer(final String id, final Date next) {
+        return TimerImpl.builder()
+                .setId(id)
+                .setTimedObjectId(TIMED_OBJECT_ID)
+                .setInitialDate(next)
+                .setRepeatInterval(1000)
+                .setNextDate(next)
+                .setTimerState(TimerState.ACTIVE)
+                .setPersistent(true)
+                .build(timerService);
+    }
+
+    /**
+     * A registry for a single transaction which is always active.
+     */
+    private static final class TestSynchronizationRegistry implements TransactionSynchronizationRegistry {
+
+        final Map<Object, Object> resources = new HashMap<Object, Object>();
+        final List<Synchronization> synchronizations = new ArrayList<Synchronization>();
+        int status = Status.STATUS_ACTIVE;
+
+        @Override
+        public Object getTransactionKey() {
+            return this;
+        }
+
+        @Override
+        public void putResource(final Object key, final Object value) {
+            resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(final Object key) {
+            return resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(final Synchronization sync) {
+            synchronizations.add(sync);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return status;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            status = Status.STATUS_MARKED_ROLLBACK;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return status == Status.STATUS_MARKED_ROLLBACK;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.timerservice.persistence.filestore;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.TransactionManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.jboss.as.controller.services.path.PathManager;
+import org.jboss.as.ejb3.timerservice.TimerImpl;
+import org.jboss.as.ejb3.timerservice.TimerServiceImpl;
+import org.jboss.as.ejb3.timerservice.TimerState;
+import org.jboss.as.ejb3.timerservice.spi.TimedObjectInvoker;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.msc.service.ServiceName;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests {@link JournalFileTimerPersistence}.
+ */
+public class JournalFileTimerPersistenceTestCase {
+
+    private static final String TIMED_OBJECT_ID = "test-timed-object";
+    private static final long SMALL_SEGMENT = 2048;
+
+    private static int directoryCount;
+
+    private File directory;
+    private TimerServiceImpl timerService;
+    private final List<JournalFileTimerPersistence> started = new ArrayList<JournalFileTimerPersistence>();
+
+    @Before
+    public void setup() {
+        final File target = new File("target");
+        target.mkdir();
+        directory = new File(target, "timer-journal-" + (++directoryCount));
+        delete(directory);
+
+        final TimedObjectInvoker invoker = mock(TimedObjectInvoker.class);
+        when(invoker.getTimedObjectId()).thenReturn(TIMED_OBJECT_ID);
+        timerService = mock(TimerServiceImpl.class);
+        when(timerService.getInvoker()).thenReturn(invoker);
+        when(timerService.getServiceName()).thenReturn(ServiceName.of("test", "timer-service"));
+    }
+
+    @After
+    public void tearDown() {
+        for (JournalFileTimerPersistence persistence : started) {
+            persistence.stop(null);
+        }
+        delete(directory);
+    }
+
+    @Test
+    public void testRecoveryAfterCrash() throws Exception {
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+        persistence.addTimer(timer("one", next));
+        persistence.addTimer(timer("two", next));
+        final TimerImpl cancelled = timer("two", next);
+        cancelled.setTimerState(TimerState.CANCELED);
+        persistence.persistTimer(cancelled);
+        final Date later = new Date(next.getTime() + 1000);
+        persistence.persistTimer(timer("one", later));
+
+        // "Crash": the first store is never stopped
+        final List<TimerImpl> timers = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals("one", timers.get(0).getId());
+        Assert.assertEquals(later.getTime(), timers.get(0).getNextExpiration().getTime());
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws Exception {
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+        persistence.addTimer(timer("one", next));
+        persistence.addTimer(timer("two", next));
+
+        // A record whose write never completed
+        final File segment = lastSegment();
+        final long valid = segment.length();
+        final FileOutputStream out = new FileOutputStream(segment, true);
+        try {
+            out.write(new byte[] { 0, 0, 1, 0, 1, 2, 3 });
+        } finally {
+            out.close();
+        }
+
+        final JournalFileTimerPersistence recovered = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null);
+        Assert.assertEquals(2, recovered.loadActiveTimers(TIMED_OBJECT_ID, timerService).size());
+        Assert.assertEquals(valid, segment.length());
+
+        // Appending after the truncated tail works
+        recovered.addTimer(timer("three", next));
+        Assert.assertEquals(3, start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService).size());
+    }
+
+    @Test
+    public void testCorruptRecordIsTruncated() throws Exception {
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+        persistence.addTimer(timer("one", next));
+        final long valid = lastSegment().length();
+        persistence.addTimer(timer("two", next));
+
+        // Flip a byte in the last record, so its checksum no longer matches
+        final RandomAccessFile file = new RandomAccessFile(lastSegment(), "rw");
+        try {
+            file.seek(file.length() - 10);
+            final int b = file.read();
+            file.seek(file.length() - 10);
+            file.write(b ^ 0xff);
+        } finally {
+            file.close();
+        }
+
+        final List<TimerImpl> timers = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals("one", timers.get(0).getId());
+        Assert.assertEquals(valid, lastSegment().length());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null, SMALL_SEGMENT), null);
+        final long start = System.currentTimeMillis() + 60000;
+        persistence.addTimer(timer("one", new Date(start)));
+        for (int i = 1; i <= 100; i++) {
+            persistence.persistTimer(timer("one", new Date(start + i)));
+        }
+
+        // Superseded records are dropped in the background whenever a segment fills up, leaving the compacted segment
+        // and the current one
+        persistence.awaitCompaction();
+        Assert.assertEquals(2, persistence.getSegmentCount());
+        Assert.assertEquals(2, segments().length);
+        Assert.assertTrue(lastSegment().length() < 2 * SMALL_SEGMENT);
+
+        final List<TimerImpl> timers = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null, SMALL_SEGMENT), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals(start + 100, timers.get(0).getNextExpiration().getTime());
+    }
+
+    @Test
+    public void testWritesDoNotWaitForCompaction() throws Exception {
+        final CountDownLatch compacting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null, SMALL_SEGMENT) {
+            @Override
+            void sync(final Segment segment) throws IOException {
+                if (Thread.currentThread().getName().startsWith("EJB timer journal compaction") && compacting.getCount() > 0) {
+                    // Hold up the first compaction
+                    compacting.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.sync(segment);
+            }
+        }, null);
+        final long start = System.currentTimeMillis() + 60000;
+        persistence.addTimer(timer("one", new Date(start)));
+        int i = 0;
+        while (compacting.getCount() > 0 && i < 1000) {
+            persistence.persistTimer(timer("one", new Date(start + ++i)));
+        }
+        Assert.assertTrue(compacting.await(10, TimeUnit.SECONDS));
+
+        // The journal keeps rolling over while the compaction is held up
+        final int segments = persistence.getSegmentCount();
+        for (int j = 0; j < 100; j++) {
+            persistence.persistTimer(timer("one", new Date(start + ++i)));
+        }
+        Assert.assertTrue(persistence.getSegmentCount() > segments);
+
+        // Once released, the compaction catches up with what has been written in the meantime
+        release.countDown();
+        persistence.awaitCompaction();
+        Assert.assertEquals(2, persistence.getSegmentCount());
+        Assert.assertEquals(2, segments().length);
+
+        final List<TimerImpl> timers = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null, SMALL_SEGMENT), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals(start + i, timers.get(0).getNextExpiration().getTime());
+    }
+
+    @Test
+    public void testRecoveryOfManySegments() throws Exception {
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null, SMALL_SEGMENT), null);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+        for (int i = 0; i < 40; i++) {
+            persistence.addTimer(timer("timer" + i, next));
+        }
+        // few enough removals that the journal is not compacted into a single segment
+        for (int i = 0; i < 40; i += 4) {
+            final TimerImpl cancelled = timer("timer" + i, next);
+            cancelled.setTimerState(TimerState.CANCELED);
+            persistence.persistTimer(cancelled);
+        }
+        Assert.assertTrue(persistence.getSegmentCount() > 1);
+
+        // Segments are scanned in parallel, but applied in order
+        final List<TimerImpl> timers = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null, SMALL_SEGMENT), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(30, timers.size());
+        for (TimerImpl timer : timers) {
+            Assert.assertTrue(Integer.parseInt(timer.getId().substring("timer".length())) % 4 != 0);
+        }
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        final CountDownLatch syncing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null) {
+            @Override
+            void sync(final Segment segment) throws IOException {
+                if (syncing.getCount() > 0) {
+                    // Hold up the first sync, so the writers after it queue up
+                    syncing.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.sync(segment);
+            }
+        }, null);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+
+        final List<Thread> writers = new ArrayList<Thread>();
+        writers.add(writer(persistence, timer("first", next)));
+        Assert.assertTrue(syncing.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 8; i++) {
+            writers.add(writer(persistence, timer("timer" + i, next)));
+        }
+        // Wait until every writer has appended its record and waits for the sync
+        final long end = System.currentTimeMillis() + 10000;
+        while (persistence.loadActiveTimers(TIMED_OBJECT_ID, timerService).size() < 9 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Thread writer : writers) {
+            writer.join(10000);
+            Assert.assertFalse(writer.isAlive());
+        }
+
+        // One sync for the first writer, and one more for all those which queued up behind it
+        Assert.assertEquals(2, persistence.getSyncCount());
+    }
+
+    @Test
+    public void testTransactionIsWrittenOnCommit() throws Exception {
+        final TestSynchronizationRegistry registry = new TestSynchronizationRegistry();
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), registry);
+        final Date next = new Date(System.currentTimeMillis() + 60000);
+
+        final TimerImpl kept = timer("kept", next);
+        persistence.addTimer(kept);
+        final TimerImpl dropped = timer("dropped", next);
+        persistence.addTimer(dropped);
+        final Date later = new Date(next.getTime() + 1000);
+        kept.setNextTimeout(later);
+        persistence.persistTimer(kept);
+        dropped.setTimerState(TimerState.CANCELED);
+        persistence.persistTimer(dropped);
+
+        // Nothing is written before the transaction completes
+        Assert.assertEquals(1, registry.synchronizations.size());
+        Assert.assertEquals(0, persistence.getSyncCount());
+        registry.status = Status.STATUS_NO_TRANSACTION;
+        Assert.assertTrue(persistence.loadActiveTimers(TIMED_OBJECT_ID, timerService).isEmpty());
+
+        registry.synchronizations.get(0).afterCompletion(Status.STATUS_COMMITTED);
+        // The transaction's changes are synced together
+        Assert.assertEquals(1, persistence.getSyncCount());
+
+        final List<TimerImpl> timers = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService);
+        Assert.assertEquals(1, timers.size());
+        Assert.assertEquals("kept", timers.get(0).getId());
+        Assert.assertEquals(later.getTime(), timers.get(0).getNextExpiration().getTime());
+    }
+
+    @Test
+    public void testRolledBackTransactionIsNotWritten() throws Exception {
+        final TestSynchronizationRegistry registry = new TestSynchronizationRegistry();
+        final JournalFileTimerPersistence persistence = start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), registry);
+        persistence.addTimer(timer("one", new Date(System.currentTimeMillis() + 60000)));
+
+        registry.synchronizations.get(0).afterCompletion(Status.STATUS_ROLLEDBACK);
+        registry.status = Status.STATUS_NO_TRANSACTION;
+
+        Assert.assertEquals(0, persistence.getSyncCount());
+        Assert.assertTrue(persistence.loadActiveTimers(TIMED_OBJECT_ID, timerService).isEmpty());
+        Assert.assertTrue(start(new JournalFileTimerPersistence(true, directory.getAbsolutePath(), null), null)
+                .loadActiveTimers(TIMED_OBJECT_ID, timerService).isEmpty());
+    }
+
+    private JournalFileTimerPersistence start(final JournalFileTimerPersistence persistence, final TestSynchronizationRegistry registry) throws Exception {
+        final PathManager pathManager = mock(PathManager.class);
+        when(pathManager.resolveRelativePathEntry(anyString(), anyString())).thenReturn(directory.getAbsolutePath());
+        persistence.getPathManager().inject(pathManager);
+        persistence.getModuleLoader().inject(mock(ModuleLoader.class));
+        final TransactionManager transactionManager = mock(TransactionManager.class);
+        when(transactionManager.getStatus()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws SystemException {
+                return registry == null ? Status.STATUS_NO_TRANSACTION : registry.status;
+            }
+        });
+        persistence.getTransactionManager().inject(transactionManager);
+        if (registry != null) {
+            persistence.getTransactionSynchronizationRegistry().inject(registry);
+        }
+        persistence.start(null);
+        started.add(persistence);
+        return persistence;
+    }
+
+    private TimerImpl timer(final String id, final Date next) {
+        return TimerImpl.builder()
+                .setId(id)
+                .setTimedObjectId(TIMED_OBJECT_ID)
+                .setInitialDate(next)
+                .setRepeatInterval(1000)
+                .setNextDate(next)
+                .setTimerState(TimerState.ACTIVE)
+                .setPersistent(true)
+                .build(timerService);
+    }
+
+    private static Thread writer(final JournalFileTimerPersistence persistence, final TimerImpl timer) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                persistence.addTimer(timer);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private File[] segments() {
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".journal");
+            }
+        });
+        Arrays.sort(files);
+        return files;
+    }
+
+    private File lastSegment() {
+        final File[] files = segments();
+        return files[files.length - 1];
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * A registry for a single transaction which is active until told otherwise.
+     */
+    private static final class TestSynchronizationRegistry implements TransactionSynchronizationRegistry {
+
+        final Map<Object, Object> resources = new HashMap<Object, Object>();
+        final List<Synchronization> synchronizations = new ArrayList<Synchronization>();
+        volatile int status = Status.STATUS_ACTIVE;
+
+        @Override
+        public Object getTransactionKey() {
+            return this;
+        }
+
+        @Override
+        public void putResource(final Object key, final Object value) {
+            resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(final Object key) {
+            return resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(final Synchronization sync) {
+            synchronizations.add(sync);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return status;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            status = Status.STATUS_MARKED_ROLLBACK;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return status == Status.STATUS_MARKED_ROLLBACK;
+        }
+    }
+}
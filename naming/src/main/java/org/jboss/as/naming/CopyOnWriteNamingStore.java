@@ -0,0 +1,450 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.naming;
+
+import static org.jboss.as.naming.util.NamingUtils.cannotProceedException;
+import static org.jboss.as.naming.util.NamingUtils.emptyNameException;
+import static org.jboss.as.naming.util.NamingUtils.getLastComponent;
+import static org.jboss.as.naming.util.NamingUtils.isEmpty;
+import static org.jboss.as.naming.util.NamingUtils.isLastComponentEmpty;
+import static org.jboss.as.naming.util.NamingUtils.nameAlreadyBoundException;
+import static org.jboss.as.naming.util.NamingUtils.nameNotFoundException;
+import static org.jboss.as.naming.util.NamingUtils.notAContextException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.naming.Binding;
+import javax.naming.CannotProceedException;
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NamingException;
+import javax.naming.Reference;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingListener;
+import javax.naming.spi.ResolveResult;
+
+import org.jboss.as.naming.util.FastCopyHashMap;
+
+/**
+ * In-memory implementation of the NamingStore backed by an immutable tree.  Every write copies the nodes on the path
+ * from the root to the changed context and publishes the new tree with a single write of the volatile root, so readers
+ * walk a consistent snapshot without taking a lock and without allocating anything but the result.  Writes are
+ * serialized by a lock and naming events are handed to the {@link NamingEventCoordinator} once the lock is released.
+ * <p/>
+ * The store behaves like {@link InMemoryNamingStore}, including the removal of a context once its last child is
+ * unbound.
+ */
+public class CopyOnWriteNamingStore implements WritableNamingStore {
+
+    /* The root of the current tree.  Represents a JNDI name of "" */
+    private volatile Node root;
+
+    /* Naming Event Coordinator */
+    private final NamingEventCoordinator eventCoordinator;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Construct instance with no event support.
+     */
+    public CopyOnWriteNamingStore() {
+        this(null);
+    }
+
+    /**
+     * Construct instance with an event coordinator.
+     *
+     * @param eventCoordinator The event coordinator
+     */
+    public CopyOnWriteNamingStore(final NamingEventCoordinator eventCoordinator) {
+        this.eventCoordinator = eventCoordinator;
+        this.root = newContextNode(new CompositeName(), new NamingContext(this, null));
+    }
+
+    /** {@inheritDoc} */
+    public void bind(Name name, Object object) throws NamingException {
+        bind(name, object, object.getClass());
+    }
+
+    /** {@inheritDoc} */
+    public void bind(final Name name, final Object object, final Class<?> bindType) throws NamingException {
+        if (isLastComponentEmpty(name)) {
+            throw emptyNameException();
+        }
+        final String childName = getLastComponent(name);
+        final Binding binding = new Binding(childName, bindType.getName(), object, true);
+        final Node parent;
+        writeLock.lock();
+        try {
+            final Node[] path = resolveParentPath(name, true);
+            parent = path[path.length - 1];
+            if (parent.children.containsKey(childName)) {
+                throw nameAlreadyBoundException(name);
+            }
+            publish(path, name, with(parent, childName, new Node(name, binding, null)));
+        } finally {
+            writeLock.unlock();
+        }
+        fireEvent(parent, name, null, binding, NamingEvent.OBJECT_ADDED, "bind");
+    }
+
+    /** {@inheritDoc} */
+    public void rebind(Name name, Object object) throws NamingException {
+        rebind(name, object, object.getClass());
+    }
+
+    /** {@inheritDoc} */
+    public void rebind(final Name name, final Object object, final Class<?> bindType) throws NamingException {
+        if (isLastComponentEmpty(name)) {
+            throw emptyNameException();
+        }
+        final String childName = getLastComponent(name);
+        final Binding binding = new Binding(childName, bindType.getName(), object, true);
+        final Node parent;
+        final Node previous;
+        writeLock.lock();
+        try {
+            final Node[] path = resolveParentPath(name, false);
+            parent = path[path.length - 1];
+            previous = parent.children.get(childName);
+            publish(path, name, with(parent, childName, new Node(name, binding, null)));
+        } finally {
+            writeLock.unlock();
+        }
+        final Binding previousBinding = previous != null ? previous.binding : null;
+        fireEvent(parent, name, previousBinding, binding, previousBinding != null ? NamingEvent.OBJECT_CHANGED : NamingEvent.OBJECT_ADDED, "rebind");
+    }
+
+    /**
+     * Unbind the entry in the provided location.  This will remove the node from the tree, and the enclosing context as
+     * well if it was the last entry in there.
+     *
+     * @param name The entry name
+     * @throws NamingException
+     */
+    public void unbind(final Name name) throws NamingException {
+        if (isLastComponentEmpty(name)) {
+            throw emptyNameException();
+        }
+        final String childName = getLastComponent(name);
+        final Node parent;
+        final Node previous;
+        writeLock.lock();
+        try {
+            Node[] path = resolveParentPath(name, false);
+            parent = path[path.length - 1];
+            previous = parent.children.get(childName);
+            if (previous == null) {
+                throw nameNotFoundException(childName, parent.fullName);
+            }
+            final Node replacement = without(parent, childName);
+            if (replacement.children.isEmpty() && path.length > 1) {
+                // drop the now empty context from its parent
+                final Name contextName = parent.fullName;
+                final Node[] parentPath = new Node[path.length - 1];
+                System.arraycopy(path, 0, parentPath, 0, parentPath.length);
+                publish(parentPath, contextName, without(parentPath[parentPath.length - 1], getLastComponent(contextName)));
+            } else {
+                publish(path, name, replacement);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        fireEvent(parent, name, previous.binding, null, NamingEvent.OBJECT_REMOVED, "unbind");
+    }
+
+    /**
+     * Lookup the object value of a binding node in the tree.
+     *
+     * @param name The entry name
+     * @return The object value of the binding
+     * @throws NamingException
+     */
+    public Object lookup(final Name name) throws NamingException {
+        if (isEmpty(name)) {
+            final Name emptyName = new CompositeName("");
+            return new NamingContext(emptyName, this, new Hashtable<String, Object>());
+        }
+        Node node = root;
+        final int size = name.size();
+        for (int i = 0; i < size; i++) {
+            if (node.children == null) {
+                final Name remainingName = name.getSuffix(i);
+                final Object boundObject = node.binding.getObject();
+                checkReferenceForContinuation(remainingName, boundObject);
+                return new ResolveResult(boundObject, remainingName);
+            }
+            final String childName = name.get(i);
+            final Node child = node.children.get(childName);
+            if (child == null) {
+                throw nameNotFoundException(childName, node.fullName);
+            }
+            node = child;
+        }
+        return node.binding.getObject();
+    }
+
+    @Override
+    public Object lookup(Name name, boolean dereference) throws NamingException {
+        // ignoring dereference arg, it's not relevant to this store impl
+        return lookup(name);
+    }
+
+    /**
+     * List all NameClassPair instances at a given location in the tree.
+     *
+     * @param name The entry name
+     * @return The NameClassPair instances
+     * @throws NamingException
+     */
+    public List<NameClassPair> list(final Name name) throws NamingException {
+        final Node contextNode = resolveContext(name);
+        final List<NameClassPair> nameClassPairs = new ArrayList<NameClassPair>(contextNode.children.size());
+        for (Node childNode : contextNode.children.values()) {
+            final Binding binding = childNode.binding;
+            nameClassPairs.add(new NameClassPair(binding.getName(), binding.getClassName(), true));
+        }
+        return nameClassPairs;
+    }
+
+    /**
+     * List all the Binding instances at a given location in the tree.
+     *
+     * @param name The entry name
+     * @return The Binding instances
+     * @throws NamingException
+     */
+    public List<Binding> listBindings(final Name name) throws NamingException {
+        final Node contextNode = resolveContext(name);
+        final List<Binding> bindings = new ArrayList<Binding>(contextNode.children.size());
+        for (Node childNode : contextNode.children.values()) {
+            bindings.add(childNode.binding);
+        }
+        return bindings;
+    }
+
+    public Context createSubcontext(final Name name) throws NamingException {
+        if (isLastComponentEmpty(name)) {
+            throw emptyNameException();
+        }
+        final String childName = getLastComponent(name);
+        final NamingContext subContext = new NamingContext(name, this, new Hashtable<String, Object>());
+        final Node subContextNode = newContextNode(name, subContext);
+        final Node parent;
+        writeLock.lock();
+        try {
+            final Node[] path = resolveParentPath(name, false);
+            parent = path[path.length - 1];
+            if (parent.children.containsKey(childName)) {
+                throw nameAlreadyBoundException(name);
+            }
+            publish(path, name, with(parent, childName, subContextNode));
+        } finally {
+            writeLock.unlock();
+        }
+        fireEvent(parent, name, null, subContextNode.binding, NamingEvent.OBJECT_ADDED, "createSubcontext");
+        return subContext;
+    }
+
+    /**
+     * Close the store.  This will clear all children from the root node.
+     *
+     * @throws NamingException
+     */
+    public void close() throws NamingException {
+        writeLock.lock();
+        try {
+            final Node current = root;
+            root = new Node(current.fullName, current.binding, Collections.<String, Node>emptyMap());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Add a {@code NamingListener} to the naming event coordinator.
+     *
+     * @param target The target name to add the listener to
+     * @param scope The listener scope
+     * @param listener The listener
+     */
+    public void addNamingListener(final Name target, final int scope, final NamingListener listener) {
+        final NamingEventCoordinator coordinator = eventCoordinator;
+        if (coordinator != null) {
+            coordinator.addListener(target.toString(), scope, listener);
+        }
+    }
+
+    /**
+     * Remove a {@code NamingListener} from the naming event coordinator.
+     *
+     * @param listener The listener
+     */
+    public void removeNamingListener(final NamingListener listener) {
+        final NamingEventCoordinator coordinator = eventCoordinator;
+        if (coordinator != null) {
+            coordinator.removeListener(listener);
+        }
+    }
+
+    /**
+     * Walk the current tree down to the context holding the last component of the given name.
+     *
+     * @param name The entry name
+     * @param createIfMissing Whether missing intermediate contexts should be created
+     * @return the context nodes from the root down to the parent of the entry, missing contexts are created but not
+     *         yet published
+     * @throws NamingException if a component is missing or not a context
+     */
+    private Node[] resolveParentPath(final Name name, final boolean createIfMissing) throws NamingException {
+        final int depth = name.size() - 1;
+        final Node[] path = new Node[depth + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < depth; i++) {
+            final String childName = name.get(i);
+            Node child = node.children.get(childName);
+            if (child == null) {
+                if (!createIfMissing) {
+                    throw nameNotFoundException(childName, node.fullName);
+                }
+                final Name contextName = name.getPrefix(i + 1);
+                child = newContextNode(contextName, new NamingContext((Name) contextName.clone(), this, new Hashtable<String, Object>()));
+            } else if (child.children == null) {
+                if (i + 1 == depth) {
+                    checkReferenceForContinuation(name.getSuffix(i + 1), child.binding.getObject());
+                    throw notAContextException(name);
+                }
+                checkReferenceForContinuation(name.getPrefix(depth).getSuffix(i + 1), child.binding.getObject());
+                throw notAContextException(child.fullName);
+            }
+            path[i + 1] = child;
+            node = child;
+        }
+        return path;
+    }
+
+    /**
+     * Walk the current tree down to the context with the given name.
+     */
+    private Node resolveContext(final Name name) throws NamingException {
+        Node node = root;
+        final int size = isEmpty(name) ? 0 : name.size();
+        for (int i = 0; i < size; i++) {
+            if (node.children == null) {
+                checkReferenceForContinuation(name.getSuffix(i), node.binding.getObject());
+                throw notAContextException(node.fullName);
+            }
+            final String childName = name.get(i);
+            final Node child = node.children.get(childName);
+            if (child == null) {
+                throw nameNotFoundException(childName, node.fullName);
+            }
+            node = child;
+        }
+        if (node.children == null) {
+            checkReferenceForContinuation(new CompositeName(), node.binding.getObject());
+            throw notAContextException(name);
+        }
+        return node;
+    }
+
+    /**
+     * Replace the last node of the path, copy its ancestors and make the new tree visible.  Must be called with the
+     * write lock held.
+     *
+     * @param path the context nodes from the root down to the replaced node
+     * @param name a name with at least as many components as the path
+     * @param replacement the replacement of the last node in the path
+     */
+    private void publish(final Node[] path, final Name name, final Node replacement) {
+        Node node = replacement;
+        for (int i = path.length - 2; i >= 0; i--) {
+            node = with(path[i], name.get(i), node);
+        }
+        root = node;
+    }
+
+    private static Node newContextNode(final Name fullName, final NamingContext context) {
+        final Binding binding = new Binding(getLastComponent(fullName), Context.class.getName(), context);
+        return new Node(fullName, binding, Collections.<String, Node>emptyMap());
+    }
+
+    private static Node with(final Node contextNode, final String childName, final Node child) {
+        final Map<String, Node> children = new FastCopyHashMap<String, Node>(contextNode.children);
+        children.put(childName, child);
+        return new Node(contextNode.fullName, contextNode.binding, children);
+    }
+
+    private static Node without(final Node contextNode, final String childName) {
+        final Map<String, Node> children;
+        if (contextNode.children.size() == 1) {
+            children = Collections.emptyMap();
+        } else {
+            children = new FastCopyHashMap<String, Node>(contextNode.children);
+            children.remove(childName);
+        }
+        return new Node(contextNode.fullName, contextNode.binding, children);
+    }
+
+    private void fireEvent(final Node contextNode, final Name name, final Binding existingBinding, final Binding newBinding, final int type, final String changeInfo) {
+        final NamingEventCoordinator coordinator = eventCoordinator;
+        if (coordinator != null) {
+            final Object context = contextNode.binding.getObject();
+            if (context instanceof EventContext) {
+                coordinator.fireEvent(EventContext.class.cast(context), name, existingBinding, newBinding, type, changeInfo, NamingEventCoordinator.DEFAULT_SCOPES);
+            }
+        }
+    }
+
+    private void checkReferenceForContinuation(final Name name, final Object object) throws CannotProceedException {
+        if (object instanceof Reference) {
+            if (((Reference) object).get("nns") != null) {
+                throw cannotProceedException(object, name);
+            }
+        }
+    }
+
+    /**
+     * A node of the tree.  Context nodes have a (never modified) map of children, binding nodes have none.
+     */
+    private static final class Node {
+        final Name fullName;
+        final Binding binding;
+        final Map<String, Node> children;
+
+        Node(final Name fullName, final Binding binding, final Map<String, Node> children) {
+            this.fullName = fullName;
+            this.binding = binding;
+            this.children = children;
+        }
+    }
+}
@@ -27,10 +27,15 @@ import static org.jboss.as.naming.NamingMessages.MESSAGES;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.Binding;
 import javax.naming.CannotProceedException;
@@ -45,6 +50,7 @@ import javax.naming.Reference;
 import javax.naming.event.NamingListener;
 import javax.naming.spi.ResolveResult;
 
+import org.jboss.msc.service.AbstractServiceListener;
 import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceRegistry;
@@ -62,6 +68,15 @@ public class ServiceBasedNamingStore implements NamingStore {
 
     private ConcurrentSkipListSet<ServiceName> boundServices = new ConcurrentSkipListSet<ServiceName>();
 
+    /**
+     * The controllers of names which resolved directly to a service, keyed by the looked up name. An entry is dropped
+     * as soon as its service starts stopping, or when the service name is bound or unbound.
+     */
+    private final ConcurrentMap<Name, ServiceController<?>> resolvedNames = new ConcurrentHashMap<Name, ServiceController<?>>();
+    private final ResolvedNameListener resolvedNameListener = new ResolvedNameListener();
+    private final AtomicLong lookupCacheHits = new AtomicLong();
+    private final AtomicLong lookupCacheMisses = new AtomicLong();
+
     public ServiceBasedNamingStore(final ServiceRegistry serviceRegistry, final ServiceName serviceNameBase) {
         this.serviceRegistry = serviceRegistry;
         this.serviceNameBase = serviceNameBase;
@@ -76,8 +91,15 @@ public class ServiceBasedNamingStore implements NamingStore {
         if (name.isEmpty()) {
             return new NamingContext(EMPTY_NAME, this, null);
         }
+        final ServiceController<?> resolved = resolvedNames.get(name);
+        if (resolved != null) {
+            lookupCacheHits.incrementAndGet();
+            return lookup(name.toString(), resolved, dereference);
+        }
+        lookupCacheMisses.incrementAndGet();
         final ServiceName lookupName = buildServiceName(name);
-        Object obj = lookup(name.toString(), lookupName, dereference);
+        final ServiceController<?> controller = serviceRegistry.getService(lookupName);
+        Object obj = lookup(name.toString(), controller, dereference);
         if (obj == null) {
             final ServiceName lower = boundServices.lower(lookupName);
             if (lower != null && lower.isParentOf(lookupName)) {
@@ -103,9 +125,63 @@ public class ServiceBasedNamingStore implements NamingStore {
             throw new NameNotFoundException(name.toString() + " -- " + lookupName);
         }
 
+        cacheResolvedName(name, controller);
         return obj;
     }
 
+    /**
+     * Remember the service a name resolved to, so that the next lookup of the same name skips building the service name
+     * and querying the service registry. The listener evicts the entry once the service starts stopping, the state is
+     * checked again after adding it as the service may have stopped in the meantime.
+     */
+    private void cacheResolvedName(final Name name, final ServiceController<?> controller) {
+        if (resolvedNames.putIfAbsent((Name) name.clone(), controller) == null) {
+            controller.addListener(resolvedNameListener);
+            if (controller.getState() != ServiceController.State.UP) {
+                evictResolvedNames(controller);
+            }
+        }
+    }
+
+    private void evictResolvedNames(final ServiceController<?> controller) {
+        final Iterator<Map.Entry<Name, ServiceController<?>>> iterator = resolvedNames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() == controller) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictResolvedNames(final ServiceName serviceName) {
+        final Iterator<Map.Entry<Name, ServiceController<?>>> iterator = resolvedNames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (serviceName.equals(iterator.next().getValue().getName())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of lookups answered from the resolved name cache
+     */
+    public long getLookupCacheHits() {
+        return lookupCacheHits.get();
+    }
+
+    /**
+     * @return the number of lookups which had to resolve the name against the service registry
+     */
+    public long getLookupCacheMisses() {
+        return lookupCacheMisses.get();
+    }
+
+    /**
+     * @return the number of names currently held by the resolved name cache
+     */
+    public int getLookupCacheSize() {
+        return resolvedNames.size();
+    }
+
     private void checkReferenceForContinuation(final Name name, final Object object) throws CannotProceedException {
         if (object instanceof Reference) {
             if (((Reference) object).get("nns") != null) {
@@ -122,14 +198,17 @@ public class ServiceBasedNamingStore implements NamingStore {
     }
 
     private Object lookup(final String name, final ServiceName lookupName, boolean dereference) throws NamingException {
-        final ServiceController<?> controller = serviceRegistry.getService(lookupName);
+        return lookup(name, serviceRegistry.getService(lookupName), dereference);
+    }
+
+    private Object lookup(final String name, final ServiceController<?> controller, boolean dereference) throws NamingException {
         final Object object;
         if (controller != null) {
             try {
                 object = controller.getValue();
             } catch (IllegalStateException e) {
                 //occurs if the service is not actually up
-                throw new NameNotFoundException("Error looking up " + name + ", service " + lookupName + " is not started");
+                throw new NameNotFoundException("Error looking up " + name + ", service " + controller.getName() + " is not started");
             }
         } else {
             return null;
@@ -243,6 +322,10 @@ public class ServiceBasedNamingStore implements NamingStore {
 
     public void close() throws NamingException {
         boundServices.clear();
+        for (ServiceController<?> controller : resolvedNames.values()) {
+            controller.removeListener(resolvedNameListener);
+        }
+        resolvedNames.clear();
     }
 
     public void addNamingListener(Name target, int scope, NamingListener listener) {
@@ -257,10 +340,12 @@ public class ServiceBasedNamingStore implements NamingStore {
             throw MESSAGES.serviceAlreadyBound(serviceName);
         }
         boundServices.add(serviceName);
+        evictResolvedNames(serviceName);
     }
 
     public void remove(final ServiceName serviceName) {
         boundServices.remove(serviceName);
+        evictResolvedNames(serviceName);
     }
 
     protected ServiceName buildServiceName(final Name name) {
@@ -313,4 +398,18 @@ public class ServiceBasedNamingStore implements NamingStore {
     protected ServiceRegistry getServiceRegistry() {
         return serviceRegistry;
     }
+
+    private class ResolvedNameListener extends AbstractServiceListener<Object> {
+
+        @Override
+        public void transition(final ServiceController<? extends Object> controller, final ServiceController.Transition transition) {
+            switch (transition) {
+                case UP_to_STOP_REQUESTED: {
+                    controller.removeListener(this);
+                    evictResolvedNames(controller);
+                    break;
+                }
+            }
+        }
+    }
 }
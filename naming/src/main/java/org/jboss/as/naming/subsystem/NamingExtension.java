@@ -87,6 +87,7 @@ public class NamingExtension implements Extension {
 
         if (context.isRuntimeOnlyRegistrationValid()) {
             registration.registerOperationHandler(NamingSubsystemRootResourceDefinition.JNDI_VIEW, JndiViewOperation.INSTANCE, false);
+            NamingLookupCacheMetricsHandler.INSTANCE.registerMetrics(registration);
         }
 
         subsystem.registerXMLElementWriter(NamingSubsystem13Parser.INSTANCE);
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.naming.subsystem;
+
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.naming.ServiceBasedNamingStore;
+import org.jboss.as.naming.deployment.ContextNames;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.ServiceRegistry;
+
+/**
+ * Handler for the resolved name cache metrics of the naming subsystem. The values are summed over the server wide
+ * naming stores, i.e. <code>java:</code>, <code>java:jboss</code>, <code>java:jboss/exported</code> and
+ * <code>java:global</code>.
+ */
+public class NamingLookupCacheMetricsHandler extends AbstractRuntimeOnlyHandler {
+
+    static final SimpleAttributeDefinition LOOKUP_CACHE_HITS = new SimpleAttributeDefinitionBuilder(NamingSubsystemModel.LOOKUP_CACHE_HITS, ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
+    static final SimpleAttributeDefinition LOOKUP_CACHE_MISSES = new SimpleAttributeDefinitionBuilder(NamingSubsystemModel.LOOKUP_CACHE_MISSES, ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
+    static final SimpleAttributeDefinition LOOKUP_CACHE_SIZE = new SimpleAttributeDefinitionBuilder(NamingSubsystemModel.LOOKUP_CACHE_SIZE, ModelType.INT, true)
+            .setStorageRuntime()
+            .build();
+
+    static final NamingLookupCacheMetricsHandler INSTANCE = new NamingLookupCacheMetricsHandler();
+
+    private static final ServiceName[] NAMING_STORES = {
+            ContextNames.JAVA_CONTEXT_SERVICE_NAME,
+            ContextNames.JBOSS_CONTEXT_SERVICE_NAME,
+            ContextNames.EXPORTED_CONTEXT_SERVICE_NAME,
+            ContextNames.GLOBAL_CONTEXT_SERVICE_NAME
+    };
+
+    private NamingLookupCacheMetricsHandler() {
+    }
+
+    void registerMetrics(final ManagementResourceRegistration resourceRegistration) {
+        resourceRegistration.registerMetric(LOOKUP_CACHE_HITS, this);
+        resourceRegistration.registerMetric(LOOKUP_CACHE_MISSES, this);
+        resourceRegistration.registerMetric(LOOKUP_CACHE_SIZE, this);
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        final String metric = operation.require(ModelDescriptionConstants.NAME).asString();
+        final ServiceRegistry serviceRegistry = context.getServiceRegistry(false);
+        long hits = 0;
+        long misses = 0;
+        int size = 0;
+        for (ServiceName name : NAMING_STORES) {
+            final ServiceController<?> controller = serviceRegistry.getService(name);
+            if (controller != null && controller.getState() == ServiceController.State.UP) {
+                final Object value = controller.getValue();
+                if (value instanceof ServiceBasedNamingStore) {
+                    final ServiceBasedNamingStore store = (ServiceBasedNamingStore) value;
+                    hits += store.getLookupCacheHits();
+                    misses += store.getLookupCacheMisses();
+                    size += store.getLookupCacheSize();
+                }
+            }
+        }
+        if (LOOKUP_CACHE_HITS.getName().equals(metric)) {
+            context.getResult().set(hits);
+        } else if (LOOKUP_CACHE_MISSES.getName().equals(metric)) {
+            context.getResult().set(misses);
+        } else if (LOOKUP_CACHE_SIZE.getName().equals(metric)) {
+            context.getResult().set(size);
+        }
+        context.stepCompleted();
+    }
+}
@@ -37,6 +37,7 @@ import javax.naming.NamingException;
 
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
@@ -44,6 +45,7 @@ import org.jboss.msc.service.StopContext;
 import org.jboss.msc.value.Values;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -386,6 +388,42 @@ public class ServiceBasedNamingStoreTestCase {
         }
     }
 
+    @Test
+    public void testLookupCache() throws Exception {
+        final ServiceName bindingName = ServiceName.JBOSS.append("foo", "cached");
+        final Object value = new Object();
+        bindObject(bindingName, value);
+        container.awaitStability();
+
+        assertEquals(value, store.lookup(new CompositeName("foo/cached")));
+        assertEquals(value, store.lookup(new CompositeName("foo/cached")));
+        assertEquals(1, store.getLookupCacheMisses());
+        assertEquals(1, store.getLookupCacheHits());
+        assertEquals(1, store.getLookupCacheSize());
+
+        // contexts are not cached
+        assertTrue(store.lookup(new CompositeName("foo")) instanceof Context);
+        assertEquals(1, store.getLookupCacheSize());
+
+        container.getRequiredService(bindingName).setMode(ServiceController.Mode.REMOVE);
+        container.awaitStability();
+        assertEquals(0, store.getLookupCacheSize());
+        assertNull(store.lookup(new CompositeName("foo/cached")));
+        assertEquals(2, store.getLookupCacheMisses());
+    }
+
+    @Test
+    public void testLookupCacheEvictedOnUnbind() throws Exception {
+        final ServiceName bindingName = ServiceName.JBOSS.append("foo", "cached");
+        bindObject(bindingName, new Object());
+        container.awaitStability();
+
+        store.lookup(new CompositeName("foo/cached"));
+        assertEquals(1, store.getLookupCacheSize());
+        store.remove(bindingName);
+        assertEquals(0, store.getLookupCacheSize());
+    }
+
     private void assertContains(final List<? extends NameClassPair> list, String name, Class<?> type) {
         for (NameClassPair value : list) {
             if (value instanceof Binding) {
@@ -459,6 +459,9 @@ public abstract class ClusteredSession<O extends OutgoingDistributableSessionDat
         this.maxInactiveInterval = interval;
         checkAlwaysReplicateTimestamp();
         sessionMetadataDirty();
+        if ((this.manager != null) && (this.realId != null)) {
+            this.manager.sessionTimeoutChanged(this);
+        }
     }
 
     @Override
@@ -1035,8 +1038,10 @@ public abstract class ClusteredSession<O extends OutgoingDistributableSessionDat
 
     /**
      * Increment our version and propagate ourself to the distributed cache.
+     *
+     * @return the number of serialized session attribute bytes replicated, or -1 if not measured
      */
-    public synchronized void processSessionReplication() {
+    public synchronized long processSessionReplication() {
         // Replicate the session.
         if (log.isTraceEnabled()) {
             log.tracef("processSessionReplication(): session is dirty. Will increment version from: %s and replicate.", getVersion());
@@ -1044,7 +1049,7 @@ public abstract class ClusteredSession<O extends OutgoingDistributableSessionDat
         version.incrementAndGet();
 
         O outgoingData = getOutgoingSessionData();
-        distributedCacheManager.storeSessionData(outgoingData);
+        long bytes = distributedCacheManager.storeSessionData(outgoingData);
 
         sessionAttributesDirty = false;
         sessionMetadataDirty = false;
@@ -1055,6 +1060,7 @@ public abstract class ClusteredSession<O extends OutgoingDistributableSessionDat
         if (this.fullReplicationWindow > 0 && System.currentTimeMillis() > this.fullReplicationWindow) {
             this.fullReplicationWindow = -1;
         }
+        return bytes;
     }
 
     /**
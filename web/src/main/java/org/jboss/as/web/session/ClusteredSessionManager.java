@@ -66,4 +66,9 @@ public interface ClusteredSessionManager<O extends OutgoingDistributableSessionD
      * Gets the <code>DistributedCacheManager</code> through which we interact with the distributed cache.
      */
     DistributedCacheManager<O> getDistributedCacheManager();
+
+    /**
+     * Notifies the manager that the max inactive interval of the given session changed, so that it can be expired on time.
+     */
+    void sessionTimeoutChanged(ClusteredSession<O> session);
 }
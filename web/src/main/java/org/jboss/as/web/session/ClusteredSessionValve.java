@@ -38,6 +38,7 @@ import org.apache.catalina.connector.Response;
 import org.apache.catalina.util.LifecycleSupport;
 import org.apache.catalina.valves.ValveBase;
 import org.jboss.as.clustering.web.BatchingManager;
+import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
 import org.jboss.logging.Logger;
 import org.jboss.servlet.http.HttpEvent;
 
@@ -65,14 +66,21 @@ public class ClusteredSessionValve extends ValveBase implements Lifecycle {
 
     private final BatchingManager tm;
 
+    private final ReadOnlyRequestPolicy policy;
+
     /**
      * Create a new Valve.
      */
     public ClusteredSessionValve(Manager manager, BatchingManager tm) {
+        this(manager, tm, null);
+    }
+
+    ClusteredSessionValve(Manager manager, BatchingManager tm, ReadOnlyRequestPolicy policy) {
         assert manager != null : MESSAGES.nullManager();
 
         this.manager = manager;
         this.tm = tm;
+        this.policy = policy;
     }
 
     /**
@@ -116,7 +124,12 @@ public class ClusteredSessionValve extends ValveBase implements Lifecycle {
 
         // Initialize the context and store the request and response objects
         // for any clustering code that has no direct access to these objects
-        SessionReplicationContext.enterWebapp(request, response, true);
+        if ((this.policy != null) && this.policy.isReadOnly(request)) {
+            // LockingValve was bypassed
+            SessionReplicationContext.enterReadOnlyWebapp(request, response);
+        } else {
+            SessionReplicationContext.enterWebapp(request, response, true);
+        }
 
         boolean startedBatch = startBatchTransaction();
         try {
@@ -139,7 +152,13 @@ public class ClusteredSessionValve extends ValveBase implements Lifecycle {
                 SessionReplicationContext ctx = SessionReplicationContext.exitWebapp();
 
                 if (ctx.getSoleSnapshotManager() != null) {
-                    ctx.getSoleSnapshotManager().snapshot(ctx.getSoleSession());
+                    ClusteredSession<? extends OutgoingDistributableSessionData> session = ctx.getSoleSession();
+                    if ((this.policy != null) && this.policy.isUnchanged(session)) {
+                        // Nothing to store or replicate
+                        this.policy.requestUnchanged();
+                    } else {
+                        ctx.getSoleSnapshotManager().snapshot(session);
+                    }
                 } else {
                     // Cross-context request touched multiple sessions;
                     // need to replicate them all
@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.web.session;
+
+import static org.jboss.as.web.WebMessages.MESSAGES;
+
+import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
+
+/**
+ * A snapshot manager that hands modified sessions to the {@link SnapshotCoalescer} shared by all web applications of
+ * this node, which replicates the sessions of all of them in batches.
+ * <p/>
+ * The snapshot interval of the web application bounds the time a modified session may wait before it is replicated.
+ */
+public class CoalescingSnapshotManager extends SnapshotManager {
+    /** System property enabling coalescing replication for web applications using the interval snapshot mode */
+    public static final String COALESCE = "jboss.web.clustered.session.snapshot.coalesce";
+
+    private final ClusteredSessionManager<? extends OutgoingDistributableSessionData> manager;
+    private final int interval;
+    private volatile SnapshotCoalescer coalescer;
+
+    public CoalescingSnapshotManager(ClusteredSessionManager<? extends OutgoingDistributableSessionData> manager, String path, int interval) {
+        super(manager, path);
+        this.manager = manager;
+        this.interval = interval;
+    }
+
+    /**
+     * Queue the modified session for the next batch
+     */
+    @Override
+    public void snapshot(ClusteredSession<? extends OutgoingDistributableSessionData> session) {
+        SnapshotCoalescer coalescer = this.coalescer;
+        if ((session == null) || (coalescer == null)) return;
+        try {
+            coalescer.snapshot(session, this);
+        } catch (Exception e) {
+            getLog().error(MESSAGES.failedQueueingSessionReplication(session), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        this.coalescer = SnapshotCoalescer.register(this);
+    }
+
+    @Override
+    public void stop() {
+        this.coalescer = null;
+        SnapshotCoalescer.unregister(this);
+    }
+
+    /**
+     * The maximum time, in milliseconds, a modified session of this web application may wait to be replicated.
+     */
+    int getInterval() {
+        return this.interval;
+    }
+
+    ClassLoader getClassLoader() {
+        return this.manager.getContainer().getLoader().getClassLoader();
+    }
+
+    /**
+     * Stores the session within its own batch.
+     *
+     * @return false, if the session remains to be replicated, i.e. its replication failed
+     */
+    boolean store(ClusteredSession<? extends OutgoingDistributableSessionData> session) {
+        try {
+            this.manager.storeSession(session);
+        } catch (Exception e) {
+            getLog().error(MESSAGES.failedToStoreSession(session.getRealId()), e);
+        }
+        return !session.isValidInternal() || !session.isSessionDirty();
+    }
+}
@@ -28,6 +28,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -35,10 +36,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
@@ -85,6 +91,14 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
     private static final String info = "DistributableSessionManager/1.0";
 
     private static final int TOTAL_PERMITS = Integer.MAX_VALUE;
+    /** System property specifying the number of threads used to expire sessions. */
+    public static final String EXPIRATION_THREADS = "jboss.web.clustered.session.expiration.threads";
+    /** System property specifying a comma separated list of URL patterns of requests that do not modify the session */
+    public static final String READ_ONLY_PATTERNS = "jboss.web.clustered.session.read-only-patterns";
+    /** System property enabling the detection of requests that did not modify the session */
+    public static final String READ_ONLY_DETECTION = "jboss.web.clustered.session.read-only-detection";
+    /** Granularity (milliseconds) of the session expiration and passivation indexes */
+    private static final long TIMEOUT_RESOLUTION = 1000L;
     private Logger log;
 
     private final DistributedCacheManager<O> distributedCacheManager;
@@ -97,6 +111,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
     private final OutdatedSessionChecker outdatedSessionChecker = new AskSessionOutdatedSessionChecker();
     private final Semaphore semaphore = new Semaphore(TOTAL_PERMITS, true);
     private final Lock valveLock = new SemaphoreLock(this.semaphore);
+    private final ReadOnlyRequestPolicy readOnlyPolicy;
     /** Number of passivated sessions */
     private final AtomicInteger passivatedCount = new AtomicInteger();
     /** Maximum number of concurrently passivated sessions */
@@ -127,6 +142,13 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
     private final Map<String, OwnedSessionUpdate> unloadedSessions = new ConcurrentHashMap<String, OwnedSessionUpdate>();
     /** Sessions that have been created but not yet loaded. Used to ensure concurrent threads trying to load the same session */
     private final ConcurrentMap<String, ClusteredSession<O>> embryonicSessions = new ConcurrentHashMap<String, ClusteredSession<O>>();
+    /** Ids of loaded and unloaded sessions by the time they expire */
+    private final SessionTimeoutIndex expirations;
+    /** Ids of sessions that may be passivated by their last access time, or null if passivation is disabled */
+    private final SessionTimeoutIndex passivations;
+    /** Number of threads among which the shards of the expiration index are processed */
+    private final int expirationThreads;
+    private volatile ExecutorService expirationExecutor;
 
     public DistributableSessionManager(DistributedCacheManagerFactory factory, JBossWebMetaData metaData, ClassResolver resolver) throws ClusteringNotSupportedException {
         super(metaData);
@@ -154,6 +176,15 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         this.distributedCacheManager = factory.getDistributedCacheManager(this);
 
         this.persistence = distributedCacheManager.isPersistenceEnabled();
+
+        this.expirationThreads = Math.max(1, Integer.parseInt(AccessController.doPrivileged(new ReadPropertyAction(EXPIRATION_THREADS, "1"))));
+        int concurrencyLevel = Math.max(this.expirationThreads, Runtime.getRuntime().availableProcessors());
+        this.expirations = new SessionTimeoutIndex(concurrencyLevel, TIMEOUT_RESOLUTION);
+        this.passivations = this.passivate ? new SessionTimeoutIndex(concurrencyLevel, TIMEOUT_RESOLUTION) : null;
+
+        String readOnlyPatterns = AccessController.doPrivileged(new ReadPropertyAction(READ_ONLY_PATTERNS));
+        boolean readOnlyDetection = Boolean.parseBoolean(AccessController.doPrivileged(new ReadPropertyAction(READ_ONLY_DETECTION, "true")));
+        this.readOnlyPolicy = new ReadOnlyRequestPolicy(readOnlyPatterns, readOnlyDetection);
     }
 
     @Override
@@ -175,6 +206,10 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
 
             initializeUnloadedSessions();
 
+            if (this.expirationThreads > 1) {
+                this.expirationExecutor = Executors.newFixedThreadPool(this.expirationThreads, new ExpirationThreadFactory(((Context) this.container).getPath()));
+            }
+
             // Setup our SnapshotManager
             this.snapshotManager = createSnapshotManager();
             this.snapshotManager.start();
@@ -224,7 +259,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
      */
     protected void installValves() {
         log.debug("Adding LockingValve");
-        this.installContextValve(new LockingValve(this.valveLock));
+        this.installContextValve(new LockingValve(this.valveLock, this.readOnlyPolicy));
 
         if (this.getUseJK()) {
             log.debug("We are using JK for load-balancing. Adding JvmRouteValve.");
@@ -232,7 +267,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         }
 
         // Add clustered session valve
-        ClusteredSessionValve valve = new ClusteredSessionValve(this, null);
+        ClusteredSessionValve valve = new ClusteredSessionValve(this, null, this.readOnlyPolicy);
         log.debug("Adding ClusteredSessionValve");
         this.installContextValve(valve);
     }
@@ -252,6 +287,9 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
             case INTERVAL: {
                 int interval = this.getSnapshotInterval();
                 if (interval > 0) {
+                    if (Boolean.parseBoolean(AccessController.doPrivileged(new ReadPropertyAction(CoalescingSnapshotManager.COALESCE, "false")))) {
+                        return new CoalescingSnapshotManager(this, ctxPath, interval);
+                    }
                     return new IntervalSnapshotManager(this, ctxPath, interval);
                 }
                 WebLogger.WEB_SESSION_LOGGER.invalidSnapshotInterval();
@@ -302,6 +340,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
 
                 OwnedSessionUpdate osu = new OwnedSessionUpdate(owner, lastMod, maxLife, false);
                 unloadedSessions.put(realId, osu);
+                scheduleTimeouts(realId, osu);
             }
 
             if (passivate) {
@@ -342,6 +381,9 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
 
         this.distributedCacheManager.evictSession(realId, osu.getOwner());
         osu.setPassivated(true);
+        if (this.passivations != null) {
+            this.passivations.cancel(realId);
+        }
         sessionPassivated();
     }
 
@@ -429,9 +471,19 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         this.snapshotManager.stop();
         this.snapshotManager = null;
 
+        ExecutorService executor = this.expirationExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+            this.expirationExecutor = null;
+        }
+
         // Clean up maps
         this.sessions.clear();
         this.unloadedSessions.clear();
+        this.expirations.clear();
+        if (this.passivations != null) {
+            this.passivations.clear();
+        }
 
         this.passivatedCount.set(0);
 
@@ -516,7 +568,9 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
 
                 // Put the session in the unloadedSessions map. This will
                 // expose the session to regular invalidation.
-                Object obj = unloadedSessions.put(realId, new OwnedSessionUpdate(null, session.getLastAccessedTimeInternal(), session.getMaxInactiveInterval(), true));
+                OwnedSessionUpdate osu = new OwnedSessionUpdate(null, session.getLastAccessedTimeInternal(), session.getMaxInactiveInterval(), true);
+                Object obj = unloadedSessions.put(realId, osu);
+                scheduleTimeouts(realId, osu);
                 if (obj == null) {
                     log.tracef("New session %s added to unloaded session map", realId);
                 } else {
@@ -535,7 +589,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         try {
             // [JBAS-7123] Make sure we're either in the call stack where LockingValve has
             // a lock, or that we acquire one ourselves
-            boolean inLockingValve = SessionReplicationContext.isLocallyActive();
+            boolean inLockingValve = SessionReplicationContext.isValveLocked();
             if (inLockingValve || this.valveLock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
                     session = createSessionInternal(sessionId, random);
@@ -634,7 +688,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         try {
             // [JBAS-7123] Make sure we're either in the call stack where LockingValve has
             // a lock, or that we acquire one ourselves
-            boolean inLockingValve = SessionReplicationContext.isLocallyActive();
+            boolean inLockingValve = SessionReplicationContext.isValveLocked();
             if (inLockingValve || this.valveLock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
                     log.trace("Creating an empty ClusteredSession");
@@ -716,7 +770,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         try {
             // [JBAS-7123] Make sure we're either in the call stack where LockingValve has
             // a lock, or that we acquire one ourselves
-            boolean inLockingValve = SessionReplicationContext.isLocallyActive();
+            boolean inLockingValve = SessionReplicationContext.isValveLocked();
             if (inLockingValve || this.valveLock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
                     // Need to load all the unloaded sessions
@@ -768,6 +822,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
                 SessionInvalidationTracker.sessionInvalidated(realId, this);
 
                 sessions.remove(realId);
+                cancelTimeouts(realId);
                 this.getReplicationStatistics().removeStats(realId);
 
                 // Compute how long this session has been alive, and update
@@ -827,6 +882,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
                 SessionInvalidationTracker.sessionInvalidated(realId, this);
 
                 sessions.remove(realId);
+                cancelTimeouts(realId);
                 this.getReplicationStatistics().removeStats(realId);
 
                 // Compute how long this session has been alive, and update
@@ -857,10 +913,16 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
 
                     // Do the actual replication
                     begin = System.currentTimeMillis();
-                    processSessionRepl(session);
+                    long bytes = processSessionRepl(session);
                     elapsed = System.currentTimeMillis() - begin;
                     stored = true;
                     stats.updateReplicationStats(realId, elapsed);
+                    if (bytes >= 0) {
+                        stats.updateReplicatedBytes(realId, bytes);
+                    }
+
+                    // Pick up any access or change of the max inactive interval
+                    scheduleTimeouts(session);
                 } else {
                     log.tracef("Session %s did not require replication.", session.getIdInternal());
                 }
@@ -881,7 +943,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         try {
             // [JBAS-7123] Make sure we're either in the call stack where LockingValve has
             // a lock, or that we acquire one ourselves
-            boolean inLockingValve = SessionReplicationContext.isLocallyActive();
+            boolean inLockingValve = SessionReplicationContext.isValveLocked();
             if (inLockingValve || this.valveLock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
                     add(this.cast(session), false); // wait to replicate until req end
@@ -919,6 +981,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         String realId = session.getRealId();
         Object existing = sessions.put(realId, session);
         unloadedSessions.remove(realId);
+        scheduleTimeouts(session);
 
         if (!session.equals(existing)) {
             if (replicate) {
@@ -987,6 +1050,22 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         return builder.toString();
     }
 
+    @Override
+    public long getUnlockedRequestCount() {
+        return this.readOnlyPolicy.getUnlockedRequestCount();
+    }
+
+    @Override
+    public long getUnchangedSessionRequestCount() {
+        return this.readOnlyPolicy.getUnchangedRequestCount();
+    }
+
+    @Override
+    public void resetStats() {
+        super.resetStats();
+        this.readOnlyPolicy.resetStats();
+    }
+
     @Override
     public long getPassivatedSessionCount() {
         return this.passivatedCount.get();
@@ -1057,6 +1136,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
     public void notifyRemoteInvalidation(String realId) {
         // Remove the session from our local map
         ClusteredSession<O> session = cast(this.sessions.remove(realId));
+        cancelTimeouts(realId);
         if (session == null) {
             // We weren't managing the session anyway. But remove it
             // from the list of cached sessions we haven't loaded
@@ -1107,6 +1187,11 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         }
     }
 
+    @Override
+    public void sessionTimeoutChanged(ClusteredSession<O> session) {
+        scheduleTimeouts(session);
+    }
+
     @Override
     public void sessionActivated() {
         int pc = passivatedCount.decrementAndGet();
@@ -1135,7 +1220,9 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         } else {
             int maxLife = metadata == null ? getMaxInactiveInterval() : metadata.getMaxInactiveInterval();
 
-            Object existing = unloadedSessions.put(realId, new OwnedSessionUpdate(dataOwner, timestamp, maxLife, false));
+            OwnedSessionUpdate osu = new OwnedSessionUpdate(dataOwner, timestamp, maxLife, false);
+            Object existing = unloadedSessions.put(realId, osu);
+            scheduleTimeouts(realId, osu);
             if (existing == null) {
                 calcActiveSessions();
                 log.tracef("New session %s added to unloaded session map", realId);
@@ -1152,9 +1239,6 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         boolean expire = maxInactiveInterval >= 0;
         boolean passivate = isPassivationEnabled();
 
-        long passivationMax = passivationMaxIdleTime * 1000L;
-        long passivationMin = passivationMinIdleTime * 1000L;
-
         log.trace("processExpirationPassivation(): Looking for sessions that have expired ...");
         log.tracef("processExpirationPassivation(): active sessions = %d", calcActiveSessions());
         log.tracef("processExpirationPassivation(): expired sessions = %d", expiredCounter.get());
@@ -1162,172 +1246,315 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
             log.tracef("processExpirationPassivation(): passivated count = %d", getPassivatedSessionCount());
         }
 
-        // Holder for sessions or OwnedSessionUpdates that survive expiration,
-        // sorted by last accessed time
-        TreeSet<PassivationCheck> passivationChecks = new TreeSet<PassivationCheck>();
-
         try {
-            // Don't track sessions invalidated via this method as if they
-            // were going to be re-requested by the thread
-            SessionInvalidationTracker.suspend();
+            // Only the sessions due according to the indexes are visited; a session that turns
+            // out not to be due, e.g. because it was accessed since, is scheduled again.
+            if (expire) {
+                final long now = System.currentTimeMillis();
+                this.processTimeouts(this.expirations, now, new TimeoutTask() {
+                    @Override
+                    public long process(String realId) {
+                        return DistributableSessionManager.this.processExpiration(realId, now);
+                    }
+                });
+            }
 
-            // First, handle the sessions we are actively managing
-            for (Session s: this.sessions.values()) {
-                if (!this.started) return;
+            if (!this.started) return;
 
-                boolean likelyExpired = false;
-                String realId = null;
+            // Now, passivations
+            if (passivate) {
+                long now = System.currentTimeMillis();
+                long passivationMax = passivationMaxIdleTime * 1000L;
+                long passivationMin = passivationMinIdleTime * 1000L;
+
+                // if maxIdle time configured, means that we need to passivate sessions that have
+                // exceeded the max allowed idle time
+                if (passivationMax >= 0) {
+                    final long lastAccessed = now - passivationMax - 1;
+                    this.processTimeouts(this.passivations, lastAccessed, new TimeoutTask() {
+                        @Override
+                        public long process(String realId) {
+                            return DistributableSessionManager.this.processPassivation(realId, lastAccessed);
+                        }
+                    });
+                }
 
-                try {
-                    ClusteredSession<O> session = cast(s);
-
-                    realId = session.getRealId();
-                    likelyExpired = expire;
-
-                    if (expire) {
-                        // JBAS-2403. Check for outdated sessions where we think
-                        // the local copy has timed out. If found, refresh the
-                        // session from the cache in case that might change the timeout
-                        likelyExpired = (session.isValid(false) == false);
-                        if (likelyExpired && this.outdatedSessionChecker.isSessionOutdated(session)) {
-                            // With JBC, every time we get a notification from the distributed
-                            // cache of an update, we get the latest timestamp. So
-                            // we shouldn't need to do a full session load here. A load
-                            // adds a risk of an unintended data gravitation. However,
-                            // with a database instead of JBC we don't get notifications
-
-                            // JBAS-2792 don't assign the result of loadSession to session
-                            // just update the object from the cache or fall through if
-                            // the session has been removed from the cache
-                            loadSession(session.getRealId());
+                // If the number of sessions managed by this manager greater than the max allowed
+                // active sessions, passivate the least recently used sessions that exceed passivationMinIdleTime_
+                if ((maxActiveAllowed > 0) && (passivationMin > 0)) {
+                    long lastAccessed = now - passivationMin - 1;
+                    Map<String, Long> notDue = new HashMap<String, Long>();
+                    while (this.started && (calcActiveSessions() >= maxActiveAllowed)) {
+                        String realId = this.passivations.poll(lastAccessed);
+                        if (realId == null) break;
+                        long time = this.processPassivation(realId, lastAccessed);
+                        if (time >= 0) {
+                            notDue.put(realId, time);
                         }
+                    }
+                    this.schedule(this.passivations, notDue);
+                }
+            }
+        } catch (Exception ex) {
+            log.error(MESSAGES.processExpirationPassivationException(ex.getLocalizedMessage()), ex);
+        }
 
-                        // Do a normal invalidation check that will expire the
-                        // session if it has timed out
-                        // DON'T SYNCHRONIZE on session here -- isValid() and
-                        // expire() are meant to be multi-threaded and synchronize
-                        // properly internally; synchronizing externally can lead
-                        // to deadlocks!!
-                        if (!session.isValid())
-                            continue;
+        log.trace("processExpirationPassivation(): Completed ...");
+        log.tracef("processExpirationPassivation(): active sessions = %d", calcActiveSessions());
+        log.tracef("processExpirationPassivation(): expired sessions = %d", expiredCounter.get());
+        if (passivate) {
+            log.tracef("processExpirationPassivation(): passivated count = %d", getPassivatedSessionCount());
+        }
+    }
 
-                        likelyExpired = false;
-                    }
+    /**
+     * Runs the given task for each session due at the given time according to the given index. The shards of the index are
+     * spread over the expiration threads if there are several.
+     */
+    private void processTimeouts(final SessionTimeoutIndex index, final long time, final TimeoutTask task) throws InterruptedException, ExecutionException {
+        final int shards = index.getShardCount();
+        ExecutorService executor = this.expirationExecutor;
+        if (executor == null) {
+            this.processTimeouts(index, time, task, 0, 1, shards);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(this.expirationThreads);
+        for (int i = 0; i < this.expirationThreads; ++i) {
+            final int first = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    DistributableSessionManager.this.processTimeouts(index, time, task, first, DistributableSessionManager.this.expirationThreads, shards);
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
 
-                    // we now have a valid session; store it so we can check later
-                    // if we need to passivate it
-                    if (passivate) {
-                        passivationChecks.add(new PassivationCheck(session));
-                    }
+    private void processTimeouts(SessionTimeoutIndex index, long time, TimeoutTask task, int first, int step, int shards) {
+        try {
+            // Don't track sessions invalidated via this method as if they
+            // were going to be re-requested by the thread
+            SessionInvalidationTracker.suspend();
 
-                } catch (Exception e) {
-                    if (likelyExpired) {
-                        // JBAS-7397 clean up
-                        bruteForceCleanup(realId, e);
-                    } else {
-                        log.error(MESSAGES.failToPassivateLoad(realId), e);
+            for (int shard = first; shard < shards; shard += step) {
+                // Sessions that are not due yet are only scheduled again once the shard is drained
+                Map<String, Long> notDue = new HashMap<String, Long>();
+                String realId = index.poll(shard, time);
+                while ((realId != null) && this.started) {
+                    long due = task.process(realId);
+                    if (due >= 0) {
+                        notDue.put(realId, due);
                     }
-
+                    realId = index.poll(shard, time);
                 }
+                this.schedule(index, notDue);
             }
+        } finally {
+            SessionInvalidationTracker.resume();
+        }
+    }
 
-            // Next, handle any unloaded sessions
+    private void schedule(SessionTimeoutIndex index, Map<String, Long> times) {
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            index.schedule(entry.getKey(), entry.getValue().longValue());
+        }
+    }
 
-            // We may have not gotten replication of a timestamp for requests
-            // that occurred w/in maxUnreplicatedInterval of the previous
-            // request. So we add a grace period to avoid flushing a session early
-            // and permanently losing part of its node structure in JBoss Cache.
-            long maxUnrep = maxUnreplicatedInterval < 0 ? 60 : maxUnreplicatedInterval;
+    /**
+     * Expires the given session if it has timed out.
+     *
+     * @param realId the session id, minus any jvmRoute
+     * @param now the time of this expiration pass
+     * @return the time the session is due to expire, if it did not, the given time if it failed and has to be tried again on
+     *         the next pass, or -1 if it no longer needs to be indexed
+     */
+    long processExpiration(String realId, long now) {
+        ClusteredSession<O> session = cast(this.sessions.get(realId));
+        if (session != null) {
+            boolean likelyExpired = false;
+            try {
+                // JBAS-2403. Check for outdated sessions where we think
+                // the local copy has timed out. If found, refresh the
+                // session from the cache in case that might change the timeout
+                likelyExpired = (session.isValid(false) == false);
+                if (likelyExpired && this.outdatedSessionChecker.isSessionOutdated(session)) {
+                    // With JBC, every time we get a notification from the distributed
+                    // cache of an update, we get the latest timestamp. So
+                    // we shouldn't need to do a full session load here. A load
+                    // adds a risk of an unintended data gravitation. However,
+                    // with a database instead of JBC we don't get notifications
+
+                    // JBAS-2792 don't assign the result of loadSession to session
+                    // just update the object from the cache or fall through if
+                    // the session has been removed from the cache
+                    loadSession(session.getRealId());
+                }
 
-            for (Map.Entry<String, OwnedSessionUpdate> entry : this.unloadedSessions.entrySet()) {
-                if (!this.started) return;
+                // Do a normal invalidation check that will expire the
+                // session if it has timed out
+                // DON'T SYNCHRONIZE on session here -- isValid() and
+                // expire() are meant to be multi-threaded and synchronize
+                // properly internally; synchronizing externally can lead
+                // to deadlocks!!
+                if (!session.isValid())
+                    return -1;
+
+                likelyExpired = false;
+
+                // Accessed since it was scheduled, or still in use
+                int maxInactive = session.getMaxInactiveInterval();
+                if ((maxInactive > 0) && this.sessions.containsKey(realId)) {
+                    return session.getLastAccessedTimeInternal() + maxInactive * 1000L;
+                }
+            } catch (Exception e) {
+                if (likelyExpired) {
+                    // JBAS-7397 clean up
+                    bruteForceCleanup(realId, e);
+                } else {
+                    log.error(MESSAGES.failToPassivateLoad(realId), e);
+                    return now;
+                }
+            }
+            return -1;
+        }
 
-                String realId = entry.getKey();
-                OwnedSessionUpdate osu = entry.getValue();
-                boolean likelyExpired = false;
+        OwnedSessionUpdate osu = this.unloadedSessions.get(realId);
+        if (osu == null) return -1;
 
-                long now = System.currentTimeMillis();
-                long elapsed = (now - osu.getUpdateTime());
-                try {
-                    likelyExpired = expire && osu.getMaxInactive() >= 1 && elapsed >= (osu.getMaxInactive() + maxUnrep) * 1000L;
-                    if (likelyExpired) {
-                        // if (osu.passivated && osu.owner == null)
-                        if (osu.isPassivated()) {
-                            // Passivated session needs to be expired. A call to
-                            // findSession will bring it out of passivation
-                            Session session = findSession(realId);
-                            if (session != null) {
-                                session.isValid(); // will expire
-                                continue;
-                            }
-                        }
+        // We may have not gotten replication of a timestamp for requests
+        // that occurred w/in maxUnreplicatedInterval of the previous
+        // request. So we add a grace period to avoid flushing a session early
+        // and permanently losing part of its node structure in JBoss Cache.
+        long maxUnrep = getMaxUnreplicatedGracePeriod();
 
-                        // If we get here either !osu.passivated, or we don't own
-                        // the session or the session couldn't be reactivated (invalidated by user).
-                        // Either way, do a cleanup
-                        this.distributedCacheManager.removeSessionLocal(realId, osu.getOwner());
-                        unloadedSessions.remove(realId);
-                        this.getReplicationStatistics().removeStats(realId);
-
-                    } else if (passivate && !osu.isPassivated()) {
-                        // we now have a valid session; store it so we can check later
-                        // if we need to passivate it
-                        passivationChecks.add(new PassivationCheck(realId, osu));
-                    }
-                } catch (Exception e) {
-                    // JBAS-7397 Don't try forever
-                    if (likelyExpired) {
-                        // JBAS-7397
-                        bruteForceCleanup(realId, e);
-                    } else {
-                        log.error(MESSAGES.failToPassivateUnloaded(realId), e);
+        long elapsed = (now - osu.getUpdateTime());
+        boolean likelyExpired = false;
+        try {
+            likelyExpired = osu.getMaxInactive() >= 1 && elapsed >= (osu.getMaxInactive() + maxUnrep) * 1000L;
+            if (likelyExpired) {
+                // if (osu.passivated && osu.owner == null)
+                if (osu.isPassivated()) {
+                    // Passivated session needs to be expired. A call to
+                    // findSession will bring it out of passivation
+                    Session s = findSession(realId);
+                    if (s != null) {
+                        s.isValid(); // will expire
+                        return -1;
                     }
                 }
-            }
 
-            if (!this.started) return;
+                // If we get here either !osu.passivated, or we don't own
+                // the session or the session couldn't be reactivated (invalidated by user).
+                // Either way, do a cleanup
+                this.distributedCacheManager.removeSessionLocal(realId, osu.getOwner());
+                unloadedSessions.remove(realId);
+                cancelTimeouts(realId);
+                this.getReplicationStatistics().removeStats(realId);
+            } else if (osu.getMaxInactive() >= 1) {
+                // Updated since it was scheduled
+                return osu.getUpdateTime() + (osu.getMaxInactive() + maxUnrep) * 1000L;
+            }
+        } catch (Exception e) {
+            // JBAS-7397 Don't try forever
+            if (likelyExpired) {
+                // JBAS-7397
+                bruteForceCleanup(realId, e);
+            } else {
+                log.error(MESSAGES.failToPassivateUnloaded(realId), e);
+                return now;
+            }
+        }
+        return -1;
+    }
 
-            // Now, passivations
-            if (passivate) {
-                // Iterate through sessions, earliest lastAccessedTime to latest
-                for (PassivationCheck passivationCheck : passivationChecks) {
-                    try {
-                        long timeNow = System.currentTimeMillis();
-                        long timeIdle = timeNow - passivationCheck.getLastUpdate();
-                        // if maxIdle time configured, means that we need to passivate sessions that have
-                        // exceeded the max allowed idle time
-                        if (passivationMax >= 0 && timeIdle > passivationMax) {
-                            passivationCheck.passivate();
-                        }
-                        // If the session didn't exceed the passivationMaxIdleTime_, see
-                        // if the number of sessions managed by this manager greater than the max allowed
-                        // active sessions, passivate the session if it exceed passivationMinIdleTime_
-                        else if ((maxActiveAllowed > 0) && (passivationMin > 0) && (calcActiveSessions() >= maxActiveAllowed) && (timeIdle > passivationMin)) {
-                            passivationCheck.passivate();
-                        } else {
-                            // the entries are ordered by lastAccessed, so once
-                            // we don't passivate one, we won't passivate any
-                            break;
-                        }
-                    } catch (Exception e) {
-                        log.error(MESSAGES.failToPassivate(passivationCheck.isUnloaded() ? "unloaded " : "", passivationCheck.getRealId()), e);
-                    }
+    /**
+     * Passivates the given session if it was not accessed after the given time.
+     *
+     * @param realId the session id, minus any jvmRoute
+     * @param lastAccessed the latest last access time of a session to passivate
+     * @return the time the session was last accessed, if it was not passivated, the given time if its passivation failed and
+     *         has to be tried again on the next pass, or -1 if it no longer needs to be indexed
+     */
+    long processPassivation(String realId, long lastAccessed) {
+        ClusteredSession<O> session = cast(this.sessions.get(realId));
+        try {
+            if (session != null) {
+                long accessed = session.getLastAccessedTimeInternal();
+                if (accessed > lastAccessed) {
+                    return accessed;
                 }
+                processSessionPassivation(realId);
+                return -1;
             }
-        } catch (Exception ex) {
-            log.error(MESSAGES.processExpirationPassivationException(ex.getLocalizedMessage()), ex);
-        } finally {
-            SessionInvalidationTracker.resume();
+            OwnedSessionUpdate osu = this.unloadedSessions.get(realId);
+            if ((osu != null) && !osu.isPassivated()) {
+                if (osu.getUpdateTime() > lastAccessed) {
+                    return osu.getUpdateTime();
+                }
+                processUnloadedSessionPassivation(realId, osu);
+            }
+        } catch (Exception e) {
+            log.error(MESSAGES.failToPassivate((session == null) ? "unloaded " : "", realId), e);
+            return lastAccessed;
         }
+        return -1;
+    }
 
-        log.trace("processExpirationPassivation(): Completed ...");
-        log.tracef("processExpirationPassivation(): active sessions = %d", calcActiveSessions());
-        log.tracef("processExpirationPassivation(): expired sessions = %d", expiredCounter.get());
-        if (passivate) {
-            log.tracef("processExpirationPassivation(): passivated count = %d", getPassivatedSessionCount());
+    /**
+     * Indexes a loaded session by the time it expires and, if passivation is enabled, by its last access time.
+     */
+    private void scheduleTimeouts(ClusteredSession<O> session) {
+        String realId = session.getRealId();
+        // Ignore sessions that are not (or no longer) managed
+        if (!this.sessions.containsKey(realId)) return;
+
+        long lastAccessed = session.getLastAccessedTimeInternal();
+        int maxInactive = session.getMaxInactiveInterval();
+        if (maxInactive > 0) {
+            this.expirations.schedule(realId, lastAccessed + maxInactive * 1000L);
+        } else {
+            this.expirations.cancel(realId);
+        }
+        if (this.passivations != null) {
+            this.passivations.schedule(realId, lastAccessed);
+        }
+    }
+
+    /**
+     * Indexes an unloaded session by the time it expires and, if passivation is enabled and it is not passivated yet, by
+     * its last update time.
+     */
+    private void scheduleTimeouts(String realId, OwnedSessionUpdate osu) {
+        int maxInactive = osu.getMaxInactive();
+        if (maxInactive >= 1) {
+            this.expirations.schedule(realId, osu.getUpdateTime() + (maxInactive + getMaxUnreplicatedGracePeriod()) * 1000L);
+        } else {
+            this.expirations.cancel(realId);
+        }
+        if (this.passivations != null) {
+            if (osu.isPassivated()) {
+                this.passivations.cancel(realId);
+            } else {
+                this.passivations.schedule(realId, osu.getUpdateTime());
+            }
         }
     }
 
+    private void cancelTimeouts(String realId) {
+        this.expirations.cancel(realId);
+        if (this.passivations != null) {
+            this.passivations.cancel(realId);
+        }
+    }
+
+    private long getMaxUnreplicatedGracePeriod() {
+        return (maxUnreplicatedInterval < 0) ? 60 : maxUnreplicatedInterval;
+    }
+
     /**
      * Loads a session from the distributed store. If an existing session with the id is already under local management, that
      * session's internal state will be updated from the distributed store. Otherwise a new session will be created and added to
@@ -1343,7 +1570,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         try {
             // [JBAS-7123] Make sure we're either in the call stack where LockingValve has
             // a lock, or that we acquire one ourselves
-            boolean inLockingValve = SessionReplicationContext.isLocallyActive();
+            boolean inLockingValve = SessionReplicationContext.isValveLocked();
             if (inLockingValve || this.valveLock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
                     long begin = System.currentTimeMillis();
@@ -1435,7 +1662,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         try {
             // [JBAS-7123] Make sure we're either in the call stack where LockingValve has
             // a lock, or that we acquire one ourselves
-            boolean inLockingValve = SessionReplicationContext.isLocallyActive();
+            boolean inLockingValve = SessionReplicationContext.isValveLocked();
             if (inLockingValve || this.valveLock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
                     switch (this.getReplicationGranularity()) {
@@ -1465,6 +1692,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         } finally {
             // Get rid of our refs even if distributed store fails
             unloadedSessions.remove(realId);
+            cancelTimeouts(realId);
             this.getReplicationStatistics().removeStats(realId);
         }
     }
@@ -1489,7 +1717,8 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
      *
      * @param session the session. Cannot be <code>null</code>.
      */
-    private void processSessionRepl(ClusteredSession<O> session) {
+    private long processSessionRepl(ClusteredSession<O> session) {
+        long bytes = -1;
         boolean endBatch = false;
         BatchingManager batchingManager = this.distributedCacheManager.getBatchingManager();
         try {
@@ -1501,7 +1730,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
                 endBatch = true;
             }
 
-            session.processSessionReplication();
+            bytes = session.processSessionReplication();
         } catch (Exception ex) {
             log.debug("processSessionRepl(): failed with exception", ex);
 
@@ -1522,6 +1751,7 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
                 batchingManager.endBatch();
             }
         }
+        return bytes;
     }
 
     @SuppressWarnings("unchecked")
@@ -1533,54 +1763,30 @@ public class DistributableSessionManager<O extends OutgoingDistributableSessionD
         return (ClusteredSession<O>) session;
     }
 
-    private class PassivationCheck implements Comparable<PassivationCheck> {
-        private final String realId;
-        private final OwnedSessionUpdate osu;
-        private final ClusteredSession<O> session;
-
-        private PassivationCheck(String realId, OwnedSessionUpdate osu) {
-            assert osu != null : MESSAGES.nullOsu();
-            assert realId != null : MESSAGES.nullSessionId();
-
-            this.realId = realId;
-            this.osu = osu;
-            this.session = null;
-        }
-
-        private PassivationCheck(ClusteredSession<O> session) {
-            assert session != null : MESSAGES.nullSession();
-
-            this.realId = session.getRealId();
-            this.session = session;
-            this.osu = null;
-        }
-
-        private long getLastUpdate() {
-            return osu == null ? session.getLastAccessedTimeInternal() : osu.getUpdateTime();
-        }
-
-        private void passivate() {
-            if (osu == null) {
-                DistributableSessionManager.this.processSessionPassivation(realId);
-            } else {
-                DistributableSessionManager.this.processUnloadedSessionPassivation(realId, osu);
-            }
-        }
+    private interface TimeoutTask {
+        /**
+         * Processes a session taken from an index.
+         *
+         * @param realId the session id, minus any jvmRoute
+         * @return the time at which the session is due again, or -1 if it no longer needs to be indexed
+         */
+        long process(String realId);
+    }
 
-        private String getRealId() {
-            return realId;
-        }
+    private class ExpirationThreadFactory implements ThreadFactory {
+        private final String contextPath;
+        private final AtomicInteger count = new AtomicInteger();
 
-        private boolean isUnloaded() {
-            return osu != null;
+        ExpirationThreadFactory(String contextPath) {
+            this.contextPath = contextPath;
         }
 
-        // This is what causes sorting based on lastAccessed
         @Override
-        public int compareTo(PassivationCheck o) {
-            long thisVal = getLastUpdate();
-            long anotherVal = o.getLastUpdate();
-            return (thisVal < anotherVal ? -1 : (thisVal == anotherVal ? 0 : 1));
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "ClusteredSessionExpiration[" + this.contextPath + "]-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(DistributableSessionManager.this.getContainer().getLoader().getClassLoader());
+            return thread;
         }
     }
 
@@ -145,6 +145,21 @@ public interface DistributableSessionManagerMBean extends SessionManagerMBean {
      */
     String listLocalSessionIds();
 
+    /**
+     * Gets the number of requests matching a read-only URL pattern, which therefore bypassed request locking.
+     *
+     * @return the number of read-only requests
+     */
+    long getUnlockedRequestCount();
+
+    /**
+     * Gets the number of requests that neither modified their session nor needed to replicate its timestamp, and which
+     * therefore skipped the session snapshot.
+     *
+     * @return the number of requests that did not change their session
+     */
+    long getUnchangedSessionRequestCount();
+
     /**
      * Gets whether passivation was enabled in jboss-web.xml and in the underlying cache.
      *
@@ -36,6 +36,7 @@ import org.jboss.servlet.http.HttpEvent;
 
 /**
  * Generic valve that applies a given lock to a request.
+ * Requests that a {@link ReadOnlyRequestPolicy} considers read-only bypass the lock.
  *
  * @author Paul Ferraro
  */
@@ -44,9 +45,15 @@ public class LockingValve extends ValveBase {
     protected static final Logger log = Logger.getLogger(LockingValve.class);
 
     private final Lock lock;
+    private final ReadOnlyRequestPolicy policy;
 
     public LockingValve(Lock lock) {
+        this(lock, null);
+    }
+
+    LockingValve(Lock lock, ReadOnlyRequestPolicy policy) {
         this.lock = lock;
+        this.policy = policy;
     }
 
     /**
@@ -58,6 +65,11 @@ public class LockingValve extends ValveBase {
             log.tracef("handling request %s", request.getRequestURI());
         }
 
+        if (this.isReadOnly(request)) {
+            this.next.invoke(request, response);
+            return;
+        }
+
         try {
             if (this.lock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
@@ -78,6 +90,11 @@ public class LockingValve extends ValveBase {
      */
     @Override
     public void event(Request request, Response response, HttpEvent event) throws IOException, ServletException {
+        if (this.isReadOnly(request)) {
+            this.next.event(request, response, event);
+            return;
+        }
+
         try {
             if (this.lock.tryLock(0, TimeUnit.SECONDS)) {
                 try {
@@ -92,4 +109,12 @@ public class LockingValve extends ValveBase {
             Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+
+    private boolean isReadOnly(Request request) {
+        if ((this.policy != null) && this.policy.isReadOnly(request)) {
+            this.policy.requestUnlocked();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.web.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.catalina.connector.Request;
+import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
+
+/**
+ * Decides which requests may take the read-only fast path, and counts the requests that took it.
+ * <ul>
+ * <li>Requests whose path within the web application matches one of the configured URL patterns
+ * ({@code /exact}, {@code /prefix/*} or {@code *.extension}) bypass the {@link LockingValve}. The session manager
+ * then guards each of its operations individually, as it does for requests outside of the valve pipeline.</li>
+ * <li>If detection is enabled, a session that was neither modified nor needs its timestamp replicated by the end of
+ * a request is not handed to the {@link SnapshotManager}.</li>
+ * </ul>
+ * Read-only URL patterns must not be used for requests that modify sessions of other web applications, since those
+ * are only replicated by a subsequent request to the other application.
+ */
+class ReadOnlyRequestPolicy {
+    private final List<String> exactPatterns = new ArrayList<String>();
+    private final List<String> prefixPatterns = new ArrayList<String>();
+    private final List<String> extensionPatterns = new ArrayList<String>();
+    private final boolean detection;
+
+    private final AtomicLong unlockedRequests = new AtomicLong();
+    private final AtomicLong unchangedRequests = new AtomicLong();
+
+    /**
+     * @param patterns a comma separated list of URL patterns, may be null
+     * @param detection whether to skip the snapshot of sessions that were not modified by a request
+     */
+    ReadOnlyRequestPolicy(String patterns, boolean detection) {
+        this.detection = detection;
+        if (patterns != null) {
+            for (String value: patterns.split(",")) {
+                String pattern = value.trim();
+                if (pattern.startsWith("*.")) {
+                    this.extensionPatterns.add(pattern.substring(1));
+                } else if (pattern.endsWith("/*")) {
+                    this.prefixPatterns.add(pattern.substring(0, pattern.length() - 2));
+                } else if (!pattern.isEmpty()) {
+                    this.exactPatterns.add(pattern);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the specified request is configured as read-only, and may therefore bypass the {@link LockingValve}.
+     * @param request a request
+     * @return true, if the request matches a read-only URL pattern, false otherwise
+     */
+    boolean isReadOnly(Request request) {
+        if (this.exactPatterns.isEmpty() && this.prefixPatterns.isEmpty() && this.extensionPatterns.isEmpty()) {
+            return false;
+        }
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        String path = (servletPath != null) ? ((pathInfo != null) ? servletPath + pathInfo : servletPath) : pathInfo;
+        return (path != null) && this.matches(path);
+    }
+
+    boolean matches(String path) {
+        if (this.exactPatterns.contains(path)) {
+            return true;
+        }
+        for (String prefix: this.prefixPatterns) {
+            if (path.startsWith(prefix) && ((path.length() == prefix.length()) || (path.charAt(prefix.length()) == '/'))) {
+                return true;
+            }
+        }
+        if (!this.extensionPatterns.isEmpty()) {
+            int slash = path.lastIndexOf('/');
+            int dot = path.lastIndexOf('.');
+            if (dot > slash) {
+                String extension = path.substring(dot);
+                for (String pattern: this.extensionPatterns) {
+                    if (pattern.equals(extension)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indicates whether the snapshot of the specified session may be skipped.
+     * @param session a session accessed by a request that has completed
+     * @return true, if detection is enabled and the session needs neither storing nor replication, false otherwise
+     */
+    boolean isUnchanged(ClusteredSession<? extends OutgoingDistributableSessionData> session) {
+        return this.detection && !session.isSessionDirty() && !session.getMustReplicateTimestamp();
+    }
+
+    void requestUnlocked() {
+        this.unlockedRequests.incrementAndGet();
+    }
+
+    void requestUnchanged() {
+        this.unchangedRequests.incrementAndGet();
+    }
+
+    /**
+     * @return the number of requests that bypassed the {@link LockingValve}
+     */
+    long getUnlockedRequestCount() {
+        return this.unlockedRequests.get();
+    }
+
+    /**
+     * @return the number of requests whose session was not handed to the {@link SnapshotManager}, since it was not modified
+     */
+    long getUnchangedRequestCount() {
+        return this.unchangedRequests.get();
+    }
+
+    void resetStats() {
+        this.unlockedRequests.set(0);
+        this.unchangedRequests.set(0);
+    }
+}
@@ -49,6 +49,12 @@ public class ReplicationStatistics implements Serializable {
         public long maxReplicationTime;
         public long totalReplicationlTime;
 
+        /** The number of replications whose size was measured, i.e. using delta replication */
+        public long measuredReplicationCount;
+        public long minReplicatedBytes = Long.MAX_VALUE;
+        public long maxReplicatedBytes;
+        public long totalReplicatedBytes;
+
         public long loadCount;
         public long minLoadTime = Long.MAX_VALUE;
         public long maxLoadTime;
@@ -62,6 +68,10 @@ public class ReplicationStatistics implements Serializable {
             minReplicationTime = Long.MAX_VALUE;
             maxReplicationTime = 0;
             totalReplicationlTime = 0;
+            measuredReplicationCount = 0;
+            minReplicatedBytes = Long.MAX_VALUE;
+            maxReplicatedBytes = 0;
+            totalReplicatedBytes = 0;
             loadCount = 0;
             minLoadTime = Long.MAX_VALUE;
             maxLoadTime = 0;
@@ -99,6 +109,23 @@ public class ReplicationStatistics implements Serializable {
             stat.maxReplicationTime = elapsed;
     }
 
+    /**
+     * Update the replicated size statistics for the given ctx. Like {@link #updateReplicationStats(String, long)} this
+     * does not synchronize on the TimeStatistic.
+     *
+     * @param ctx the session to update the statistics for.
+     * @param bytes the number of serialized session attribute bytes replicated by a request.
+     */
+    public void updateReplicatedBytes(String ctx, long bytes) {
+        TimeStatistic stat = getTimeStatistic(ctx);
+        stat.measuredReplicationCount++;
+        stat.totalReplicatedBytes += bytes;
+        if (stat.minReplicatedBytes > bytes)
+            stat.minReplicatedBytes = bytes;
+        if (stat.maxReplicatedBytes < bytes)
+            stat.maxReplicatedBytes = bytes;
+    }
+
     public void updateLoadStats(String ctx, long elapsed) {
         TimeStatistic stat = getTimeStatistic(ctx);
         stat.loadCount++;
@@ -157,6 +184,16 @@ public class ReplicationStatistics implements Serializable {
                 tmp.append(stat.maxReplicationTime);
                 tmp.append(", totalReplicationlTime=");
                 tmp.append(stat.totalReplicationlTime);
+                if (stat.measuredReplicationCount > 0) {
+                    tmp.append(", measuredReplicationCount=");
+                    tmp.append(stat.measuredReplicationCount);
+                    tmp.append(", minReplicatedBytes=");
+                    tmp.append(stat.minReplicatedBytes);
+                    tmp.append(", maxReplicatedBytes=");
+                    tmp.append(stat.maxReplicatedBytes);
+                    tmp.append(", totalReplicatedBytes=");
+                    tmp.append(stat.totalReplicatedBytes);
+                }
                 tmp.append(", loadCount=");
                 tmp.append(stat.loadCount);
                 tmp.append(", minLoadTime=");
@@ -34,6 +34,8 @@ public final class SessionReplicationContext {
     private static final SessionReplicationContext EMPTY = new SessionReplicationContext();
 
     private int webappCount;
+    // Whether the request holds the lock of the LockingValve
+    private boolean locked = true;
     // private int activityCount;
     private SnapshotManager soleManager;
     private ClusteredSession<? extends OutgoingDistributableSessionData> soleSession;
@@ -61,6 +63,25 @@ public final class SessionReplicationContext {
         ctx.webappCount++;
     }
 
+    /**
+     * Like {@link #enterWebapp(Request, Response, boolean)}, but for a read-only request that bypassed the
+     * {@link LockingValve}. If there isn't a context associated with the current thread yet, the new context reports
+     * that the valve lock is not held.
+     *
+     * @param request
+     * @param response
+     */
+    public static void enterReadOnlyWebapp(Request request, Response response) {
+        SessionReplicationContext ctx = getCurrentContext();
+        if (ctx == null) {
+            ctx = new SessionReplicationContext(request, response);
+            ctx.locked = false;
+            replicationContext.set(ctx);
+        }
+
+        ctx.webappCount++;
+    }
+
     /**
      * Signals that the webapp is finished handling the request (and therefore replication can begin.)
      *
@@ -116,6 +137,16 @@ public final class SessionReplicationContext {
         return getCurrentContext() != null;
     }
 
+    /**
+     * Returns whether the current thread is handling a request that holds the lock of the {@link LockingValve}.
+     *
+     * @return <code>true</code> if there is a context associated with the thread, that was not entered by a read-only request
+     */
+    public static boolean isValveLocked() {
+        SessionReplicationContext ctx = getCurrentContext();
+        return (ctx != null) && ctx.locked;
+    }
+
     public static Request getOriginalRequest() {
         SessionReplicationContext ctx = getCurrentContext();
         return (ctx == null ? null : ctx.outerRequest);
@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.web.session;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of session ids by a point in time, e.g. the time a session expires or the time it was last accessed.
+ * <p/>
+ * Like a timing wheel, ids are kept in buckets spanning <code>resolution</code> milliseconds, so finding the sessions due
+ * at a given time only touches those sessions. The index is split into shards by session id, each guarded by its own
+ * lock, so sessions can be scheduled concurrently and the shards can be processed in parallel.
+ * <p/>
+ * A session is never reported after its scheduled time, but may be reported up to <code>resolution</code> milliseconds
+ * early. Callers are expected to re-check a session taken from the index, and to schedule it again if it turns out not to
+ * be due yet, e.g. because it was accessed in the meantime.
+ */
+class SessionTimeoutIndex {
+    private final long resolution;
+    private final Shard[] shards;
+    private final int mask;
+
+    SessionTimeoutIndex(int concurrencyLevel, long resolution) {
+        // round up to a power of two so the shard can be picked with a mask
+        int count = 1;
+        while (count < concurrencyLevel) {
+            count <<= 1;
+        }
+        this.resolution = resolution;
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; ++i) {
+            this.shards[i] = new Shard();
+        }
+        this.mask = count - 1;
+    }
+
+    int getShardCount() {
+        return this.shards.length;
+    }
+
+    /**
+     * Schedules the given session at the given time, replacing any previous schedule.
+     *
+     * @param realId the session id, minus any jvmRoute
+     * @param time a time in milliseconds
+     */
+    void schedule(String realId, long time) {
+        this.shard(realId).schedule(realId, this.slot(time));
+    }
+
+    void cancel(String realId) {
+        this.shard(realId).cancel(realId);
+    }
+
+    /**
+     * Removes a session scheduled in the same bucket as, or before, the given time from the given shard.
+     *
+     * @param shard the index of a shard
+     * @param time a time in milliseconds
+     * @return a session id, or null if no session of the shard is due
+     */
+    String poll(int shard, long time) {
+        return this.shards[shard].poll(this.slot(time));
+    }
+
+    /**
+     * Removes the session with the earliest schedule in the same bucket as, or before, the given time over all shards.
+     *
+     * @param time a time in milliseconds
+     * @return a session id, or null if no session is due
+     */
+    String poll(long time) {
+        long slot = this.slot(time);
+        while (true) {
+            Shard earliest = null;
+            long earliestSlot = slot;
+            for (Shard shard : this.shards) {
+                Long first = shard.first();
+                if ((first != null) && (first.longValue() <= earliestSlot)) {
+                    earliest = shard;
+                    earliestSlot = first.longValue();
+                }
+            }
+            if (earliest == null) return null;
+            String realId = earliest.poll(earliestSlot);
+            // Retry if a concurrent caller took it
+            if (realId != null) return realId;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard shard : this.shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    void clear() {
+        for (Shard shard : this.shards) {
+            shard.clear();
+        }
+    }
+
+    private long slot(long time) {
+        long slot = time / this.resolution;
+        return (slot * this.resolution > time) ? slot - 1 : slot;
+    }
+
+    private Shard shard(String realId) {
+        int hash = realId.hashCode();
+        // spread the bits, so that the low bits of similar ids differ
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return this.shards[hash & this.mask];
+    }
+
+    private static class Shard {
+        private final NavigableMap<Long, Set<String>> buckets = new TreeMap<Long, Set<String>>();
+        private final Map<String, Long> slots = new HashMap<String, Long>();
+
+        synchronized void schedule(String realId, long slot) {
+            Long previous = this.slots.put(realId, Long.valueOf(slot));
+            if (previous != null) {
+                if (previous.longValue() == slot) return;
+                this.remove(realId, previous);
+            }
+            Set<String> bucket = this.buckets.get(slot);
+            if (bucket == null) {
+                bucket = new HashSet<String>();
+                this.buckets.put(slot, bucket);
+            }
+            bucket.add(realId);
+        }
+
+        synchronized void cancel(String realId) {
+            Long slot = this.slots.remove(realId);
+            if (slot != null) {
+                this.remove(realId, slot);
+            }
+        }
+
+        synchronized String poll(long slot) {
+            Map.Entry<Long, Set<String>> first = this.buckets.firstEntry();
+            if ((first == null) || (first.getKey().longValue() > slot)) return null;
+            Set<String> bucket = first.getValue();
+            Iterator<String> realIds = bucket.iterator();
+            String realId = realIds.next();
+            realIds.remove();
+            if (bucket.isEmpty()) {
+                this.buckets.remove(first.getKey());
+            }
+            this.slots.remove(realId);
+            return realId;
+        }
+
+        synchronized Long first() {
+            return this.buckets.isEmpty() ? null : this.buckets.firstKey();
+        }
+
+        synchronized int size() {
+            return this.slots.size();
+        }
+
+        synchronized void clear() {
+            this.buckets.clear();
+            this.slots.clear();
+        }
+
+        private void remove(String realId, Long slot) {
+            Set<String> bucket = this.buckets.get(slot);
+            if ((bucket != null) && bucket.remove(realId) && bucket.isEmpty()) {
+                this.buckets.remove(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.web.session;
+
+import static org.jboss.as.web.WebMessages.MESSAGES;
+
+import java.security.AccessController;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
+import org.jboss.as.util.security.ReadPropertyAction;
+import org.jboss.logging.Logger;
+
+/**
+ * Collects the modified sessions of all web applications of this node using a {@link CoalescingSnapshotManager} and
+ * replicates them from a single thread, in batches.
+ * <p/>
+ * A session modified several times before the next batch is replicated once. A batch is replicated as soon as it holds
+ * {@link #MAX_BATCH_SIZE} sessions, or once the flush interval elapsed. The flush interval adapts to the load: it grows
+ * with the size of the previous batch, from a tenth of the shortest snapshot interval of the registered web applications
+ * up to that snapshot interval. A lightly loaded node thus replicates modifications quickly, while a busy node replicates
+ * fewer, larger batches.
+ * <p/>
+ * Each session is stored within its own batch of its {@link org.jboss.as.clustering.web.BatchingManager}, so that a session failing to replicate does
+ * not roll back the other sessions of the batch, whose dirty state was already reset by then. A session which remains dirty
+ * after being stored is queued for the next batch once; if that fails as well, it is left to the next request.
+ */
+class SnapshotCoalescer implements Runnable {
+    /** System property specifying the maximum number of sessions replicated in one batch */
+    public static final String MAX_BATCH_SIZE = "jboss.web.clustered.session.snapshot.max-batch-size";
+
+    private static final Logger log = Logger.getLogger(SnapshotCoalescer.class);
+
+    private static SnapshotCoalescer instance = null;
+
+    /**
+     * Registers the given snapshot manager with the coalescer of this node, starting the coalescer if necessary.
+     */
+    static synchronized SnapshotCoalescer register(CoalescingSnapshotManager manager) {
+        if (instance == null) {
+            int maxBatchSize = Integer.parseInt(AccessController.doPrivileged(new ReadPropertyAction(MAX_BATCH_SIZE, "1000")));
+            instance = new SnapshotCoalescer(Math.max(1, maxBatchSize));
+            instance.add(manager);
+            instance.start();
+        } else {
+            instance.add(manager);
+        }
+        return instance;
+    }
+
+    /**
+     * Unregisters the given snapshot manager, discarding its queued sessions, and stops the coalescer if no other
+     * snapshot manager is registered. Waits for a batch in progress to complete.
+     */
+    static synchronized void unregister(CoalescingSnapshotManager manager) {
+        if ((instance != null) && instance.remove(manager)) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    private final int maxBatchSize;
+    // The modified sessions, in the order of their first modification
+    private final Map<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> sessions = new LinkedHashMap<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager>();
+    private final Set<CoalescingSnapshotManager> managers = new HashSet<CoalescingSnapshotManager>();
+    // The queued sessions which failed to replicate in the previous batch
+    private final Set<ClusteredSession<? extends OutgoingDistributableSessionData>> retries = new HashSet<ClusteredSession<? extends OutgoingDistributableSessionData>>();
+    // bounds of the flush interval, in ms
+    private long minInterval;
+    private long maxInterval;
+    // the current flush interval, in ms
+    private long interval;
+    // Is a batch being replicated?
+    private boolean flushing = false;
+    private volatile boolean running = false;
+    private Thread thread = null;
+
+    SnapshotCoalescer(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    synchronized void snapshot(ClusteredSession<? extends OutgoingDistributableSessionData> session, CoalescingSnapshotManager manager) {
+        if (!this.managers.contains(manager)) return;
+        this.retries.remove(session);
+        if (this.sessions.put(session, manager) == null) {
+            int size = this.sessions.size();
+            // Start the flush interval, or flush a full batch
+            if ((size == 1) || (size == this.maxBatchSize)) {
+                this.notifyAll();
+            }
+        }
+    }
+
+    synchronized void add(CoalescingSnapshotManager manager) {
+        this.managers.add(manager);
+        this.updateIntervals();
+    }
+
+    /**
+     * @return true, if no snapshot manager remains registered
+     */
+    synchronized boolean remove(CoalescingSnapshotManager manager) {
+        this.managers.remove(manager);
+        Iterator<CoalescingSnapshotManager> values = this.sessions.values().iterator();
+        while (values.hasNext()) {
+            if (values.next() == manager) {
+                values.remove();
+            }
+        }
+        this.retries.retainAll(this.sessions.keySet());
+        // The batch in progress may contain sessions of this manager
+        boolean interrupted = false;
+        while (this.flushing && (Thread.currentThread() != this.thread)) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.managers.isEmpty()) return true;
+        this.updateIntervals();
+        return false;
+    }
+
+    private void updateIntervals() {
+        long max = Long.MAX_VALUE;
+        for (CoalescingSnapshotManager manager : this.managers) {
+            max = Math.min(max, manager.getInterval());
+        }
+        this.maxInterval = max;
+        this.minInterval = Math.max(1, max / 10);
+        this.interval = Math.max(this.minInterval, Math.min(this.interval, this.maxInterval));
+    }
+
+    synchronized void start() {
+        this.running = true;
+        this.interval = this.minInterval;
+        this.thread = new Thread(this, "ClusteredSessionCoalescer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void stop() {
+        Thread thread = null;
+        synchronized (this) {
+            this.running = false;
+            this.sessions.clear();
+            this.retries.clear();
+            this.notifyAll();
+            thread = this.thread;
+            this.thread = null;
+        }
+        if ((thread != null) && (thread != Thread.currentThread())) {
+            boolean interrupted = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Thread-loop
+     */
+    @Override
+    public void run() {
+        while (this.running) {
+            Map<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> batch = null;
+            synchronized (this) {
+                while (this.running && this.sessions.isEmpty()) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException e) {
+                        // Only stop() may end this thread
+                        Thread.interrupted();
+                    }
+                }
+                long deadline = System.currentTimeMillis() + this.interval;
+                long remaining = this.interval;
+                while (this.running && (this.sessions.size() < this.maxBatchSize) && (remaining > 0)) {
+                    try {
+                        this.wait(remaining);
+                    } catch (InterruptedException e) {
+                        // Only stop() may end this thread
+                        Thread.interrupted();
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                if (!this.running) return;
+
+                batch = this.drain();
+
+                // Let the next interval grow with the load
+                this.interval = this.minInterval + (this.maxInterval - this.minInterval) * batch.size() / this.maxBatchSize;
+                this.flushing = true;
+            }
+            try {
+                this.flush(batch);
+            } catch (Exception e) {
+                log.error(MESSAGES.exceptionProcessingSessions(), e);
+            } finally {
+                synchronized (this) {
+                    this.flushing = false;
+                    this.notifyAll();
+                }
+            }
+        }
+    }
+
+    private Map<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> drain() {
+        Map<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> batch = new LinkedHashMap<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager>();
+        Iterator<Map.Entry<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager>> entries = this.sessions.entrySet().iterator();
+        while (entries.hasNext() && (batch.size() < this.maxBatchSize)) {
+            Map.Entry<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> entry = entries.next();
+            batch.put(entry.getKey(), entry.getValue());
+            entries.remove();
+        }
+        return batch;
+    }
+
+    private void flush(Map<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> batch) {
+        Thread thread = Thread.currentThread();
+        ClassLoader loader = thread.getContextClassLoader();
+        try {
+            for (Map.Entry<ClusteredSession<? extends OutgoingDistributableSessionData>, CoalescingSnapshotManager> entry : batch.entrySet()) {
+                if (!this.running) break;
+
+                ClusteredSession<? extends OutgoingDistributableSessionData> session = entry.getKey();
+                CoalescingSnapshotManager manager = entry.getValue();
+                thread.setContextClassLoader(manager.getClassLoader());
+                if (!manager.store(session)) {
+                    this.retry(session, manager);
+                }
+            }
+        } finally {
+            thread.setContextClassLoader(loader);
+        }
+    }
+
+    /**
+     * Queues a session which failed to replicate for the next batch, unless it failed on its retry already.
+     */
+    private synchronized void retry(ClusteredSession<? extends OutgoingDistributableSessionData> session, CoalescingSnapshotManager manager) {
+        if (!this.running || !this.managers.contains(manager) || this.sessions.containsKey(session)) return;
+        if (this.retries.remove(session)) {
+            log.debugf("Session %s failed to replicate again, leaving it to its next request", session.getRealId());
+            return;
+        }
+        this.retries.add(session);
+        this.sessions.put(session, manager);
+    }
+}
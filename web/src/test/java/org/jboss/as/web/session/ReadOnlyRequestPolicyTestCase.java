@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.web.session;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ReadOnlyRequestPolicy}.
+ */
+public class ReadOnlyRequestPolicyTestCase {
+
+    @Test
+    public void patterns() {
+        ReadOnlyRequestPolicy policy = new ReadOnlyRequestPolicy(" /status, /static/* ,*.css,, ", true);
+
+        assertTrue(policy.matches("/status"));
+        assertFalse(policy.matches("/status/more"));
+
+        assertTrue(policy.matches("/static"));
+        assertTrue(policy.matches("/static/"));
+        assertTrue(policy.matches("/static/images/logo.png"));
+        assertFalse(policy.matches("/staticfile"));
+
+        assertTrue(policy.matches("/theme/site.css"));
+        assertFalse(policy.matches("/theme.css/index.jsp"));
+        assertFalse(policy.matches("/theme/site.cssx"));
+
+        assertFalse(policy.matches("/index.jsp"));
+    }
+
+    @Test
+    public void noPatterns() {
+        ReadOnlyRequestPolicy policy = new ReadOnlyRequestPolicy(null, false);
+
+        assertFalse(policy.matches("/"));
+        assertFalse(policy.matches("/index.jsp"));
+    }
+
+    @Test
+    public void statistics() {
+        ReadOnlyRequestPolicy policy = new ReadOnlyRequestPolicy("/*", true);
+
+        policy.requestUnlocked();
+        policy.requestUnlocked();
+        policy.requestUnchanged();
+        assertEquals(2, policy.getUnlockedRequestCount());
+        assertEquals(1, policy.getUnchangedRequestCount());
+
+        policy.resetStats();
+        assertEquals(0, policy.getUnlockedRequestCount());
+        assertEquals(0, policy.getUnchangedRequestCount());
+    }
+}
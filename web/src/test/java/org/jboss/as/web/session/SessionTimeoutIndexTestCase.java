@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.web.session;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link SessionTimeoutIndex}.
+ */
+public class SessionTimeoutIndexTestCase {
+
+    @Test
+    public void poll() {
+        SessionTimeoutIndex index = new SessionTimeoutIndex(4, 1000L);
+        index.schedule("a", 1500L);
+        index.schedule("b", 2000L);
+        index.schedule("c", 3500L);
+        assertEquals(3, index.size());
+
+        // Never after the scheduled time, at most one bucket before
+        assertNull(index.poll(999L));
+        assertEquals("a", index.poll(1000L));
+        assertNull(index.poll(1999L));
+        assertEquals("b", index.poll(2000L));
+        assertNull(index.poll(2999L));
+        assertEquals("c", index.poll(3500L));
+        assertNull(index.poll(Long.MAX_VALUE));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void reschedule() {
+        SessionTimeoutIndex index = new SessionTimeoutIndex(4, 1000L);
+        index.schedule("a", 1000L);
+        index.schedule("b", 2000L);
+        index.schedule("a", 3000L);
+        assertEquals(2, index.size());
+        assertEquals("b", index.poll(3000L));
+        assertEquals("a", index.poll(3000L));
+
+        index.schedule("a", 5000L);
+        index.schedule("a", 1000L);
+        assertEquals("a", index.poll(1000L));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void cancel() {
+        SessionTimeoutIndex index = new SessionTimeoutIndex(4, 1000L);
+        index.schedule("a", 1000L);
+        index.schedule("b", 1000L);
+        index.cancel("a");
+        index.cancel("c");
+        assertEquals(1, index.size());
+        assertEquals("b", index.poll(1000L));
+        assertNull(index.poll(1000L));
+
+        index.schedule("a", 1000L);
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.poll(1000L));
+    }
+
+    @Test
+    public void shards() {
+        SessionTimeoutIndex index = new SessionTimeoutIndex(3, 1000L);
+        assertEquals(4, index.getShardCount());
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 100; ++i) {
+            String id = "session" + i;
+            index.schedule(id, i * 100L);
+            expected.add(id);
+        }
+        index.schedule("late", 20000L);
+
+        Set<String> polled = new HashSet<String>();
+        for (int shard = 0; shard < index.getShardCount(); ++shard) {
+            String id = index.poll(shard, 10000L);
+            while (id != null) {
+                assertTrue(id, polled.add(id));
+                id = index.poll(shard, 10000L);
+            }
+        }
+        assertEquals(expected, polled);
+        assertEquals(1, index.size());
+    }
+}
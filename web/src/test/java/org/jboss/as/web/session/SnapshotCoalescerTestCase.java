@@ -0,0 +1,201 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.web.session;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Unit tests of {@link SnapshotCoalescer}.
+ */
+public class SnapshotCoalescerTestCase {
+    private static final int SHORT_INTERVAL = 100;
+    private static final int LONG_INTERVAL = 60000;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private SnapshotCoalescer coalescer;
+
+    @After
+    public void destroy() {
+        if (this.coalescer != null) {
+            this.coalescer.stop();
+        }
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void coalesce() {
+        CoalescingSnapshotManager manager = manager(SHORT_INTERVAL);
+        ClusteredSession<OutgoingDistributableSessionData> a = session();
+        ClusteredSession<OutgoingDistributableSessionData> b = session();
+        this.coalescer = new SnapshotCoalescer(10);
+        this.coalescer.add(manager);
+        this.coalescer.snapshot(a, manager);
+        this.coalescer.snapshot(b, manager);
+        this.coalescer.snapshot(a, manager);
+        this.coalescer.start();
+
+        verify(manager, timeout(5000)).store(b);
+        // Stored once, in the order of the first modification
+        InOrder order = inOrder(manager);
+        order.verify(manager).store(a);
+        order.verify(manager).store(b);
+        verify(manager, times(1)).store(a);
+    }
+
+    @Test
+    public void fullBatch() throws InterruptedException {
+        CoalescingSnapshotManager manager = manager(LONG_INTERVAL);
+        ClusteredSession<OutgoingDistributableSessionData> a = session();
+        ClusteredSession<OutgoingDistributableSessionData> b = session();
+        ClusteredSession<OutgoingDistributableSessionData> c = session();
+        this.coalescer = new SnapshotCoalescer(2);
+        this.coalescer.add(manager);
+        this.coalescer.snapshot(a, manager);
+        this.coalescer.snapshot(b, manager);
+        this.coalescer.snapshot(c, manager);
+        this.coalescer.start();
+
+        // A full batch is flushed right away, the remainder waits for the flush interval
+        verify(manager, timeout(5000)).store(b);
+        verify(manager).store(a);
+        Thread.sleep(SHORT_INTERVAL);
+        verify(manager, never()).store(c);
+    }
+
+    @Test
+    public void failure() throws InterruptedException {
+        CoalescingSnapshotManager manager = manager(SHORT_INTERVAL);
+        ClusteredSession<OutgoingDistributableSessionData> a = session();
+        ClusteredSession<OutgoingDistributableSessionData> b = session();
+        when(manager.store(a)).thenReturn(false);
+        this.coalescer = new SnapshotCoalescer(10);
+        this.coalescer.add(manager);
+        this.coalescer.snapshot(a, manager);
+        this.coalescer.snapshot(b, manager);
+        this.coalescer.start();
+
+        // The failed session is retried once, in the next batch
+        verify(manager, timeout(5000).times(2)).store(a);
+        verify(manager, times(1)).store(b);
+        Thread.sleep(5 * SHORT_INTERVAL);
+        verify(manager, times(2)).store(a);
+
+        // A new modification allows another retry
+        this.coalescer.snapshot(a, manager);
+        verify(manager, timeout(5000).times(4)).store(a);
+    }
+
+    @Test
+    public void unregister() throws Exception {
+        final CoalescingSnapshotManager manager = manager(SHORT_INTERVAL);
+        CoalescingSnapshotManager other = manager(SHORT_INTERVAL);
+        ClusteredSession<OutgoingDistributableSessionData> a = session();
+        ClusteredSession<OutgoingDistributableSessionData> b = session();
+        final CountDownLatch storing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws InterruptedException {
+                storing.countDown();
+                release.await();
+                return true;
+            }
+        }).when(manager).store(a);
+        this.coalescer = new SnapshotCoalescer(10);
+        this.coalescer.add(manager);
+        this.coalescer.add(other);
+        this.coalescer.snapshot(a, manager);
+        this.coalescer.start();
+        assertTrue(storing.await(5, TimeUnit.SECONDS));
+        this.coalescer.snapshot(b, manager);
+
+        // Waits for the batch in progress
+        Future<Boolean> result = this.executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return coalescer.remove(manager);
+            }
+        });
+        Thread.sleep(SHORT_INTERVAL);
+        assertFalse(result.isDone());
+        release.countDown();
+        assertFalse(result.get(5, TimeUnit.SECONDS));
+
+        // The queued session of the unregistered manager is discarded, and no others are accepted
+        this.coalescer.snapshot(a, manager);
+        Thread.sleep(5 * SHORT_INTERVAL);
+        verify(manager, times(1)).store(a);
+        verify(manager, never()).store(b);
+    }
+
+    @Test
+    public void stop() {
+        CoalescingSnapshotManager manager = manager(LONG_INTERVAL);
+        ClusteredSession<OutgoingDistributableSessionData> a = session();
+        this.coalescer = new SnapshotCoalescer(10);
+        this.coalescer.add(manager);
+        this.coalescer.start();
+        this.coalescer.snapshot(a, manager);
+        // Waits for the thread, discarding the queued sessions
+        this.coalescer.stop();
+        this.coalescer.snapshot(a, manager);
+        verify(manager, never()).store(a);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CoalescingSnapshotManager manager(int interval) {
+        CoalescingSnapshotManager manager = mock(CoalescingSnapshotManager.class);
+        when(manager.getInterval()).thenReturn(interval);
+        when(manager.getClassLoader()).thenReturn(SnapshotCoalescerTestCase.class.getClassLoader());
+        when(manager.store(any(ClusteredSession.class))).thenReturn(true);
+        return manager;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ClusteredSession<OutgoingDistributableSessionData> session() {
+        return mock(ClusteredSession.class);
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.catalina.Container;
 import org.apache.catalina.Session;
 import org.jboss.as.clustering.web.DistributedCacheManager;
 import org.jboss.as.clustering.web.OutgoingDistributableSessionData;
+import org.jboss.as.web.session.ClusteredSession;
 import org.jboss.as.web.session.ClusteredSessionManager;
 import org.jboss.as.web.session.notification.ClusteredSessionNotificationPolicy;
 import org.jboss.as.web.session.notification.LegacyClusteredSessionNotificationPolicy;
@@ -94,6 +95,9 @@ public class MockClusteredSessionManager extends MockSessionManager implements
         return ReplicationTrigger.SET_AND_NON_PRIMITIVE_GET;
     }
 
+    public void sessionTimeoutChanged(ClusteredSession<OutgoingDistributableSessionData> session) {
+    }
+
     public void removeLocal(Session session) {
     }
 
@@ -136,8 +136,9 @@ public class MockDistributedCacheManager implements DistributedCacheManager<Outg
         // no-op
     }
 
-    public void storeSessionData(OutgoingDistributableSessionData sessionData) {
+    public long storeSessionData(OutgoingDistributableSessionData sessionData) {
         // no-op
+        return -1;
     }
 
     public void setForceSynchronous(boolean forceSynchronous) {
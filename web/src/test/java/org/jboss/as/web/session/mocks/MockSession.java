@@ -72,7 +72,8 @@ public class MockSession extends ClusteredSession<OutgoingDistributableSessionDa
     }
 
     @Override
-    public void processSessionReplication() {
+    public long processSessionReplication() {
+        return -1;
     }
 
     @Override